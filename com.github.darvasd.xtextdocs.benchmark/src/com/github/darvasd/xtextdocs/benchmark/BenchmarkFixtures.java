@@ -0,0 +1,117 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup;
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.XtextPackage;
+import org.eclipse.xtext.resource.XtextResourceSet;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Injector;
+
+/**
+ * Inputs shared by the benchmarks. The models are loaded from the resources of
+ * the test and example projects.
+ */
+final class BenchmarkFixtures {
+	static final String GRAMMAR_FILE_NAME = "DomainmodelGrammar.xmi";
+	static final String XCORE_FILE_NAME = "Library.xcore";
+
+	/**
+	 * Typical doc comment of a grammar rule, containing block tags, inline tags
+	 * and HTML formatting.
+	 */
+	static final String DOC_COMMENT = String.join("\n", //
+			"/**", //
+			" * An <b>entity</b> is a named type with a list of {@link Feature features}.", //
+			" * It may extend another entity, see {@link Entity#superType}.", //
+			" * <p>", //
+			" * Example: {@code entity Blog extends Post { title : String }}", //
+			" * <ul>", //
+			" * <li>The name shall be <i>unique</i> within the package.</li>", //
+			" * <li>The features are inherited from the `superType`.</li>", //
+			" * </ul>", //
+			" * @param name Name of the entity, see {@link QualifiedName}.", //
+			" * @param features Features, may be <i>empty</i>.", //
+			" * @see PackageDeclaration", //
+			" * @since 1.0", //
+			" */");
+
+	/**
+	 * Typical main description of a doc comment, without the comment markers.
+	 */
+	static final String DOC_COMMENT_TEXT = String.join("\n", //
+			"An <b>entity</b> is a named type with a list of {@link Feature features}.", //
+			"It may extend another entity, see {@link Entity#superType}.", //
+			"<p>", //
+			"Example: {@code entity Blog extends Post { title : String }}", //
+			"<ul>", //
+			"<li>The name shall be <i>unique</i> within the package.</li>", //
+			"<li>The features are inherited from the `superType`.</li>", //
+			"</ul>");
+
+	private BenchmarkFixtures() {
+		// Utility class.
+	}
+
+	/**
+	 * Loads the Domainmodel example grammar. Note that the node model is not
+	 * saved in the XMI file, i.e. the head comments will not be found.
+	 */
+	static Grammar loadGrammar() throws IOException {
+		// Outside of OSGi the Xtext metamodel is registered on first access only
+		EPackage.Registry.INSTANCE.put(XtextPackage.eNS_URI, XtextPackage.eINSTANCE);
+
+		Resource resource = new XMIResourceImpl(resourceUri(GRAMMAR_FILE_NAME));
+		resource.load(null);
+		EObject content = resource.getContents().get(0);
+		Preconditions.checkState(content instanceof Grammar, "%s does not contain a grammar.", GRAMMAR_FILE_NAME);
+
+		EcoreUtil.resolveAll(content);
+		return (Grammar) content;
+	}
+
+	/**
+	 * Loads the Library example Xcore metamodel.
+	 */
+	static XcoreResource loadXcoreResource() {
+		Injector injector = new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration();
+		XtextResourceSet resourceSet = injector.getInstance(XtextResourceSet.class);
+		resourceSet.setClasspathURIContext(BenchmarkFixtures.class.getClassLoader());
+		Resource resource = resourceSet.getResource(resourceUri(XCORE_FILE_NAME), true);
+		Preconditions.checkState(resource instanceof XcoreResource, "%s is not an Xcore resource.", XCORE_FILE_NAME);
+
+		EcoreUtil.resolveAll(resourceSet);
+		return (XcoreResource) resource;
+	}
+
+	private static URI resourceUri(String fileName) {
+		URL url = BenchmarkFixtures.class.getClassLoader().getResource(fileName);
+		Preconditions.checkNotNull(url, "File %s not found.", fileName);
+		try {
+			return URI.createURI(url.toURI().toString());
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
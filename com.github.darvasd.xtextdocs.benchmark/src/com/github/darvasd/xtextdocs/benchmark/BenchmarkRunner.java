@@ -0,0 +1,39 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark uber-jar. Runs the selected benchmarks (all of
+ * them by default) with the GC profiler attached, thus the allocation rate is
+ * reported next to the throughput. All the standard JMH command line options
+ * are accepted, e.g. {@code java -jar benchmarks.jar DocComment -f 2}.
+ */
+public final class BenchmarkRunner {
+	private BenchmarkRunner() {
+		// Utility class.
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder() //
+				.parent(new CommandLineOptions(args)) //
+				.addProfiler(GCProfiler.class) //
+				.build();
+		new Runner(options).run();
+	}
+}
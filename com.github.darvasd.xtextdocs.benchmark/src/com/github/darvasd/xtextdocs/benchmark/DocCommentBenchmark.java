@@ -0,0 +1,62 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.darvasd.xtextdocs.common.formatter.DocCommentTextUtil;
+import com.github.darvasd.xtextdocs.common.formatter.MarkdownTextFormatter;
+import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
+import com.github.darvasd.xtextdocs.xtext.doccomment.DocCommentBlockTag;
+
+/**
+ * Benchmarks of the doc comment parsing and of the formatting of the doc
+ * comment texts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocCommentBenchmark {
+	private final String docComment = BenchmarkFixtures.DOC_COMMENT;
+	private final String docCommentText = BenchmarkFixtures.DOC_COMMENT_TEXT;
+	private final Function<String, String> linkToTarget = it -> "#" + it.toLowerCase();
+
+	@Benchmark
+	public List<DocCommentBlockTag> parse() {
+		// The comment is parsed on first access
+		return DocComment.parse(docComment).getParts();
+	}
+
+	@Benchmark
+	public String format() {
+		return DocCommentTextUtil.format(docCommentText, MarkdownTextFormatter.INSTANCE);
+	}
+
+	@Benchmark
+	public String resolveLinks() {
+		return DocCommentTextUtil.resolveLinks(docCommentText, MarkdownTextFormatter.INSTANCE, linkToTarget);
+	}
+}
@@ -0,0 +1,74 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.xtext.Grammar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator;
+import com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+
+/**
+ * Benchmarks of the grammar documentation generation, measuring separately the
+ * extraction of the documentation from the grammar and its formatting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrammarDocsBenchmark {
+	/**
+	 * Whether the simplified grammar and the reference graph are included in the
+	 * formatted documentation.
+	 */
+	@Param({ "false", "true" })
+	public boolean includeAll;
+
+	private Grammar grammar;
+	private GrammarDoc grammarDoc;
+	private MarkdownDocsFormatter formatter;
+
+	@Setup
+	public void setup() throws IOException {
+		grammar = BenchmarkFixtures.loadGrammar();
+		grammarDoc = DocsGenerator.createGrammarDocumentation(grammar);
+
+		formatter = new MarkdownDocsFormatter();
+		formatter.setIncludeSimplifiedGrammar(includeAll);
+		formatter.setIncludeDotReferenceGraph(includeAll);
+	}
+
+	@Benchmark
+	public GrammarDoc createGrammarDocumentation() {
+		return DocsGenerator.createGrammarDocumentation(grammar);
+	}
+
+	@Benchmark
+	public CharSequence formatGrammar() {
+		return formatter.formatGrammar(grammarDoc);
+	}
+}
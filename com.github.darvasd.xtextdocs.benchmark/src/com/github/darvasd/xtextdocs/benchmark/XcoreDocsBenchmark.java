@@ -0,0 +1,53 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.darvasd.xtextdocs.xcore.formatter.MarkdownXcoreDocsFormatter;
+
+/**
+ * Benchmark of the Xcore metamodel documentation generation. The loading of
+ * the metamodel is not measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XcoreDocsBenchmark {
+	private XcoreResource resource;
+	private MarkdownXcoreDocsFormatter formatter;
+
+	@Setup
+	public void setup() {
+		resource = BenchmarkFixtures.loadXcoreResource();
+		formatter = new MarkdownXcoreDocsFormatter();
+	}
+
+	@Benchmark
+	public CharSequence generateDocs() {
+		return formatter.generateDocs(resource);
+	}
+}
@@ -0,0 +1,86 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics.jfr;
+
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter;
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase;
+import com.github.darvasd.xtextdocs.common.metrics.IDocsMetricsListener;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Metrics listener emitting Java Flight Recorder events, to correlate the
+ * phases of the documentation generation with the other events of a profiling
+ * session (e.g. allocations, GC pauses).
+ * <p>
+ * The events are only committed if they are enabled in the recording settings
+ * (they are enabled by default). As the {@code jdk.jfr} API is not available
+ * in the JavaSE-1.8 profile, this listener is provided by a separate bundle
+ * requiring Java 11.
+ */
+public final class JfrMetricsListener implements IDocsMetricsListener {
+	/**
+	 * Event of a completed phase. It is committed at the end of the phase, the
+	 * duration of the phase is given by its {@code phaseDuration} field.
+	 */
+	@Name("com.github.darvasd.xtextdocs.Phase")
+	@Label("Documentation Generation Phase")
+	@Category("Xtext Docs")
+	@StackTrace(false)
+	public static final class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Phase Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long phaseDuration;
+	}
+
+	/**
+	 * Event of an increased counter.
+	 */
+	@Name("com.github.darvasd.xtextdocs.Counter")
+	@Label("Documentation Generation Counter")
+	@Category("Xtext Docs")
+	@StackTrace(false)
+	public static final class CounterEvent extends Event {
+		@Label("Counter")
+		String counter;
+
+		@Label("Delta")
+		long delta;
+	}
+
+	@Override
+	public void phaseCompleted(DocsPhase phase, long durationNanos) {
+		PhaseEvent event = new PhaseEvent();
+		if (event.shouldCommit()) {
+			event.phase = phase.getDisplayName();
+			event.phaseDuration = durationNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void counted(DocsCounter counter, long delta) {
+		CounterEvent event = new CounterEvent();
+		if (event.shouldCommit()) {
+			event.counter = counter.getDisplayName();
+			event.delta = delta;
+			event.commit();
+		}
+	}
+}
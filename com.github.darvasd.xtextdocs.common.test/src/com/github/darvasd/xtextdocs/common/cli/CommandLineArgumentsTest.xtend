@@ -0,0 +1,63 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.cli
+
+import org.junit.Assert
+import org.junit.Test
+
+class CommandLineArgumentsTest {
+	static val FLAGS = #{"sharded", "metrics"};
+	static val OPTIONS = #{"output", "parallelism"};
+
+	@Test
+	def void parseTest() {
+		val args = CommandLineArguments.parse(#["a.xtext", "--sharded", "--output", "docs.md", "--parallelism=4", "b.xmi"], FLAGS, OPTIONS);
+		Assert.assertEquals(#["a.xtext", "b.xmi"], args.positional);
+		Assert.assertTrue(args.hasFlag("sharded"));
+		Assert.assertFalse(args.hasFlag("metrics"));
+		Assert.assertEquals("docs.md", args.getString("output", null));
+		Assert.assertEquals(4, args.getInt("parallelism", 1));
+	}
+
+	@Test
+	def void defaultsTest() {
+		val args = CommandLineArguments.parse(#[], FLAGS, OPTIONS);
+		Assert.assertTrue(args.positional.isEmpty);
+		Assert.assertNull(args.getString("output", null));
+		Assert.assertEquals("x", args.getString("output", "x"));
+		Assert.assertEquals(1, args.getInt("parallelism", 1));
+	}
+
+	@Test
+	def void separatorTest() {
+		val args = CommandLineArguments.parse(#["--metrics", "--", "--sharded", "a.xtext"], FLAGS, OPTIONS);
+		Assert.assertEquals(#["--sharded", "a.xtext"], args.positional);
+		Assert.assertTrue(args.hasFlag("metrics"));
+		Assert.assertFalse(args.hasFlag("sharded"));
+	}
+
+	@Test
+	def void invalidArgumentsTest() {
+		assertInvalid("--unknown");
+		assertInvalid("--output");
+		assertInvalid("--sharded=true");
+		assertInvalid("--parallelism", "many");
+	}
+
+	private static def void assertInvalid(String... args) {
+		try {
+			CommandLineArguments.parse(args, FLAGS, OPTIONS).getInt("parallelism", 1);
+			Assert.fail('''IllegalArgumentException expected for «args.toList»''');
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.formatter
+
+import org.junit.Assert
+import org.junit.Test
+
+class HtmlTextFormatterTest {
+	@Test
+	def escapeTest() {
+		val formatter = HtmlTextFormatter.INSTANCE;
+		Assert.assertEquals("a &lt;b&gt; &amp; &quot;c&quot; &#39;d&#39;", formatter.escape('''a <b> & "c" 'd' '''.toString.trim));
+		Assert.assertEquals("a_b *c*", formatter.escape("a_b *c*"));
+	}
+
+	@Test
+	def formattingTest() {
+		val formatter = HtmlTextFormatter.INSTANCE;
+		Assert.assertEquals("<b>a</b>", formatter.bold("a"));
+		Assert.assertEquals("<i>a\nb</i>", formatter.italic("a\nb"));
+		Assert.assertEquals("", formatter.bold(null));
+		Assert.assertEquals("", formatter.italic(""));
+		Assert.assertEquals("<code>a&lt;b</code>", formatter.inlineCode("a<b"));
+		Assert.assertEquals("<pre><code>x &amp;&amp; y</code></pre>", formatter.codeBlock("x && y"));
+		Assert.assertEquals('''<a href="#a&amp;b">x</a>'''.toString, formatter.link("x", "#a&b"));
+		Assert.assertEquals("x", formatter.link("x", null));
+		Assert.assertEquals("\n<ul>\n<li>a</li>\n<li>b</li>\n</ul>\n", formatter.unorderedList(#["a", "b"]));
+	}
+
+	@Test
+	def docCommentTest() {
+		val actual = InlineTagTree.parse("a <b>x</b> {@code y<z} {@link Foo} & <p>end").render(HtmlTextFormatter.INSTANCE, ["#" + it.toLowerCase], true);
+		Assert.assertEquals('''a <b>x</b> <code>y&lt;z</code> <a href="#foo">Foo</a> &amp; <br>«"\n"»end'''.toString, actual);
+	}
+}
@@ -0,0 +1,86 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.formatter
+
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree.Kind
+import org.junit.Assert
+import org.junit.Test
+
+class InlineTagTreeTest {
+	@Test
+	def treeStructureTest() {
+		val tree = InlineTagTree.parse('''a <b>b <i>c</i></b> {@link X y}''');
+		
+		Assert.assertEquals(#[Kind.TEXT, Kind.BOLD, Kind.TEXT, Kind.LINK], tree.nodes.map[kind]);
+		Assert.assertEquals(#[Kind.TEXT, Kind.ITALIC], tree.nodes.get(1).children.map[kind]);
+		Assert.assertEquals("X", tree.nodes.get(3).text);
+		Assert.assertEquals("y", tree.nodes.get(3).children.head.text);
+	}
+
+	@Test
+	def nestedFormattingTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val input = '''<b>x <i>y</i></b> {@code z}''';
+		val expected = '''«formatter.bold('''x «formatter.italic("y")»''')» «formatter.inlineCode("z")»''';
+
+		Assert.assertEquals(expected, InlineTagTree.parse(input).render(formatter));
+	}
+
+	@Test
+	def formatAndLinksTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val input = '''See {@link Foo} and {@linkplain http://eclipse.org <b>Eclipse</b>}.''';
+		val expected = '''See «formatter.link("Foo", "#foo")» and «formatter.link(formatter.bold("Eclipse"), "http://eclipse.org")».''';
+
+		Assert.assertEquals(expected, DocCommentTextUtil.formatWithLinks(input, formatter, [
+			if(it.startsWith("http")) it else "#" + it.toLowerCase
+		]));
+	}
+
+	@Test
+	def unclosedTagsTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val input = '''a <b>b <i>c</b> d</i> {@code e <ul><li>f'''; 
+		val expected = '''a «formatter.bold("b <i>c")» d</i> {@code e <ul><li>f''';
+
+		Assert.assertEquals(expected, InlineTagTree.parse(input).render(formatter));
+	}
+
+	@Test
+	def codeIsVerbatimTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val input = '''`<b>a_b</b>` c_d''';
+		val expected = '''«formatter.inlineCode("<b>a_b</b>")» c\_d''';
+
+		Assert.assertEquals(expected, InlineTagTree.parse(input).render(formatter, [it], true));
+	}
+
+	@Test
+	def selectedKindsTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val input = '''<b>a</b> {@link B}''';
+		val expected = '''<b>a</b> «formatter.link("B", "B")»''';
+
+		Assert.assertEquals(expected, InlineTagTree.parse(input, #{Kind.LINK}).render(formatter));
+	}
+
+	@Test
+	def largeInputTest() {
+		// Many unclosed tags shall not make the parsing quadratic
+		val builder = new StringBuilder();
+		for (i : 0 ..< 100_000) {
+			builder.append("<b><i><ul>{@code `\n");
+		}
+		val input = builder.toString;
+
+		Assert.assertEquals(input, InlineTagTree.parse(input).render(MarkdownTextFormatter.INSTANCE));
+	}
+}
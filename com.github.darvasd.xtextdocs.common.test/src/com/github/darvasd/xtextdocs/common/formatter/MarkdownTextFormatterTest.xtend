@@ -31,6 +31,32 @@ class MarkdownTextFormatterTest {
 		Assert.assertEquals(expected, actual);
 	}
 	
+	@Test
+	def escapeCodeSpanTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		Assert.assertEquals('''a\_b `c_d*e` f\*g'''.toString, formatter.escape('''a_b `c_d*e` f*g'''.toString));
+		Assert.assertEquals('''``a_`b`_c`` d\_e'''.toString, formatter.escape('''``a_`b`_c`` d_e'''.toString));
+		// Unclosed code span
+		Assert.assertEquals('''a\_b ``c\_d`'''.toString, formatter.escape('''a_b ``c_d`'''.toString));
+	}
+
+	@Test
+	def appendTest() {
+		val formatter = MarkdownTextFormatter.INSTANCE;
+		val out = new StringBuilder("x");
+		formatter.appendEscaped(out, "a_b");
+		formatter.appendBold(out, "c\nd");
+		formatter.appendItalic(out, "");
+		formatter.appendInlineCode(out, "e");
+		formatter.appendLink(out, "f", "#g");
+
+		Assert.assertEquals("x" + formatter.escape("a_b") + formatter.bold("c\nd") + formatter.inlineCode("e") + formatter.link("f", "#g"), out.toString);
+		Assert.assertEquals("**c**\n**d**", formatter.bold("c\nd"));
+		Assert.assertEquals("**c\n  d**", formatter.bold("c\n  d"));
+		Assert.assertEquals("_c_\n\n_d_", formatter.italic("c\n\nd"));
+		Assert.assertEquals("[f](#g)", formatter.link("f", "#g"));
+	}
+
 	@Test
 	def boldTest1() {
 		val expected = '''**content**''';
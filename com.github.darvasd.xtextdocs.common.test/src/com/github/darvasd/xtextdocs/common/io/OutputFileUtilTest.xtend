@@ -0,0 +1,77 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.nio.file.attribute.PosixFileAttributeView
+import java.nio.file.attribute.PosixFilePermissions
+import org.junit.After
+import org.junit.Assert
+import org.junit.Assume
+import org.junit.Before
+import org.junit.Test
+
+class OutputFileUtilTest {
+	private Path directory;
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs");
+	}
+
+	@After
+	def void deleteDirectory() {
+		Files.list(directory).forEach[Files.delete(it)];
+		Files.delete(directory);
+	}
+
+	@Test
+	def void writeIfChangedTest() {
+		val file = directory.resolve("out.md");
+
+		// New file
+		Assert.assertTrue(OutputFileUtil.writeIfChanged(file, "árvíztűrő"));
+		Assert.assertEquals("árvíztűrő", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+		// Same content: the file is not touched
+		val oldTime = FileTime.fromMillis(1_000_000);
+		Files.setLastModifiedTime(file, oldTime);
+		Assert.assertFalse(OutputFileUtil.writeIfChanged(file, [it.append("árvíz").append("tűrő")]));
+		Assert.assertEquals(oldTime, Files.getLastModifiedTime(file));
+
+		// Different content of the same length
+		Assert.assertTrue(OutputFileUtil.writeIfChanged(file, "árvíztűrŐ"));
+		Assert.assertEquals("árvíztűrŐ", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+		// No temporary file remains
+		Assert.assertEquals(1, Files.list(directory).count);
+	}
+
+	@Test
+	def void permissionsTest() {
+		Assume.assumeNotNull(Files.getFileAttributeView(directory, PosixFileAttributeView));
+		val file = directory.resolve("out.md");
+
+		// New file: the default permissions, like a file created directly
+		val reference = Files.createFile(directory.resolve("reference.md"));
+		Assert.assertTrue(OutputFileUtil.writeIfChanged(file, "a"));
+		Assert.assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(file));
+
+		// Replaced file: its permissions are kept
+		val permissions = PosixFilePermissions.fromString("rw-rw-r--");
+		Files.setPosixFilePermissions(file, permissions);
+		Assert.assertTrue(OutputFileUtil.writeIfChanged(file, "b"));
+		Assert.assertEquals(permissions, Files.getPosixFilePermissions(file));
+	}
+}
@@ -0,0 +1,139 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io
+
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Comparator
+import java.util.concurrent.Executors
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class ShardedOutputTest {
+	private Path directory;
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs");
+	}
+
+	@After
+	def void deleteDirectory() {
+		Files.walk(directory).sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+	}
+
+	@Test
+	def void uniqueFileNamesTest() {
+		val fileNames = ShardedOutput.uniqueFileNames(#["Rule", "rule", "index", "a/b", "", "Rule"], "md", "index.md");
+		Assert.assertEquals(#["Rule", "rule", "index", "a/b", ""], fileNames.keySet.toList);
+		Assert.assertEquals(#["Rule.md", "rule-2.md", "index-2.md", "a_b.md", "_.md"], fileNames.values.toList);
+	}
+
+	@Test
+	def void writeTest() {
+		val executor = Executors.newFixedThreadPool(4);
+		try {
+			val output = createOutput(10, "x");
+			val result = output.write(executor);
+			Assert.assertEquals(output.fileNames.toList, result.written);
+			Assert.assertEquals(#[], result.upToDate);
+			Assert.assertEquals("shard 3 x", new String(Files.readAllBytes(directory.resolve("shard3.md")), StandardCharsets.UTF_8));
+
+			// Only the changed shard is written
+			val output2 = createOutput(10, "x");
+			output2.add("shard10.md", "shard 10 y");
+			val result2 = output2.write(executor);
+			Assert.assertEquals(#["shard10.md"], result2.written);
+			Assert.assertEquals(10, result2.upToDate.size);
+			Assert.assertEquals(11, result2.shardCount);
+
+			// Sequential writing gives the same result
+			Assert.assertEquals(11, output2.write(null).upToDate.size);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	def void failureTest() {
+		val executor = Executors.newFixedThreadPool(4);
+		try {
+			val output = createOutput(5, "x");
+			output.add("failing.md", [throw new IOException("Failure")]);
+			try {
+				output.write(executor);
+				Assert.fail();
+			} catch (IOException e) {
+				Assert.assertEquals("Failure", e.message);
+			}
+			// The other shards are written anyway
+			Assert.assertEquals(5, Files.list(directory).count);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	def void manifestTest() {
+		val manifest = "pages/.shards";
+		Files.createDirectories(directory.resolve("pages"));
+		Files.write(directory.resolve("pages/other.md"), #[1 as byte]);
+
+		val output = new ShardedOutput(directory, manifest) => [
+			add("index.md", "index");
+			add("pages/a.md", "a");
+			add("pages/b.md", "b");
+		];
+		Assert.assertEquals(#[], output.write(null).deleted);
+		Assert.assertEquals("index.md\npages/a.md\npages/b.md\n",
+			new String(Files.readAllBytes(directory.resolve(manifest)), StandardCharsets.UTF_8));
+
+		// Only the stale shards recorded in the manifest are deleted
+		val output2 = new ShardedOutput(directory, manifest) => [
+			add("index.md", "index");
+			add("pages/b.md", "b");
+		];
+		val result2 = output2.write(null);
+		Assert.assertEquals(#["pages/a.md"], result2.deleted);
+		Assert.assertEquals(#["index.md", "pages/b.md"], result2.upToDate);
+		Assert.assertFalse(Files.exists(directory.resolve("pages/a.md")));
+		Assert.assertTrue(Files.exists(directory.resolve("pages/other.md")));
+
+		// The paths leaving the directory recorded in the manifest are ignored
+		Files.write(directory.resolve(manifest), #["../outside.md", "/etc/passwd", "pages/b.md"]);
+		Files.write(directory.resolve("pages/b.md"), #[1 as byte]);
+		Assert.assertEquals(#["pages/b.md"], new ShardedOutput(directory, manifest).write(null).deleted);
+	}
+
+	@Test
+	def void pageDirectoryNameTest() {
+		Assert.assertEquals("Grammar", ShardedOutput.pageDirectoryName("Grammar.md"));
+		Assert.assertEquals("my.grammar", ShardedOutput.pageDirectoryName("my.grammar.md"));
+		Assert.assertEquals("README_pages", ShardedOutput.pageDirectoryName("README"));
+	}
+
+	@Test(expected = IllegalArgumentException)
+	def void outsideShardTest() {
+		new ShardedOutput(directory).add("../index.md", "index");
+	}
+
+	private def ShardedOutput createOutput(int shardCount, String suffix) {
+		val ret = new ShardedOutput(directory);
+		for (i : 0 ..< shardCount) {
+			ret.add('''shard«i».md'''.toString, '''shard «i» «suffix»''');
+		}
+		return ret;
+	}
+}
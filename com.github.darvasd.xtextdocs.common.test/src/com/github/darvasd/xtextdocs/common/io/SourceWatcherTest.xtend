@@ -0,0 +1,73 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class SourceWatcherTest {
+	private Path directory;
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs").toRealPath;
+	}
+
+	@After
+	def void deleteDirectory() {
+		Files.list(directory).forEach[Files.delete(it)];
+		Files.delete(directory);
+	}
+
+	@Test
+	def void coalescingTest() {
+		val a = Files.write(directory.resolve("a.xtext"), "a".bytes);
+		val b = Files.write(directory.resolve("b.xtext"), "b".bytes);
+		val watcher = new SourceWatcher(#[a, b], SourceWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+		try {
+			// Several changes of several files are reported at once
+			Files.write(a, "a2".bytes);
+			Files.write(b, "b2".bytes);
+			Files.write(a, "a3".bytes);
+			Assert.assertEquals(#{a, b}, watcher.awaitChanges());
+
+			// The files not watched are ignored, the replaced files are detected
+			Files.write(directory.resolve("c.xtext"), "c".bytes);
+			val temp = Files.write(directory.resolve("b.xtext.tmp"), "b3".bytes);
+			Files.move(temp, b, StandardCopyOption.REPLACE_EXISTING);
+			Assert.assertEquals(#{b}, watcher.awaitChanges());
+		} finally {
+			watcher.close();
+		}
+	}
+
+	@Test
+	def void closeTest() {
+		val a = Files.write(directory.resolve("a.xtext"), "a".bytes);
+		val watcher = new SourceWatcher(#[a], SourceWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+		val executor = Executors.newSingleThreadExecutor();
+		try {
+			val changes = executor.submit([watcher.awaitChanges()]);
+			Thread.sleep(50);
+			watcher.close();
+			Assert.assertTrue(changes.get(10, TimeUnit.SECONDS).isEmpty);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
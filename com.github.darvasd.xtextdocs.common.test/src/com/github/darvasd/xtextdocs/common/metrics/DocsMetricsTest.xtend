@@ -0,0 +1,133 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics
+
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil
+import java.nio.file.Files
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import org.junit.Assert
+import org.junit.Test
+
+class DocsMetricsTest {
+	@Test
+	def void listenerTest() {
+		val summary = new SummaryMetricsListener();
+		Assert.assertFalse(DocsMetrics.enabled);
+
+		DocsMetrics.runWithListeners(#[summary], [
+			Assert.assertTrue(DocsMetrics.enabled);
+			DocsMetrics.time(DocsPhase.DOT_GRAPH, [Thread.sleep(2); null]);
+			DocsMetrics.time(DocsPhase.DOT_GRAPH, [null]);
+			DocsMetrics.count(DocsCounter.RULES, 3);
+			DocsMetrics.count(DocsCounter.RULES, 4);
+		]);
+		Assert.assertFalse(DocsMetrics.enabled);
+
+		// Not reported, as the listener is no longer registered
+		DocsMetrics.count(DocsCounter.RULES, 5);
+		DocsMetrics.stop(DocsPhase.DOT_GRAPH, DocsMetrics.start);
+
+		Assert.assertEquals(2, summary.getCount(DocsPhase.DOT_GRAPH));
+		Assert.assertTrue(summary.getTotalNanos(DocsPhase.DOT_GRAPH) >= 2_000_000);
+		Assert.assertEquals(0, summary.getCount(DocsPhase.FILE_WRITE));
+		Assert.assertEquals(7, summary.getCount(DocsCounter.RULES));
+
+		val text = summary.summary;
+		Assert.assertTrue(text.contains("dot graph: "));
+		Assert.assertTrue(text.contains("(2 times)"));
+		Assert.assertTrue(text.contains("rules: 7"));
+		Assert.assertFalse(text.contains("file write"));
+	}
+
+	@Test
+	def void removalOnFailureTest() {
+		try {
+			DocsMetrics.runWithListeners(#[new SummaryMetricsListener()], [throw new IllegalStateException()]);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Assert.assertFalse(DocsMetrics.enabled);
+	}
+
+	@Test
+	def void concurrentRunsTest() {
+		val first = new SummaryMetricsListener();
+		val second = new SummaryMetricsListener();
+		val bothRunning = new CountDownLatch(2);
+		val executor = Executors.newFixedThreadPool(2);
+		try {
+			val firstRun = executor.submit([
+				DocsMetrics.runWithListeners(#[first], [
+					bothRunning.countDown;
+					bothRunning.await;
+					DocsMetrics.count(DocsCounter.RULES, 1);
+				]);
+			] as Runnable);
+			val secondRun = executor.submit([
+				DocsMetrics.runWithListeners(#[second], [
+					bothRunning.countDown;
+					bothRunning.await;
+					DocsMetrics.count(DocsCounter.RULES, 2);
+				]);
+			] as Runnable);
+			firstRun.get;
+			secondRun.get;
+		} finally {
+			executor.shutdown();
+		}
+
+		// Each run is only reported to its own listeners
+		Assert.assertEquals(1, first.getCount(DocsCounter.RULES));
+		Assert.assertEquals(2, second.getCount(DocsCounter.RULES));
+	}
+
+	@Test
+	def void propagationTest() {
+		val summary = new SummaryMetricsListener();
+		val executor = Executors.newSingleThreadExecutor();
+		try {
+			DocsMetrics.runWithListeners(#[summary], [
+				// Only the propagated tasks are reported
+				executor.submit(DocsMetrics.propagate([DocsMetrics.count(DocsCounter.RULES, 3); DocsMetrics.enabled] as Callable<Boolean>)).get;
+				executor.submit([DocsMetrics.count(DocsCounter.RULES, 4)] as Runnable).get;
+			]);
+			// The listeners are not kept by the thread of the executor
+			Assert.assertFalse(executor.submit([DocsMetrics.enabled] as Callable<Boolean>).get);
+		} finally {
+			executor.shutdown();
+		}
+
+		Assert.assertEquals(3, summary.getCount(DocsCounter.RULES));
+	}
+
+	@Test
+	def void fileWriteTest() {
+		val summary = new SummaryMetricsListener();
+		val other = new SummaryMetricsListener();
+		val file = Files.createTempFile("xtextdocs", ".md");
+		try {
+			DocsMetrics.runWithListeners(#[summary, other], [
+				OutputFileUtil.writeIfChanged(file, "árvíz");
+				OutputFileUtil.writeIfChanged(file, "árvíz");
+			]);
+		} finally {
+			Files.delete(file);
+		}
+
+		Assert.assertEquals(2, summary.getCount(DocsPhase.FILE_WRITE));
+		Assert.assertEquals(14, summary.getCount(DocsCounter.BYTES_WRITTEN));
+		// All listeners are notified
+		Assert.assertEquals(14, other.getCount(DocsCounter.BYTES_WRITTEN));
+	}
+}
@@ -0,0 +1,67 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.scaling
+
+import com.google.common.collect.ImmutableList
+import java.util.List
+import org.junit.Assert
+
+/**
+ * Assertion on the time complexity of an operation, based on timing it on
+ * inputs of increasing size.
+ */
+class ScalingAssert {
+	/**
+	 * Maximal allowed growth of the time per element between two consecutive
+	 * input sizes. If the sizes grow tenfold, it is about 1 for linear and 10
+	 * for quadratic complexity.
+	 */
+	static val MAX_GROWTH_PER_ELEMENT = 4.0;
+
+	/**
+	 * Shorter times are considered to be this long, to avoid failures due to
+	 * the measurement noise on small inputs.
+	 */
+	static val MIN_MEASURABLE_NANOS = 1_000_000L;
+
+	static val REPETITIONS = 3;
+
+	/**
+	 * Fails if the time of the given operation per input element grows clearly
+	 * faster than linearly.
+	 *
+	 * @param name Name of the operation, for the failure message.
+	 * @param sizes Sizes of the inputs, in increasing order.
+	 * @param inputs Inputs of the given sizes.
+	 * @param operation Operation to be timed. Its result is ignored.
+	 */
+	static def <T> void assertLinear(String name, List<Integer> sizes, List<T> inputs, (T)=>Object operation) {
+		Assert.assertEquals(sizes.size, inputs.size);
+
+		// Warm-up
+		inputs.forEach[operation.apply(it)];
+
+		val times = ImmutableList.copyOf(inputs.map [ input |
+			(0 ..< REPETITIONS).map [
+				val start = System.nanoTime();
+				operation.apply(input);
+				System.nanoTime() - start
+			].min
+		]);
+
+		val summary = '''«name»: «FOR i : 0 ..< sizes.size SEPARATOR ', '»«sizes.get(i)» -> «times.get(i) / 1_000_000» ms«ENDFOR»''';
+		for (i : 1 ..< sizes.size) {
+			val previousPerElement = Math.max(times.get(i - 1), MIN_MEASURABLE_NANOS) as double / sizes.get(i - 1);
+			val perElement = times.get(i) as double / sizes.get(i);
+			Assert.assertTrue('''Super-linear growth of «summary»''', perElement <= MAX_GROWTH_PER_ELEMENT * previousPerElement);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.scaling
+
+/**
+ * JUnit category of the wall-clock scaling tests. They are slow and depend on
+ * the load of the machine, thus they are excluded from the default build and
+ * only run with the {@code scaling} profile.
+ */
+interface ScalingTests {
+}
@@ -0,0 +1,91 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.search
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import org.junit.Assert
+import org.junit.Test
+
+class SearchIndexTest {
+	@Test
+	def void termsTest() {
+		val index = new SearchIndex();
+		val model = index.addEntry("ParserRule", "parser", "#parserrule");
+		index.addText(model, "entry: a b");
+		index.addDocText(model, "Contains {@code HTMLEntry} and <b>bold</b> {@link Other_Rule}.");
+		val other = index.addEntry("Other", "enum", "#other");
+		index.addText(other, "entry");
+
+		Assert.assertEquals(2, index.entryCount);
+		Assert.assertEquals(#["ParserRule"], index.find("parser"));
+		Assert.assertEquals(#["ParserRule"], index.find("Rule"));
+		Assert.assertEquals(#["ParserRule"], index.find("parserrule"));
+		Assert.assertEquals(#["ParserRule", "Other"], index.find("entry"));
+		Assert.assertEquals(#["ParserRule"], index.find("htmlentry"));
+		Assert.assertEquals(#["ParserRule"], index.find("bold"));
+		Assert.assertEquals(#["ParserRule", "Other"], index.find("other"));
+		// Too short terms and tag names are not indexed
+		Assert.assertTrue(index.find("a").isEmpty);
+		Assert.assertTrue(index.find("code").isEmpty);
+		Assert.assertTrue(index.find("link").isEmpty);
+	}
+
+	@Test
+	def void outOfOrderTest() {
+		val index = new SearchIndex();
+		val first = index.addEntry("First", "class", "#anchor1");
+		val second = index.addEntry("Second", "class", "#anchor2");
+		index.addText(second, "shared");
+		index.addText(first, "shared shared");
+
+		Assert.assertEquals(#["First", "Second"], index.find("shared"));
+	}
+
+	@Test
+	def void writeTest() {
+		val index = new SearchIndex("doc.html");
+		index.addEntry("Foo", "parser", "#foo");
+		val bar = index.addEntry("Bar\"", "parser", "#bar");
+		index.addText(bar, "foo");
+		val out = new StringBuilder();
+		index.write(out);
+
+		Assert.assertEquals('''
+			{"version":1,
+			"entries":[
+			["Foo","parser","doc.html#foo"],
+			["Bar\"","parser","doc.html#bar"]],
+			"terms":{
+			"bar":[1],
+			"foo":[0,1]}}
+		'''.toString, out.toString);
+	}
+
+	@Test
+	def void saveTest() {
+		val directory = Files.createTempDirectory("search-index");
+		val file = directory.resolve("index.json");
+		try {
+			val index = new SearchIndex();
+			index.addEntry("Foo", "class", "#anchor1");
+			Assert.assertTrue(index.save(file));
+			Assert.assertFalse(index.save(file));
+
+			val expected = new StringBuilder();
+			index.write(expected);
+			Assert.assertEquals(expected.toString, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(directory);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.xtext
+
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.GrammarUtil
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.util.StringInputStream
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests of the offset-based source snippet extraction.
+ */
+class NodeTextExtractorTest {
+	static val GRAMMAR = '''
+		grammar test.Test with org.eclipse.xtext.common.Terminals
+
+		generate test "http://www.example.org/test/Test"
+
+		/**
+		 * Model.
+		 */
+		Model:
+			// Entries
+			entries+=Entry*;
+
+		Entry:
+			'entry' /* name */ name=ID
+
+
+
+			(':' value=INT)?  // optional value
+		;
+
+		enum Kind:
+			a /** A */ | b;
+	''';
+
+	@Test
+	def void commentsTest() {
+		val grammar = parse(GRAMMAR);
+
+		Assert.assertEquals("Model:\n\t\tentries+=Entry*;", XtextTokenUtil.tokenTextOrUnknown(rule(grammar, "Model")));
+		Assert.assertEquals("enum Kind:\n\ta  | b;", XtextTokenUtil.tokenTextOrUnknown(rule(grammar, "Kind")));
+	}
+
+	@Test
+	def void equivalenceTest() {
+		// Both line separators, with consecutive empty lines
+		for (text : #[GRAMMAR, GRAMMAR.replace("\n", "\r\n"), GRAMMAR.replace("\n", "\n\n \n\t\n")]) {
+			val grammar = parse(text);
+			for (rule : grammar.rules) {
+				Assert.assertEquals(text, joinedTokenText(rule), XtextTokenUtil.tokenTextOrUnknown(rule));
+			}
+		}
+	}
+
+	/**
+	 * Returns the source snippet of the given element by joining the texts of
+	 * its non-comment leaf nodes.
+	 */
+	private static def String joinedTokenText(EObject e) {
+		val text = NodeModelUtils.getNode(e).leafNodes.filter[!XtextTokenUtil.isCommentNode(it)].map[it.text].join;
+		return XtextTokenUtil.cleanupUnnecessaryNewlines(text.trim);
+	}
+
+	private static def rule(Grammar grammar, String name) {
+		return GrammarUtil.findRuleForName(grammar, name);
+	}
+
+	private static def Grammar parse(String text) {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = NodeTextExtractorTest.classLoader;
+		val resource = resourceSet.createResource(URI.createURI("test.xtext"));
+		resource.load(new StringInputStream(text), null);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+		return resource.contents.head as Grammar;
+	}
+}
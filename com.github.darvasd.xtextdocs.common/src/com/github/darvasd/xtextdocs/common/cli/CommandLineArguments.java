@@ -0,0 +1,159 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Parsed arguments of a command-line launcher. The options are given as
+ * {@code --name value} or {@code --name=value}, the flags as {@code --name}.
+ * The other arguments, and all arguments following {@code --}, are positional
+ * arguments (e.g. input files). Immutable.
+ */
+public final class CommandLineArguments {
+	private static final String OPTION_PREFIX = "--";
+
+	private final Set<String> flags;
+	private final Map<String, String> options;
+	private final List<String> positional;
+
+	private CommandLineArguments(Set<String> flags, Map<String, String> options, List<String> positional) {
+		this.flags = Collections.unmodifiableSet(flags);
+		this.options = Collections.unmodifiableMap(options);
+		this.positional = Collections.unmodifiableList(positional);
+	}
+
+	/**
+	 * Parses the given command-line arguments.
+	 *
+	 * @param args
+	 *            Command-line arguments. Shall not be {@code null}.
+	 * @param flagNames
+	 *            Names of the accepted flags, without the leading dashes. Shall
+	 *            not be {@code null}.
+	 * @param optionNames
+	 *            Names of the accepted options taking a value, without the
+	 *            leading dashes. Shall not be {@code null}.
+	 * @return The parsed arguments. Never {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if an unknown option is given, an option has no value or a
+	 *             flag has a value.
+	 */
+	public static CommandLineArguments parse(String[] args, Set<String> flagNames, Set<String> optionNames) {
+		Preconditions.checkNotNull(args, "args");
+		Preconditions.checkNotNull(flagNames, "flagNames");
+		Preconditions.checkNotNull(optionNames, "optionNames");
+
+		Set<String> flags = new HashSet<>();
+		Map<String, String> options = new HashMap<>();
+		List<String> positional = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals(OPTION_PREFIX)) {
+				for (int j = i + 1; j < args.length; j++) {
+					positional.add(args[j]);
+				}
+				break;
+			} else if (!arg.startsWith(OPTION_PREFIX)) {
+				positional.add(arg);
+				continue;
+			}
+
+			int valueStart = arg.indexOf('=');
+			String name = arg.substring(OPTION_PREFIX.length(), valueStart < 0 ? arg.length() : valueStart);
+			if (flagNames.contains(name)) {
+				if (valueStart >= 0) {
+					throw new IllegalArgumentException(String.format("The flag '%s' does not take a value.", arg));
+				}
+				flags.add(name);
+			} else if (optionNames.contains(name)) {
+				if (valueStart >= 0) {
+					options.put(name, arg.substring(valueStart + 1));
+				} else if (i + 1 < args.length) {
+					i++;
+					options.put(name, args[i]);
+				} else {
+					throw new IllegalArgumentException(String.format("Missing value for the option '%s'.", arg));
+				}
+			} else {
+				throw new IllegalArgumentException(String.format("Unknown option: '%s'.", arg));
+			}
+		}
+		return new CommandLineArguments(flags, options, positional);
+	}
+
+	/**
+	 * Returns true iff the given flag was given.
+	 *
+	 * @param name
+	 *            Name of the flag, without the leading dashes.
+	 * @return True iff the flag is present.
+	 */
+	public boolean hasFlag(String name) {
+		return flags.contains(name);
+	}
+
+	/**
+	 * Returns the value of the given option.
+	 *
+	 * @param name
+	 *            Name of the option, without the leading dashes.
+	 * @param defaultValue
+	 *            Value to be returned if the option was not given.
+	 * @return Value of the option, or the default value.
+	 */
+	public String getString(String name, String defaultValue) {
+		return options.getOrDefault(name, defaultValue);
+	}
+
+	/**
+	 * Returns the integer value of the given option.
+	 *
+	 * @param name
+	 *            Name of the option, without the leading dashes.
+	 * @param defaultValue
+	 *            Value to be returned if the option was not given.
+	 * @return Value of the option, or the default value.
+	 * @throws IllegalArgumentException
+	 *             if the value of the option is not an integer.
+	 */
+	public int getInt(String name, int defaultValue) {
+		String value = options.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(
+					String.format("The value of the option '--%s' shall be an integer: '%s'.", name, value), e);
+		}
+	}
+
+	/**
+	 * Returns the positional arguments, i.e. the arguments that are neither
+	 * options nor flags.
+	 *
+	 * @return Unmodifiable list of positional arguments, in their original
+	 *         order. Never {@code null}.
+	 */
+	public List<String> getPositional() {
+		return positional;
+	}
+}
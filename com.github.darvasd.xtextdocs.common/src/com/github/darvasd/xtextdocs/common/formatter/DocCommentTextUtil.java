@@ -10,12 +10,12 @@
 
 package com.github.darvasd.xtextdocs.common.formatter;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree.Kind;
 
 /**
  * Utility class with methods to represent the doc comment formatting using the
@@ -24,14 +24,20 @@ import java.util.stream.Stream;
  * For example, the &#123;&#64;code content&#125; tags will be replaced with the
  * text that is needed to format {@code content} as an inline code snippet in
  * the target textual representation.
+ * <p>
+ * The texts are parsed into an {@link InlineTagTree} in a single, linear-time
+ * pass. If both the formatting tags and the links are to be replaced, use
+ * {@link #formatWithLinks(String, ITextFormatter, Function)} to avoid parsing
+ * the text twice.
  */
 public class DocCommentTextUtil {
 	private DocCommentTextUtil() {
 		// Utility class.
 	}
 	
-	private static final String CODE_PATTERN1 = "\\{@code\\s+([^\\}]+)\\}";
-	private static final String CODE_PATTERN2 = "`(.*?)`";
+	private static final Set<Kind> FORMATTING_KINDS = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(Kind.LINK)));
+	private static final Set<Kind> LINK_KINDS = Collections.unmodifiableSet(EnumSet.of(Kind.LINK));
+	private static final Set<Kind> CODE_KINDS = Collections.unmodifiableSet(EnumSet.of(Kind.CODE));
 
 	/**
 	 * Replaces the following tags in the given text with the format defined by the
@@ -55,37 +61,7 @@ public class DocCommentTextUtil {
 			return null;
 		}
 		
-		String ret = text;
-
-		// {@code ...} or `...`
-		ret = ret.replaceAll(CODE_PATTERN1, formatter.inlineCode("$1"));
-		ret = ret.replaceAll(CODE_PATTERN2, formatter.inlineCode("$1"));
-
-		// <b>...</b>
-		ret = ret.replaceAll("\\Q<b>\\E(.*?)\\Q</b>\\E", formatter.bold("$1"));
-
-		// <i>...</i>
-		ret = ret.replaceAll("\\Q<i>\\E(.*?)\\Q</i>\\E", formatter.italic("$1"));
-
-		// <p>
-		ret = ret.replaceAll("\\Q<p>\\E", formatter.newLine());
-		
-		// <ul>..</ul>
-		Matcher ulMatcher = Pattern.compile("\\Q<ul>\\E(.*?)\\Q</ul>\\E", Pattern.DOTALL).matcher(ret);
-		while (ulMatcher.find()) {
-			String ul = ulMatcher.group(1).trim();
-			ret = ulMatcher.replaceFirst(formatAsList(ul, formatter));
-			ulMatcher.reset(ret);
-		}
-		//ret = ret.replaceAll("^\\s*\\Q<li>\\E(.*?)(\\Q</li>\\E|\\Q</ul>\\E|)", replacement)
-
-		return ret;
-	}
-	
-	private static String formatAsList(String ul, ITextFormatter formatter) {
-		String ret = ul.replaceAll("\\Q</li>\\E", "");
-		List<String> lines = Stream.of(ret.split("\\Q<li>\\E")).filter(it -> !it.trim().equals("")).collect(Collectors.toList());
-		return formatter.unorderedList(lines);
+		return InlineTagTree.parse(text, FORMATTING_KINDS).render(formatter);
 	}
 
 	/**
@@ -102,35 +78,29 @@ public class DocCommentTextUtil {
 	 * @return Formatted text
 	 */
 	public static String resolveLinks(String text, ITextFormatter formatter, Function<String, String> linkToTarget) {
-		String ret = text;
-		// TODO The code duplication could be reduced
+		return InlineTagTree.parse(text, LINK_KINDS).render(formatter, linkToTarget);
+	}
 
-		// {@link ...} and {@linkplain ...} (with no label, e.g. {@link ID})
-		{
-			Pattern linkPattern = Pattern.compile("\\{@link(?:plain)?\\s+([^ \\}]+)\\s*\\}");
-			Matcher matcher = linkPattern.matcher(ret);
-	
-			while (matcher.find()) {
-				String linkText = matcher.group(1);
-				ret = matcher.replaceFirst(formatter.link(linkText, linkToTarget.apply(linkText)));
-				matcher.reset(ret);
-			}
-		}
-		
-		// {@link <target> <label optionally with whitespace>} and {@linkplain <target> <label>}
-		{
-			Pattern linkPattern = Pattern.compile("\\{@link(?:plain)?\\s+([^ ]+)\\s+([^\\}]+)\\}");
-			Matcher matcher = linkPattern.matcher(ret);
-	
-			while (matcher.find()) {
-				String target = matcher.group(1);
-				String linkText = matcher.group(2);
-				ret = matcher.replaceFirst(formatter.link(linkText, linkToTarget.apply(target)));
-				matcher.reset(ret);
-			}
+	/**
+	 * Replaces the formatting tags (see {@link #format(String, ITextFormatter)})
+	 * and the link tags (see
+	 * {@link #resolveLinks(String, ITextFormatter, Function)}) in the given text
+	 * in one pass.
+	 * 
+	 * @param text
+	 *            Original text containing doc comment tags.
+	 * @param formatter
+	 *            Formatter to be used for the replacement.
+	 * @param linkToTarget
+	 *            Function that returns the target for a given link text.
+	 * @return Formatted text. It will be {@code null} if the given text is null.
+	 */
+	public static String formatWithLinks(String text, ITextFormatter formatter, Function<String, String> linkToTarget) {
+		if (text == null) {
+			return null;
 		}
 
-		return ret;
+		return InlineTagTree.parse(text).render(formatter, linkToTarget);
 	}
 	
 	/**
@@ -139,7 +109,6 @@ public class DocCommentTextUtil {
 	 * @return True if contains code.
 	 */
 	public static boolean containsCode(String originalText) {
-		return Pattern.matches(String.format(".*%s.*", CODE_PATTERN1), originalText) || 
-				Pattern.matches(String.format(".*%s.*", CODE_PATTERN2), originalText);
+		return InlineTagTree.parse(originalText, CODE_KINDS).containsCode();
 	}
 }
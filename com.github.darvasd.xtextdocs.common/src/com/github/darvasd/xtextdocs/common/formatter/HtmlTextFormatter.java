@@ -0,0 +1,174 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.formatter;
+
+import java.util.List;
+
+/**
+ * Text formatter producing HTML fragments. The texts to be formatted are not
+ * escaped by the formatting methods (they may contain already formatted
+ * parts), only by {@link #escape(String)}, the code snippets and the link
+ * targets.
+ */
+public final class HtmlTextFormatter implements ITextFormatter {
+	public static final HtmlTextFormatter INSTANCE = new HtmlTextFormatter();
+
+	private HtmlTextFormatter() {
+	}
+
+	@Override
+	public String escape(String original) {
+		StringBuilder ret = new StringBuilder(original.length() + 8);
+		appendEscaped(ret, original);
+		return ret.toString();
+	}
+
+	/**
+	 * Replaces the characters having special meaning in HTML texts and attribute
+	 * values with character references.
+	 */
+	@Override
+	public void appendEscaped(StringBuilder out, String original) {
+		int length = original.length();
+		for (int i = 0; i < length; i++) {
+			char c = original.charAt(i);
+			switch (c) {
+			case '&':
+				out.append("&amp;");
+				break;
+			case '<':
+				out.append("&lt;");
+				break;
+			case '>':
+				out.append("&gt;");
+				break;
+			case '"':
+				out.append("&quot;");
+				break;
+			case '\'':
+				out.append("&#39;");
+				break;
+			default:
+				out.append(c);
+			}
+		}
+	}
+
+	@Override
+	public String bold(String original) {
+		StringBuilder ret = new StringBuilder();
+		appendBold(ret, original);
+		return ret.toString();
+	}
+
+	@Override
+	public void appendBold(StringBuilder out, CharSequence original) {
+		appendElement(out, "b", original);
+	}
+
+	@Override
+	public String italic(String original) {
+		StringBuilder ret = new StringBuilder();
+		appendItalic(ret, original);
+		return ret.toString();
+	}
+
+	@Override
+	public void appendItalic(StringBuilder out, CharSequence original) {
+		appendElement(out, "i", original);
+	}
+
+	@Override
+	public String inlineCode(String original) {
+		StringBuilder ret = new StringBuilder();
+		appendInlineCode(ret, original);
+		return ret.toString();
+	}
+
+	/**
+	 * Appends the given text as inline code. Contrary to the other formatting
+	 * methods, the text is escaped, as it cannot contain formatted parts.
+	 */
+	@Override
+	public void appendInlineCode(StringBuilder out, String original) {
+		if (original == null || original.isEmpty()) {
+			return;
+		}
+
+		out.append("<code>");
+		appendEscaped(out, original);
+		out.append("</code>");
+	}
+
+	/**
+	 * Returns the given text as a preformatted code block. The text is escaped.
+	 */
+	@Override
+	public String codeBlock(String original) {
+		StringBuilder ret = new StringBuilder(original.length() + 32);
+		ret.append("<pre><code>");
+		appendEscaped(ret, original);
+		ret.append("</code></pre>");
+		return ret.toString();
+	}
+
+	@Override
+	public String newLine() {
+		return "<br>\n";
+	}
+
+	@Override
+	public String link(String text, String target) {
+		StringBuilder ret = new StringBuilder();
+		appendLink(ret, text, target);
+		return ret.toString();
+	}
+
+	/**
+	 * Appends a link to the given target. The target is escaped, the text is
+	 * kept as it is. If the target is {@code null} (e.g. unresolved link), only
+	 * the text is appended.
+	 */
+	@Override
+	public void appendLink(StringBuilder out, String text, String target) {
+		if (target == null) {
+			out.append(text);
+			return;
+		}
+
+		out.append("<a href=\"");
+		appendEscaped(out, target);
+		out.append("\">").append(text).append("</a>");
+	}
+
+	@Override
+	public String unorderedList(List<String> originals) {
+		StringBuilder ret = new StringBuilder("\n<ul>\n");
+		for (String line : originals) {
+			ret.append("<li>").append(line).append("</li>\n");
+		}
+		return ret.append("</ul>\n").toString();
+	}
+
+	/**
+	 * Appends the given text enclosed in the element with the given name, or
+	 * nothing if the text is {@code null} or empty.
+	 */
+	private static void appendElement(StringBuilder out, String elementName, CharSequence content) {
+		if (content == null || content.length() == 0) {
+			return;
+		}
+
+		out.append('<').append(elementName).append('>');
+		out.append(content);
+		out.append("</").append(elementName).append('>');
+	}
+}
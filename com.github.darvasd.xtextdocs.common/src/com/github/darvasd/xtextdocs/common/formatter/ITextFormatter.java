@@ -16,6 +16,11 @@ import java.util.List;
  * Interface for basic text formatting operations. A class implementing this
  * interface shall be able to represent the given raw text using the desired
  * formatting.
+ * <p>
+ * The {@code append*} methods write the formatted text directly to the given
+ * builder. Their default implementations delegate to the corresponding
+ * methods returning strings, implementations should override them to avoid
+ * creating intermediate strings.
  */
 public interface ITextFormatter {
 	/**
@@ -27,6 +32,19 @@ public interface ITextFormatter {
 	 */
 	String escape(String original);
 
+	/**
+	 * Appends the given original text escaped to the given builder.
+	 * 
+	 * @param out
+	 *            Builder to append to.
+	 * @param original
+	 *            Original text.
+	 * @see #escape(String)
+	 */
+	default void appendEscaped(StringBuilder out, String original) {
+		out.append(escape(original));
+	}
+
 	/**
 	 * Returns the given original text as bold.
 	 * <p>
@@ -40,6 +58,19 @@ public interface ITextFormatter {
 	 */
 	String bold(String original);
 
+	/**
+	 * Appends the given original text as bold to the given builder.
+	 * 
+	 * @param out
+	 *            Builder to append to.
+	 * @param original
+	 *            Original text. Can be {@code null}.
+	 * @see #bold(String)
+	 */
+	default void appendBold(StringBuilder out, CharSequence original) {
+		out.append(bold(original == null ? null : original.toString()));
+	}
+
 	/**
 	 * Returns the given original text as italic.
 	 * 
@@ -50,6 +81,19 @@ public interface ITextFormatter {
 	 */
 	String italic(String original);
 
+	/**
+	 * Appends the given original text as italic to the given builder.
+	 * 
+	 * @param out
+	 *            Builder to append to.
+	 * @param original
+	 *            Original text. Can be {@code null}.
+	 * @see #italic(String)
+	 */
+	default void appendItalic(StringBuilder out, CharSequence original) {
+		out.append(italic(original == null ? null : original.toString()));
+	}
+
 	/**
 	 * Returns the given original text as inline code.
 	 * 
@@ -61,6 +105,19 @@ public interface ITextFormatter {
 	 */
 	String inlineCode(String original);
 
+	/**
+	 * Appends the given original text as inline code to the given builder.
+	 * 
+	 * @param out
+	 *            Builder to append to.
+	 * @param original
+	 *            Original text. Can be {@code null}.
+	 * @see #inlineCode(String)
+	 */
+	default void appendInlineCode(StringBuilder out, String original) {
+		out.append(inlineCode(original));
+	}
+
 	/**
 	 * Returns the given original text as (multiline) code block.
 	 * 
@@ -88,6 +145,22 @@ public interface ITextFormatter {
 	 */
 	String link(String text, String target);
 
+	/**
+	 * Appends a link to the given target with the given text to the given
+	 * builder.
+	 * 
+	 * @param out
+	 *            Builder to append to.
+	 * @param text
+	 *            Text of the link.
+	 * @param target
+	 *            Target of the link.
+	 * @see #link(String, String)
+	 */
+	default void appendLink(StringBuilder out, String text, String target) {
+		out.append(link(text, target));
+	}
+
 	/**
 	 * Returns the given lines as unordered list.
 	 * 
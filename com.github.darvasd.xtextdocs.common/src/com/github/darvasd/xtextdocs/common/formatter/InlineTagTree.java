@@ -0,0 +1,709 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.formatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Tree representation of the inline formatting tags of a doc comment text. The
+ * text is parsed once, in linear time, and the resulting tree can be rendered
+ * with any {@link ITextFormatter} in one pass.
+ * <p>
+ * The following constructs are recognized:
+ * <ul>
+ * <li>Code snippets: &#123;&#64;code ...&#125; and `...`
+ * <li>Bold text: &lt;b&gt;...&lt;/b&gt;
+ * <li>Italic text: &lt;i&gt;...&lt;/i&gt;
+ * <li>New paragraph: &lt;p&gt;
+ * <li>Unordered list: &lt;ul&gt; &lt;li&gt; ... &lt;li&gt; ... &lt;/ul&gt;
+ * <li>Links: &#123;&#64;link target&#125;, &#123;&#64;link target label&#125;
+ * and their &#123;&#64;linkplain ...&#125; equivalents.
+ * </ul>
+ * Unclosed or unrecognized tags are kept as plain text.
+ * <p>
+ * Immutable.
+ */
+public final class InlineTagTree {
+	/**
+	 * Kinds of the nodes in the inline tag tree.
+	 */
+	public enum Kind {
+		/** Plain text. */
+		TEXT,
+		/** Inline code snippet. */
+		CODE,
+		/** Bold text. */
+		BOLD,
+		/** Italic text. */
+		ITALIC,
+		/** New paragraph. */
+		PARAGRAPH,
+		/** Unordered list, its children are {@link #LIST_ITEM}s. */
+		UNORDERED_LIST,
+		/** Item of an unordered list. */
+		LIST_ITEM,
+		/** Link, its children are the nodes of the label (if any). */
+		LINK
+	}
+
+	/**
+	 * Node of the inline tag tree.
+	 * <p>
+	 * Immutable.
+	 */
+	public static final class Node {
+		private final Kind kind;
+		private final String text;
+		private final List<Node> children;
+
+		private Node(Kind kind, String text, List<Node> children) {
+			this.kind = kind;
+			this.text = text;
+			this.children = children;
+		}
+
+		/**
+		 * Returns the kind of this node.
+		 *
+		 * @return Node kind. Never {@code null}.
+		 */
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns the text of this node: the content for {@link Kind#TEXT} and
+		 * {@link Kind#CODE} nodes, the link target for {@link Kind#LINK} nodes.
+		 *
+		 * @return Text of the node. It is {@code null} for the other node kinds.
+		 */
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * Returns the child nodes of this node.
+		 *
+		 * @return Unmodifiable list of children. Never {@code null}.
+		 */
+		public List<Node> getChildren() {
+			return children;
+		}
+	}
+
+	/** All constructs that can be recognized by the parser. */
+	private static final Set<Kind> ALL_KINDS = Collections.unmodifiableSet(EnumSet.allOf(Kind.class));
+
+	private static final String CODE_TAG = "{@code";
+	private static final String LINK_TAG = "{@link";
+	private static final String LINKPLAIN_SUFFIX = "plain";
+
+	private final List<Node> nodes;
+
+	private InlineTagTree(List<Node> nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Returns the top-level nodes of this tree.
+	 *
+	 * @return Unmodifiable list of nodes. Never {@code null}.
+	 */
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Parses the given doc comment text, recognizing all supported constructs.
+	 *
+	 * @param text
+	 *            Text to be parsed. Shall not be {@code null}.
+	 * @return Parsed inline tag tree.
+	 */
+	public static InlineTagTree parse(String text) {
+		return parse(text, ALL_KINDS);
+	}
+
+	/**
+	 * Parses the given doc comment text, recognizing only the given constructs.
+	 * The rest will be kept as plain text.
+	 *
+	 * @param text
+	 *            Text to be parsed. Shall not be {@code null}.
+	 * @param kinds
+	 *            Constructs to be recognized. {@link Kind#UNORDERED_LIST} and
+	 *            {@link Kind#LIST_ITEM} are handled together.
+	 * @return Parsed inline tag tree.
+	 */
+	public static InlineTagTree parse(String text, Set<Kind> kinds) {
+		Preconditions.checkNotNull(text);
+		Preconditions.checkNotNull(kinds);
+		return new InlineTagTree(new Parser(text, kinds).parse());
+	}
+
+	/**
+	 * Renders this tree with the given formatter. The targets of the links will be
+	 * the link targets as written in the text.
+	 *
+	 * @param formatter
+	 *            Formatter to be used.
+	 * @return Formatted text.
+	 */
+	public String render(ITextFormatter formatter) {
+		return render(formatter, Function.identity());
+	}
+
+	/**
+	 * Renders this tree with the given formatter. The targets of the links will be
+	 * determined by the given function.
+	 *
+	 * @param formatter
+	 *            Formatter to be used.
+	 * @param linkToTarget
+	 *            Function that returns the target for a given link text.
+	 * @return Formatted text.
+	 */
+	public String render(ITextFormatter formatter, Function<String, String> linkToTarget) {
+		return render(formatter, linkToTarget, false);
+	}
+
+	/**
+	 * Renders this tree with the given formatter. The targets of the links will be
+	 * determined by the given function.
+	 *
+	 * @param formatter
+	 *            Formatter to be used.
+	 * @param linkToTarget
+	 *            Function that returns the target for a given link text.
+	 * @param escapeText
+	 *            If true, the plain text parts (outside of code snippets and
+	 *            links) will be escaped using {@link ITextFormatter#escape(String)}.
+	 * @return Formatted text.
+	 */
+	public String render(ITextFormatter formatter, Function<String, String> linkToTarget, boolean escapeText) {
+		Preconditions.checkNotNull(formatter);
+		Preconditions.checkNotNull(linkToTarget);
+
+		StringBuilder ret = new StringBuilder();
+		new Renderer(formatter, linkToTarget, escapeText).renderAll(nodes, ret);
+		return ret.toString();
+	}
+
+	/**
+	 * Returns true iff this tree contains any code snippet.
+	 *
+	 * @return True if contains code.
+	 */
+	public boolean containsCode() {
+		return containsCode(nodes);
+	}
+
+	private static boolean containsCode(List<Node> nodes) {
+		for (Node node : nodes) {
+			if (node.kind == Kind.CODE || containsCode(node.children)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Renders the nodes using the given formatter, in one pass.
+	 */
+	private static final class Renderer {
+		private final ITextFormatter formatter;
+		private final Function<String, String> linkToTarget;
+		private final boolean escapeText;
+
+		Renderer(ITextFormatter formatter, Function<String, String> linkToTarget, boolean escapeText) {
+			this.formatter = formatter;
+			this.linkToTarget = linkToTarget;
+			this.escapeText = escapeText;
+		}
+
+		void renderAll(List<Node> nodes, StringBuilder out) {
+			for (Node node : nodes) {
+				render(node, out);
+			}
+		}
+
+		private String renderToString(List<Node> nodes) {
+			return renderToBuilder(nodes).toString();
+		}
+
+		private StringBuilder renderToBuilder(List<Node> nodes) {
+			StringBuilder ret = new StringBuilder();
+			renderAll(nodes, ret);
+			return ret;
+		}
+
+		private void render(Node node, StringBuilder out) {
+			switch (node.kind) {
+			case TEXT:
+				if (escapeText) {
+					formatter.appendEscaped(out, node.text);
+				} else {
+					out.append(node.text);
+				}
+				break;
+			case CODE:
+				formatter.appendInlineCode(out, node.text);
+				break;
+			case BOLD:
+				formatter.appendBold(out, renderToBuilder(node.children));
+				break;
+			case ITALIC:
+				formatter.appendItalic(out, renderToBuilder(node.children));
+				break;
+			case PARAGRAPH:
+				out.append(formatter.newLine());
+				break;
+			case UNORDERED_LIST:
+				List<String> items = new ArrayList<>(node.children.size());
+				for (Node item : node.children) {
+					items.add(renderToString(item.children));
+				}
+				out.append(formatter.unorderedList(items));
+				break;
+			case LIST_ITEM:
+				renderAll(node.children, out);
+				break;
+			case LINK:
+				// The link labels are not escaped
+				String linkText = node.children.isEmpty() ? node.text
+						: new Renderer(formatter, linkToTarget, false).renderToString(node.children);
+				formatter.appendLink(out, linkText, linkToTarget.apply(node.text));
+				break;
+			default:
+				throw new IllegalStateException("Unknown node kind: " + node.kind);
+			}
+		}
+	}
+
+	private static Node textNode(String text) {
+		return new Node(Kind.TEXT, text, Collections.emptyList());
+	}
+
+	/**
+	 * Single-pass, stack-based parser. Opened tags are kept on a stack; when a tag
+	 * is closed, the frames above its opening frame are turned back into plain
+	 * text. Each character and each frame is processed a constant number of
+	 * times, thus the parsing is linear in the length of the text.
+	 */
+	private static final class Parser {
+		private final String text;
+		private final Set<Kind> kinds;
+		private final List<Frame> stack = new ArrayList<>();
+		private final int[] openFrames = new int[Kind.values().length];
+		private int pos = 0;
+
+		/** Cached result of the last '}' lookup. */
+		private int nextCloseBrace = -1;
+		private int nextCloseBraceFrom = Integer.MAX_VALUE;
+
+		Parser(String text, Set<Kind> kinds) {
+			this.text = text;
+			this.kinds = kinds;
+		}
+
+		List<Node> parse() {
+			Frame root = new Frame(null, "");
+			stack.add(root);
+
+			while (pos < text.length()) {
+				char ch = text.charAt(pos);
+				boolean consumed = false;
+				if (ch == '`') {
+					consumed = tryBacktickCode();
+				} else if (ch == '{') {
+					consumed = tryCodeTag() || tryLink();
+				} else if (ch == '<') {
+					consumed = tryHtmlTag();
+				}
+
+				if (!consumed) {
+					top().appendText(ch);
+					pos++;
+				}
+			}
+
+			flattenAbove(0);
+			return root.toNodes();
+		}
+
+		private Frame top() {
+			return stack.get(stack.size() - 1);
+		}
+
+		private boolean enabled(Kind kind) {
+			return kinds.contains(kind);
+		}
+
+		// `...` (single line, non-empty)
+		private boolean tryBacktickCode() {
+			if (!enabled(Kind.CODE)) {
+				return false;
+			}
+			int end = pos + 1;
+			while (end < text.length() && text.charAt(end) != '`' && text.charAt(end) != '\n') {
+				end++;
+			}
+			if (end >= text.length() || text.charAt(end) != '`' || end == pos + 1) {
+				return false;
+			}
+			top().append(new Node(Kind.CODE, text.substring(pos + 1, end), Collections.emptyList()));
+			pos = end + 1;
+			return true;
+		}
+
+		// {@code ...}
+		private boolean tryCodeTag() {
+			if (!enabled(Kind.CODE) || !text.startsWith(CODE_TAG, pos)) {
+				return false;
+			}
+			int contentStart = pos + CODE_TAG.length();
+			if (contentStart >= text.length() || !Character.isWhitespace(text.charAt(contentStart))) {
+				return false;
+			}
+			int end = closeBraceFrom(contentStart);
+			if (end < 0) {
+				return false;
+			}
+			String content = text.substring(skipWhitespace(contentStart, end), end);
+			if (content.isEmpty()) {
+				return false;
+			}
+			top().append(new Node(Kind.CODE, content, Collections.emptyList()));
+			pos = end + 1;
+			return true;
+		}
+
+		// {@link target}, {@link target label}, {@linkplain ...}
+		private boolean tryLink() {
+			if (!enabled(Kind.LINK) || !text.startsWith(LINK_TAG, pos)) {
+				return false;
+			}
+			int contentStart = pos + LINK_TAG.length();
+			if (text.startsWith(LINKPLAIN_SUFFIX, contentStart)) {
+				contentStart += LINKPLAIN_SUFFIX.length();
+			}
+			if (contentStart >= text.length() || !Character.isWhitespace(text.charAt(contentStart))) {
+				return false;
+			}
+			int end = closeBraceFrom(contentStart);
+			if (end < 0) {
+				return false;
+			}
+
+			int targetStart = skipWhitespace(contentStart, end);
+			int targetEnd = targetStart;
+			while (targetEnd < end && !Character.isWhitespace(text.charAt(targetEnd))) {
+				targetEnd++;
+			}
+			if (targetStart == targetEnd) {
+				return false;
+			}
+			String target = text.substring(targetStart, targetEnd);
+			int labelStart = skipWhitespace(targetEnd, end);
+
+			List<Node> label = Collections.emptyList();
+			if (labelStart < end) {
+				Set<Kind> labelKinds = EnumSet.noneOf(Kind.class);
+				labelKinds.addAll(kinds);
+				labelKinds.remove(Kind.LINK);
+				label = new Parser(text.substring(labelStart, end), labelKinds).parse();
+			}
+			top().append(new Node(Kind.LINK, target, label));
+			pos = end + 1;
+			return true;
+		}
+
+		// <b>, </b>, <i>, </i>, <p>, <ul>, </ul>, <li>, </li>
+		private boolean tryHtmlTag() {
+			if (enabled(Kind.BOLD) && text.startsWith("<b>", pos)) {
+				open(Kind.BOLD, "<b>");
+			} else if (enabled(Kind.BOLD) && text.startsWith("</b>", pos)) {
+				return close(Kind.BOLD, "</b>");
+			} else if (enabled(Kind.ITALIC) && text.startsWith("<i>", pos)) {
+				open(Kind.ITALIC, "<i>");
+			} else if (enabled(Kind.ITALIC) && text.startsWith("</i>", pos)) {
+				return close(Kind.ITALIC, "</i>");
+			} else if (enabled(Kind.PARAGRAPH) && text.startsWith("<p>", pos)) {
+				top().append(new Node(Kind.PARAGRAPH, null, Collections.emptyList()));
+				pos += "<p>".length();
+			} else if (enabled(Kind.UNORDERED_LIST) && text.startsWith("<ul>", pos)) {
+				open(Kind.UNORDERED_LIST, "<ul>");
+			} else if (enabled(Kind.UNORDERED_LIST) && text.startsWith("</ul>", pos)) {
+				return close(Kind.UNORDERED_LIST, "</ul>");
+			} else if (enabled(Kind.UNORDERED_LIST) && text.startsWith("<li>", pos)
+					&& openFrames[Kind.UNORDERED_LIST.ordinal()] > 0) {
+				flattenAbove(lastFrameIndex(Kind.UNORDERED_LIST));
+				top().newListItem();
+				pos += "<li>".length();
+			} else if (enabled(Kind.UNORDERED_LIST) && text.startsWith("</li>", pos)
+					&& openFrames[Kind.UNORDERED_LIST.ordinal()] > 0) {
+				// Closing list item tags are optional and they are ignored
+				if (top().kind == Kind.UNORDERED_LIST) {
+					top().appendLiClose();
+				}
+				pos += "</li>".length();
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		private void open(Kind kind, String tag) {
+			stack.add(new Frame(kind, tag));
+			openFrames[kind.ordinal()]++;
+			pos += tag.length();
+		}
+
+		private boolean close(Kind kind, String tag) {
+			if (openFrames[kind.ordinal()] == 0) {
+				return false;
+			}
+			flattenAbove(lastFrameIndex(kind));
+			Frame frame = pop();
+			top().append(frame.toNode());
+			pos += tag.length();
+			return true;
+		}
+
+		private Frame pop() {
+			Frame frame = stack.remove(stack.size() - 1);
+			openFrames[frame.kind.ordinal()]--;
+			return frame;
+		}
+
+		private int lastFrameIndex(Kind kind) {
+			int ret = stack.size() - 1;
+			while (stack.get(ret).kind != kind) {
+				ret--;
+			}
+			return ret;
+		}
+
+		/**
+		 * Turns the (unclosed) frames above the given index back into text in the
+		 * frame with the given index. The frames are merged in one go, so that the
+		 * content of a frame is not copied repeatedly.
+		 */
+		private void flattenAbove(int index) {
+			Frame target = stack.get(index);
+			for (int i = index + 1; i < stack.size(); i++) {
+				Frame frame = stack.get(i);
+				openFrames[frame.kind.ordinal()]--;
+				target.appendText(frame.openTag);
+				for (List<Node> item : frame.items) {
+					for (Node node : item) {
+						target.append(node);
+					}
+					target.appendText("<li>");
+				}
+				for (Node node : frame.toNodes()) {
+					target.append(node);
+				}
+			}
+			stack.subList(index + 1, stack.size()).clear();
+		}
+
+		private int skipWhitespace(int from, int limit) {
+			int ret = from;
+			while (ret < limit && Character.isWhitespace(text.charAt(ret))) {
+				ret++;
+			}
+			return ret;
+		}
+
+		private int closeBraceFrom(int from) {
+			if (from < nextCloseBraceFrom || (nextCloseBrace >= 0 && from > nextCloseBrace)) {
+				nextCloseBrace = text.indexOf('}', from);
+				nextCloseBraceFrom = from;
+			}
+			return nextCloseBrace;
+		}
+	}
+
+	/**
+	 * Parser frame for an opened tag.
+	 */
+	private static final class Frame {
+		/** Marker for an ignored {@code </li>} (kept for unclosed lists). */
+		private static final Node LI_CLOSE = textNode("</li>");
+
+		private final Kind kind;
+		private final String openTag;
+		private List<Node> nodes = new ArrayList<>();
+		private final StringBuilder pendingText = new StringBuilder();
+		/** Finished list items (only for unordered lists). */
+		private final List<List<Node>> items = new ArrayList<>();
+
+		Frame(Kind kind, String openTag) {
+			this.kind = kind;
+			this.openTag = openTag;
+		}
+
+		void appendText(char ch) {
+			pendingText.append(ch);
+		}
+
+		void appendText(String str) {
+			pendingText.append(str);
+		}
+
+		void append(Node node) {
+			if (node.kind == Kind.TEXT && node != LI_CLOSE) {
+				pendingText.append(node.text);
+			} else {
+				flushText();
+				nodes.add(node);
+			}
+		}
+
+		void appendLiClose() {
+			flushText();
+			nodes.add(LI_CLOSE);
+		}
+
+		void flushText() {
+			if (pendingText.length() > 0) {
+				nodes.add(textNode(pendingText.toString()));
+				pendingText.setLength(0);
+			}
+		}
+
+		void newListItem() {
+			flushText();
+			items.add(nodes);
+			nodes = new ArrayList<>();
+		}
+
+		List<Node> toNodes() {
+			flushText();
+			List<Node> ret = new ArrayList<>(nodes.size());
+			for (Node node : nodes) {
+				ret.add(node == LI_CLOSE ? textNode(LI_CLOSE.text) : node);
+			}
+			return Collections.unmodifiableList(ret);
+		}
+
+		Node toNode() {
+			if (kind == Kind.UNORDERED_LIST) {
+				return toListNode();
+			}
+			return new Node(kind, null, toNodes());
+		}
+
+		/**
+		 * Creates the list node. Similarly to Javadoc, the whitespace at the beginning
+		 * and the end of the list is ignored, as well as the blank items.
+		 */
+		private Node toListNode() {
+			newListItem();
+			List<List<Node>> allItems = new ArrayList<>();
+			for (List<Node> item : items) {
+				List<Node> merged = new ArrayList<>();
+				for (Node node : item) {
+					if (node != LI_CLOSE) {
+						mergeInto(merged, node);
+					}
+				}
+				allItems.add(merged);
+			}
+
+			trimStart(allItems);
+			trimEnd(allItems);
+
+			List<Node> listItems = new ArrayList<>();
+			for (List<Node> item : allItems) {
+				if (!isBlank(item)) {
+					listItems.add(new Node(Kind.LIST_ITEM, null, Collections.unmodifiableList(item)));
+				}
+			}
+			return new Node(Kind.UNORDERED_LIST, null, Collections.unmodifiableList(listItems));
+		}
+
+		private static void mergeInto(List<Node> nodes, Node node) {
+			int last = nodes.size() - 1;
+			if (node.kind == Kind.TEXT && last >= 0 && nodes.get(last).kind == Kind.TEXT) {
+				nodes.set(last, textNode(nodes.get(last).text + node.text));
+			} else {
+				nodes.add(node);
+			}
+		}
+
+		private static void trimStart(List<List<Node>> items) {
+			for (List<Node> item : items) {
+				while (!item.isEmpty() && item.get(0).kind == Kind.TEXT) {
+					String trimmed = trimLeading(item.get(0).text);
+					if (!trimmed.isEmpty()) {
+						item.set(0, textNode(trimmed));
+						return;
+					}
+					item.remove(0);
+				}
+				if (!item.isEmpty()) {
+					return;
+				}
+			}
+		}
+
+		private static void trimEnd(List<List<Node>> items) {
+			for (int i = items.size() - 1; i >= 0; i--) {
+				List<Node> item = items.get(i);
+				while (!item.isEmpty() && item.get(item.size() - 1).kind == Kind.TEXT) {
+					String trimmed = trimTrailing(item.get(item.size() - 1).text);
+					if (!trimmed.isEmpty()) {
+						item.set(item.size() - 1, textNode(trimmed));
+						return;
+					}
+					item.remove(item.size() - 1);
+				}
+				if (!item.isEmpty()) {
+					return;
+				}
+			}
+		}
+
+		private static boolean isBlank(List<Node> item) {
+			for (Node node : item) {
+				if (node.kind != Kind.TEXT || !node.text.trim().isEmpty()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String trimLeading(String str) {
+			int i = 0;
+			while (i < str.length() && str.charAt(i) <= ' ') {
+				i++;
+			}
+			return str.substring(i);
+		}
+
+		private static String trimTrailing(String str) {
+			int i = str.length();
+			while (i > 0 && str.charAt(i - 1) <= ' ') {
+				i--;
+			}
+			return str.substring(0, i);
+		}
+	}
+}
@@ -5,25 +5,100 @@ import java.util.List
 class MarkdownTextFormatter implements ITextFormatter {
 	public static final MarkdownTextFormatter INSTANCE = new MarkdownTextFormatter();
 
+	static val char BACKTICK = '`';
+	static val char UNDERSCORE = '_';
+	static val char ASTERISK = '*';
+	static val char BACKSLASH = '\\';
+	static val char SPACE = ' ';
+	static val char TAB = '\t';
+	static val char LF = '\n';
+	static val char CR = '\r';
+	static val char VERTICAL_TAB = '\u000B';
+	static val char FORM_FEED = '\f';
+
 	private new() {
 	}
 	
 	override escape(String original) {
-		// FIXME do not escape inside "`"
-		var ret = original;
-		if (!original.contains("@code") && !original.contains("`")) { // quickfix
-			ret = original.replaceAll('''([_\*])''', '''\\$1''');
+		val ret = new StringBuilder(original.length + 8);
+		appendEscaped(ret, original);
+		return ret.toString;
+	}
+
+	/**
+	 * Escapes the Markdown emphasis characters ({@code _} and {@code *}),
+	 * except inside code spans (delimited by backtick strings of equal length).
+	 * A backtick string without closing pair is kept as it is.
+	 */
+	override appendEscaped(StringBuilder out, String original) {
+		val length = original.length;
+		var i = 0;
+		while (i < length) {
+			val c = original.charAt(i);
+			if (c == BACKTICK) {
+				val runEnd = backtickRunEnd(original, i);
+				val closingEnd = closingBacktickRunEnd(original, runEnd, runEnd - i);
+				if (closingEnd < 0) {
+					out.append(original, i, runEnd);
+					i = runEnd;
+				} else {
+					out.append(original, i, closingEnd);
+					i = closingEnd;
+				}
+			} else {
+				if (c == UNDERSCORE || c == ASTERISK) {
+					out.append(BACKSLASH);
+				}
+				out.append(c);
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the end index (exclusive) of the backtick string starting at the given index.
+	 */
+	private static def int backtickRunEnd(CharSequence text, int start) {
+		var end = start;
+		while (end < text.length && text.charAt(end) == BACKTICK) {
+			end++;
 		}
-		return ret;
+		return end;
+	}
+
+	/**
+	 * Returns the end index (exclusive) of the first backtick string of exactly the given
+	 * length starting at or after the given index, or -1 if there is no such string.
+	 */
+	private static def int closingBacktickRunEnd(CharSequence text, int from, int runLength) {
+		var i = from;
+		while (i < text.length) {
+			if (text.charAt(i) == BACKTICK) {
+				val end = backtickRunEnd(text, i);
+				if (end - i == runLength) {
+					return end;
+				}
+				i = end;
+			} else {
+				i++;
+			}
+		}
+		return -1;
 	}
 
 	override bold(String original) {
-		if (original.isNullOrEmpty) {
-			return "";
+		val ret = new StringBuilder();
+		appendBold(ret, original);
+		return ret.toString;
+	}
+
+	override appendBold(StringBuilder out, CharSequence original) {
+		if (original === null || original.length == 0) {
+			return;
 		}
-		
-		// The '**' does not support multiline!
-		return '''**«original.replaceAll("((?:\\r|\\n)+)(?=\\S)", "**$1**")»**''';
+
+		// The '**' does not support multiline, thus each line is formatted separately
+		appendPerLine(out, original, "**", false);
 	}
 
 	override codeBlock(String original) {
@@ -34,20 +109,74 @@ class MarkdownTextFormatter implements ITextFormatter {
 	}
 
 	override inlineCode(String original) {
+		val ret = new StringBuilder();
+		appendInlineCode(ret, original);
+		return ret.toString;
+	}
+
+	override appendInlineCode(StringBuilder out, String original) {
 		if (original.isNullOrEmpty) {
-			return "";
+			return;
 		}
-		
-		return '''`«original»`''';
+
+		out.append(BACKTICK).append(original).append(BACKTICK);
 	}
 
 	override italic(String original) {
-		if (original.isNullOrEmpty) {
-			return "";
+		val ret = new StringBuilder();
+		appendItalic(ret, original);
+		return ret.toString;
+	}
+
+	override appendItalic(StringBuilder out, CharSequence original) {
+		if (original === null || original.length == 0) {
+			return;
+		}
+
+		// The '_' does not support multiline, thus each line is formatted separately
+		appendPerLine(out, original, "_", true);
+	}
+
+	/**
+	 * Appends the given text enclosed by the given delimiter. The delimiter is also
+	 * closed before and reopened after each line break sequence. If
+	 * {@code emptyLinesToo} is false, this is skipped if the line break sequence is
+	 * followed by a whitespace character or it is at the end of the text.
+	 */
+	private static def void appendPerLine(StringBuilder out, CharSequence text, String delimiter, boolean emptyLinesToo) {
+		out.append(delimiter);
+		val length = text.length;
+		var i = 0;
+		while (i < length) {
+			val c = text.charAt(i);
+			if (isLineBreak(c)) {
+				var end = i + 1;
+				while (end < length && isLineBreak(text.charAt(end))) {
+					end++;
+				}
+				if (emptyLinesToo || (end < length && !isWhitespace(text.charAt(end)))) {
+					out.append(delimiter).append(text, i, end).append(delimiter);
+				} else {
+					out.append(text, i, end);
+				}
+				i = end;
+			} else {
+				out.append(c);
+				i++;
+			}
 		}
-		
-		// The '_' does not support multiline!
-		return '''_«original.replaceAll("((?:\\r|\\n)+)", "_$1_")»_''';
+		out.append(delimiter);
+	}
+
+	private static def boolean isLineBreak(char c) {
+		return c == CR || c == LF;
+	}
+
+	/**
+	 * Returns true iff the given character is a whitespace character ({@code \s} in a regular expression).
+	 */
+	private static def boolean isWhitespace(char c) {
+		return c == SPACE || c == TAB || c == LF || c == VERTICAL_TAB || c == FORM_FEED || c == CR;
 	}
 
 	override newLine() {
@@ -57,7 +186,13 @@ class MarkdownTextFormatter implements ITextFormatter {
 	}
 
 	override String link(String linkText, String target) {
-		return '''[«linkText»](«target»)''';
+		val ret = new StringBuilder();
+		appendLink(ret, linkText, target);
+		return ret.toString;
+	}
+
+	override appendLink(StringBuilder out, String linkText, String target) {
+		out.append('[').append(linkText).append("](").append(target).append(')');
 	}
 	
 	override unorderedList(List<String> originals) {
@@ -0,0 +1,251 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase;
+import com.google.common.base.Preconditions;
+
+/**
+ * Utility class to write the generated documentation files.
+ * <p>
+ * The content is first written to a temporary file next to the target file,
+ * using UTF-8 encoding for texts. If the target file already has the same content, it is
+ * left untouched (thus its modification time does not change). Otherwise the
+ * temporary file is atomically moved to the place of the target file, so that
+ * the readers never see a partially written file. The replaced file keeps its
+ * POSIX permissions, the new files get the default permissions (as determined
+ * by the umask).
+ * <p>
+ * The size of the generated content and the time spent on comparing and
+ * replacing the files are reported to {@link DocsMetrics}.
+ */
+public final class OutputFileUtil {
+	private OutputFileUtil() {
+		// Utility class.
+	}
+
+	/**
+	 * Writes the content of an output file to the given writer.
+	 */
+	@FunctionalInterface
+	public interface ContentWriter {
+		/**
+		 * Writes the content to the given writer. The writer shall not be closed.
+		 *
+		 * @param writer
+		 *            Writer to be used.
+		 * @throws IOException
+		 *             if the content cannot be written.
+		 */
+		void write(Writer writer) throws IOException;
+	}
+
+	/**
+	 * Writes the binary content of an output file to the given stream.
+	 */
+	@FunctionalInterface
+	public interface BinaryContentWriter {
+		/**
+		 * Writes the content to the given stream. The stream shall not be closed.
+		 *
+		 * @param out
+		 *            Stream to be used.
+		 * @throws IOException
+		 *             if the content cannot be written.
+		 */
+		void write(OutputStream out) throws IOException;
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Writes the given content to the given file, if it differs from the current
+	 * content of the file. The missing parent directories will be created.
+	 *
+	 * @param file
+	 *            File to be written. Shall not be {@code null}.
+	 * @param content
+	 *            Content to be written. Shall not be {@code null}.
+	 * @return True if the file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static boolean writeIfChanged(Path file, CharSequence content) throws IOException {
+		Preconditions.checkNotNull(content);
+		return writeIfChanged(file, writer -> writer.append(content));
+	}
+
+	/**
+	 * Writes the content produced by the given content writer to the given file,
+	 * if it differs from the current content of the file. The missing parent
+	 * directories will be created.
+	 *
+	 * @param file
+	 *            File to be written. Shall not be {@code null}.
+	 * @param contentWriter
+	 *            Producer of the content. Shall not be {@code null}.
+	 * @return True if the file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static boolean writeIfChanged(Path file, ContentWriter contentWriter) throws IOException {
+		Preconditions.checkNotNull(contentWriter);
+		return writeBytesIfChanged(file, out -> {
+			Writer writer = Channels.newWriter(Channels.newChannel(out), StandardCharsets.UTF_8.newEncoder(),
+					BUFFER_SIZE);
+			contentWriter.write(writer);
+			writer.flush();
+		});
+	}
+
+	/**
+	 * Writes the binary content produced by the given content writer to the
+	 * given file, if it differs from the current content of the file. The
+	 * missing parent directories will be created.
+	 *
+	 * @param file
+	 *            File to be written. Shall not be {@code null}.
+	 * @param contentWriter
+	 *            Producer of the content. Shall not be {@code null}.
+	 * @return True if the file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static boolean writeBytesIfChanged(Path file, BinaryContentWriter contentWriter) throws IOException {
+		Preconditions.checkNotNull(file);
+		Preconditions.checkNotNull(contentWriter);
+
+		Path target = file.toAbsolutePath();
+		Path directory = target.getParent();
+		Files.createDirectories(directory);
+
+		Path tempFile = createTempFile(directory, target.getFileName().toString());
+		try {
+			byte[] newHash;
+			long newSize;
+			MessageDigest digest = newDigest();
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+					OutputStream out = new DigestOutputStream(
+							new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), digest)) {
+				contentWriter.write(out);
+				out.flush();
+				newSize = channel.size();
+			}
+			newHash = digest.digest();
+			DocsMetrics.count(DocsCounter.BYTES_WRITTEN, newSize);
+
+			long start = DocsMetrics.start();
+			try {
+				if (Files.isRegularFile(target) && Files.size(target) == newSize
+						&& Arrays.equals(hashOf(target), newHash)) {
+					// Up-to-date, the target file is kept untouched
+					return false;
+				}
+
+				copyPermissions(target, tempFile);
+				moveAtomically(tempFile, target);
+				return true;
+			} finally {
+				DocsMetrics.stop(DocsPhase.FILE_WRITE, start);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Creates a new, empty temporary file next to the target file. Unlike
+	 * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute...)},
+	 * which restricts the permissions to the owner, the file gets the default
+	 * permissions, as it will become the output file.
+	 */
+	private static Path createTempFile(Path directory, String fileName) throws IOException {
+		while (true) {
+			Path tempFile = directory.resolve(String.format(".%s.%s.tmp", fileName,
+					Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36)));
+			try {
+				Files.newByteChannel(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+				return tempFile;
+			} catch (FileAlreadyExistsException e) {
+				// Name collision, retry with another name
+			}
+		}
+	}
+
+	/**
+	 * Copies the POSIX permissions of the given file, if it exists and the file
+	 * system supports them, to the given temporary file.
+	 */
+	private static void copyPermissions(Path file, Path tempFile) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+		if (view != null && Files.exists(file)) {
+			Files.setPosixFilePermissions(tempFile, view.readAttributes().permissions());
+		}
+	}
+
+	private static void moveAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			// Fall back to a non-atomic move (e.g. on some network file systems)
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static byte[] hashOf(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
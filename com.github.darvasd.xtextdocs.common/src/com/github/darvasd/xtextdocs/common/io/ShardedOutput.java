@@ -0,0 +1,424 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil.ContentWriter;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.google.common.base.Preconditions;
+
+/**
+ * Output consisting of several files (shards) in the same directory or its
+ * subdirectories, e.g. an index page and one page per documented element.
+ * <p>
+ * The shards are first registered together with their content writers, then
+ * they are rendered and written by {@link #write(ExecutorService)}, possibly
+ * concurrently. Each shard is written using
+ * {@link OutputFileUtil#writeIfChanged(Path, ContentWriter)}, thus only the
+ * shards whose content changed are touched on the disk.
+ * <p>
+ * If the output has a manifest file, the names of the written shards are
+ * recorded in it, and the files of the shards recorded by the previous run
+ * but no longer produced are deleted. Other files are never deleted.
+ * Otherwise the files of the shards that are no longer produced are kept.
+ * <p>
+ * Not thread-safe, the shards shall be registered from a single thread.
+ */
+public final class ShardedOutput {
+	/**
+	 * Result of writing a sharded output.
+	 */
+	public static final class Result {
+		private final List<String> written;
+		private final List<String> upToDate;
+		private final List<String> deleted;
+
+		private Result(List<String> written, List<String> upToDate, List<String> deleted) {
+			this.written = Collections.unmodifiableList(written);
+			this.upToDate = Collections.unmodifiableList(upToDate);
+			this.deleted = Collections.unmodifiableList(deleted);
+		}
+
+		/**
+		 * Returns the names of the shard files that have been written.
+		 *
+		 * @return Unmodifiable list of file names, in registration order.
+		 */
+		public List<String> getWritten() {
+			return written;
+		}
+
+		/**
+		 * Returns the names of the shard files that were already up-to-date.
+		 *
+		 * @return Unmodifiable list of file names, in registration order.
+		 */
+		public List<String> getUpToDate() {
+			return upToDate;
+		}
+
+		/**
+		 * Returns the names of the files of the stale shards (recorded in the
+		 * manifest by the previous run, but no longer produced) that have been
+		 * deleted.
+		 *
+		 * @return Unmodifiable list of file names, in the order of the previous
+		 *         manifest. Empty if the output has no manifest.
+		 */
+		public List<String> getDeleted() {
+			return deleted;
+		}
+
+		/**
+		 * Returns the total number of shards.
+		 *
+		 * @return Number of shards.
+		 */
+		public int getShardCount() {
+			return written.size() + upToDate.size();
+		}
+	}
+
+	/**
+	 * Name of the manifest file of the sharded outputs created by
+	 * {@link #forIndexFile(Path)}, stored next to the pages.
+	 */
+	public static final String MANIFEST_FILE_NAME = ".shards";
+
+	private final Path directory;
+	private final String manifestFileName;
+	private final Map<String, ContentWriter> shards = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new, empty sharded output without manifest. The files of the
+	 * shards that are no longer produced are not deleted.
+	 *
+	 * @param directory
+	 *            Directory to which the shards will be written. It will be
+	 *            created if it does not exist. Shall not be {@code null}.
+	 */
+	public ShardedOutput(Path directory) {
+		this(directory, null);
+	}
+
+	/**
+	 * Creates a new, empty sharded output, recording its shards in the given
+	 * manifest file.
+	 *
+	 * @param directory
+	 *            Directory to which the shards will be written. It will be
+	 *            created if it does not exist. Shall not be {@code null}.
+	 * @param manifestFileName
+	 *            Path of the manifest file, relative to the directory, using
+	 *            {@code /} as separator. If {@code null}, the files of the
+	 *            shards that are no longer produced are not deleted.
+	 */
+	public ShardedOutput(Path directory, String manifestFileName) {
+		this.directory = Preconditions.checkNotNull(directory, "directory");
+		Preconditions.checkArgument(manifestFileName == null || isRelativeFileName(manifestFileName),
+				"The manifest shall be in the output directory: '%s'", manifestFileName);
+		this.manifestFileName = manifestFileName;
+	}
+
+	/**
+	 * Creates a new, empty sharded output for the documentation with the given
+	 * index page. The index page is to be written in its directory, the other
+	 * pages in its page directory (see {@link #pageDirectoryName(String)}),
+	 * whose manifest file is named {@value #MANIFEST_FILE_NAME}.
+	 *
+	 * @param indexFile
+	 *            Path of the index page. Shall not be {@code null}.
+	 * @return The new sharded output, whose directory is the one of the index
+	 *         page. Never {@code null}.
+	 */
+	public static ShardedOutput forIndexFile(Path indexFile) {
+		Preconditions.checkNotNull(indexFile, "indexFile");
+		Path absoluteIndexFile = indexFile.toAbsolutePath();
+		return new ShardedOutput(absoluteIndexFile.getParent(),
+				pageDirectoryName(absoluteIndexFile.getFileName().toString()) + "/" + MANIFEST_FILE_NAME);
+	}
+
+	/**
+	 * Returns the name of the subdirectory containing the pages (except the
+	 * index page) of the documentation with the given index page. It is named
+	 * after the index page, without its extension (e.g., {@code Grammar} for
+	 * {@code Grammar.md}), or with {@code _pages} appended if it has no
+	 * extension. Thus the pages never overwrite the unrelated files next to the
+	 * index page.
+	 *
+	 * @param indexFileName
+	 *            File name of the index page. Shall not be {@code null}.
+	 * @return Name of the page directory. Never {@code null}.
+	 */
+	public static String pageDirectoryName(String indexFileName) {
+		Preconditions.checkNotNull(indexFileName, "indexFileName");
+		int extensionStart = indexFileName.lastIndexOf('.');
+		return extensionStart > 0 ? indexFileName.substring(0, extensionStart) : indexFileName + "_pages";
+	}
+
+	/**
+	 * Returns the directory to which the shards will be written.
+	 *
+	 * @return Output directory. Never {@code null}.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Registers a new shard. The content writer is only called when the output is
+	 * written, possibly on another thread and concurrently with the content
+	 * writers of the other shards.
+	 *
+	 * @param fileName
+	 *            File name of the shard, relative to the output directory, using
+	 *            {@code /} as separator. Shall not be {@code null}, and shall be
+	 *            different from the names of the already registered shards and
+	 *            of the manifest.
+	 * @param contentWriter
+	 *            Producer of the content of the shard. Shall not be
+	 *            {@code null}.
+	 */
+	public void add(String fileName, ContentWriter contentWriter) {
+		Preconditions.checkNotNull(fileName, "fileName");
+		Preconditions.checkNotNull(contentWriter, "contentWriter");
+		Preconditions.checkArgument(isRelativeFileName(fileName), "The shard shall be in the output directory: '%s'",
+				fileName);
+		Preconditions.checkArgument(!shards.containsKey(fileName) && !fileName.equals(manifestFileName),
+				"Duplicate shard file name: '%s'", fileName);
+		shards.put(fileName, contentWriter);
+	}
+
+	/**
+	 * Registers a new shard with the given content.
+	 *
+	 * @param fileName
+	 *            File name of the shard, relative to the output directory.
+	 * @param content
+	 *            Content of the shard. Shall not be {@code null}.
+	 * @see #add(String, ContentWriter)
+	 */
+	public void add(String fileName, CharSequence content) {
+		Preconditions.checkNotNull(content, "content");
+		add(fileName, writer -> writer.append(content));
+	}
+
+	/**
+	 * Returns the file names of the registered shards.
+	 *
+	 * @return Unmodifiable set of file names, in registration order.
+	 */
+	public Set<String> getFileNames() {
+		return Collections.unmodifiableSet(shards.keySet());
+	}
+
+	/**
+	 * Renders and writes all registered shards. The shards whose content did not
+	 * change are left untouched. If the output has a manifest, the stale shards
+	 * are deleted, then the manifest is updated.
+	 * <p>
+	 * If a shard cannot be rendered or written, the other shards are still
+	 * written, then the first failure is thrown. In this case neither the stale
+	 * shards nor the manifest are touched.
+	 *
+	 * @param executor
+	 *            Executor to be used to render and write the shards
+	 *            concurrently. If {@code null}, the shards are processed
+	 *            sequentially on the calling thread.
+	 * @return The file names of the written and up-to-date shards.
+	 * @throws IOException
+	 *             if a shard cannot be written.
+	 */
+	public Result write(ExecutorService executor) throws IOException {
+		List<String> written = new ArrayList<>();
+		List<String> upToDate = new ArrayList<>();
+		List<String> previousShards = readManifest();
+
+		if (executor == null) {
+			for (Map.Entry<String, ContentWriter> shard : shards.entrySet()) {
+				boolean changed = OutputFileUtil.writeIfChanged(directory.resolve(shard.getKey()), shard.getValue());
+				(changed ? written : upToDate).add(shard.getKey());
+			}
+			return new Result(written, upToDate, deleteStaleShards(previousShards));
+		}
+
+		Map<String, Future<Boolean>> tasks = new LinkedHashMap<>();
+		for (Map.Entry<String, ContentWriter> shard : shards.entrySet()) {
+			Path file = directory.resolve(shard.getKey());
+			ContentWriter contentWriter = shard.getValue();
+			tasks.put(shard.getKey(), executor.submit(DocsMetrics.propagate(() -> OutputFileUtil.writeIfChanged(file, contentWriter))));
+		}
+
+		IOException failure = null;
+		for (Map.Entry<String, Future<Boolean>> task : tasks.entrySet()) {
+			try {
+				(task.getValue().get() ? written : upToDate).add(task.getKey());
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = asIOException(task.getKey(), e.getCause());
+				} else {
+					failure.addSuppressed(e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while writing the shards.", e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return new Result(written, upToDate, deleteStaleShards(previousShards));
+	}
+
+	/**
+	 * Returns the shard file names recorded in the manifest, or an empty list if
+	 * there is no manifest yet.
+	 */
+	private List<String> readManifest() throws IOException {
+		List<String> ret = new ArrayList<>();
+		if (manifestFileName == null) {
+			return ret;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(directory.resolve(manifestFileName),
+				StandardCharsets.UTF_8)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (!line.isEmpty()) {
+					ret.add(line);
+				}
+			}
+		} catch (NoSuchFileException e) {
+			// First run
+		}
+		return ret;
+	}
+
+	/**
+	 * Deletes the files of the given previous shards which are not registered
+	 * anymore, then records the current shards in the manifest.
+	 *
+	 * @return The names of the deleted files.
+	 */
+	private List<String> deleteStaleShards(List<String> previousShards) throws IOException {
+		List<String> ret = new ArrayList<>();
+		if (manifestFileName == null) {
+			return ret;
+		}
+
+		for (String fileName : previousShards) {
+			// The manifest may have been edited, only the files within the directory are deleted
+			if (!shards.containsKey(fileName) && !fileName.equals(manifestFileName) && isRelativeFileName(fileName)
+					&& Files.deleteIfExists(directory.resolve(fileName))) {
+				ret.add(fileName);
+			}
+		}
+		OutputFileUtil.writeIfChanged(directory.resolve(manifestFileName), writer -> {
+			for (String fileName : shards.keySet()) {
+				writer.append(fileName).append('\n');
+			}
+		});
+		return ret;
+	}
+
+	/**
+	 * Returns true if the given file name is a relative path within the output
+	 * directory, without {@code .} and {@code ..} segments.
+	 */
+	private static boolean isRelativeFileName(String fileName) {
+		if (fileName.isEmpty() || fileName.startsWith("/") || fileName.indexOf('\\') >= 0
+				|| fileName.indexOf(':') >= 0) {
+			return false;
+		}
+		for (String segment : fileName.split("/", -1)) {
+			if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IOException asIOException(String fileName, Throwable cause) {
+		if (cause instanceof IOException) {
+			return (IOException) cause;
+		} else if (cause instanceof UncheckedIOException) {
+			return ((UncheckedIOException) cause).getCause();
+		} else {
+			return new IOException(String.format("Unable to write the shard '%s'.", fileName), cause);
+		}
+	}
+
+	/**
+	 * Returns unique file names for the given element names, to be used as
+	 * shard file names. The characters that are not safe in file names are
+	 * replaced by {@code _}. As the file systems may be case-insensitive, names
+	 * differing only in case are disambiguated by a numeric suffix, as well as
+	 * the names clashing with the reserved ones (e.g. the index page). The
+	 * result only depends on the given arguments and their order.
+	 *
+	 * @param names
+	 *            Names of the elements, in a deterministic order. Shall not be
+	 *            {@code null}. Duplicates are mapped to the same file name.
+	 * @param extension
+	 *            Extension of the file names, without the leading dot. Shall not
+	 *            be {@code null}.
+	 * @param reservedFileNames
+	 *            File names that shall not be used (e.g. the name of the index
+	 *            page).
+	 * @return Map from the element names to the file names, in the order of the
+	 *         given names.
+	 */
+	public static Map<String, String> uniqueFileNames(Collection<String> names, String extension,
+			String... reservedFileNames) {
+		Preconditions.checkNotNull(names, "names");
+		Preconditions.checkNotNull(extension, "extension");
+
+		Set<String> used = new HashSet<>();
+		for (String reserved : reservedFileNames) {
+			used.add(reserved.toLowerCase(Locale.ROOT));
+		}
+
+		Map<String, String> ret = new LinkedHashMap<>();
+		for (String name : names) {
+			if (ret.containsKey(name)) {
+				continue;
+			}
+
+			String base = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+			if (base.isEmpty() || base.startsWith(".")) {
+				base = "_" + base;
+			}
+			String fileName = base + "." + extension;
+			for (int i = 2; !used.add(fileName.toLowerCase(Locale.ROOT)); i++) {
+				fileName = base + "-" + i + "." + extension;
+			}
+			ret.put(name, fileName);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,138 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Watcher of source files (e.g. grammars), notifying about their changes. The
+ * directories of the files are watched using a {@link WatchService}, and the
+ * bursts of change events (e.g. an editor writing a file in several steps, or
+ * saving several files at once) are coalesced: the changes are only reported
+ * once no further change was detected for a quiet period.
+ * <p>
+ * The files replaced by a new file (e.g. by editors writing a temporary file
+ * then renaming it) are detected too. Not thread-safe, except {@link #close()}.
+ */
+public final class SourceWatcher implements Closeable {
+	/** Default quiet period, in milliseconds. */
+	public static final long DEFAULT_QUIET_PERIOD_MILLIS = 50;
+
+	private final WatchService watchService;
+	private final long quietPeriodMillis;
+
+	/** Watched file names, by watched directory. */
+	private final Map<Path, Set<Path>> watchedFiles = new HashMap<>();
+
+	/**
+	 * Creates a new watcher of the given files.
+	 *
+	 * @param files
+	 *            Files to be watched. Shall not be {@code null}.
+	 * @param quietPeriodMillis
+	 *            Time without further changes after which the changes are
+	 *            reported, in milliseconds. Shall not be negative.
+	 * @throws IOException
+	 *             if the directories of the files cannot be watched.
+	 */
+	public SourceWatcher(Collection<Path> files, long quietPeriodMillis) throws IOException {
+		Preconditions.checkNotNull(files, "files");
+		Preconditions.checkArgument(quietPeriodMillis >= 0, "quietPeriodMillis shall not be negative");
+
+		this.quietPeriodMillis = quietPeriodMillis;
+		this.watchService = files.isEmpty() ? null
+				: files.iterator().next().toAbsolutePath().getFileSystem().newWatchService();
+		try {
+			for (Path file : files) {
+				Path absoluteFile = file.toAbsolutePath().normalize();
+				Path directory = absoluteFile.getParent();
+				if (!watchedFiles.containsKey(directory)) {
+					directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY);
+					watchedFiles.put(directory, new HashSet<>());
+				}
+				watchedFiles.get(directory).add(absoluteFile.getFileName());
+			}
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits until some of the watched files changed, and no further change was
+	 * detected for the quiet period.
+	 *
+	 * @return The changed files, as absolute paths. Empty if the watcher has
+	 *         been closed, or there is no file to be watched.
+	 * @throws InterruptedException
+	 *             if the current thread has been interrupted while waiting.
+	 */
+	public Set<Path> awaitChanges() throws InterruptedException {
+		if (watchService == null) {
+			return new LinkedHashSet<>();
+		}
+
+		Set<Path> ret = new LinkedHashSet<>();
+		try {
+			while (ret.isEmpty()) {
+				collectChanges(watchService.take(), ret);
+			}
+			// Coalescing the events until the quiet period elapses without change
+			WatchKey key;
+			while ((key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+				collectChanges(key, ret);
+			}
+		} catch (ClosedWatchServiceException e) {
+			ret.clear();
+		}
+		return ret;
+	}
+
+	private void collectChanges(WatchKey key, Set<Path> changedFiles) {
+		Path directory = (Path) key.watchable();
+		Set<Path> fileNames = watchedFiles.get(directory);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (fileNames != null && context instanceof Path && fileNames.contains(context)) {
+				changedFiles.add(directory.resolve((Path) context));
+			}
+		}
+		key.reset();
+	}
+
+	/**
+	 * Stops watching the files. The threads waiting in {@link #awaitChanges()}
+	 * return with no change.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics;
+
+import java.util.Locale;
+
+/**
+ * Counted quantities of the documentation generation.
+ *
+ * @see DocsMetrics
+ */
+public enum DocsCounter {
+	/** Number of documented grammar rules. */
+	RULES,
+
+	/** Number of documented Xcore classifiers. */
+	CLASSIFIERS,
+
+	/** Number of documented enum literals (of enum rules or Xcore enums). */
+	LITERALS,
+
+	/** Number of links resolved to a documented element or to a URL. */
+	LINKS_RESOLVED,
+
+	/**
+	 * Number of bytes of the generated files (UTF-8), including the ones that
+	 * were up-to-date.
+	 */
+	BYTES_WRITTEN;
+
+	/**
+	 * Returns the human-readable name of the counter.
+	 *
+	 * @return Name of the counter, e.g. {@code "links resolved"}.
+	 */
+	public String getDisplayName() {
+		return name().toLowerCase(Locale.ROOT).replace('_', ' ');
+	}
+}
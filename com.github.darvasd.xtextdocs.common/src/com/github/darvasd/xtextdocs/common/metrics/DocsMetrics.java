@@ -0,0 +1,209 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Entry point of the instrumentation of the documentation generation. The
+ * instrumented code reports the durations of the phases and the counted
+ * quantities here, and they are forwarded to the listeners of the current run.
+ * <p>
+ * If no listener is registered, the reporting methods return immediately
+ * without measuring the time, thus the instrumentation is practically free.
+ * <p>
+ * The listeners are scoped to a run: they are registered for the thread
+ * executing {@link #runWithListeners(Iterable, Runnable)} only, thus
+ * concurrent generations do not receive each other's reports. The tasks
+ * submitted to other threads during a run shall be wrapped with
+ * {@link #propagate(Callable)} or {@link #propagate(Runnable)} to be reported
+ * to the listeners of the run.
+ * <p>
+ * Thread-safe.
+ */
+public final class DocsMetrics {
+	/**
+	 * Start time returned by {@link #start()} if no listener is registered.
+	 */
+	private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+	private static final IDocsMetricsListener[] NO_LISTENERS = new IDocsMetricsListener[0];
+
+	/** The listeners of the run executed by the current thread. */
+	private static final ThreadLocal<IDocsMetricsListener[]> LISTENERS = ThreadLocal.withInitial(() -> NO_LISTENERS);
+
+	private DocsMetrics() {
+		// Utility class.
+	}
+
+	/**
+	 * Executes the given action with the given listeners registered for the
+	 * current thread, in addition to the ones already registered, then
+	 * unregisters them (even if the action fails).
+	 *
+	 * @param listeners
+	 *            Listeners to be registered during the action. Shall not be
+	 *            {@code null}.
+	 * @param action
+	 *            Action to be executed. Shall not be {@code null}.
+	 */
+	public static void runWithListeners(Iterable<? extends IDocsMetricsListener> listeners, Runnable action) {
+		Preconditions.checkNotNull(listeners, "listeners");
+		Preconditions.checkNotNull(action, "action");
+
+		IDocsMetricsListener[] previous = LISTENERS.get();
+		List<IDocsMetricsListener> current = new ArrayList<>(Arrays.asList(previous));
+		for (IDocsMetricsListener listener : listeners) {
+			current.add(Preconditions.checkNotNull(listener, "listener"));
+		}
+		runWith(current.toArray(NO_LISTENERS), action);
+	}
+
+	/**
+	 * Returns a task executing the given one with the listeners registered for
+	 * the current thread, to be submitted to another thread.
+	 *
+	 * @param task
+	 *            Task to be wrapped. Shall not be {@code null}.
+	 * @return The wrapping task, or the given one if no listener is registered.
+	 */
+	public static <T> Callable<T> propagate(Callable<T> task) {
+		Preconditions.checkNotNull(task, "task");
+		IDocsMetricsListener[] listeners = LISTENERS.get();
+		if (listeners.length == 0) {
+			return task;
+		}
+		return () -> {
+			IDocsMetricsListener[] previous = LISTENERS.get();
+			LISTENERS.set(listeners);
+			try {
+				return task.call();
+			} finally {
+				restore(previous);
+			}
+		};
+	}
+
+	/**
+	 * Returns a task executing the given one with the listeners registered for
+	 * the current thread, to be submitted to another thread.
+	 *
+	 * @param task
+	 *            Task to be wrapped. Shall not be {@code null}.
+	 * @return The wrapping task, or the given one if no listener is registered.
+	 */
+	public static Runnable propagate(Runnable task) {
+		Preconditions.checkNotNull(task, "task");
+		IDocsMetricsListener[] listeners = LISTENERS.get();
+		if (listeners.length == 0) {
+			return task;
+		}
+		return () -> runWith(listeners, task);
+	}
+
+	private static void runWith(IDocsMetricsListener[] listeners, Runnable action) {
+		IDocsMetricsListener[] previous = LISTENERS.get();
+		LISTENERS.set(listeners);
+		try {
+			action.run();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	private static void restore(IDocsMetricsListener[] previous) {
+		if (previous.length == 0) {
+			// Pooled threads shall not keep the listeners of finished runs
+			LISTENERS.remove();
+		} else {
+			LISTENERS.set(previous);
+		}
+	}
+
+	/**
+	 * Returns true iff at least one listener is registered for the current
+	 * thread.
+	 *
+	 * @return True if the reports are forwarded to listeners.
+	 */
+	public static boolean isEnabled() {
+		return LISTENERS.get().length > 0;
+	}
+
+	/**
+	 * Returns the start time of a phase to be passed to
+	 * {@link #stop(DocsPhase, long)}.
+	 *
+	 * @return Start time. If no listener is registered, a special value
+	 *         indicating that the phase is not measured.
+	 */
+	public static long start() {
+		return LISTENERS.get().length > 0 ? System.nanoTime() : NOT_MEASURED;
+	}
+
+	/**
+	 * Reports the completion of the given phase to the registered listeners.
+	 * Typically called in a {@code finally} block.
+	 *
+	 * @param phase
+	 *            The completed phase.
+	 * @param start
+	 *            The start time of the phase, returned by {@link #start()}.
+	 */
+	public static void stop(DocsPhase phase, long start) {
+		if (start == NOT_MEASURED) {
+			return;
+		}
+		long duration = System.nanoTime() - start;
+		for (IDocsMetricsListener listener : LISTENERS.get()) {
+			listener.phaseCompleted(phase, duration);
+		}
+	}
+
+	/**
+	 * Executes the given action and reports its duration as an occurrence of the
+	 * given phase.
+	 *
+	 * @param phase
+	 *            The phase corresponding to the action.
+	 * @param action
+	 *            Action to be executed.
+	 * @return The result of the action.
+	 */
+	public static <T> T time(DocsPhase phase, Supplier<T> action) {
+		long start = start();
+		try {
+			return action.get();
+		} finally {
+			stop(phase, start);
+		}
+	}
+
+	/**
+	 * Reports the increment of the given counter to the registered listeners.
+	 *
+	 * @param counter
+	 *            The increased counter.
+	 * @param delta
+	 *            The increment.
+	 */
+	public static void count(DocsCounter counter, long delta) {
+		for (IDocsMetricsListener listener : LISTENERS.get()) {
+			listener.counted(counter, delta);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics;
+
+import java.util.Locale;
+
+/**
+ * Measured phases of the documentation generation.
+ *
+ * @see DocsMetrics
+ */
+public enum DocsPhase {
+	/** Collecting the head comments of the grammar elements from the node model. */
+	COMMENT_HARVESTING,
+
+	/** Parsing a doc comment into description and block tags. */
+	COMMENT_PARSING,
+
+	/** Formatting the section of a single grammar rule. */
+	RULE_FORMATTING,
+
+	/** Formatting the section of a single Xcore classifier. */
+	CLASSIFIER_FORMATTING,
+
+	/** Formatting the simplified grammar. */
+	SIMPLIFIED_GRAMMAR,
+
+	/** Formatting the rule dependency graph in DOT format. */
+	DOT_GRAPH,
+
+	/** Rendering an exported rule dependency graph (full or neighborhood). */
+	GRAPH_EXPORT,
+
+	/**
+	 * Comparing a generated file with the existing one and replacing it if
+	 * needed. The generation of the content is not included, as it is streamed
+	 * to a temporary file.
+	 */
+	FILE_WRITE;
+
+	/**
+	 * Returns the human-readable name of the phase.
+	 *
+	 * @return Name of the phase, e.g. {@code "comment parsing"}.
+	 */
+	public String getDisplayName() {
+		return name().toLowerCase(Locale.ROOT).replace('_', ' ');
+	}
+}
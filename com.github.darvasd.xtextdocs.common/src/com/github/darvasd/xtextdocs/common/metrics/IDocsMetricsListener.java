@@ -0,0 +1,42 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics;
+
+/**
+ * Listener notified about the measured phases and counted quantities of the
+ * documentation generation. Listeners are registered for a run using
+ * {@link DocsMetrics#runWithListeners(Iterable, Runnable)}.
+ * <p>
+ * The listeners may be notified concurrently from several threads, thus the
+ * implementations shall be thread-safe. They shall be cheap, as they are called
+ * on the hot paths of the generation (e.g. for every parsed doc comment).
+ */
+public interface IDocsMetricsListener {
+	/**
+	 * Called when an occurrence of a measured phase is completed.
+	 *
+	 * @param phase
+	 *            The completed phase. Never {@code null}.
+	 * @param durationNanos
+	 *            The duration of the phase in nanoseconds.
+	 */
+	void phaseCompleted(DocsPhase phase, long durationNanos);
+
+	/**
+	 * Called when a counted quantity is increased.
+	 *
+	 * @param counter
+	 *            The increased counter. Never {@code null}.
+	 * @param delta
+	 *            The increment.
+	 */
+	void counted(DocsCounter counter, long delta);
+}
@@ -0,0 +1,112 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics listener aggregating the reports, to be summarized at the end of the
+ * generation (e.g. logged by the workflow fragments).
+ * <p>
+ * The durations of the phases executed concurrently are summed, thus the
+ * total of a phase may exceed the elapsed time.
+ * <p>
+ * Thread-safe.
+ */
+public final class SummaryMetricsListener implements IDocsMetricsListener {
+	private final Map<DocsPhase, LongAdder> phaseNanos = new EnumMap<>(DocsPhase.class);
+	private final Map<DocsPhase, LongAdder> phaseCounts = new EnumMap<>(DocsPhase.class);
+	private final Map<DocsCounter, LongAdder> counters = new EnumMap<>(DocsCounter.class);
+
+	/**
+	 * Creates a new listener with all durations and counters set to zero.
+	 */
+	public SummaryMetricsListener() {
+		// The maps are filled in advance, thus they are only read afterwards
+		for (DocsPhase phase : DocsPhase.values()) {
+			phaseNanos.put(phase, new LongAdder());
+			phaseCounts.put(phase, new LongAdder());
+		}
+		for (DocsCounter counter : DocsCounter.values()) {
+			counters.put(counter, new LongAdder());
+		}
+	}
+
+	@Override
+	public void phaseCompleted(DocsPhase phase, long durationNanos) {
+		phaseNanos.get(phase).add(durationNanos);
+		phaseCounts.get(phase).increment();
+	}
+
+	@Override
+	public void counted(DocsCounter counter, long delta) {
+		counters.get(counter).add(delta);
+	}
+
+	/**
+	 * Returns the total duration of the given phase.
+	 *
+	 * @param phase
+	 *            Phase.
+	 * @return Sum of the durations of the completed occurrences, in nanoseconds.
+	 */
+	public long getTotalNanos(DocsPhase phase) {
+		return phaseNanos.get(phase).sum();
+	}
+
+	/**
+	 * Returns the number of completed occurrences of the given phase.
+	 *
+	 * @param phase
+	 *            Phase.
+	 * @return Number of occurrences.
+	 */
+	public long getCount(DocsPhase phase) {
+		return phaseCounts.get(phase).sum();
+	}
+
+	/**
+	 * Returns the value of the given counter.
+	 *
+	 * @param counter
+	 *            Counter.
+	 * @return Sum of the reported increments.
+	 */
+	public long getCount(DocsCounter counter) {
+		return counters.get(counter).sum();
+	}
+
+	/**
+	 * Returns a human-readable, multi-line summary of the phases that occurred
+	 * and of the non-zero counters.
+	 *
+	 * @return Summary text.
+	 */
+	public String getSummary() {
+		StringBuilder ret = new StringBuilder("Documentation generation metrics:");
+		for (DocsPhase phase : DocsPhase.values()) {
+			long count = getCount(phase);
+			if (count > 0) {
+				ret.append(String.format("%n  %s: %.1f ms (%d times)", phase.getDisplayName(),
+						getTotalNanos(phase) / 1_000_000.0, count));
+			}
+		}
+		for (DocsCounter counter : DocsCounter.values()) {
+			long count = getCount(counter);
+			if (count > 0) {
+				ret.append(String.format("%n  %s: %d", counter.getDisplayName(), count));
+			}
+		}
+		return ret.toString();
+	}
+}
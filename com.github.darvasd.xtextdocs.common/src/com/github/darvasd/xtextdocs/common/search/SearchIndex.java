@@ -0,0 +1,378 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree;
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree.Node;
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil;
+import com.google.common.base.Preconditions;
+
+/**
+ * Inverted index of the documented elements (e.g. grammar rules or Xcore
+ * classifiers), built while their documentation is generated and saved next to
+ * it. A documentation site can answer the searches by looking up the terms in
+ * the index, without loading and tokenizing the documentation pages.
+ * <p>
+ * The terms are the lower-case words (maximal sequences of letters and digits)
+ * of the names and texts added, at least {@value #MIN_TERM_LENGTH} characters
+ * long. Mixed-case words (e.g. {@code ParserRule}) are also indexed by their
+ * parts ({@code parser} and {@code rule}).
+ * <p>
+ * The index is written in a compact JSON format:
+ *
+ * <pre>
+ * {"version":1,
+ *  "entries":[["Name","kind","target"],...],
+ *  "terms":{"term":[3,1,4],...}}
+ * </pre>
+ *
+ * The entries are identified by their position. The terms are sorted, thus
+ * prefix searches can be done by binary search. The identifiers of the entries
+ * containing a term are in increasing order, delta-encoded: each number is the
+ * difference from the previous identifier (the first one is the identifier
+ * itself). The output is deterministic, it only depends on the content added.
+ * <p>
+ * Not thread-safe.
+ */
+public final class SearchIndex {
+	/**
+	 * Version of the written format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Minimum length of the indexed terms.
+	 */
+	public static final int MIN_TERM_LENGTH = 2;
+
+	private static final class Entry {
+		private final String name;
+		private final String kind;
+		private final String target;
+
+		Entry(String name, String kind, String target) {
+			this.name = name;
+			this.kind = kind;
+			this.target = target;
+		}
+	}
+
+	/**
+	 * Sorted, duplicate-free list of entry identifiers.
+	 */
+	private static final class Postings {
+		private int[] ids = new int[2];
+		private int size = 0;
+
+		void add(int id) {
+			// The entries are usually indexed in the order of their creation
+			if (size > 0 && ids[size - 1] >= id) {
+				int pos = Arrays.binarySearch(ids, 0, size, id);
+				if (pos >= 0) {
+					return;
+				}
+				insert(-pos - 1, id);
+			} else {
+				insert(size, id);
+			}
+		}
+
+		private void insert(int pos, int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+		}
+	}
+
+	private final String targetPrefix;
+	private final List<Entry> entries = new ArrayList<>();
+	private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+	/**
+	 * Creates a new, empty index. The link targets of the entries are stored as
+	 * they are given.
+	 */
+	public SearchIndex() {
+		this("");
+	}
+
+	/**
+	 * Creates a new, empty index, prefixing the link targets of the entries with
+	 * the given text.
+	 *
+	 * @param targetPrefix
+	 *            Prefix of the link targets, typically the file name of the
+	 *            documentation relative to the index file (e.g.
+	 *            {@code MyDsl.html}). Shall not be {@code null}.
+	 */
+	public SearchIndex(String targetPrefix) {
+		this.targetPrefix = Preconditions.checkNotNull(targetPrefix, "targetPrefix");
+	}
+
+	/**
+	 * Adds a new entry to the index, indexed by its name.
+	 *
+	 * @param name
+	 *            Name of the documented element. Shall not be {@code null}.
+	 * @param kind
+	 *            Kind of the documented element (e.g. {@code rule} or
+	 *            {@code class}). Shall not be {@code null}.
+	 * @param target
+	 *            Link target of the documentation of the element (e.g. an
+	 *            anchor), to be prefixed with the target prefix of the index.
+	 *            Shall not be {@code null}.
+	 * @return Identifier of the new entry.
+	 */
+	public int addEntry(String name, String kind, String target) {
+		Preconditions.checkNotNull(name, "name");
+		Preconditions.checkNotNull(kind, "kind");
+		Preconditions.checkNotNull(target, "target");
+
+		int id = entries.size();
+		entries.add(new Entry(name, kind, targetPrefix + target));
+		addText(id, name);
+		return id;
+	}
+
+	/**
+	 * Indexes the given entry by the words of the given text.
+	 *
+	 * @param entry
+	 *            Identifier of the entry, returned by
+	 *            {@link #addEntry(String, String, String)}.
+	 * @param text
+	 *            Plain text. If {@code null}, nothing is indexed.
+	 */
+	public void addText(int entry, CharSequence text) {
+		Preconditions.checkElementIndex(entry, entries.size(), "entry");
+		if (text == null) {
+			return;
+		}
+
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			if (Character.isLetterOrDigit(text.charAt(i))) {
+				int end = i + 1;
+				while (end < length && Character.isLetterOrDigit(text.charAt(end))) {
+					end++;
+				}
+				addWord(entry, text, i, end);
+				i = end;
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Indexes the given entry by the words of the given documentation text,
+	 * which may contain inline tags (e.g. &#123;&#64;code ...&#125; or
+	 * &lt;b&gt;). The names of the tags are not indexed, only their content
+	 * (and the targets of the links).
+	 *
+	 * @param entry
+	 *            Identifier of the entry, returned by
+	 *            {@link #addEntry(String, String, String)}.
+	 * @param text
+	 *            Documentation text. If {@code null}, nothing is indexed.
+	 */
+	public void addDocText(int entry, String text) {
+		Preconditions.checkElementIndex(entry, entries.size(), "entry");
+		if (text == null) {
+			return;
+		}
+		addNodeTexts(entry, InlineTagTree.parse(text).getNodes());
+	}
+
+	private void addNodeTexts(int entry, List<Node> nodes) {
+		for (Node node : nodes) {
+			addText(entry, node.getText());
+			addNodeTexts(entry, node.getChildren());
+		}
+	}
+
+	/**
+	 * Indexes the given entry by the given word and, if it is a mixed-case
+	 * word, by its parts.
+	 */
+	private void addWord(int entry, CharSequence text, int start, int end) {
+		if (end - start < MIN_TERM_LENGTH) {
+			return;
+		}
+		addTerm(entry, text.subSequence(start, end).toString().toLowerCase(Locale.ROOT));
+
+		int partStart = start;
+		for (int i = start + 1; i < end; i++) {
+			char c = text.charAt(i);
+			if (Character.isUpperCase(c) && !Character.isUpperCase(text.charAt(i - 1))) {
+				addPart(entry, text, partStart, i, start, end);
+				partStart = i;
+			}
+		}
+		addPart(entry, text, partStart, end, start, end);
+	}
+
+	private void addPart(int entry, CharSequence text, int partStart, int partEnd, int wordStart, int wordEnd) {
+		if ((partStart != wordStart || partEnd != wordEnd) && partEnd - partStart >= MIN_TERM_LENGTH) {
+			addTerm(entry, text.subSequence(partStart, partEnd).toString().toLowerCase(Locale.ROOT));
+		}
+	}
+
+	private void addTerm(int entry, String term) {
+		terms.computeIfAbsent(term, it -> new Postings()).add(entry);
+	}
+
+	/**
+	 * Returns the number of entries of the index.
+	 *
+	 * @return Number of entries.
+	 */
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the indexed terms.
+	 *
+	 * @return Unmodifiable sorted set of terms. Never {@code null}.
+	 */
+	public SortedSet<String> getTerms() {
+		return Collections.unmodifiableSortedSet(terms.navigableKeySet());
+	}
+
+	/**
+	 * Returns the names of the entries indexed by the given term.
+	 *
+	 * @param term
+	 *            Term to look up. It is converted to lower case.
+	 * @return Names of the entries, in the order of their creation. Empty if the
+	 *         term is not indexed. Never {@code null}.
+	 */
+	public List<String> find(String term) {
+		Preconditions.checkNotNull(term, "term");
+
+		Postings postings = terms.get(term.toLowerCase(Locale.ROOT));
+		if (postings == null) {
+			return Collections.emptyList();
+		}
+		List<String> ret = new ArrayList<>(postings.size);
+		for (int i = 0; i < postings.size; i++) {
+			ret.add(entries.get(postings.ids[i]).name);
+		}
+		return ret;
+	}
+
+	/**
+	 * Writes the index to the given output in the JSON format described in the
+	 * class documentation.
+	 *
+	 * @param out
+	 *            Output to write to. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	public void write(Appendable out) throws IOException {
+		Preconditions.checkNotNull(out, "out");
+
+		out.append("{\"version\":").append(Integer.toString(VERSION)).append(",\n\"entries\":[");
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = entries.get(i);
+			out.append(i == 0 ? "\n[" : ",\n[");
+			appendJsonString(out, entry.name);
+			out.append(',');
+			appendJsonString(out, entry.kind);
+			out.append(',');
+			appendJsonString(out, entry.target);
+			out.append(']');
+		}
+		out.append("],\n\"terms\":{");
+		boolean first = true;
+		for (Map.Entry<String, Postings> term : terms.entrySet()) {
+			out.append(first ? "\n" : ",\n");
+			first = false;
+			appendJsonString(out, term.getKey());
+			out.append(":[");
+			Postings postings = term.getValue();
+			int previous = 0;
+			for (int i = 0; i < postings.size; i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				out.append(Integer.toString(postings.ids[i] - previous));
+				previous = postings.ids[i];
+			}
+			out.append(']');
+		}
+		out.append("}}\n");
+	}
+
+	/**
+	 * Saves the index to the given file, if its content changed. The missing
+	 * parent directories will be created.
+	 *
+	 * @param file
+	 *            File to be written. Shall not be {@code null}.
+	 * @return True if the file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public boolean save(Path file) throws IOException {
+		Preconditions.checkNotNull(file, "file");
+		return OutputFileUtil.writeIfChanged(file, this::write);
+	}
+
+	private static void appendJsonString(Appendable out, String value) throws IOException {
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+}
@@ -0,0 +1,131 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.common.xtext;
+
+import org.eclipse.xtext.nodemodel.ILeafNode;
+import org.eclipse.xtext.nodemodel.INode;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Extracts the source code snippets of nodes by their offsets. The text of the
+ * root node is sliced directly: the parts between the comments are copied into
+ * a single buffer, which is then trimmed and cleaned up in place. No string is
+ * created for the individual leaf nodes.
+ */
+final class NodeTextExtractor {
+	private NodeTextExtractor() {
+		// Utility class.
+	}
+
+	/**
+	 * Returns the source text of the given node, without its comments, trimmed
+	 * and without the unnecessary new lines. The result is identical to joining
+	 * the texts of the non-comment leaf nodes, then trimming it and calling
+	 * {@link XtextTokenUtil#cleanupUnnecessaryNewlines(String)}.
+	 *
+	 * @param node
+	 *            Node to be represented. Shall not be {@code null}.
+	 * @return Source code snippet. Never {@code null}.
+	 */
+	static String extract(INode node) {
+		Preconditions.checkNotNull(node, "node");
+
+		String source = node.getRootNode().getText();
+		int start = node.getTotalOffset();
+		int end = node.getTotalEndOffset();
+
+		char[] buffer = new char[end - start];
+		int length = 0;
+		int sliceStart = start;
+		for (ILeafNode leaf : node.getLeafNodes()) {
+			if (XtextTokenUtil.isCommentNode(leaf)) {
+				int commentStart = leaf.getTotalOffset();
+				source.getChars(sliceStart, commentStart, buffer, length);
+				length += commentStart - sliceStart;
+				sliceStart = leaf.getTotalEndOffset();
+			}
+		}
+		source.getChars(sliceStart, end, buffer, length);
+		length += end - sliceStart;
+
+		return trimAndCleanup(buffer, length);
+	}
+
+	/**
+	 * Trims the content of the buffer like {@link String#trim()}, then removes
+	 * the unnecessary new lines in place like
+	 * {@link XtextTokenUtil#cleanupUnnecessaryNewlines(String)}: each line break
+	 * followed by an empty line (possibly containing spaces and tabs) is
+	 * replaced by the line break closing the empty line.
+	 */
+	private static String trimAndCleanup(char[] buffer, int length) {
+		int from = 0;
+		while (from < length && buffer[from] <= ' ') {
+			from++;
+		}
+		int to = length;
+		while (to > from && buffer[to - 1] <= ' ') {
+			to--;
+		}
+
+		// The cleaned up text is never longer, thus it can be written over the original one
+		int read = from;
+		int write = from;
+		while (read < to) {
+			int secondLineBreak = secondLineBreakStart(buffer, read, to);
+			if (secondLineBreak >= 0) {
+				int secondLineBreakEnd = secondLineBreak + lineBreakLength(buffer, secondLineBreak, to);
+				while (secondLineBreak < secondLineBreakEnd) {
+					buffer[write++] = buffer[secondLineBreak++];
+				}
+				read = secondLineBreakEnd;
+			} else {
+				buffer[write++] = buffer[read++];
+			}
+		}
+		return new String(buffer, from, write - from);
+	}
+
+	/**
+	 * If there is a line break at the given position followed by an empty line
+	 * (containing spaces and tabs only), returns the start of the line break
+	 * closing the empty line. Otherwise returns -1.
+	 */
+	private static int secondLineBreakStart(char[] buffer, int pos, int end) {
+		int firstLength = lineBreakLength(buffer, pos, end);
+		if (firstLength == 0) {
+			return -1;
+		}
+
+		int ret = pos + firstLength;
+		while (ret < end && (buffer[ret] == ' ' || buffer[ret] == '\t')) {
+			ret++;
+		}
+		return lineBreakLength(buffer, ret, end) == 0 ? -1 : ret;
+	}
+
+	/**
+	 * Returns the length of the line break ({@code \n} or {@code \r\n}) at the
+	 * given position, or 0 if there is no line break there.
+	 */
+	private static int lineBreakLength(char[] buffer, int pos, int end) {
+		if (pos >= end) {
+			return 0;
+		} else if (buffer[pos] == '\n') {
+			return 1;
+		} else if (buffer[pos] == '\r' && pos + 1 < end && buffer[pos + 1] == '\n') {
+			return 2;
+		} else {
+			return 0;
+		}
+	}
+}
@@ -11,15 +11,18 @@ import org.eclipse.xtext.nodemodel.util.NodeModelUtils
 class XtextTokenUtil {
 	/**
 	 * Like {@link NodeModelUtils.getTokenText} but keeps original whitespace.
+	 * The comments are omitted, the unnecessary new lines are removed.
+	 * <p>
+	 * The snippet is sliced from the text of the root node by the node offsets,
+	 * without creating a string for each leaf node.
 	 */
-	static def tokenTextOrUnknown(EObject e) {
+	static def String tokenTextOrUnknown(EObject e) {
 		val ruleNode = NodeModelUtils.getNode(e);
 		if (ruleNode === null) {
 			return "unknown";
 		} else {
-			val tokenText = ruleNode.leafNodes.filter[it | !isCommentNode(it)].map[it | it.text].join;
 			// Not using the NodeModelUtils.getTokenText as it would collapse the whitespaces.
-			return tokenText.trim().cleanupUnnecessaryNewlines();
+			return NodeTextExtractor.extract(ruleNode);
 		}
 	}
 	
@@ -0,0 +1,139 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.cli
+
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Comparator
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class XcoreDocsGeneratorMainTest {
+	private Path directory;
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs");
+		out = new ByteArrayOutputStream();
+		err = new ByteArrayOutputStream();
+	}
+
+	@After
+	def void deleteDirectory() {
+		val stream = Files.walk(directory);
+		try {
+			stream.sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	def void generateTest() {
+		val libraryFile = directory.resolve("Library.xcore");
+		Files.write(libraryFile, '''
+			package library
+
+			import shared.Person
+
+			class Book {
+				String title
+				refers Person[0..*] authors
+			}
+		'''.toString.bytes);
+		val sharedFile = directory.resolve("Shared.xcore");
+		Files.write(sharedFile, '''
+			package shared
+
+			class Person {
+				String name
+			}
+		'''.toString.bytes);
+		val outputDir = directory.resolve("docs");
+
+		assertRun(XcoreDocsGeneratorMain.EXIT_OK, "--output-dir", outputDir.toString, "--no-toc", libraryFile.toString, sharedFile.toString);
+		val libraryDoc = new String(Files.readAllBytes(outputDir.resolve("Library.md")));
+		Assert.assertTrue(libraryDoc.contains("Book"));
+		// The cross-model reference is resolved
+		Assert.assertFalse(libraryDoc, libraryDoc.contains("unresolved"));
+		Assert.assertTrue(Files.exists(outputDir.resolve("Shared.md")));
+
+		assertRun(XcoreDocsGeneratorMain.EXIT_OK, "--output", directory.resolve("sharded/index.md").toString, "--sharded", "--parallelism", "2", libraryFile.toString);
+		Assert.assertTrue(Files.exists(directory.resolve("sharded/index.md")));
+		Assert.assertTrue(out.toString, out.toString.contains("files changed"));
+	}
+
+	@Test
+	def void watchTest() {
+		val metamodelFile = directory.resolve("Watched.xcore");
+		Files.write(metamodelFile, metamodel("First comment.").bytes);
+		val outputFile = directory.resolve("Watched.md");
+
+		val executor = Executors.newSingleThreadExecutor();
+		try {
+			val exitCode = executor.submit([XcoreDocsGeneratorMain.run(#["--output-dir", directory.toString, "--watch", metamodelFile.toString], new PrintStream(out, true), new PrintStream(err, true))]);
+			waitFor[out.toString.contains("Watching")];
+			val firstDoc = new String(Files.readAllBytes(outputFile));
+			Assert.assertTrue(firstDoc, firstDoc.contains("First comment."));
+
+			// The changed metamodel is reparsed and documented again
+			Files.write(metamodelFile, metamodel("Second comment.").bytes);
+			waitFor[out.toString.contains("Regenerated")];
+			Assert.assertTrue(err.toString, new String(Files.readAllBytes(outputFile)).contains("Second comment."));
+
+			// Interrupting the launcher stops watching
+			executor.shutdownNow();
+			Assert.assertEquals(err.toString, XcoreDocsGeneratorMain.EXIT_OK, exitCode.get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	def void usageTest() {
+		assertRun(XcoreDocsGeneratorMain.EXIT_OK, "--help");
+		Assert.assertTrue(out.toString.startsWith("Usage:"));
+
+		assertRun(XcoreDocsGeneratorMain.EXIT_USAGE);
+		assertRun(XcoreDocsGeneratorMain.EXIT_USAGE, "--title-level-offset", "x", "a.xcore");
+		assertRun(XcoreDocsGeneratorMain.EXIT_USAGE, "a.xtext");
+	}
+
+	private static def String metamodel(String comment) '''
+		package watched
+
+		@GenModel(documentation="«comment»")
+		class Item {
+			String name
+		}
+	'''
+
+	private static def void waitFor(()=>boolean condition) {
+		val deadline = System.currentTimeMillis + 30_000;
+		while (!condition.apply) {
+			Assert.assertTrue("Timeout", System.currentTimeMillis < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private def void assertRun(int expectedExitCode, String... args) {
+		val exitCode = XcoreDocsGeneratorMain.run(args, new PrintStream(out, true), new PrintStream(err, true));
+		Assert.assertEquals(err.toString, expectedExitCode, exitCode);
+	}
+}
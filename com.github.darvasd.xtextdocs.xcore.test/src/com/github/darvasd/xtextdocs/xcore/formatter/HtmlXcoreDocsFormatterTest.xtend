@@ -0,0 +1,103 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.formatter
+
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.util.StringInputStream
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+class HtmlXcoreDocsFormatterTest {
+	static XcoreResource resource;
+
+	@BeforeClass
+	def static void loadMetamodel() {
+		val resourceSet = new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = HtmlXcoreDocsFormatterTest.classLoader;
+		resource = resourceSet.createResource(URI.createURI("library.xcore")) as XcoreResource;
+		resource.load(new StringInputStream('''
+			package library
+
+			@GenModel(documentation="A book of the {@link Library}, e.g. <b>Dune</b> & co.")
+			class Book {
+				@GenModel(documentation="Title of the book.")
+				String title
+				int pages = "100"
+				refers Writer author
+			}
+
+			class Library {
+				contains Book[] books
+			}
+
+			class Writer {
+				String name
+			}
+
+			enum Genre {
+				@GenModel(documentation="Science fiction.")
+				SciFi
+				Mystery = 2
+			}
+		'''), null);
+		EcoreUtil.resolveAll(resource);
+	}
+
+	@Test
+	def void contentTest() {
+		val actual = new HtmlXcoreDocsFormatter().generateDocs(resource).toString;
+
+		Assert.assertTrue(actual.startsWith("<!DOCTYPE html>"));
+		Assert.assertTrue(actual.trim.endsWith("</html>"));
+		assertContains("<h2>Package <code>library</code></h2>", actual);
+		assertContains("<h3>Class <code>Book</code></h3>", actual);
+		assertContains('''<p><i>A book of the <a href="#anchor2">Library</a>, e.g. <b>Dune</b> &amp; co.</i></p>''', actual);
+		assertContains("<b>title</b>: <code>EString</code>", actual);
+		assertContains("<li><i>Title of the book.</i></li>", actual);
+		assertContains("<li>Default value: 100</li>", actual);
+		assertContains('''<b>author</b>: <a href="#anchor3">Writer</a>''', actual);
+		assertContains("<b>books</b> [0..*]: ", actual);
+		assertContains("<li>Containment: contains</li>", actual);
+		assertContains("<li><code>SciFi</code>: <i>Science fiction.</i></li>", actual);
+		assertContains("<li><code>Mystery</code> = 2</li>", actual);
+	}
+
+	@Test
+	def void searchIndexTest() {
+		val formatter = new HtmlXcoreDocsFormatter();
+		val index = new SearchIndex("library.html");
+		val actual = formatter.generateDocs(resource, index).toString;
+
+		// Indexing does not change the documentation
+		Assert.assertEquals(formatter.generateDocs(resource).toString, actual);
+		Assert.assertEquals(4, index.entryCount);
+		Assert.assertEquals(#["Book"], index.find("book"));
+		Assert.assertEquals(#["Library"], index.find("books"));
+		Assert.assertEquals(#["Book"], index.find("dune"));
+		Assert.assertEquals(#["Book"], index.find("title"));
+		Assert.assertEquals(#["Genre"], index.find("fiction"));
+		Assert.assertEquals(#["Genre"], index.find("sci"));
+
+		val json = new StringBuilder();
+		index.write(json);
+		assertContains('''["Writer","class","library.html#anchor3"]''', json.toString);
+	}
+
+	private static def void assertContains(CharSequence expected, String actual) {
+		Assert.assertTrue('''"«expected»" not found in:«"\n"»«actual»''', actual.contains(expected));
+	}
+}
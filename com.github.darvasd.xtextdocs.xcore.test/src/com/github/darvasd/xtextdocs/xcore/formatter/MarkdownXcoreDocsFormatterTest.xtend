@@ -0,0 +1,146 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.formatter
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.xcore.scaling.SyntheticXcoreGenerator
+import com.google.common.collect.ImmutableList
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.Comparator
+import java.util.List
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.util.StringInputStream
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+class MarkdownXcoreDocsFormatterTest {
+	static List<XcoreResource> resources;
+
+	@BeforeClass
+	def static void generateMetamodels() {
+		resources = ImmutableList.copyOf(#[10, 20, 30, 40].map [ size |
+			(new SyntheticXcoreGenerator() => [classifierCount = size]).generate
+		]);
+	}
+
+	@Test
+	def void reuseTest() {
+		val formatter = new MarkdownXcoreDocsFormatter();
+		val first = formatter.generateDocs(resources.get(0)).toString;
+		formatter.generateDocs(resources.get(1));
+
+		Assert.assertEquals(first, formatter.generateDocs(resources.get(0)).toString);
+		Assert.assertEquals(first, new MarkdownXcoreDocsFormatter().generateDocs(resources.get(0)).toString);
+		// Anchor numbering restarts for each resource
+		Assert.assertTrue(first.contains("{#anchor1}"));
+		Assert.assertFalse(first.contains("#anchor11"));
+	}
+
+	@Test
+	def void concurrentTest() {
+		val formatter = new MarkdownXcoreDocsFormatter();
+		val expected = resources.map[new MarkdownXcoreDocsFormatter().generateDocs(it).toString].toList;
+
+		val executor = Executors.newFixedThreadPool(4);
+		try {
+			for (i : 0 ..< 10) {
+				val tasks = resources.map[resource|[formatter.generateDocs(resource).toString] as Callable<String>].toList;
+				val actual = executor.invokeAll(tasks).map[get].toList;
+				Assert.assertEquals(expected, actual);
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	@Test
+	def void typeRenderingTest() {
+		val resource = load("types.xcore", '''
+			package types
+
+			class Node {
+				String name
+				refers Node[0..*] children
+				refers Missing[0..1] missing
+				op Node find(Unknown key)
+			}
+		''');
+
+		val docs = new MarkdownXcoreDocsFormatter().generateDocs(resource).toString;
+		assertContains("**name** : `EString`", docs);
+		assertContains("**children**  [0..*]: [Node](#anchor1)", docs);
+		assertContains("**missing**  [0..1]: `Missing` (unresolved)", docs);
+		assertContains("**find**(key :  `Unknown` (unresolved)) : [Node](#anchor1)", docs);
+	}
+
+	@Test
+	def void shardTest() {
+		val resource = load("shards.xcore", '''
+			package shards
+
+			class Library {
+				contains Book[0..*] books
+			}
+
+			class Book {
+				Kind kind
+			}
+
+			enum Kind {
+				Novel, Poem
+			}
+		''');
+
+		val directory = Files.createTempDirectory("xtextdocs");
+		try {
+			val output = ShardedOutput.forIndexFile(directory.resolve("index.md"));
+			(new MarkdownXcoreDocsFormatter() => [mainTitle = "Shards"]).generateDocShards(resource, "index.md", output);
+			Assert.assertEquals(#["index.md", "index/Library.md", "index/Book.md", "index/Kind.md"], output.fileNames.toList);
+			Assert.assertEquals(4, output.write(null).written.size);
+
+			val index = new String(Files.readAllBytes(directory.resolve("index.md")), StandardCharsets.UTF_8);
+			assertContains("- [Book](index/Book.md#anchor2)", index);
+			// Enums are data types too, but they are listed once
+			Assert.assertEquals(index.indexOf("- [Kind]"), index.lastIndexOf("- [Kind]"));
+			val library = new String(Files.readAllBytes(directory.resolve("index/Library.md")), StandardCharsets.UTF_8);
+			assertContains("[Shards](../index.md)", library);
+			assertContains("{#anchor1}", library);
+			assertContains("[Book](Book.md#anchor2)", library);
+			val book = new String(Files.readAllBytes(directory.resolve("index/Book.md")), StandardCharsets.UTF_8);
+			assertContains("[Kind](Kind.md#anchor3)", book);
+		} finally {
+			Files.walk(directory).sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		}
+	}
+
+	private static def XcoreResource load(String fileName, CharSequence content) {
+		val resourceSet = new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = MarkdownXcoreDocsFormatterTest.classLoader;
+		val resource = resourceSet.createResource(URI.createURI(fileName));
+		resource.load(new StringInputStream(content.toString), null);
+		EcoreUtil.resolveAll(resourceSet);
+		return resource as XcoreResource;
+	}
+
+	private static def void assertContains(String expected, String actual) {
+		Assert.assertTrue('''"«expected»" not found in:«"\n"»«actual»''', actual.contains(expected));
+	}
+}
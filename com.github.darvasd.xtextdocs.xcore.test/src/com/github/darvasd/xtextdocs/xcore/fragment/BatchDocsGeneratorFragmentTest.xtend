@@ -0,0 +1,107 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.fragment
+
+import com.github.darvasd.xtextdocs.xcore.formatter.MarkdownXcoreDocsFormatter
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Comparator
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+
+class BatchDocsGeneratorFragmentTest {
+	private Path directory;
+
+	@BeforeClass
+	def static void setup() {
+		new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration();
+	}
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs");
+	}
+
+	@After
+	def void deleteDirectory() {
+		val stream = Files.walk(directory);
+		try {
+			stream.sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	def void batchTest() {
+		val modelDir = directory.resolve("model");
+		Files.createDirectories(modelDir.resolve("sub"));
+		Files.write(modelDir.resolve("Library.xcore"), '''
+			package library
+
+			import shared.Person
+
+			class Book {
+				String title
+				refers Person[0..*] authors
+			}
+		'''.toString.bytes);
+		Files.write(modelDir.resolve("sub/Shared.xcore"), '''
+			package shared
+
+			class Person {
+				String name
+			}
+		'''.toString.bytes);
+		Files.write(modelDir.resolve("notes.txt"), "Not a metamodel".bytes);
+		val outputDir = directory.resolve("docs");
+
+		val fragment = new BatchDocsGeneratorFragment() => [
+			addUriPattern('''«modelDir.toString.replace('\\', '/')»/**.xcore''');
+			outputDirectory = outputDir.toString;
+			parallelism = "2";
+			formatter = new MarkdownXcoreDocsFormatter();
+		];
+		fragment.invoke(null);
+
+		val libraryDoc = read(outputDir.resolve("Library.md"));
+		Assert.assertTrue(libraryDoc.contains("Book"));
+		// The cross-model reference is resolved
+		Assert.assertTrue(libraryDoc.contains("`Person`"));
+		Assert.assertFalse(libraryDoc, libraryDoc.contains("unresolved"));
+		Assert.assertTrue(read(outputDir.resolve("Shared.md")).contains("Person"));
+		Assert.assertEquals(2, Files.list(outputDir).count);
+	}
+
+	@Test
+	def void matchingFilesTest() {
+		val root = directory;
+		Files.createDirectories(root.resolve("a/b"));
+		for (file : #["a/x.xcore", "a/b/y.xcore", "a/z.ecore"]) {
+			Files.createFile(root.resolve(file));
+		}
+		val base = root.toString.replace('\\', '/');
+
+		Assert.assertEquals(#[root.resolve("a/b/y.xcore"), root.resolve("a/x.xcore")],
+			BatchDocsGeneratorFragment.matchingFiles('''«base»/a/**.xcore'''));
+		Assert.assertEquals(#[root.resolve("a/x.xcore")], BatchDocsGeneratorFragment.matchingFiles('''«base»/a/*.xcore'''));
+		Assert.assertEquals(#[root.resolve("a/z.ecore")], BatchDocsGeneratorFragment.matchingFiles('''«base»/a/z.ecore'''));
+		Assert.assertEquals(#[], BatchDocsGeneratorFragment.matchingFiles('''«base»/missing/*.xcore'''));
+	}
+
+	private def String read(Path file) {
+		return new String(Files.readAllBytes(file));
+	}
+}
@@ -0,0 +1,57 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.scaling
+
+import com.github.darvasd.xtextdocs.common.scaling.ScalingAssert
+import com.github.darvasd.xtextdocs.common.scaling.ScalingTests
+import com.github.darvasd.xtextdocs.xcore.formatter.MarkdownXcoreDocsFormatter
+import com.google.common.collect.ImmutableList
+import java.util.List
+import org.eclipse.emf.ecore.xcore.XPackage
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.experimental.categories.Category
+
+/**
+ * Tests checking that the documentation generation time grows linearly with
+ * the size of the metamodel, using synthetic Xcore metamodels.
+ */
+@Category(ScalingTests)
+class ScalingTest {
+	// Building the Xcore model is considerably slower than parsing a grammar, thus the smaller sizes
+	static val SIZES = #[100, 500, 2500];
+
+	static List<XcoreResource> resources;
+
+	@BeforeClass
+	def static void generateMetamodels() {
+		resources = ImmutableList.copyOf(SIZES.map[size|(new SyntheticXcoreGenerator() => [classifierCount = size]).generate]);
+	}
+
+	@Test
+	def void syntheticMetamodelTest() {
+		val xPackage = resources.get(0).contents.get(0) as XPackage;
+		Assert.assertEquals(SIZES.get(0), xPackage.classifiers.size);
+
+		val docs = new MarkdownXcoreDocsFormatter().generateDocs(resources.get(0)).toString;
+		Assert.assertTrue(docs.contains("Class1"));
+		Assert.assertTrue(docs.contains("Enum10"));
+		Assert.assertTrue(docs.contains("Type25"));
+	}
+
+	@Test
+	def void generateDocsScalingTest() {
+		val formatter = new MarkdownXcoreDocsFormatter();
+		ScalingAssert.assertLinear("generateDocs", SIZES, resources, [formatter.generateDocs(it)]);
+	}
+}
@@ -0,0 +1,177 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xcore.scaling
+
+import com.google.common.base.Preconditions
+import com.google.inject.Injector
+import java.util.Random
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtext.linking.impl.XtextLinkingDiagnostic
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.resource.XtextSyntaxDiagnostic
+import org.eclipse.xtext.util.StringInputStream
+
+/**
+ * Generator of synthetic Xcore metamodels of arbitrary size, to be used as
+ * input of the scaling tests.
+ * <p>
+ * Every {@code enumInterval}-th classifier is an enum, every
+ * {@code dataTypeInterval}-th classifier is a data type, the others are
+ * classes. Each class refers to the next class and to further pseudo-random
+ * classes. The generated metamodel only depends on the settings.
+ */
+class SyntheticXcoreGenerator {
+	static Injector injector = null;
+
+	/** Total number of classifiers. */
+	@Accessors int classifierCount = 100;
+
+	/** Number of references in each class. */
+	@Accessors int referenceFanOut = 3;
+
+	/** Number of literals of each enum. */
+	@Accessors int enumLiteralCount = 5;
+
+	/** Number of description sentences in the documentation of each classifier. No documentation if 0. */
+	@Accessors int commentLines = 3;
+
+	@Accessors int enumInterval = 10;
+
+	@Accessors int dataTypeInterval = 25;
+
+	/**
+	 * Returns the text of the synthetic metamodel.
+	 */
+	def String generateText() {
+		Preconditions.checkState(classifierCount >= 1, "At least one classifier is needed.");
+		val random = new Random(classifierCount);
+
+		return '''
+			package synthetic.xcore«classifierCount»
+
+			«FOR i : 0 ..< classifierCount»
+				«IF isDataType(i)»
+					«dataType(i)»
+				«ELSEIF isEnum(i)»
+					«enumeration(i)»
+				«ELSE»
+					«classDefinition(i, random)»
+				«ENDIF»
+
+			«ENDFOR»
+		'''
+	}
+
+	/**
+	 * Returns the synthetic metamodel, parsed and linked.
+	 */
+	def XcoreResource generate() {
+		val resourceSet = getInjector().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = this.class.classLoader;
+		val resource = resourceSet.createResource(URI.createURI('''synthetic«classifierCount».xcore'''));
+		resource.load(new StringInputStream(generateText()), null);
+		EcoreUtil.resolveAll(resourceSet);
+		// Diagnostics wrapped from the demand-loaded GenModels of the Xcore library are not of interest here
+		val errors = resource.errors.filter[it instanceof XtextSyntaxDiagnostic || it instanceof XtextLinkingDiagnostic].toList;
+		Preconditions.checkState(errors.empty, "Invalid synthetic metamodel: %s", errors);
+
+		return resource as XcoreResource;
+	}
+
+	private static synchronized def Injector getInjector() {
+		if (injector === null) {
+			injector = new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration();
+		}
+		return injector;
+	}
+
+	private def boolean isDataType(int i) {
+		return i > 0 && i % dataTypeInterval == 0;
+	}
+
+	private def boolean isEnum(int i) {
+		return i > 0 && !isDataType(i) && i % enumInterval == 0;
+	}
+
+	private def boolean isClass(int i) {
+		return !isDataType(i) && !isEnum(i);
+	}
+
+	private def String classifierName(int i) {
+		if (isDataType(i)) {
+			return '''Type«i»''';
+		} else if (isEnum(i)) {
+			return '''Enum«i»''';
+		} else {
+			return '''Class«i»''';
+		}
+	}
+
+	/**
+	 * Returns the first class at or after the given index, cyclically.
+	 */
+	private def int nextClass(int i) {
+		var ret = i % classifierCount;
+		while (!isClass(ret)) {
+			ret = (ret + 1) % classifierCount;
+		}
+		return ret;
+	}
+
+	private def classDefinition(int i, Random random) {
+		val targets = newArrayList(nextClass(i + 1));
+		while (targets.size < referenceFanOut) {
+			targets.add(nextClass(random.nextInt(classifierCount)));
+		}
+		val enumIndex = if(isEnum(enumInterval) && enumInterval < classifierCount) enumInterval else -1;
+		val superIndex = if(i > 0) nextClass(i / 2) else i;
+
+		return '''
+			«documentation(i)»
+			class «classifierName(i)»«IF superIndex < i» extends «classifierName(superIndex)»«ENDIF» {
+				«IF commentLines > 0»@GenModel(documentation="Name of «classifierName(i)».")«ENDIF»
+				String name«i»
+				«IF enumIndex >= 0»
+					«classifierName(enumIndex)» kind«i»
+				«ENDIF»
+				«FOR j : 0 ..< targets.size»
+					refers «classifierName(targets.get(j))»[0..*] ref«i»_«j»
+				«ENDFOR»
+				op String describe«i»(int depth)
+			}
+		'''
+	}
+
+	private def enumeration(int i) '''
+		«documentation(i)»
+		enum «classifierName(i)» {
+			«FOR l : 0 ..< enumLiteralCount SEPARATOR ','»
+				«IF commentLines > 0»@GenModel(documentation="Literal «l» of «classifierName(i)».")«ENDIF»
+				LITERAL«l» = «l»
+			«ENDFOR»
+		}
+	'''
+
+	private def dataType(int i) '''
+		«documentation(i)»
+		type «classifierName(i)» wraps String
+	'''
+
+	private def documentation(int i) '''
+		«IF commentLines > 0»
+			@GenModel(documentation="Synthetic classifier <b>«i»</b> referring to {@link «classifierName(nextClass(i + 1))»}.«FOR line : 1 .. commentLines» Sentence «line» of the description, with {@code code} and <i>formatting</i>.«ENDFOR»")
+		«ENDIF»
+	'''
+}
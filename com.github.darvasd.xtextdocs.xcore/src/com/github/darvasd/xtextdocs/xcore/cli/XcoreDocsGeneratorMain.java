@@ -0,0 +1,280 @@
+package com.github.darvasd.xtextdocs.xcore.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xcore.XcoreStandaloneSetup;
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+import org.eclipse.xtext.resource.XtextResourceSet;
+
+import com.github.darvasd.xtextdocs.common.cli.CommandLineArguments;
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil;
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.common.io.SourceWatcher;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener;
+import com.github.darvasd.xtextdocs.xcore.formatter.MarkdownXcoreDocsFormatter;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Command-line launcher documenting Xcore metamodels given as {@code .xcore}
+ * files, without running an MWE2 workflow. The metamodels are documented using
+ * {@link MarkdownXcoreDocsFormatter}, configured by the command-line options
+ * (see {@link #USAGE}).
+ * <p>
+ * In watch mode ({@code --watch}), the launcher keeps running after the
+ * generation, keeping the loaded metamodels in memory. When a metamodel file
+ * changes, only its resource is reparsed and only its documentation is
+ * regenerated.
+ */
+public final class XcoreDocsGeneratorMain {
+	/** Exit code if the documentation of all metamodels has been generated. */
+	public static final int EXIT_OK = 0;
+
+	/** Exit code if the documentation of some metamodels could not be generated. */
+	public static final int EXIT_FAILURE = 1;
+
+	/** Exit code if the command-line arguments are invalid. */
+	public static final int EXIT_USAGE = 2;
+
+	static final String USAGE = String.join(System.lineSeparator(), //
+			"Usage: XcoreDocsGeneratorMain [options] <metamodel.xcore>...", //
+			"Options:", //
+			"  --output <file>          Documentation file (single metamodel only, default: <output-dir>/<metamodel file name>.md)", //
+			"  --output-dir <dir>       Directory of the documentation files (default: current directory)", //
+			"  --title <text>           Main title of the documentation", //
+			"  --title-level-offset <n> Number of additional '#' characters of the titles (default: 0)", //
+			"  --no-original-code       Omit the original Xcore code of the classifiers", //
+			"  --no-toc                 Omit the table of contents", //
+			"  --no-gitbook-links       Do not use GitBook-style links", //
+			"  --sharded                Write an index page and one page per classifier", //
+			"  --parallelism <n>        Number of threads used to write the pages (default: 1)", //
+			"  --metrics                Print the time spent in each phase", //
+			"  --watch                  Keep running and regenerate the documentation when a metamodel file changes", //
+			"  --help                   Print this help");
+
+	private static final ImmutableSet<String> FLAGS = ImmutableSet.of("no-original-code", "no-toc",
+			"no-gitbook-links", "sharded", "metrics", "watch", "help");
+	private static final ImmutableSet<String> OPTIONS = ImmutableSet.of("output", "output-dir", "title",
+			"title-level-offset", "parallelism");
+
+	private final CommandLineArguments args;
+	private final PrintStream out;
+	private final PrintStream err;
+
+	private XcoreDocsGeneratorMain(CommandLineArguments args, PrintStream out, PrintStream err) {
+		this.args = args;
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Documents the metamodels given as command-line arguments, then exits with
+	 * the exit code returned by {@link #run(String[], PrintStream, PrintStream)}.
+	 *
+	 * @param args
+	 *            Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Documents the metamodels given as command-line arguments.
+	 *
+	 * @param args
+	 *            Command-line arguments.
+	 * @param out
+	 *            Stream of the progress messages.
+	 * @param err
+	 *            Stream of the error messages.
+	 * @return {@link #EXIT_OK}, {@link #EXIT_FAILURE} or {@link #EXIT_USAGE}.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		CommandLineArguments parsedArgs;
+		try {
+			parsedArgs = CommandLineArguments.parse(args, FLAGS, OPTIONS);
+			// Validating the integer options early
+			parsedArgs.getInt("parallelism", 1);
+			parsedArgs.getInt("title-level-offset", 0);
+		} catch (IllegalArgumentException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		if (parsedArgs.hasFlag("help")) {
+			out.println(USAGE);
+			return EXIT_OK;
+		}
+		if (parsedArgs.getPositional().isEmpty()) {
+			err.println("No Xcore metamodel to be documented.");
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+		if (parsedArgs.getPositional().size() > 1 && parsedArgs.getString("output", null) != null) {
+			err.println("The option '--output' can only be used with a single metamodel.");
+			return EXIT_USAGE;
+		}
+		for (String file : parsedArgs.getPositional()) {
+			if (!file.endsWith(".xcore")) {
+				err.println(String.format("Unsupported metamodel file '%s', expected an .xcore file.", file));
+				return EXIT_USAGE;
+			}
+		}
+
+		XcoreDocsGeneratorMain launcher = new XcoreDocsGeneratorMain(parsedArgs, out, err);
+		if (!parsedArgs.hasFlag("metrics")) {
+			return launcher.generateAll();
+		}
+
+		SummaryMetricsListener summary = new SummaryMetricsListener();
+		int[] ret = new int[1];
+		DocsMetrics.runWithListeners(Collections.singleton(summary), () -> ret[0] = launcher.generateAll());
+		out.println(summary.getSummary());
+		return ret[0];
+	}
+
+	private int generateAll() {
+		Map<String, XcoreResource> resources = loadResources(args.getPositional());
+
+		MarkdownXcoreDocsFormatter formatter = new MarkdownXcoreDocsFormatter();
+		formatter.setMainTitle(args.getString("title", null));
+		formatter.setTitleLevelOffset(String.valueOf(args.getInt("title-level-offset", 0)));
+		formatter.setShowOriginalXcoreCode(!args.hasFlag("no-original-code"));
+		formatter.setIncludeToc(!args.hasFlag("no-toc"));
+		formatter.setGitbookLinkStyle(!args.hasFlag("no-gitbook-links"));
+
+		int parallelism = args.getInt("parallelism", 1);
+		ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+		int failedCount = args.getPositional().size() - resources.size();
+		try {
+			for (Map.Entry<String, XcoreResource> entry : resources.entrySet()) {
+				try {
+					generate(entry.getKey(), entry.getValue(), formatter, executor);
+				} catch (IOException | RuntimeException e) {
+					err.println(String.format("Failed to document the Xcore metamodel '%s': %s", entry.getKey(), e));
+					failedCount++;
+				}
+			}
+			if (args.hasFlag("watch")) {
+				watch(resources, formatter, executor);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+		return failedCount == 0 ? EXIT_OK : EXIT_FAILURE;
+	}
+
+	/**
+	 * Regenerates the documentation of the changed metamodel files until the
+	 * current thread is interrupted.
+	 */
+	private void watch(Map<String, XcoreResource> resources, MarkdownXcoreDocsFormatter formatter,
+			ExecutorService executor) {
+		Map<Path, String> files = new LinkedHashMap<>();
+		for (String file : resources.keySet()) {
+			files.put(Paths.get(file).toAbsolutePath().normalize(), file);
+		}
+
+		try (SourceWatcher watcher = new SourceWatcher(files.keySet(), SourceWatcher.DEFAULT_QUIET_PERIOD_MILLIS)) {
+			out.println(String.format("Watching %s metamodel files for changes...", files.size()));
+			Set<Path> changedFiles;
+			while (!(changedFiles = watcher.awaitChanges()).isEmpty()) {
+				long start = System.nanoTime();
+				for (Path changedFile : changedFiles) {
+					String file = files.get(changedFile);
+					XcoreResource resource = resources.get(file);
+					try {
+						// Reparsing in place, thus the other loaded metamodels are kept
+						resource.reparse(new String(Files.readAllBytes(changedFile), resource.getEncoding()));
+						EcoreUtil.resolveAll(resource);
+						generate(file, resource, formatter, executor);
+					} catch (IOException | RuntimeException e) {
+						err.println(String.format("Failed to document the Xcore metamodel '%s': %s", file, e));
+					}
+				}
+				out.println(String.format("Regenerated in %s ms", (System.nanoTime() - start) / 1_000_000));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			err.println(String.format("Unable to watch the metamodel files: %s", e));
+		}
+	}
+
+	private void generate(String file, XcoreResource resource, MarkdownXcoreDocsFormatter formatter,
+			ExecutorService executor) throws IOException {
+		Path outputFile = outputFile(file);
+		if (args.hasFlag("sharded")) {
+			Path indexFile = outputFile.toAbsolutePath();
+			ShardedOutput output = ShardedOutput.forIndexFile(indexFile);
+			formatter.generateDocShards(resource, indexFile.getFileName().toString(), output);
+			ShardedOutput.Result result = output.write(executor);
+			out.println(String.format(
+					"%s: written to '%s' and its page directory (%s of %s files changed, %s stale files deleted)",
+					file, outputFile, result.getWritten().size(), result.getShardCount(), result.getDeleted().size()));
+		} else if (OutputFileUtil.writeIfChanged(outputFile, formatter.generateDocs(resource))) {
+			out.println(String.format("%s: written to '%s'", file, outputFile));
+		} else {
+			out.println(String.format("%s: '%s' is up-to-date", file, outputFile));
+		}
+	}
+
+	private Path outputFile(String metamodelFile) {
+		String output = args.getString("output", null);
+		if (output != null) {
+			return Paths.get(output);
+		}
+		String fileName = Paths.get(metamodelFile).getFileName().toString();
+		String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+		return Paths.get(args.getString("output-dir", "."), baseName + ".md");
+	}
+
+	/**
+	 * Loads the given metamodel files into one resource set, thus the metamodels
+	 * importing each other are loaded only once. The metamodels that cannot be
+	 * loaded are reported and left out.
+	 *
+	 * @return Map from the file names to the loaded resources, in the given
+	 *         order.
+	 */
+	private Map<String, XcoreResource> loadResources(List<String> files) {
+		XtextResourceSet resourceSet = new XcoreStandaloneSetup().createInjectorAndDoEMFRegistration()
+				.getInstance(XtextResourceSet.class);
+		resourceSet.setClasspathURIContext(XcoreDocsGeneratorMain.class.getClassLoader());
+
+		Map<String, XcoreResource> ret = new LinkedHashMap<>();
+		for (String file : files) {
+			try {
+				URI uri = URI.createFileURI(Paths.get(file).toAbsolutePath().toString());
+				Resource resource = resourceSet.getResource(uri, true);
+				if (resource instanceof XcoreResource) {
+					ret.put(file, (XcoreResource) resource);
+				} else {
+					err.println(String.format("The resource loaded for '%s' is not an Xcore resource.", file));
+				}
+			} catch (RuntimeException e) {
+				err.println(String.format("Failed to load the Xcore metamodel '%s': %s", file, e.getMessage()));
+			}
+		}
+		// Resolving the cross-references once all metamodels are loaded, as they may import each other
+		EcoreUtil.resolveAll(resourceSet);
+		return ret;
+	}
+}
@@ -0,0 +1,479 @@
+package com.github.darvasd.xtextdocs.xcore.formatter
+
+import com.github.darvasd.xtextdocs.common.formatter.HtmlTextFormatter
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
+import com.github.darvasd.xtextdocs.common.xtext.XtextTokenUtil
+import com.google.common.base.Preconditions
+import org.eclipse.emf.ecore.xcore.XAttribute
+import org.eclipse.emf.ecore.xcore.XClass
+import org.eclipse.emf.ecore.xcore.XClassifier
+import org.eclipse.emf.ecore.xcore.XDataType
+import org.eclipse.emf.ecore.xcore.XEnum
+import org.eclipse.emf.ecore.xcore.XGenericType
+import org.eclipse.emf.ecore.xcore.XMember
+import org.eclipse.emf.ecore.xcore.XModelElement
+import org.eclipse.emf.ecore.xcore.XNamedElement
+import org.eclipse.emf.ecore.xcore.XOperation
+import org.eclipse.emf.ecore.xcore.XPackage
+import org.eclipse.emf.ecore.xcore.XReference
+import org.eclipse.emf.ecore.xcore.XStructuralFeature
+import org.eclipse.emf.ecore.xcore.XTypedElement
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.eclipse.xtend.lib.annotations.Accessors
+
+/**
+ * Class to be used for generating a standalone HTML documentation for an Xcore metamodel description.
+ * <p>
+ * As the {@link MarkdownXcoreDocsFormatter}, it keeps the state belonging to the documentation
+ * of a resource in an {@link XcoreGenerationContext}, thus a configured instance can document
+ * several resources, even concurrently. The documented classifiers can be added to a search
+ * index while the documentation is generated.
+ */
+class HtmlXcoreDocsFormatter implements ISearchIndexingXcoreDocsFormatter {
+
+	private static val DOCUMENTATION_ANNOTATION_KEY = "documentation";
+
+	private static val HtmlTextFormatter HTML = HtmlTextFormatter.INSTANCE;
+
+	/**
+	 * The main title text of the documentation to be generated.
+	 * If not set ({@code null}), the title will be the URI of the metamodel.
+	 */
+	@Accessors private String mainTitle = null;
+
+	/**
+	 * The URL of the stylesheet to be linked from the page.
+	 * If not set ({@code null}), no stylesheet is linked.
+	 */
+	@Accessors private String stylesheet = null;
+
+	@Accessors boolean showOriginalXcoreCode = true;
+
+	@Accessors boolean includeToc = true;
+
+	override generateDocs(XcoreResource resource) {
+		return generateDocs(resource, null as SearchIndex);
+	}
+
+	/**
+	 * Returns the HTML documentation of the given resource. If a search index is given,
+	 * the classifiers are added to it in the order they are represented.
+	 */
+	override generateDocs(XcoreResource resource, SearchIndex index) {
+		Preconditions.checkNotNull(resource, "resource");
+
+		val ctx = XcoreGenerationContext.create(resource);
+		DocsMetrics.count(DocsCounter.CLASSIFIERS, ctx.anchors.size);
+
+		val ret = new StringBuilder();
+		ret.append('''
+			<!DOCTYPE html>
+			<html>
+			<head>
+			<meta charset="utf-8">
+			<title>«HTML.escape(title(resource))»</title>
+			«IF stylesheet !== null»
+				<link rel="stylesheet" href="«HTML.escape(stylesheet)»">
+			«ENDIF»
+			</head>
+			<body>
+			<h1>«HTML.escape(title(resource))»</h1>
+			«IF includeToc»
+				«toc(ctx)»
+			«ENDIF»
+		''');
+		for (p : resource.contents.filter(XPackage)) {
+			ret.append('''
+				<h2>Package «HTML.inlineCode(p.name)»</h2>
+			''');
+			for (xClassifier : documentedClassifiers(p)) {
+				ret.append(representClassifier(xClassifier, ctx));
+				if (index !== null) {
+					indexClassifier(xClassifier, index, ctx);
+				}
+			}
+		}
+		ret.append('''
+			</body>
+			</html>
+		''');
+		return ret;
+	}
+
+	/**
+	 * Returns the main title of the documentation of the given resource.
+	 */
+	private def title(XcoreResource resource) {
+		return if (mainTitle === null) resource.URI.toString else mainTitle;
+	}
+
+	/**
+	 * Returns the classifiers of the given package, in the order they are represented.
+	 * Note that enums are data types too, but they are only represented once.
+	 */
+	private def documentedClassifiers(XPackage p) {
+		return p.eContents.filter(XClass) + p.eContents.filter(XEnum)
+			+ p.eContents.filter(XDataType).filter[!(it instanceof XEnum)];
+	}
+
+	/**
+	 * Adds the given classifier to the search index: it can be found by its name, by the
+	 * names of its members and literals, and by their documentation.
+	 */
+	private def void indexClassifier(XClassifier xClassifier, SearchIndex index, XcoreGenerationContext ctx) {
+		val entry = index.addEntry(xClassifier.name, classifierKind(xClassifier), ctx.getLink(xClassifier.name) ?: "");
+		indexDocAnnotation(xClassifier, entry, index);
+		val Iterable<? extends XNamedElement> members = switch (xClassifier) {
+			XClass: xClassifier.members
+			XEnum: xClassifier.literals
+			default: emptyList
+		};
+		for (member : members) {
+			index.addText(entry, member.name);
+			indexDocAnnotation(member, entry, index);
+		}
+	}
+
+	private def void indexDocAnnotation(XModelElement x, int entry, SearchIndex index) {
+		for (annotation : x.annotations) {
+			index.addDocText(entry, annotation.details.get(DOCUMENTATION_ANNOTATION_KEY));
+		}
+	}
+
+	private def String classifierKind(XClassifier xClassifier) {
+		switch (xClassifier) {
+			XClass: return if (xClassifier.isInterface) "interface" else "class"
+			XEnum: return "enum"
+			default: return "data type"
+		}
+	}
+
+	/**
+	 * Represents the given classifier.
+	 */
+	private def CharSequence representClassifier(XClassifier xClassifier, XcoreGenerationContext ctx) {
+		val start = DocsMetrics.start();
+		try {
+			switch (xClassifier) {
+				XClass: representClass(xClassifier, ctx)
+				XEnum: {
+					DocsMetrics.count(DocsCounter.LITERALS, xClassifier.literals.size);
+					representEnum(xClassifier, ctx)
+				}
+				XDataType: representDataType(xClassifier, ctx)
+			}
+		} finally {
+			DocsMetrics.stop(DocsPhase.CLASSIFIER_FORMATTING, start);
+		}
+	}
+
+	/**
+	 * Generates a table of contents representation based on the anchors of the context.
+	 */
+	private def toc(XcoreGenerationContext ctx) '''
+		<h2>Table of contents</h2>
+		<ul>
+		«FOR name : ctx.anchors.keySet»
+			<li>«HTML.link(HTML.escape(name), ctx.getLink(name))»</li>
+		«ENDFOR»
+		</ul>
+	'''
+
+	/**
+	 * Returns the opening tag of the section of the given classifier, with its anchor as identifier.
+	 */
+	private def sectionStart(XClassifier xClassifier, XcoreGenerationContext ctx) {
+		val anchor = ctx.getAnchor(xClassifier.name);
+		if (anchor === null) {
+			return "<section>";
+		}
+		return '''<section id="«HTML.escape(anchor.replaceFirst("#", ""))»">''';
+	}
+
+	/**
+	 * Represents the given class.
+	 */
+	private def representClass(XClass xClass, XcoreGenerationContext ctx) {
+		val attributes = xClass.members.filter(XAttribute);
+		val references = xClass.members.filter(XReference);
+		val operations = xClass.members.filter(XOperation);
+
+		return '''
+			«sectionStart(xClass, ctx)»
+			<h3>«classHeader(xClass)» «HTML.inlineCode(xClass.name)»</h3>
+			«docParagraph(xClass, ctx)»
+			<p><b>Extends</b>: «IF xClass.superTypes.isNullOrEmpty»«HTML.inlineCode("EObject")»«ELSE»«FOR superType : xClass.superTypes SEPARATOR ', '»«representXType(superType, ctx)»«ENDFOR»«ENDIF»</p>
+			«IF xClass.instanceType !== null»
+				<p>Wraps: «HTML.inlineCode(xClass.instanceType.qualifiedName)»</p>
+			«ENDIF»
+			«IF !attributes.isEmpty»
+				<p><b>Attributes</b>:</p>
+				<ul>
+				«FOR xAttribute : attributes»
+					<li>«representMember(xAttribute, ctx, #[
+						"Modifiers: " + modifiers(xAttribute),
+						"Default value: " + HTML.escape(xAttribute.defaultValueLiteral ?: "")])»</li>
+				«ENDFOR»
+				</ul>
+			«ENDIF»
+			«IF !references.isEmpty»
+				<p><b>References</b>:</p>
+				<ul>
+				«FOR xReference : references»
+					<li>«representMember(xReference, ctx, #[
+						"Containment: " + referenceContainment(xReference),
+						"Modifiers: " + modifiers(xReference),
+						"Opposite: " + referenceOpposite(xReference, ctx)])»</li>
+				«ENDFOR»
+				</ul>
+			«ENDIF»
+			«IF !operations.isEmpty»
+				<p><b>Operations</b>:</p>
+				<ul>
+				«FOR xOperation : operations»
+					<li>«representMember(xOperation, ctx, #[
+						"Throws: " + operationThrows(xOperation, ctx)])»</li>
+				«ENDFOR»
+				</ul>
+			«ENDIF»
+			«printOriginalCode(xClass)»
+			</section>
+		'''
+	}
+
+	/**
+	 * Returns the type name to be used for the given class in the header.
+	 */
+	private def classHeader(XClass xClass) {
+		if (xClass.isInterface) {
+			return "Interface"
+		} else if (xClass.abstract) {
+			return "Abstract class"
+		} else {
+			return "Class"
+		}
+	}
+
+	/**
+	 * Represents the given member with its type, followed by the list of its documentation
+	 * and the given details. The details with nothing after their labels are omitted.
+	 */
+	private def representMember(XMember member, XcoreGenerationContext ctx, Iterable<String> details) {
+		val doc = getDocAnnotation(member, ctx);
+		val shownDetails = details.filter[!it.substring(it.indexOf(':') + 1).trim.empty];
+		return '''«HTML.bold(HTML.escape(member.name))»«IF member instanceof XOperation»(«operationParameters(member, ctx)»)«ENDIF»«representMultiplicity(member.multiplicity)»: «representXType(member.type, ctx)»«IF !doc.empty || !shownDetails.empty»
+			<ul>
+			«IF !doc.empty»
+				<li>«HTML.italic(doc)»</li>
+			«ENDIF»
+			«FOR detail : shownDetails»
+				<li>«detail»</li>
+			«ENDFOR»
+			</ul>«ENDIF»''';
+	}
+
+	/**
+	 * Represents the given multiplicity as string.
+	 * If the given multiplicity is null, an empty string is returned.
+	 * Otherwise the returned representation is prefixed with a space.
+	 */
+	private def String representMultiplicity(int[] multiplicity) {
+		if (multiplicity === null) {
+			return "";
+		} else if (multiplicity.length == 0 || (multiplicity.length == 1 && multiplicity.get(0) == -1)) {
+			// [] and [*] are shorthands for [0..*]
+			return " [0..*]"
+		} else if (multiplicity.length == 1) {
+			// [n] is shorthand for [n..n] (exactly n)
+			return ''' [«multiplicity.get(0)»..«multiplicity.get(0)»]'''
+		} else if (multiplicity.length == 2) {
+			return ''' [«multiplicity.get(0)»..«IF multiplicity.get(1) == -1»*«ELSE»«multiplicity.get(1)»«ENDIF»]'''
+		} else {
+			return " [?]";
+		}
+	}
+
+	/**
+	 * Returns a textual reference to the opposite of the given reference, or empty string if it has none.
+	 */
+	private def referenceOpposite(XReference reference, XcoreGenerationContext ctx) {
+		if (reference.opposite === null) {
+			return "";
+		} else {
+			return '''«representXType(reference.type, ctx)».«HTML.inlineCode(reference.opposite.name)»'''
+		}
+	}
+
+	/**
+	 * Returns a string representing the containment type of the given reference.
+	 */
+	private def referenceContainment(XReference xReference) {
+		if (xReference.containment) {
+			return "contains"
+		} else if (xReference.container) {
+			return "container"
+		} else if (xReference.local) {
+			return "local"
+		} else {
+			return "refers"
+		}
+	}
+
+	/**
+	 * Represents the modifiers of the given typed element in a comma separated list.
+	 */
+	private def modifiers(XTypedElement x) {
+		val list = newArrayList();
+
+		if (x.unordered) {
+			list.add("Unordered");
+		}
+		if (x.unique) {
+			list.add("Unique");
+		}
+		if (x instanceof XStructuralFeature) {
+			if (x.readonly) {
+				list.add("Readonly");
+			}
+			if (x.transient) {
+				list.add("Transient");
+			}
+			if (x.volatile) {
+				list.add("Volatile");
+			}
+			if (x.unsettable) {
+				list.add("Unsettable");
+			}
+			if (x.derived) {
+				list.add("Derived");
+			}
+		}
+		if (x instanceof XAttribute && (x as XAttribute).ID) {
+			list.add("ID");
+		}
+		if (x instanceof XReference && (x as XReference).resolveProxies) {
+			list.add("Resolving");
+		}
+
+		return list.join(", ");
+	}
+
+	/**
+	 * Represents the parameters of the given operation.
+	 */
+	private def operationParameters(XOperation op, XcoreGenerationContext ctx) {
+		return '''«FOR param : op.parameters SEPARATOR ', '»«HTML.escape(param.name)» : «representXType(param.type, ctx)»«representMultiplicity(param.multiplicity)»«ENDFOR»''';
+	}
+
+	/**
+	 * Represents the exceptions that can be thrown by the given operation.
+	 */
+	private def operationThrows(XOperation operation, XcoreGenerationContext ctx) {
+		if (operation.exceptions === null) {
+			return "";
+		} else {
+			return '''«FOR ex : operation.exceptions SEPARATOR ', '»«representXType(ex, ctx)»«ENDFOR»''';
+		}
+	}
+
+	/**
+	 * Represents the given enum.
+	 */
+	private def representEnum(XEnum xEnum, XcoreGenerationContext ctx) '''
+		«sectionStart(xEnum, ctx)»
+		<h3>Enum «HTML.inlineCode(xEnum.name)»</h3>
+		«docParagraph(xEnum, ctx)»
+		<p><b>Literals</b>:</p>
+		<ul>
+		«FOR xLiteral : xEnum.literals»
+			«val doc = getDocAnnotation(xLiteral, ctx)»
+			<li>«HTML.inlineCode(xLiteral.name)»«IF xLiteral.literal !== null» («HTML.escape(xLiteral.literal)»)«ENDIF»«IF xLiteral.value != 0» = «xLiteral.value»«ENDIF»«IF !doc.empty»: «HTML.italic(doc)»«ENDIF»</li>
+		«ENDFOR»
+		</ul>
+		«printOriginalCode(xEnum)»
+		</section>
+	'''
+
+	/**
+	 * Represents the given data type.
+	 */
+	private def representDataType(XDataType xDataType, XcoreGenerationContext ctx) {
+		if (xDataType.instanceType === null) {
+			return "";
+		}
+
+		return '''
+			«sectionStart(xDataType, ctx)»
+			<h3>Data Type «HTML.inlineCode(xDataType.name)»</h3>
+			«docParagraph(xDataType, ctx)»
+			<p>Wraps: «HTML.inlineCode(xDataType.instanceType.qualifiedName)»</p>
+			</section>
+		''';
+	}
+
+	/**
+	 * Returns a representation for the given type. If possible, it will be represented as a link.
+	 */
+	private def CharSequence representXType(XGenericType type, XcoreGenerationContext ctx) {
+		val typeInfo = ctx.getType(type);
+		if (!typeInfo.resolved) {
+			return '''«HTML.inlineCode(typeInfo.name)» (unresolved)''';
+		} else if (typeInfo.link !== null) {
+			DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
+			return HTML.link(HTML.escape(typeInfo.name), typeInfo.link);
+		} else {
+			return HTML.inlineCode(typeInfo.name);
+		}
+	}
+
+	/**
+	 * Returns the original Xcore metamodel code snippet for the given element, if the {@link #showOriginalXcoreCode}=true.
+	 * Otherwise empty string is returned.
+	 */
+	private def printOriginalCode(XNamedElement x) {
+		if (showOriginalXcoreCode) {
+			return HTML.codeBlock(XtextTokenUtil.tokenTextOrUnknown(x));
+		} else {
+			return "";
+		}
+	}
+
+	// Helper methods
+	/**
+	 * Returns the documentation of the given element as an italic paragraph, or empty string if it has none.
+	 */
+	private def docParagraph(XModelElement x, XcoreGenerationContext ctx) {
+		val doc = getDocAnnotation(x, ctx);
+		return if (doc.empty) "" else '''<p>«HTML.italic(doc)»</p>''';
+	}
+
+	/**
+	 * Returns the documentation annotation value for the given model element in HTML format.
+	 * The formatting and links are already resolved in the returned text.
+	 */
+	private def String getDocAnnotation(XModelElement x, XcoreGenerationContext ctx) {
+		return '''«FOR annotation : x.annotations»«annotation.details.get(DOCUMENTATION_ANNOTATION_KEY).toHtml(ctx)»«ENDFOR»'''.toString.trim;
+	}
+
+	/**
+	 * Translates the given text into HTML format. It escapes the plain text, and resolves
+	 * the formatting in it (e.g., `@code` or {@code <b>}) and the links.
+	 */
+	private def toHtml(String text, XcoreGenerationContext ctx) {
+		if (text === null) {
+			return "";
+		}
+
+		return InlineTagTree.parse(text).render(HTML, [key |
+			val link = ctx.getLink(key);
+			if (link !== null) {
+				DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
+			}
+			return link;
+		], true);
+	}
+}
@@ -0,0 +1,25 @@
+package com.github.darvasd.xtextdocs.xcore.formatter;
+
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+
+import com.github.darvasd.xtextdocs.common.search.SearchIndex;
+
+/**
+ * Interface to be used for generating a documentation for an Xcore metamodel
+ * description, adding the documented classifiers to a search index in the same
+ * pass.
+ */
+public interface ISearchIndexingXcoreDocsFormatter extends IXcoreDocsFormatter {
+	/**
+	 * Returns an appropriately formatted documentation of the given Xcore
+	 * resource, and adds an entry per documented classifier to the given search
+	 * index, linking to the description of the classifier. The classifiers are
+	 * indexed by their names, the names of their members and literals, and
+	 * their documentation.
+	 * 
+	 * @param resource Xcore resource to be documented
+	 * @param index Search index to be filled. It is only used during the call.
+	 * @return Generated documentation
+	 */
+	public CharSequence generateDocs(XcoreResource resource, SearchIndex index);
+}
@@ -0,0 +1,29 @@
+package com.github.darvasd.xtextdocs.xcore.formatter;
+
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+
+/**
+ * Interface to be used for generating a documentation for an Xcore metamodel
+ * description, split into an index page and one page per classifier.
+ */
+public interface IShardingXcoreDocsFormatter extends IXcoreDocsFormatter {
+	/**
+	 * Registers the pages documenting the given Xcore resource in the given
+	 * output: an index page with the given name and one page per classifier. The
+	 * links between the classifiers point to the corresponding pages.
+	 * <p>
+	 * The pages are only rendered when the output is written, possibly
+	 * concurrently. Therefore the cross-references of the resource shall be
+	 * resolved before writing the output, as EMF proxies must not be resolved
+	 * concurrently.
+	 * 
+	 * @param resource Xcore resource to be documented
+	 * @param indexFileName File name of the index page, relative to the output directory.
+	 *            The classifier pages are placed in its page directory (see
+	 *            {@link ShardedOutput#pageDirectoryName(String)}), with the same extension.
+	 * @param output Output in which the pages are registered
+	 */
+	public void generateDocShards(XcoreResource resource, String indexFileName, ShardedOutput output);
+}
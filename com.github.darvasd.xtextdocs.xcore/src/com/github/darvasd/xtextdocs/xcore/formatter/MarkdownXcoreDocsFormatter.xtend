@@ -1,12 +1,5 @@
 package com.github.darvasd.xtextdocs.xcore.formatter
 
-import org.eclipse.emf.codegen.ecore.genmodel.GenBase
-import org.eclipse.emf.codegen.ecore.genmodel.GenClass
-import org.eclipse.emf.codegen.ecore.genmodel.GenDataType
-import org.eclipse.emf.ecore.EClass
-import org.eclipse.emf.ecore.EDataType
-import org.eclipse.emf.ecore.EModelElement
-import org.eclipse.emf.ecore.EObject
 import org.eclipse.emf.ecore.xcore.XAttribute
 import org.eclipse.emf.ecore.xcore.XClass
 import org.eclipse.emf.ecore.xcore.XClassifier
@@ -21,18 +14,24 @@ import org.eclipse.emf.ecore.xcore.XPackage
 import org.eclipse.emf.ecore.xcore.XReference
 import org.eclipse.emf.ecore.xcore.resource.XcoreResource
 import org.eclipse.xtend.lib.annotations.Accessors
-import org.eclipse.xtext.nodemodel.util.NodeModelUtils
 import com.google.common.base.Strings
-import java.util.TreeMap
-import java.util.SortedMap
 import com.github.darvasd.xtextdocs.common.xtext.XtextTokenUtil
 import com.github.darvasd.xtextdocs.common.formatter.MarkdownTextFormatter
 import com.github.darvasd.xtextdocs.common.formatter.DocCommentTextUtil
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase
 
 /**
  * Class to be used for generating a Markdown documentation for an Xcore metamodel description.
+ * <p>
+ * The state belonging to the documentation of a resource is kept in an
+ * {@link XcoreGenerationContext} created by each {@link #generateDocs(XcoreResource)} call,
+ * thus a configured instance can document several resources, even concurrently.
+ * The configuration shall not be changed while documentation is being generated.
  */
-class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
+class MarkdownXcoreDocsFormatter implements IShardingXcoreDocsFormatter {
 
 	private static val DOCUMENTATION_ANNOTATION_KEY = "documentation";
 
@@ -72,62 +71,122 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 		this.titleLevelOffset = Integer.parseInt(value);
 	}
 
-	/**
-	 * Map that stores (name, id) pairs. The stored 'id' is the anchor that is used for the definition of the class 'name'.
-	 */
-	private SortedMap<String, String> anchors = new TreeMap<String, String>();
-	private int anchorCounter = 1;
-
 	override generateDocs(XcoreResource resource) {
-		fillAnchors(resource);
+		val ctx = XcoreGenerationContext.create(resource);
+		DocsMetrics.count(DocsCounter.CLASSIFIERS, ctx.anchors.size);
 
 		return '''
 			«headerPrefix(1)» «IF mainTitle === null»«resource.URI»«ELSE»«mainTitle»«ENDIF»
 			
 			«IF includeToc»
-				«toc()»
+				«toc(ctx)»
 			«ENDIF»
 			
 			«FOR p : resource.contents.filter(XPackage)»
-				«representPackage(p)»
+				«representPackage(p, ctx)»
 			«ENDFOR»
 		'''
 	}
 
 	/**
-	 * Generates a table of contents representation based on the stored anchors.
+	 * Registers the pages documenting the given resource in the given output.
+	 * The index page contains the title and, for each package, the list of its
+	 * classifiers (in the order of the single-document representation).
+	 * The classifier pages, placed in the page directory of the index page,
+	 * contain the same classifier descriptions as the single document,
+	 * with a link back to the index page.
 	 */
-	private def toc() {
-		return '''
-			«headerPrefix(2)» Table of contents
-			«FOR entry : anchors.entrySet»
-				- «link(entry.key, entry.value)»
-			«ENDFOR»
-		''';
+	override generateDocShards(XcoreResource resource, String indexFileName, ShardedOutput output) {
+		val ctx = XcoreGenerationContext.create(resource, indexFileName);
+		DocsMetrics.count(DocsCounter.CLASSIFIERS, ctx.anchors.size);
+		val packages = resource.contents.filter(XPackage).toList;
+
+		output.add(indexFileName, [ writer |
+			writer.append('''
+				«headerPrefix(1)» «title(resource)»
+				
+				«FOR p : packages»
+					«headerPrefix(2)» Package `«p.name»`
+					
+					«FOR xClassifier : documentedClassifiers(p)»
+						- «link(xClassifier.name, ctx.getFileName(xClassifier.name) + ctx.getAnchor(xClassifier.name))»
+					«ENDFOR»
+					
+				«ENDFOR»
+			''');
+		]);
+		for (p : packages) {
+			// Classifiers with the same name (in different packages) share their anchor, thus their page too
+			for (xClassifier : documentedClassifiers(p).filter[!output.fileNames.contains(ctx.getFileName(name))]) {
+				output.add(ctx.getFileName(xClassifier.name), [ writer |
+					writer.append('''
+						«link(title(resource), "../" + indexFileName)»
+						
+						«representClassifier(xClassifier, ctx)»
+					''');
+				]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the main title of the documentation of the given resource.
+	 */
+	private def title(XcoreResource resource) {
+		return if (mainTitle === null) resource.URI.toString else mainTitle;
+	}
+
+	/**
+	 * Returns the classifiers of the given package, in the order they are represented.
+	 * Note that enums are data types too, but they are only represented once.
+	 */
+	private def documentedClassifiers(XPackage p) {
+		return p.eContents.filter(XClass) + p.eContents.filter(XEnum)
+			+ p.eContents.filter(XDataType).filter[!(it instanceof XEnum)];
 	}
 
 	/**
-	 * Generates unique anchors for the classifiers in the given resource.
+	 * Represents the given classifier.
 	 */
-	private def fillAnchors(XcoreResource resource) {
-		for (EObject e : resource.allContents.toIterable) {
-			if (e instanceof XClassifier) {
-				anchors.put(e.name, "#anchor" + anchorCounter);
-				anchorCounter++;
+	private def CharSequence representClassifier(XClassifier xClassifier, XcoreGenerationContext ctx) {
+		val start = DocsMetrics.start();
+		try {
+			switch (xClassifier) {
+				XClass: representClass(xClassifier, ctx)
+				XEnum: {
+					DocsMetrics.count(DocsCounter.LITERALS, xClassifier.literals.size);
+					representEnum(xClassifier, ctx)
+				}
+				XDataType: representDataType(xClassifier, ctx)
 			}
+		} finally {
+			DocsMetrics.stop(DocsPhase.CLASSIFIER_FORMATTING, start);
 		}
 	}
 
+	/**
+	 * Generates a table of contents representation based on the anchors of the context.
+	 */
+	private def toc(XcoreGenerationContext ctx) {
+		return '''
+			«headerPrefix(2)» Table of contents
+			«FOR name : ctx.anchors.keySet»
+				- «link(name, ctx.getLink(name))»
+			«ENDFOR»
+		''';
+	}
+
 	/**
 	 * Represents the definition of an anchor.
 	 * If no anchor exists for the given classifier, empty string is returned
 	 */
-	private def anchorDefinitionIfExists(XClassifier xClassifier) {
-		if (anchors !== null && anchors.containsKey(xClassifier.name)) {
+	private def anchorDefinitionIfExists(XClassifier xClassifier, XcoreGenerationContext ctx) {
+		val anchor = ctx.getAnchor(xClassifier.name);
+		if (anchor !== null) {
 			if (gitbookLinkStyle) {
-				return '''{«anchors.get(xClassifier.name)»}'''
+				return '''{«anchor»}'''
 			} else {
-				return '''<a name="«anchors.get(xClassifier.name).replaceFirst("#", "")»"></a>'''
+				return '''<a name="«anchor.replaceFirst("#", "")»"></a>'''
 			}
 		} else {
 			return "";
@@ -137,20 +196,20 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given package.
 	 */
-	private def representPackage(XPackage p) {
+	private def representPackage(XPackage p, XcoreGenerationContext ctx) {
 		'''
 			«headerPrefix(2)» Package `«p.name»`
 			
 			«FOR xClass : p.eContents.filter(XClass)»
-				«representClass(xClass)»
+				«representClassifier(xClass, ctx)»
 			«ENDFOR»
 			
 			«FOR xEnum : p.eContents.filter(XEnum)»
-				«representEnum(xEnum)»
+				«representClassifier(xEnum, ctx)»
 			«ENDFOR»
 			
 			«FOR xDataType : p.eContents.filter(XDataType)»
-				«representDataType(xDataType)»
+				«DocsMetrics.time(DocsPhase.CLASSIFIER_FORMATTING, [representDataType(xDataType, ctx)])»
 			«ENDFOR»
 		'''
 	}
@@ -158,17 +217,17 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given class.
 	 */
-	private def representClass(XClass xClass) {
+	private def representClass(XClass xClass, XcoreGenerationContext ctx) {
 		val attributes = xClass.members.filter(XAttribute);
 		val references = xClass.members.filter(XReference);
 		val operations = xClass.members.filter(XOperation);
 
 		return '''
-			«headerPrefix(3)» «classHeader(xClass)» `«xClass.name»` «anchorDefinitionIfExists(xClass)»
+			«headerPrefix(3)» «classHeader(xClass)» `«xClass.name»` «anchorDefinitionIfExists(xClass, ctx)»
 			
-			«getDocAnnotation(xClass).italic»
+			«getDocAnnotation(xClass, ctx).italic»
 			
-			«bold("Extends")»: «IF xClass.superTypes.isNullOrEmpty»`EObject`«ELSE»«FOR superType : xClass.superTypes SEPARATOR ', '»«representXType(superType)»«ENDFOR»«ENDIF»
+			«bold("Extends")»: «IF xClass.superTypes.isNullOrEmpty»`EObject`«ELSE»«FOR superType : xClass.superTypes SEPARATOR ', '»«representXType(superType, ctx)»«ENDFOR»«ENDIF»
 			«IF xClass.instanceType !== null»
 				Wraps: «xClass.instanceType.qualifiedName»
 			«ENDIF»
@@ -176,21 +235,21 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 			«IF !attributes.isEmpty»			
 				«bold("Attributes")»:
 				«FOR xAttribute : attributes» 
-					«representAttribute(xAttribute)»
+					«representAttribute(xAttribute, ctx)»
 				«ENDFOR»
 			«ENDIF»
 			
 			«IF !references.isEmpty»
 				«bold("References")»:
 				«FOR xReference : references» 
-					«representReference(xReference)»
+					«representReference(xReference, ctx)»
 				«ENDFOR»
 			«ENDIF»
 			
 			«IF !operations.isEmpty»
 				«bold("Operations")»:
 				«FOR xOperation : operations»
-					«representOperation(xOperation)»
+					«representOperation(xOperation, ctx)»
 				«ENDFOR»
 			«ENDIF»
 			
@@ -214,13 +273,13 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given reference.
 	 */
-	private def representReference(XReference xReference) {
+	private def representReference(XReference xReference, XcoreGenerationContext ctx) {
 		return '''
-			- «xReference.name.bold» «representMultiplicity(xReference.multiplicity)»: «representXType(xReference.type)»
-			    «getDocAnnotation(xReference).italic.prefixIfNotEmpty("*").indentFromSecondLine(2)»
+			- «xReference.name.bold» «representMultiplicity(xReference.multiplicity)»: «representXType(xReference.type, ctx)»
+			    «getDocAnnotation(xReference, ctx).italic.prefixIfNotEmpty("*").indentFromSecondLine(2)»
 			    * Containment: «representReferenceContainment(xReference)»
 			    «representModifiers(xReference).prefixIfNotEmpty("* Modifiers:")»
-			    «representReferenceOpposite(xReference).prefixIfNotEmpty("* Opposite:")»
+			    «representReferenceOpposite(xReference, ctx).prefixIfNotEmpty("* Opposite:")»
 		  '''
 	}
 
@@ -259,11 +318,11 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	 * If the given reference has an opposite, this returns a textual reference to it.
 	 * If the given reference does not have an opposite, empty string is returned.
 	 */
-	private def representReferenceOpposite(XReference reference) {
+	private def representReferenceOpposite(XReference reference, XcoreGenerationContext ctx) {
 		if (reference.opposite === null) {
 			return "";
 		} else {
-			return '''«representXType(reference.type)».«reference.opposite.name.inlineCode»'''
+			return '''«representXType(reference.type, ctx)».«reference.opposite.name.inlineCode»'''
 		}
 	}
 
@@ -320,10 +379,10 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given attribute.
 	 */
-	private def representAttribute(XAttribute xAttribute) {
+	private def representAttribute(XAttribute xAttribute, XcoreGenerationContext ctx) {
 		return '''
-			- «xAttribute.name.bold» «representMultiplicity(xAttribute.multiplicity)»: «representXType(xAttribute.type)»
-			    «getDocAnnotation(xAttribute).italic.prefixIfNotEmpty("*").indentFromSecondLine(2)»
+			- «xAttribute.name.bold» «representMultiplicity(xAttribute.multiplicity)»: «representXType(xAttribute.type, ctx)»
+			    «getDocAnnotation(xAttribute, ctx).italic.prefixIfNotEmpty("*").indentFromSecondLine(2)»
 			    «representModifiers(xAttribute).prefixIfNotEmpty("* Modifiers:")»
 			    «xAttribute.defaultValueLiteral.prefixIfNotEmpty("* Default value:")»
 		  '''
@@ -366,30 +425,30 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given operator.
 	 */
-	private def representOperation(XOperation op) {
+	private def representOperation(XOperation op, XcoreGenerationContext ctx) {
 		return '''
-			- «op.name.bold»(«representOperationParameters(op)») : «representXType(op.type)»
-			    «getDocAnnotation(op).italic.prefixIfNotEmpty("*")»
-			    «representOperationThrows(op).inlineCode.prefixIfNotEmpty("* Throws:")»
+			- «op.name.bold»(«representOperationParameters(op, ctx)») : «representXType(op.type, ctx)»
+			    «getDocAnnotation(op, ctx).italic.prefixIfNotEmpty("*")»
+			    «representOperationThrows(op, ctx).inlineCode.prefixIfNotEmpty("* Throws:")»
 		'''
 	}
 
 	/**
 	 * Represents the parameters of the given operator.
 	 */
-	private def representOperationParameters(XOperation op) {
+	private def representOperationParameters(XOperation op, XcoreGenerationContext ctx) {
 		var modifiers = '''«IF op.unordered»unordered«ENDIF»«IF op.unique»«IF op.unordered», «ENDIF»unique«ENDIF»''';
-		return '''«FOR param : op.parameters SEPARATOR ', '»«param.name» : «modifiers» «representXType(param.type)»«representMultiplicity(param.multiplicity)»«ENDFOR»''';
+		return '''«FOR param : op.parameters SEPARATOR ', '»«param.name» : «modifiers» «representXType(param.type, ctx)»«representMultiplicity(param.multiplicity)»«ENDFOR»''';
 	}
 
 	/**
 	 * Represents the exceptions that can be thrown by the given operator.
 	 */
-	private def representOperationThrows(XOperation operation) {
+	private def representOperationThrows(XOperation operation, XcoreGenerationContext ctx) {
 		if (operation.exceptions === null) {
 			return "";
 		} else {
-			return '''«FOR ex : operation.exceptions SEPARATOR ', '»«representXType(ex)»«ENDFOR»''';
+			return '''«FOR ex : operation.exceptions SEPARATOR ', '»«representXType(ex, ctx)»«ENDFOR»''';
 		}
 	}
 
@@ -412,15 +471,15 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given enum.
 	 */
-	private def representEnum(XEnum xEnum) {
+	private def representEnum(XEnum xEnum, XcoreGenerationContext ctx) {
 		return '''
-			«headerPrefix(3)» Enum `«xEnum.name»` «anchorDefinitionIfExists(xEnum)»
+			«headerPrefix(3)» Enum `«xEnum.name»` «anchorDefinitionIfExists(xEnum, ctx)»
 			
-			«getDocAnnotation(xEnum).italic»
+			«getDocAnnotation(xEnum, ctx).italic»
 			
 			**Literals**:
 			«FOR xLiteral : xEnum.literals» 
-				- «representEnumLiteral(xLiteral)»
+				- «representEnumLiteral(xLiteral, ctx)»
 			«ENDFOR»
 			
 			«printOriginalCode(xEnum)»
@@ -430,22 +489,22 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Represents the given enum literal.
 	 */
-	private def representEnumLiteral(XEnumLiteral xLiteral) {
-		return '''`«xLiteral.name»` «IF xLiteral.literal !== null»(«xLiteral.literal»)«ENDIF»«IF xLiteral.value != 0» = «xLiteral.value»«ENDIF»«xLiteral.docAnnotation.italic.prefixIfNotEmpty(":")»''';
+	private def representEnumLiteral(XEnumLiteral xLiteral, XcoreGenerationContext ctx) {
+		return '''`«xLiteral.name»` «IF xLiteral.literal !== null»(«xLiteral.literal»)«ENDIF»«IF xLiteral.value != 0» = «xLiteral.value»«ENDIF»«xLiteral.getDocAnnotation(ctx).italic.prefixIfNotEmpty(":")»''';
 	}
 
 	/**
 	 * Represents the given data type.
 	 */
-	private def representDataType(XDataType xDataType) {
+	private def representDataType(XDataType xDataType, XcoreGenerationContext ctx) {
 		if (xDataType.instanceType === null) {
 			return "";
 		}
 
 		return '''
-			«headerPrefix(3)» Data Type `«xDataType.name»` «anchorDefinitionIfExists(xDataType)»
+			«headerPrefix(3)» Data Type `«xDataType.name»` «anchorDefinitionIfExists(xDataType, ctx)»
 			
-			«getDocAnnotation(xDataType).italic»
+			«getDocAnnotation(xDataType, ctx).italic»
 			
 			- Wraps: `«xDataType.instanceType?.qualifiedName»` 
 		''';
@@ -453,50 +512,21 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	// TODO typeParameters not supported
 	}
 
-	// Type representation dispatch
 	/**
 	 * Returns a representation for the given type. If possible, it will be represented as a link.
 	 */
-	private def dispatch CharSequence representEType(EModelElement type) {
-		return '''Unknown type: «type»''';
-	}
-
-	private def dispatch CharSequence representEType(EDataType type) {
-		return type.name;
-	}
-
-	private def dispatch CharSequence representEType(EClass type) {
-		return type.name;
-	}
-
-	private def CharSequence representXType(XGenericType type) {
-
-		try {
-			val String typeStr = representType(type.type).toString.trim;
-			if (anchors.containsKey(typeStr)) {
-				return link(typeStr, anchors.get(typeStr));
-			} else {
-				return '''`«typeStr»`''';
-			}
-		} catch (Exception e) {
-			// Fallback solution
-			val tokenText = NodeModelUtils.getTokenText(NodeModelUtils.getNode(type));
-			return '''`«tokenText»` (unresolved)''';
+	private def CharSequence representXType(XGenericType type, XcoreGenerationContext ctx) {
+		val typeInfo = ctx.getType(type);
+		if (!typeInfo.resolved) {
+			return '''`«typeInfo.name»` (unresolved)''';
+		} else if (typeInfo.link !== null) {
+			DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
+			return link(typeInfo.name, typeInfo.link);
+		} else {
+			return '''`«typeInfo.name»`''';
 		}
 	}
 
-	private def dispatch CharSequence representType(GenBase type) {
-		throw new IllegalArgumentException("Unknown type: " + type);
-	}
-
-	private def dispatch CharSequence representType(GenDataType type) {
-		return representEType(type.ecoreModelElement);
-	}
-
-	private def dispatch CharSequence representType(GenClass type) {
-		return representEType(type.ecoreModelElement);
-	}
-
 	/**
 	 * Returns the original Xcore metamodel code snippet for the given element, if the {@link #showOriginalXcoreCode}=true.
 	 * Otherwise empty string is returned.
@@ -518,8 +548,8 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	 * Returns the documentation annotation value for the given model element in markdown format.
 	 * The formatting and links are already resolved in the returned text.
 	 */
-	private def String getDocAnnotation(XModelElement x) {
-		return '''«FOR annotation : x.annotations»«annotation.details.get(DOCUMENTATION_ANNOTATION_KEY).toMd»«ENDFOR»'''
+	private def String getDocAnnotation(XModelElement x, XcoreGenerationContext ctx) {
+		return '''«FOR annotation : x.annotations»«annotation.details.get(DOCUMENTATION_ANNOTATION_KEY).toMd(ctx)»«ENDFOR»'''
 	}
 
 	/**
@@ -556,17 +586,18 @@ class MarkdownXcoreDocsFormatter implements IXcoreDocsFormatter {
 	/**
 	 * Translates the given text into Markdown format. It resolves the formatting in it (e.g., `@code` or {@code <b>}) and the links.
 	 */
-	private def toMd(CharSequence text) {
+	private def toMd(CharSequence text, XcoreGenerationContext ctx) {
 		if (text === null) {
 			return text;
 		}
 
-		val textFormattingResolved = DocCommentTextUtil.format(text.toString, mdFormatter);
-		val textLinksResolved = DocCommentTextUtil.resolveLinks(textFormattingResolved, mdFormatter, [key |
-			anchors.get(key)
+		return DocCommentTextUtil.formatWithLinks(text.toString, mdFormatter, [key |
+			val link = ctx.getLink(key);
+			if (link !== null) {
+				DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
+			}
+			return link;
 		]);
-
-		return textLinksResolved;
 	}
 
 	/**
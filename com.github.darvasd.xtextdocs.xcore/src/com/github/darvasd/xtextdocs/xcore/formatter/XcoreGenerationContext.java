@@ -0,0 +1,287 @@
+package com.github.darvasd.xtextdocs.xcore.formatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenBase;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClass;
+import org.eclipse.emf.codegen.ecore.genmodel.GenDataType;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EModelElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.xcore.XClassifier;
+import org.eclipse.emf.ecore.xcore.XGenericType;
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource;
+import org.eclipse.xtext.nodemodel.ICompositeNode;
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.google.common.base.Preconditions;
+
+/**
+ * State belonging to the documentation generation of a single Xcore resource.
+ * It is created at the beginning of each generation and it is immutable
+ * afterwards, thus a formatter keeping no other state can document several
+ * resources concurrently.
+ * <p>
+ * The types used in the resource are resolved when the context is created,
+ * thus rendering them is a simple lookup.
+ * <p>
+ * If the documentation is split into an index page and one page per
+ * classifier, the context also determines the file names of the pages, and the
+ * links to the classifiers point to their pages. The classifier pages are in
+ * the page directory of the index page (see
+ * {@link ShardedOutput#pageDirectoryName(String)}), the links are relative to
+ * this directory.
+ */
+final class XcoreGenerationContext {
+	/**
+	 * Name, link and resolution status of a type used in the documented
+	 * resource.
+	 */
+	static final class TypeInfo {
+		private final String name;
+		private final String link;
+		private final boolean resolved;
+
+		private TypeInfo(String name, String link, boolean resolved) {
+			this.name = name;
+			this.link = link;
+			this.resolved = resolved;
+		}
+
+		/**
+		 * Returns the name of the resolved type, or the source text of the type
+		 * reference if it could not be resolved.
+		 * 
+		 * @return Name of the type. Never {@code null}.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the link target of the type's documentation.
+		 * 
+		 * @return Link target, or {@code null} if the type is not documented in
+		 *         the current resource.
+		 * @see XcoreGenerationContext#getLink(String)
+		 */
+		public String getLink() {
+			return link;
+		}
+
+		/**
+		 * Returns true iff the type reference could be resolved.
+		 * 
+		 * @return True if the type is resolved.
+		 */
+		public boolean isResolved() {
+			return resolved;
+		}
+	}
+
+	/**
+	 * Map that stores (name, id) pairs. The stored 'id' is the anchor that is used
+	 * for the definition of the classifier 'name'.
+	 */
+	private final SortedMap<String, String> anchors;
+
+	/**
+	 * File name of the index page, or {@code null} if the documentation is a
+	 * single document.
+	 */
+	private final String indexFileName;
+
+	/**
+	 * Map from the classifier names to the file names of their pages, relative
+	 * to the directory of the index page. Empty if the documentation is a single
+	 * document.
+	 */
+	private final Map<String, String> fileNames;
+
+	/** Map from the classifier names to the link targets of their documentation. */
+	private final Map<String, String> links;
+
+	/** Resolved type information of the generic types of the resource. */
+	private final Map<XGenericType, TypeInfo> types;
+
+	private XcoreGenerationContext(SortedMap<String, String> anchors, List<XGenericType> genericTypes,
+			String indexFileName) {
+		this.anchors = Collections.unmodifiableSortedMap(anchors);
+		this.indexFileName = indexFileName;
+		if (indexFileName == null) {
+			this.fileNames = Collections.emptyMap();
+			this.links = this.anchors;
+		} else {
+			int extensionStart = indexFileName.lastIndexOf('.');
+			String extension = extensionStart < 0 ? "md" : indexFileName.substring(extensionStart + 1);
+			String pageDirectoryName = ShardedOutput.pageDirectoryName(indexFileName);
+			Map<String, String> pageFileNames = new HashMap<>();
+			Map<String, String> shardLinks = new HashMap<>();
+			for (Map.Entry<String, String> entry : ShardedOutput.uniqueFileNames(anchors.keySet(), extension)
+					.entrySet()) {
+				pageFileNames.put(entry.getKey(), pageDirectoryName + "/" + entry.getValue());
+				shardLinks.put(entry.getKey(), entry.getValue() + anchors.get(entry.getKey()));
+			}
+			this.fileNames = Collections.unmodifiableMap(pageFileNames);
+			this.links = Collections.unmodifiableMap(shardLinks);
+		}
+
+		this.types = new IdentityHashMap<>(genericTypes.size());
+		for (XGenericType genericType : genericTypes) {
+			types.put(genericType, resolve(genericType));
+		}
+	}
+
+	/**
+	 * Creates the generation context for the given resource, generating unique
+	 * anchors for its classifiers.
+	 * 
+	 * @param resource
+	 *            Xcore resource to be documented. Shall not be {@code null}.
+	 * @return The new context. Never {@code null}.
+	 */
+	public static XcoreGenerationContext create(XcoreResource resource) {
+		return create(resource, null);
+	}
+
+	/**
+	 * Creates the generation context for the given resource, generating unique
+	 * anchors for its classifiers. If an index file name is given, each
+	 * classifier gets its own page, with the same extension as the index page.
+	 * 
+	 * @param resource
+	 *            Xcore resource to be documented. Shall not be {@code null}.
+	 * @param indexFileName
+	 *            File name of the index page, or {@code null} if the
+	 *            documentation is a single document.
+	 * @return The new context. Never {@code null}.
+	 */
+	public static XcoreGenerationContext create(XcoreResource resource, String indexFileName) {
+		Preconditions.checkNotNull(resource, "resource");
+
+		SortedMap<String, String> anchors = new TreeMap<>();
+		List<XGenericType> genericTypes = new ArrayList<>();
+		int anchorCounter = 1;
+		TreeIterator<EObject> iter = resource.getAllContents();
+		while (iter.hasNext()) {
+			EObject e = iter.next();
+			if (e instanceof XClassifier) {
+				anchors.put(((XClassifier) e).getName(), "#anchor" + anchorCounter);
+				anchorCounter++;
+			} else if (e instanceof XGenericType) {
+				genericTypes.add((XGenericType) e);
+			}
+		}
+		return new XcoreGenerationContext(anchors, genericTypes, indexFileName);
+	}
+
+	/**
+	 * Returns the anchors of the documented classifiers.
+	 * 
+	 * @return Unmodifiable map from classifier names to anchors, sorted by name.
+	 *         Never {@code null}.
+	 */
+	public SortedMap<String, String> getAnchors() {
+		return anchors;
+	}
+
+	/**
+	 * Returns the anchor of the classifier with the given name.
+	 * 
+	 * @param name
+	 *            Name of the classifier.
+	 * @return Anchor of the classifier (including the leading {@code #}), or
+	 *         {@code null} if there is no such classifier.
+	 */
+	public String getAnchor(String name) {
+		return anchors.get(name);
+	}
+
+	/**
+	 * Returns the link target of the documentation of the classifier with the
+	 * given name: its anchor, prefixed by the file name of its page if the
+	 * documentation is split into several pages. The link is relative to the
+	 * classifier pages.
+	 * 
+	 * @param name
+	 *            Name of the classifier.
+	 * @return Link target, or {@code null} if there is no such classifier.
+	 */
+	public String getLink(String name) {
+		return links.get(name);
+	}
+
+	/**
+	 * Returns the file name of the index page.
+	 * 
+	 * @return File name, or {@code null} if the documentation is a single
+	 *         document.
+	 */
+	public String getIndexFileName() {
+		return indexFileName;
+	}
+
+	/**
+	 * Returns the file name of the page documenting the classifier with the
+	 * given name, relative to the directory of the index page.
+	 * 
+	 * @param name
+	 *            Name of the classifier.
+	 * @return File name, or {@code null} if there is no such classifier or the
+	 *         documentation is a single document.
+	 */
+	public String getFileName(String name) {
+		return fileNames.get(name);
+	}
+
+	/**
+	 * Returns the name, link and resolution status of the given type.
+	 * 
+	 * @param type
+	 *            Type used in the documented resource.
+	 * @return Type information. Never {@code null}.
+	 */
+	public TypeInfo getType(XGenericType type) {
+		TypeInfo ret = types.get(type);
+		// Types not contained in the resource are not expected, but they are handled
+		return ret == null ? resolve(type) : ret;
+	}
+
+	private TypeInfo resolve(XGenericType type) {
+		String name = type == null ? null : typeName(type.getType());
+		if (name == null) {
+			ICompositeNode node = type == null ? null : NodeModelUtils.getNode(type);
+			return new TypeInfo(node == null ? "unknown" : NodeModelUtils.getTokenText(node), null, false);
+		} else {
+			return new TypeInfo(name, links.get(name), true);
+		}
+	}
+
+	/**
+	 * Returns the name of the given type, or {@code null} if it is not resolved.
+	 */
+	private static String typeName(GenBase type) {
+		if (type == null || type.eIsProxy() || !(type instanceof GenClass || type instanceof GenDataType)) {
+			return null;
+		}
+
+		EModelElement ecoreElement = type.getEcoreModelElement();
+		if (ecoreElement == null || ecoreElement.eIsProxy()) {
+			return null;
+		} else if (ecoreElement instanceof EClassifier) {
+			String name = ((EClassifier) ecoreElement).getName();
+			return name == null ? null : name.trim();
+		} else {
+			return "Unknown type: " + ecoreElement;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package com.github.darvasd.xtextdocs.xcore.fragment
+
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.IDocsMetricsListener
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener
+import com.github.darvasd.xtextdocs.xcore.formatter.IXcoreDocsFormatter
+import java.io.IOException
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.PathMatcher
+import java.nio.file.Paths
+import java.util.List
+import java.util.Map
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.stream.Collectors
+import org.apache.log4j.Logger
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.resource.ResourceSet
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.emf.ecore.xcore.resource.XcoreResource
+import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowComponent
+import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtext.resource.IResourceServiceProvider
+import org.eclipse.xtext.resource.XtextResourceSet
+
+/**
+ * Xcore documentation generation fragment to be used in MWE2 workflows,
+ * documenting several Xcore metamodels at once.
+ * <p>
+ * All metamodels are loaded into one shared resource set, thus the metamodels
+ * importing each other are loaded only once and their cross-references are
+ * resolved against each other. The documents are then generated concurrently.
+ * The documentation of each metamodel is written to the output directory, in
+ * a file named after the metamodel (e.g. {@code Library.xcore} is documented
+ * in {@code Library.md}).
+ */
+class BatchDocsGeneratorFragment implements IWorkflowComponent {
+	private final static Logger LOG = Logger.getLogger(BatchDocsGeneratorFragment);
+
+	/**
+	 * The URIs of the Xcore metamodels to be documented.
+	 */
+	val List<String> uris = newArrayList();
+
+	/**
+	 * The glob patterns of the Xcore metamodel files to be documented
+	 * (e.g. {@code model/**.xcore}), relative to the working directory.
+	 */
+	val List<String> uriPatterns = newArrayList();
+
+	/**
+	 * The directory of the generated Xcore metamodel documentations.
+	 * <p>
+	 * Mandatory.
+	 */
+	@Accessors String outputDirectory;
+
+	/**
+	 * The extension of the generated documentation files.
+	 * <p>
+	 * Optional, default: {@code md}.
+	 */
+	@Accessors String outputFileExtension = "md";
+
+	/**
+	 * Formatted documentation generator to be used. It is shared by the
+	 * concurrent generations, thus it shall be thread-safe.
+	 * <p>
+	 * Mandatory.
+	 */
+	@Accessors IXcoreDocsFormatter formatter;
+
+	/**
+	 * The number of metamodels to be documented concurrently.
+	 * <p>
+	 * Optional, default: 1.
+	 */
+	int parallelism = 1;
+
+	/**
+	 * Adds the URI of an Xcore metamodel to be documented. At least one URI or
+	 * URI pattern is mandatory.
+	 */
+	def void addUri(String uri) {
+		uris.add(uri);
+	}
+
+	/**
+	 * Adds a glob pattern of Xcore metamodel files to be documented, relative to
+	 * the working directory (e.g. {@code model/**.xcore}). At least one URI or
+	 * URI pattern is mandatory.
+	 */
+	def void addUriPattern(String pattern) {
+		uriPatterns.add(pattern);
+	}
+
+	/**
+	 * Sets the number of metamodels to be documented concurrently.
+	 * <p>
+	 * It is an ugly workaround to take a string as argument, but this is necessary
+	 * as MWE2 does not support integer properties.
+	 * See https://bugs.eclipse.org/bugs/show_bug.cgi?id=377068 .
+	 */
+	def void setParallelism(String value) {
+		this.parallelism = Integer.parseInt(value);
+	}
+
+	/**
+	 * If true, the time spent in the phases of the generation and the counted
+	 * quantities (classifiers, links, bytes written, etc.) are logged at the end of the
+	 * generation.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean logMetrics = false;
+
+	/**
+	 * The listeners to be notified about the phases and the counted quantities
+	 * of the generation (e.g. {@code JfrMetricsListener} for profiling sessions).
+	 */
+	val List<IDocsMetricsListener> metricsListeners = newArrayList();
+
+	/**
+	 * Adds a listener to be notified about the phases and the counted quantities
+	 * of the generation. It is registered only for the duration of the generation.
+	 * <p>
+	 * Optional.
+	 */
+	def void addMetricsListener(IDocsMetricsListener listener) {
+		metricsListeners.add(listener);
+	}
+
+	override invoke(IWorkflowContext ctx) {
+		val summary = new SummaryMetricsListener();
+		val listeners = if (logMetrics) metricsListeners + #[summary] else metricsListeners;
+		DocsMetrics.runWithListeners(listeners, [generateDocs]);
+		if (logMetrics) {
+			LOG.info(summary.summary);
+		}
+	}
+
+	private def void generateDocs() {
+		// Error handling (without breaking the workflow)
+		if (outputDirectory === null) {
+			LOG.error("Unknown output directory ('outputDirectory'), impossible to generate the documentation.");
+			return;
+		}
+		if (formatter === null) {
+			LOG.error("Unknown 'formatter', impossible to generate the documentation.");
+			return;
+		}
+
+		val allUris = newArrayList();
+		allUris.addAll(uris.map[URI.createURI(it)]);
+		for (pattern : uriPatterns) {
+			allUris.addAll(matchingFiles(pattern).map[URI.createFileURI(it.toAbsolutePath.toString)]);
+		}
+		if (allUris.empty) {
+			LOG.error("No Xcore metamodel to be documented ('uri' or 'uriPattern').");
+			return;
+		}
+
+		// Loading all metamodels before resolving the cross-references, as they may refer to each other
+		val resourceSet = createResourceSet(allUris.get(0));
+		val Map<Path, XcoreResource> outputs = newLinkedHashMap();
+		for (uri : allUris) {
+			val res = loadResource(resourceSet, uri);
+			if (res instanceof XcoreResource) {
+				val outFile = Paths.get(outputDirectory, '''«uri.trimFileExtension.lastSegment».«outputFileExtension»''');
+				if (outputs.containsKey(outFile)) {
+					LOG.error('''The documentation of '«uri»' would overwrite the one of '«outputs.get(outFile).URI»', it is skipped.''');
+				} else {
+					outputs.put(outFile, res);
+				}
+			} else if (res !== null) {
+				LOG.error('''The resource loaded for '«uri»' is not an Xcore resource.''');
+			}
+		}
+		// EMF proxies must not be resolved concurrently
+		EcoreUtil.resolveAll(resourceSet);
+
+		Files.createDirectories(Paths.get(outputDirectory));
+		val executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, outputs.size)));
+		try {
+			val Map<Path, Future<Boolean>> tasks = newLinkedHashMap();
+			for (entry : outputs.entrySet) {
+				val task = [OutputFileUtil.writeIfChanged(entry.key, formatter.generateDocs(entry.value))] as Callable<Boolean>;
+				tasks.put(entry.key, executor.submit(DocsMetrics.propagate(task)));
+			}
+
+			var writtenCount = 0;
+			var failedCount = 0;
+			for (task : tasks.entrySet) {
+				val written = waitFor(task.value, task.key);
+				if (written === null) {
+					failedCount++;
+				} else if (written) {
+					writtenCount++;
+				}
+			}
+			LOG.info('''Xcore documentation using '«formatter.class.simpleName»' generated for «outputs.size» metamodels in '«outputDirectory»': «writtenCount» written, «outputs.size - writtenCount - failedCount» up-to-date, «failedCount» failed.''');
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates the resource set shared by the documented metamodels, configured
+	 * by the Xcore language. The Java types used in the metamodels are resolved
+	 * using the class path of the workflow.
+	 */
+	private def ResourceSet createResourceSet(URI xcoreUri) {
+		val resourceServiceProvider = IResourceServiceProvider.Registry.INSTANCE.getResourceServiceProvider(xcoreUri);
+		val resourceSet = resourceServiceProvider?.get(XtextResourceSet) ?: new XtextResourceSet();
+		resourceSet.classpathURIContext = Thread.currentThread.contextClassLoader ?: this.class.classLoader;
+		return resourceSet;
+	}
+
+	/**
+	 * Loads the resource with the given URI into the given resource set. Returns
+	 * {@code null} if it cannot be loaded, the failure is logged without breaking
+	 * the workflow.
+	 */
+	private def loadResource(ResourceSet resourceSet, URI uri) {
+		try {
+			return resourceSet.getResource(uri, true);
+		} catch (RuntimeException e) {
+			LOG.error('''Failed to load the Xcore metamodel '«uri»'.''', e);
+			return null;
+		}
+	}
+
+	/**
+	 * Waits for the generation of the given file and returns true iff it was
+	 * (re)written. Returns {@code null} if the generation failed, the failure is
+	 * logged without breaking the workflow.
+	 */
+	private def Boolean waitFor(Future<Boolean> task, Path outFile) {
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			LOG.error('''Failed to generate the Xcore documentation '«outFile»'.''', e.cause);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the files matching the given glob pattern, in alphabetical order.
+	 * Only the directory denoted by the part of the pattern preceding the first
+	 * wildcard is walked.
+	 */
+	static def List<Path> matchingFiles(String pattern) throws IOException {
+		var firstWildcard = 0;
+		while (firstWildcard < pattern.length && "*?[{".indexOf(pattern.charAt(firstWildcard)) < 0) {
+			firstWildcard++;
+		}
+		if (firstWildcard == pattern.length) {
+			val file = Paths.get(pattern);
+			return if (Files.isRegularFile(file)) #[file] else #[];
+		}
+
+		val lastSeparator = pattern.substring(0, firstWildcard).lastIndexOf('/');
+		val root = if (lastSeparator < 0) Paths.get(".") else Paths.get(pattern.substring(0, Math.max(1, lastSeparator)));
+		if (!Files.isDirectory(root)) {
+			return #[];
+		}
+
+		val PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		val stream = Files.walk(root);
+		try {
+			return stream.filter[Files.isRegularFile(it) && matcher.matches(it.normalize)].sorted.collect(Collectors.toList);
+		} finally {
+			stream.close();
+		}
+	}
+
+	override postInvoke() {
+	}
+
+	override preInvoke() {
+	}
+}
@@ -8,9 +8,21 @@ import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowComponent
 import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext
 import org.eclipse.xtend.lib.annotations.Accessors
 import java.nio.file.Paths
-import java.io.FileWriter
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil
 import com.github.darvasd.xtextdocs.xcore.formatter.IXcoreDocsFormatter
 import org.apache.log4j.Logger
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.xcore.formatter.IShardingXcoreDocsFormatter
+import java.util.concurrent.Executors
+import java.util.List
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.IDocsMetricsListener
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener
+import org.eclipse.emf.ecore.util.EcoreUtil
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
+import com.github.darvasd.xtextdocs.xcore.formatter.ISearchIndexingXcoreDocsFormatter
+import java.nio.file.Path
+import java.io.IOException
 
 /**
  * Xcore documentation generation fragment to be used in MWE2 workflows.
@@ -39,17 +51,106 @@ class DocsGeneratorFragment implements IWorkflowComponent {
 	 */
 	 @Accessors IXcoreDocsFormatter formatter;
 	
+	/**
+	 * If true and the formatter supports it, the documentation is split into an
+	 * index page (written to {@code outputFileName}) and one page per classifier,
+	 * written next to the index page. Only the pages whose content changed are replaced.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean sharded = false;
+	
+	/**
+	 * The file name of the search index of the documentation (e.g. {@code docs/search-index.json}).
+	 * If set and the formatter supports it, the documented classifiers are indexed by their
+	 * names, the names of their members and their documentation while the documentation
+	 * is generated, and the index is saved in a compact JSON format. The link targets in
+	 * the index are relative to the index file. Not supported if the documentation is sharded.
+	 * <p>
+	 * Optional.
+	 */
+	@Accessors String searchIndexFileName;
+	
+	/**
+	 * The number of threads to be used to render and write the pages if the
+	 * documentation is sharded.
+	 * <p>
+	 * Optional, default: 1.
+	 */
+	int parallelism = 1;
+	
+	/**
+	 * Sets the number of threads to be used to render and write the pages if
+	 * the documentation is sharded. If it is at most 1, the pages are written
+	 * sequentially.
+	 * <p>
+	 * It is an ugly workaround to take a string as argument, but this is necessary
+	 * as MWE2 does not support integer properties.
+	 * See https://bugs.eclipse.org/bugs/show_bug.cgi?id=377068 .
+	 */
+	def void setParallelism(String value) {
+		this.parallelism = Integer.parseInt(value);
+	}
+
+	/**
+	 * If true, the time spent in the phases of the generation and the counted
+	 * quantities (classifiers, links, bytes written, etc.) are logged at the end of the
+	 * generation.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean logMetrics = false;
+
+	/**
+	 * The listeners to be notified about the phases and the counted quantities
+	 * of the generation (e.g. {@code JfrMetricsListener} for profiling sessions).
+	 */
+	val List<IDocsMetricsListener> metricsListeners = newArrayList();
+
+	/**
+	 * Adds a listener to be notified about the phases and the counted quantities
+	 * of the generation. It is registered only for the duration of the generation.
+	 * <p>
+	 * Optional.
+	 */
+	def void addMetricsListener(IDocsMetricsListener listener) {
+		metricsListeners.add(listener);
+	}
+	
 	override invoke(IWorkflowContext ctx) {
+		val summary = new SummaryMetricsListener();
+		val listeners = if (logMetrics) metricsListeners + #[summary] else metricsListeners;
+		DocsMetrics.runWithListeners(listeners, [generateDocs]);
+		if (logMetrics) {
+			LOG.info(summary.summary);
+		}
+	}
+
+	private def void generateDocs() {
 		val ResourceSet resourceSet = new ResourceSetImpl();
 		val res = resourceSet.getResource(URI.createURI(getUri()), true);
 
 		if (res instanceof XcoreResource) {
-			if (outputFileName !== null) {				
-				val outFile = Paths.get(outputFileName).toAbsolutePath.toString;
-				val writer = new FileWriter(outFile);
-    			writer.write(formatter.generateDocs(res).toString);
-    			writer.close();
-				LOG.info('''Xcore documentation using '«formatter.class.simpleName»' written to '«outputFileName».' ''');
+			if (outputFileName !== null && sharded && formatter instanceof IShardingXcoreDocsFormatter) {
+				writeShards(res, formatter as IShardingXcoreDocsFormatter);
+			} else if (outputFileName !== null) {
+				if (sharded) {
+					LOG.warn('''The formatter '«formatter.class.simpleName»' does not support sharding, a single file is generated.''');
+				}
+				// The file is only replaced if its content changed
+				val outFile = Paths.get(outputFileName);
+				val index = createSearchIndex(outFile);
+				val content = if (index === null) formatter.generateDocs(res) else (formatter as ISearchIndexingXcoreDocsFormatter).generateDocs(res, index);
+				val written = OutputFileUtil.writeIfChanged(outFile, content);
+				if (written) {
+					LOG.info('''Xcore documentation using '«formatter.class.simpleName»' written to '«outputFileName».' ''');
+				} else {
+					LOG.info('''Xcore documentation in '«outputFileName»' is up-to-date.''');
+				}
+				// The index is saved after the documentation it refers to
+				if (index !== null) {
+					saveSearchIndex(index);
+				}
 			} else {
 				// Error handling (without breaking the workflow)
 				LOG.error("Unknown output file name ('outputFileName'), impossible to generate the documentation.");
@@ -62,6 +163,62 @@ class DocsGeneratorFragment implements IWorkflowComponent {
 		}
 	}
 	
+	/**
+	 * Returns the search index to be filled while the documentation written to the given
+	 * file is generated, or {@code null} if no search index is needed or supported.
+	 */
+	private def SearchIndex createSearchIndex(Path outFile) {
+		if (searchIndexFileName === null) {
+			return null;
+		}
+		if (!(formatter instanceof ISearchIndexingXcoreDocsFormatter)) {
+			LOG.warn('''The formatter '«formatter.class.simpleName»' does not support search indexing, 'searchIndexFileName' is ignored.''');
+			return null;
+		}
+
+		// The link targets are relative to the index file
+		val indexFile = Paths.get(searchIndexFileName).toAbsolutePath;
+		val targetPrefix = indexFile.parent.relativize(outFile.toAbsolutePath).toString.replace('\\', '/');
+		return new SearchIndex(targetPrefix);
+	}
+
+	/**
+	 * Saves the given search index to the file given by {@code searchIndexFileName}.
+	 */
+	private def void saveSearchIndex(SearchIndex index) {
+		try {
+			index.save(Paths.get(searchIndexFileName).toAbsolutePath);
+			LOG.info('''Search index of «index.entryCount» classifiers written to '«searchIndexFileName»'.''');
+		} catch (IOException e) {
+			// Error handling (without breaking the workflow)
+			LOG.error('''Unable to save the search index to '«searchIndexFileName»': «e.message»''');
+		}
+	}
+
+	/**
+	 * Writes the documentation of the given resource as an index page and one
+	 * page per classifier, concurrently.
+	 */
+	private def void writeShards(XcoreResource res, IShardingXcoreDocsFormatter shardingFormatter) {
+		// The proxies must not be resolved concurrently
+		EcoreUtil.resolveAll(res);
+
+		if (searchIndexFileName !== null) {
+			LOG.warn("The search index is not supported if the documentation is sharded, 'searchIndexFileName' is ignored.");
+		}
+		val indexFile = Paths.get(outputFileName).toAbsolutePath;
+		val output = ShardedOutput.forIndexFile(indexFile);
+		shardingFormatter.generateDocShards(res, indexFile.fileName.toString, output);
+
+		val executor = if (parallelism > 1) Executors.newFixedThreadPool(parallelism);
+		try {
+			val result = output.write(executor);
+			LOG.info('''Xcore documentation using '«formatter.class.simpleName»' written to '«outputFileName»' and its page directory («result.written.size» of «result.shardCount» files changed, «result.deleted.size» stale files deleted).''');
+		} finally {
+			executor?.shutdown();
+		}
+	}
+	
 	override postInvoke() {
 	}
 
@@ -0,0 +1,150 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.cli
+
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarSnapshot
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.Comparator
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class DocsGeneratorMainTest {
+	private Path directory;
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+
+	@Before
+	def void createDirectory() {
+		directory = Files.createTempDirectory("xtextdocs");
+		out = new ByteArrayOutputStream();
+		err = new ByteArrayOutputStream();
+	}
+
+	@After
+	def void deleteDirectory() {
+		val stream = Files.walk(directory);
+		try {
+			stream.sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	def void xmiTest() {
+		val outputFile = directory.resolve("docs/domainmodel.md");
+		val snapshotFile = directory.resolve("domainmodel.bin");
+		assertRun(DocsGeneratorMain.EXIT_OK, resource("DomainmodelGrammar.xmi"), "--output", outputFile.toString, "--title", "Domain model", "--snapshot", snapshotFile.toString);
+
+		val docs = new String(Files.readAllBytes(outputFile));
+		Assert.assertTrue(docs.split("\n").head.endsWith(" Domain model"));
+		Assert.assertTrue(docs.contains("Entity"));
+		Assert.assertEquals("org.example.domainmodel.Domainmodel", GrammarSnapshot.load(snapshotFile).grammarName);
+
+		// The unchanged documentation is not rewritten
+		assertRun(DocsGeneratorMain.EXIT_OK, resource("DomainmodelGrammar.xmi"), "--output", outputFile.toString, "--title", "Domain model");
+		Assert.assertTrue(out.toString, out.toString.contains("up-to-date"));
+	}
+
+	@Test
+	def void xtextTest() {
+		assertRun(DocsGeneratorMain.EXIT_OK, "--output-dir", directory.toString, "--include-used-grammars", "--sharded", resource("multigrammar/LangA.xtext"));
+
+		Assert.assertTrue(Files.exists(directory.resolve("LangA.md")));
+		Assert.assertTrue(Files.exists(directory.resolve("LangA/ModelA.md")));
+		Assert.assertTrue(Files.exists(directory.resolve("multigrammar.Base.md")));
+		Assert.assertTrue(Files.exists(directory.resolve("org.eclipse.xtext.common.Terminals.md")));
+	}
+
+	@Test
+	def void watchTest() {
+		val grammarFile = directory.resolve("Watched.xtext");
+		Files.write(grammarFile, grammar("First comment.").bytes);
+		val outputFile = directory.resolve("Watched.md");
+		val cacheFile = directory.resolve("watched.cache");
+
+		val executor = Executors.newSingleThreadExecutor();
+		try {
+			val exitCode = executor.submit([DocsGeneratorMain.run(#["--output-dir", directory.toString, "--cache", cacheFile.toString, "--watch", grammarFile.toString], new PrintStream(out, true), new PrintStream(err, true))]);
+			waitFor[out.toString.contains("Watching")];
+			Assert.assertTrue(new String(Files.readAllBytes(outputFile)).contains("First comment."));
+
+			// The changed grammar is reparsed and documented again
+			Files.write(grammarFile, grammar("Second comment.").bytes);
+			waitFor[out.toString.contains("Regenerated")];
+			Assert.assertTrue(new String(Files.readAllBytes(outputFile)).contains("Second comment."));
+
+			// The rule section cache is saved after each regeneration
+			Assert.assertTrue(new String(Files.readAllBytes(cacheFile)).contains("Second comment."));
+
+			// Interrupting the launcher stops watching
+			executor.shutdownNow();
+			Assert.assertEquals(err.toString, DocsGeneratorMain.EXIT_OK, exitCode.get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	def void usageTest() {
+		assertRun(DocsGeneratorMain.EXIT_OK, "--help");
+		Assert.assertTrue(out.toString.startsWith("Usage:"));
+
+		assertRun(DocsGeneratorMain.EXIT_USAGE);
+		assertRun(DocsGeneratorMain.EXIT_USAGE, "--unknown", "a.xtext");
+		assertRun(DocsGeneratorMain.EXIT_USAGE, "--parallelism", "x", "a.xtext");
+		assertRun(DocsGeneratorMain.EXIT_USAGE, "a.ecore");
+		assertRun(DocsGeneratorMain.EXIT_USAGE, "--output", "out.md", "a.xtext", "b.xtext");
+	}
+
+	@Test
+	def void failureTest() {
+		assertRun(DocsGeneratorMain.EXIT_FAILURE, "--output-dir", directory.toString, directory.resolve("Missing.xmi").toString);
+		Assert.assertTrue(err.toString.contains("Missing.xmi"));
+	}
+
+	private static def String grammar(String comment) '''
+		grammar watched.Watched with org.eclipse.xtext.common.Terminals
+
+		generate watched "http://www.example.org/watched/Watched"
+
+		/**
+		 * «comment»
+		 */
+		Model:
+			name=ID;
+	'''
+
+	private static def void waitFor(()=>boolean condition) {
+		val deadline = System.currentTimeMillis + 10_000;
+		while (!condition.apply) {
+			Assert.assertTrue("Timeout", System.currentTimeMillis < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private def void assertRun(int expectedExitCode, String... args) {
+		val exitCode = DocsGeneratorMain.run(args, new PrintStream(out, true), new PrintStream(err, true));
+		Assert.assertEquals(err.toString, expectedExitCode, exitCode);
+	}
+
+	private def String resource(String name) {
+		return Paths.get(this.class.classLoader.getResource(name).toURI).toString;
+	}
+}
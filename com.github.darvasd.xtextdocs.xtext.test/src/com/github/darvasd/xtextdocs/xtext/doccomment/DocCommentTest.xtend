@@ -10,6 +10,8 @@
 
 package com.github.darvasd.xtextdocs.xtext.doccomment
 
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 import org.junit.Test
 import org.junit.Assert
 
@@ -66,4 +68,61 @@ class DocCommentTest {
 		Assert.assertEquals("@tag", actual.getParts.get(1).getTag);
 		Assert.assertEquals("This is tag 2.", actual.getParts.get(1).getArgument);
 	}
+
+	@Test
+	def tagLookupTest() {
+		val actual = DocComment.parse('''
+		/**
+		 * Description.
+		 * @validation First.
+		 * @example Example.
+		 * @validation Second.
+		 */''');
+
+		Assert.assertEquals(#["First.", "Second."], actual.getPartsWithTag("@validation").map[argument]);
+		Assert.assertEquals(#["Example."], actual.getPartsWithTag("@example").map[argument]);
+		Assert.assertEquals(#[], actual.getPartsWithTag("@unknown"));
+		Assert.assertTrue(actual.hasPartWithTag("@example"));
+		Assert.assertFalse(actual.hasPartWithTag("@unknown"));
+		Assert.assertEquals(#["@validation", "@example", "@validation"], actual.getParts.map[tag]);
+	}
+
+	@Test
+	def lazyParseTest() {
+		val text = '''
+		/**
+		 * Description.
+		 * @tagWithoutArgument
+		 */'''.toString;
+
+		// The comment is only parsed on access
+		val actual = DocComment.parse(text);
+		Assert.assertEquals(text, actual.getText);
+		try {
+			actual.getParts;
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		Assert.assertEquals("", DocComment.parse("// not a doc comment").getMainDescription);
+		Assert.assertEquals("", DocComment.empty.getText);
+	}
+
+	@Test
+	def concurrentParseTest() {
+		val comment = DocComment.parse('''
+		/**
+		 * Description.
+		 * @tag Value.
+		 */''');
+		val executor = Executors.newFixedThreadPool(4);
+		try {
+			val results = executor.invokeAll((0 ..< 16).map[[comment.getParts] as Callable<Object>].toList);
+			// The comment is parsed once, all threads see the same content
+			Assert.assertTrue(results.forall[get === comment.getParts]);
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
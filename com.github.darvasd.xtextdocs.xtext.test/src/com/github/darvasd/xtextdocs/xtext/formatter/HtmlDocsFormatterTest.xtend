@@ -0,0 +1,147 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter
+
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.ParserRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc
+import java.util.concurrent.ForkJoinPool
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+/**
+ * Tests of the HTML grammar documentation formatter.
+ */
+class HtmlDocsFormatterTest {
+	static GrammarDoc grammarDoc;
+
+	@BeforeClass
+	def static void createGrammarDoc() {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = HtmlDocsFormatterTest.classLoader;
+		val resource = resourceSet.getResource(URI.createURI("classpath:/snapshot/Snapshot.xtext"), true);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+
+		grammarDoc = DocsGenerator.createGrammarDocumentation(resource.contents.head as Grammar);
+	}
+
+	@Test
+	def void contentTest() {
+		val actual = new HtmlDocsFormatter().formatGrammar(grammarDoc).toString;
+
+		Assert.assertTrue(actual.startsWith("<!DOCTYPE html>"));
+		Assert.assertTrue(actual.trim.endsWith("</html>"));
+		assertContains("<title>snapshot.Snapshot</title>", actual);
+		assertContains('''<section id="entry">''', actual);
+		assertContains('''<h3>Color <small>(enum)</small></h3>''', actual);
+		assertContains('''<h3>DIGIT <small>(terminal fragment)</small></h3>''', actual);
+		assertContains('''<p>Model, containing <a href="#entry">Entry</a> elements.</p>''', actual);
+		assertContains('''<li><code>entry a : red</code></li>''', actual);
+		assertContains('''<li><a href="#size">Size</a></li>''', actual);
+		assertContains('''<p><b>Returns:</b> <code>ecore::EInt</code></p>''', actual);
+		assertContains('''<li>red (<code>red</code>): <i>The color red.</i></li>''', actual);
+		// The source code is escaped
+		assertContains('''<pre><code>Entry:«"\n"»	&#39;entry&#39; name=ID''', actual);
+		// Simplified grammar
+		assertContains('''<h2>Simplified grammar</h2>''', actual);
+		assertContains('''<p><b>Entry</b> ::= <code>entry</code>   <i>ID</i>   <code>:</code>   <i>Color</i>   <i>Size</i>?;</p>''', actual);
+	}
+
+	@Test
+	def void formatRuleTest() {
+		val mapping = grammarDoc.referenceIndex.ruleDocs;
+		for (formatter : #[new HtmlDocsFormatter(), new MarkdownDocsFormatter()]) {
+			for (ruleDoc : grammarDoc.rules) {
+				val expected = formatter.formatRule(ruleDoc, mapping).toString;
+				Assert.assertEquals(expected, formatter.formatRule(ruleDoc, grammarDoc).toString);
+				Assert.assertEquals(expected, formatter.formatRule(ruleDoc, grammarDoc.referenceIndex).toString);
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	def void deprecatedFormatRuleTest() {
+		// The former dispatch cases of the Markdown formatter delegate to formatRule(RuleDoc, Map)
+		val mapping = grammarDoc.referenceIndex.ruleDocs;
+		val formatter = new MarkdownDocsFormatter();
+		val parserRule = grammarDoc.rules.filter(ParserRuleDoc).head;
+		val enumRule = grammarDoc.rules.filter(EnumRuleDoc).head;
+		val terminalRule = grammarDoc.rules.filter(TerminalRuleDoc).head;
+		Assert.assertEquals(formatter.formatRule(parserRule as RuleDoc, mapping).toString, formatter.formatRule(parserRule, mapping).toString);
+		Assert.assertEquals(formatter.formatRule(enumRule as RuleDoc, mapping).toString, formatter.formatRule(enumRule, mapping).toString);
+		Assert.assertEquals(formatter.formatRule(terminalRule as RuleDoc, mapping).toString, formatter.formatRule(terminalRule, mapping).toString);
+	}
+
+	@Test
+	def void searchIndexTest() {
+		val index = new SearchIndex("Snapshot.html");
+		val formatter = new HtmlDocsFormatter();
+		val page = new StringBuilder();
+		formatter.formatGrammar(grammarDoc, page, index);
+
+		// Indexing does not change the page
+		Assert.assertEquals(formatter.formatGrammar(grammarDoc).toString, page.toString);
+		Assert.assertEquals(grammarDoc.rules.size, index.entryCount);
+		// Names, keywords, comments and enum literal comments
+		Assert.assertEquals(#["Model", "Entry", "Size"], index.find("entry"));
+		Assert.assertEquals(#["Model", "Color"], index.find("red"));
+		Assert.assertEquals(#["Color"], index.find("green"));
+		Assert.assertEquals(#["HEX"], index.find("hexadecimal"));
+		Assert.assertEquals(#["HEX"], index.find("0x"));
+
+		val json = new StringBuilder();
+		index.write(json);
+		assertContains('''["Size","parser","Snapshot.html#size"]''', json.toString);
+	}
+
+	@Test
+	def void parallelTest() {
+		// The same formatter is shared by the sequential and the concurrent generation
+		val formatter = new HtmlDocsFormatter();
+		val expectedIndex = new SearchIndex();
+		val expected = new StringBuilder();
+		formatter.formatGrammar(grammarDoc, expected, expectedIndex);
+
+		val pool = new ForkJoinPool(4);
+		try {
+			val actualIndex = new SearchIndex();
+			val actual = new StringBuilder();
+			formatter.formatGrammar(grammarDoc, actual, pool, actualIndex);
+
+			Assert.assertEquals(expected.toString, actual.toString);
+			Assert.assertEquals(json(expectedIndex), json(actualIndex));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static def String json(SearchIndex index) {
+		val ret = new StringBuilder();
+		index.write(ret);
+		return ret.toString;
+	}
+
+	private static def void assertContains(CharSequence expected, String actual) {
+		Assert.assertTrue('''"«expected»" not found in:«"\n"»«actual»''', actual.contains(expected));
+	}
+}
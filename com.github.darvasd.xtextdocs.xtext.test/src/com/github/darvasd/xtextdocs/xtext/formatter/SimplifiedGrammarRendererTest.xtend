@@ -0,0 +1,118 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter
+
+import com.github.darvasd.xtextdocs.common.formatter.HtmlTextFormatter
+import com.github.darvasd.xtextdocs.common.formatter.MarkdownTextFormatter
+import com.google.common.base.Strings
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.AbstractElement
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.GrammarUtil
+import org.eclipse.xtext.XtextFactory
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+/**
+ * Tests of the simplified grammar renderer.
+ */
+class SimplifiedGrammarRendererTest {
+	static Grammar grammar;
+
+	@BeforeClass
+	def static void loadGrammar() {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = SimplifiedGrammarRendererTest.classLoader;
+		val resource = resourceSet.getResource(URI.createURI("classpath:/snapshot/Snapshot.xtext"), true);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+
+		grammar = resource.contents.head as Grammar;
+	}
+
+	@Test
+	def void markdownTest() {
+		val renderer = new SimplifiedGrammarRenderer(MarkdownTextFormatter.INSTANCE);
+
+		Assert.assertEquals("_Entry_*", renderer.render(rule("Model")));
+		Assert.assertEquals("`entry`   _ID_   `:`   _Color_   _Size_?", renderer.render(rule("Entry")));
+		Assert.assertEquals("`red` | `GREEN`", renderer.render(rule("Color")));
+		Assert.assertEquals("`0x`   _DIGIT_+", renderer.render(rule("HEX")));
+		Assert.assertEquals("[`0`..`9`] | [`a`..`f`]", renderer.render(rule("DIGIT")));
+	}
+
+	@Test
+	def void htmlTest() {
+		val renderer = new SimplifiedGrammarRenderer(HtmlTextFormatter.INSTANCE);
+
+		Assert.assertEquals("<code>entry</code>   <i>ID</i>   <code>:</code>   <i>Color</i>   <i>Size</i>?",
+			renderer.render(rule("Entry")));
+	}
+
+	@Test
+	def void parenthesesTest() {
+		val group = group(keyword("a"), XtextFactory.eINSTANCE.createAlternatives() => [
+			elements += keyword("b");
+			elements += keyword("c");
+			cardinality = "*";
+		]);
+
+		Assert.assertEquals("`a`   (`b` | `c`)*", render(group));
+	}
+
+	@Test
+	def void deepNestingTest() {
+		val depth = 20000;
+		var AbstractElement element = keyword("x");
+		for (i : 0 ..< depth) {
+			element = group(keyword("x"), element);
+		}
+
+		// Would overflow the stack if rendered recursively
+		val actual = render(element);
+		// The outermost group is not parenthesized
+		Assert.assertEquals((depth + 1) * "`x`".length + depth * "   ".length + (depth - 1) * "()".length, actual.length);
+		Assert.assertTrue(actual.startsWith("`x`   (`x`   ("));
+		Assert.assertTrue(actual.endsWith("`x`   `x`" + Strings.repeat(")", depth - 1)));
+	}
+
+	@Test
+	def void memoizationTest() {
+		val renderer = new SimplifiedGrammarRenderer(MarkdownTextFormatter.INSTANCE);
+		val first = renderer.render(rule("Entry"));
+
+		Assert.assertSame(first, renderer.render(rule("Entry")));
+	}
+
+	private static def rule(String name) {
+		return GrammarUtil.findRuleForName(grammar, name);
+	}
+
+	private static def keyword(String value) {
+		return XtextFactory.eINSTANCE.createKeyword() => [it.value = value];
+	}
+
+	private static def group(AbstractElement... items) {
+		val ret = XtextFactory.eINSTANCE.createGroup();
+		ret.elements += items;
+		return ret;
+	}
+
+	private static def String render(AbstractElement element) {
+		val ret = new StringBuilder();
+		new SimplifiedGrammarRenderer(MarkdownTextFormatter.INSTANCE).render(element, ret);
+		return ret.toString;
+	}
+}
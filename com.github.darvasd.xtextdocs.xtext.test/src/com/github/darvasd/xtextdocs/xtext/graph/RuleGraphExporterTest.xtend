@@ -0,0 +1,148 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.graph
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.Comparator
+import java.util.concurrent.ForkJoinPool
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.GrammarUtil
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+/**
+ * Tests of the rule dependency graph export.
+ */
+class RuleGraphExporterTest {
+	static GrammarDoc grammarDoc;
+
+	@BeforeClass
+	def static void createGrammarDoc() {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = RuleGraphExporterTest.classLoader;
+		val resource = resourceSet.getResource(URI.createURI("classpath:/snapshot/Snapshot.xtext"), true);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+
+		grammarDoc = DocsGenerator.createGrammarDocumentation(resource.contents.head as Grammar);
+	}
+
+	@Test
+	def void csvTest() {
+		val actual = new StringBuilder();
+		new RuleGraphExporter(RuleGraphFormat.CSV, 1).writeGraph(grammarDoc, actual);
+
+		Assert.assertEquals('''
+			source,target
+			Model,Entry
+			Entry,ID
+			Entry,Color
+			Entry,Size
+			Size,INT
+			HEX,DIGIT
+		'''.toString, actual.toString);
+	}
+
+	@Test
+	def void dotNeighborhoodTest() {
+		val actual = new StringBuilder();
+		new RuleGraphExporter(RuleGraphFormat.DOT, 1).writeNeighborhood(grammarDoc, rule("Entry"), actual);
+
+		// Size -> INT is two rule calls away from Entry
+		Assert.assertEquals('''
+			digraph "Entry" {
+				node[ shape="rectangle", style="filled" ];
+
+				"Model" [ color="black", fillcolor="#e6e6ff" ];
+				"Entry" [ color="red", fillcolor="#e6e6ff" ];
+				"Size" [ color="black", fillcolor="#e6e6ff" ];
+				"Color" [ color="black", fillcolor="#ffffcc" ];
+				"ID" [ color="black", fillcolor="white", style="dashed" ];
+
+				"Model" -> "Entry";
+				"Entry" -> "ID" [ style="dashed" ];
+				"Entry" -> "Color";
+				"Entry" -> "Size";
+			}
+		'''.toString, actual.toString);
+	}
+
+	@Test
+	def void graphMlTest() {
+		val actual = new StringBuilder();
+		new RuleGraphExporter(RuleGraphFormat.GRAPHML, 0).writeNeighborhood(grammarDoc, rule("DIGIT"), actual);
+
+		Assert.assertEquals('''
+			<?xml version="1.0" encoding="UTF-8"?>
+			<graphml xmlns="http://graphml.graphdrawing.org/xmlns">
+				<key id="kind" for="node" attr.name="kind" attr.type="string"/>
+				<graph id="DIGIT" edgedefault="directed">
+					<node id="DIGIT"><data key="kind">terminal fragment</data></node>
+				</graph>
+			</graphml>
+		'''.toString, actual.toString);
+	}
+
+	@Test
+	def void formatNameTest() {
+		Assert.assertEquals(RuleGraphFormat.GRAPHML, RuleGraphFormat.fromName("GraphML"));
+		Assert.assertEquals(RuleGraphFormat.DOT, RuleGraphFormat.fromName("dot"));
+	}
+
+	@Test(expected = IllegalArgumentException)
+	def void unknownFormatTest() {
+		RuleGraphFormat.fromName("svg");
+	}
+
+	@Test
+	def void shardedTest() {
+		val exporter = new RuleGraphExporter(RuleGraphFormat.CSV, 2);
+		val directory = Files.createTempDirectory("xtextdocs");
+		val pool = new ForkJoinPool(4);
+		try {
+			val result = DocsGenerator.generateRuleGraphs(grammarDoc, exporter, directory, null);
+			Assert.assertEquals(#["graph.csv", "Model.csv", "Entry.csv", "Size.csv", "Color.csv", "HEX.csv", "DIGIT.csv"],
+				result.written);
+
+			val model = new String(Files.readAllBytes(directory.resolve("Model.csv")), StandardCharsets.UTF_8);
+			Assert.assertEquals("source,target\nModel,Entry\nEntry,ID\nEntry,Color\nEntry,Size\n", model);
+
+			// The concurrent export produces the same files, thus nothing is written
+			val result2 = DocsGenerator.generateRuleGraphs(grammarDoc, exporter, directory, pool);
+			Assert.assertEquals(#[], result2.written);
+			Assert.assertEquals(result.written, result2.upToDate);
+			Assert.assertTrue(Files.exists(directory.resolve(ShardedOutput.MANIFEST_FILE_NAME)));
+
+			// The graph of a file which is not produced anymore is deleted
+			val previous = new ShardedOutput(directory, ShardedOutput.MANIFEST_FILE_NAME) => [add("Removed.csv", "")];
+			previous.write(null);
+			val result3 = DocsGenerator.generateRuleGraphs(grammarDoc, exporter, directory, null);
+			Assert.assertEquals(#["Removed.csv"], result3.deleted);
+			Assert.assertFalse(Files.exists(directory.resolve("Removed.csv")));
+		} finally {
+			pool.shutdown();
+			Files.walk(directory).sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		}
+	}
+
+	private static def rule(String name) {
+		return GrammarUtil.findRuleForName(grammarDoc.grammar, name);
+	}
+}
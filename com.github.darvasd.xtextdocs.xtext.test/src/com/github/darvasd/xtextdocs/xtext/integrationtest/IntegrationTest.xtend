@@ -10,8 +10,20 @@
 
 package com.github.darvasd.xtextdocs.xtext.integrationtest
 
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener
 import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.HeadCommentIndex
+import com.github.darvasd.xtextdocs.xtext.cache.RuleSectionCache
 import com.google.common.base.Preconditions
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.attribute.FileTime
+import java.util.Comparator
+import java.util.concurrent.ForkJoinPool
 import org.eclipse.emf.common.util.URI
 import org.eclipse.emf.ecore.util.EcoreUtil
 import org.eclipse.emf.ecore.xmi.XMIResource
@@ -69,4 +81,170 @@ class IntegrationTest {
 			Assert.assertTrue(grammarDocText.contains(expectedWord));
 		}
 	}
+
+	@Test
+	def void streamingTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true; includeDotReferenceGraph = true];
+		val expected = DocsGenerator.generateFormattedDoc(grammar, formatter).toString;
+
+		val writer = new StringWriter();
+		DocsGenerator.generateFormattedDoc(grammar, formatter, writer);
+
+		Assert.assertEquals(expected, writer.toString);
+	}
+
+	@Test
+	def void referenceIndexTest() {
+		val grammarDoc = DocsGenerator.createGrammarDocumentation(grammar);
+		val abstractElement = grammarDoc.rules.findFirst[it.ruleName == "AbstractElement"];
+		Assert.assertNotNull(abstractElement);
+
+		val refersTo = grammarDoc.getRefersTo(abstractElement.rule).map[it.name].toSet;
+		Assert.assertEquals(#{"PackageDeclaration", "Type", "Import"}, refersTo);
+
+		val referredBy = grammarDoc.getReferredBy(abstractElement.rule).map[it.ruleName].toSet;
+		Assert.assertEquals(#{"Domainmodel", "PackageDeclaration"}, referredBy);
+	}
+
+	@Test
+	def void headCommentIndexTest() {
+		// The node model is not available in the loaded grammar
+		val headComments = HeadCommentIndex.build(grammar);
+		Assert.assertSame(HeadCommentIndex.empty, headComments);
+
+		val rules = DocsGenerator.extractRuleDocumentation(grammar, headComments);
+		Assert.assertEquals(grammar.rules.size, rules.size);
+		Assert.assertTrue(rules.forall[it.headComment.mainDescription.isEmpty && it.headComment.parts.isEmpty]);
+	}
+
+	@Test
+	def void parallelTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true; includeDotReferenceGraph = true];
+		val expected = DocsGenerator.generateFormattedDoc(grammar, formatter).toString;
+
+		val pool = new ForkJoinPool(4);
+		try {
+			val writer = new StringWriter();
+			DocsGenerator.generateFormattedDoc(grammar, formatter, writer, pool);
+			Assert.assertEquals(expected, writer.toString);
+
+			val ruleDocs = DocsGenerator.extractRuleDocumentation(grammar, HeadCommentIndex.empty, pool);
+			Assert.assertEquals(grammar.rules, ruleDocs.map[rule]);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	def void ruleSectionCacheTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true];
+		val expected = DocsGenerator.generateFormattedDoc(grammar, formatter).toString;
+		val ruleCount = grammar.rules.size;
+
+		val cacheFile = Files.createTempFile("xtextdocs", ".cache");
+		try {
+			formatter.ruleSectionCache = new RuleSectionCache();
+			Assert.assertEquals(expected, DocsGenerator.generateFormattedDoc(grammar, formatter).toString);
+			Assert.assertEquals(ruleCount, formatter.ruleSectionCache.missCount);
+			formatter.ruleSectionCache.save(cacheFile);
+
+			// All sections are reused from the loaded cache
+			formatter.ruleSectionCache = RuleSectionCache.load(cacheFile);
+			Assert.assertEquals(expected, DocsGenerator.generateFormattedDoc(grammar, formatter).toString);
+			Assert.assertEquals(ruleCount, formatter.ruleSectionCache.hitCount);
+			Assert.assertEquals(0, formatter.ruleSectionCache.missCount);
+
+			// Changing a setting influencing the rule sections invalidates the cache
+			formatter.gitbookLinkStyle = true;
+			DocsGenerator.generateFormattedDoc(grammar, formatter);
+			Assert.assertEquals(ruleCount, formatter.ruleSectionCache.missCount);
+		} finally {
+			Files.deleteIfExists(cacheFile);
+		}
+	}
+
+	@Test
+	def void ruleSectionCacheLayoutTest() {
+		val formatter = new MarkdownDocsFormatter();
+		val ruleCount = grammar.rules.size;
+
+		val cacheFile = Files.createTempFile("xtextdocs", ".cache");
+		val directory = Files.createTempDirectory("xtextdocs");
+		try {
+			// The sections of the single document and of the pages are cached side by side
+			formatter.ruleSectionCache = new RuleSectionCache();
+			DocsGenerator.generateFormattedDoc(grammar, formatter);
+			DocsGenerator.generateShardedDoc(grammar, formatter, directory.resolve("index.md"), null);
+			Assert.assertEquals(2 * ruleCount, formatter.ruleSectionCache.missCount);
+			formatter.ruleSectionCache.save(cacheFile);
+
+			formatter.ruleSectionCache = RuleSectionCache.load(cacheFile);
+			DocsGenerator.generateFormattedDoc(grammar, formatter);
+			DocsGenerator.generateShardedDoc(grammar, formatter, directory.resolve("index.md"), null);
+			Assert.assertEquals(2 * ruleCount, formatter.ruleSectionCache.hitCount);
+			Assert.assertEquals(0, formatter.ruleSectionCache.missCount);
+
+			// Saving the same entries again does not touch the file
+			val modified = Files.getLastModifiedTime(cacheFile);
+			Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(modified.toMillis - 10000));
+			formatter.ruleSectionCache.save(cacheFile);
+			Assert.assertEquals(modified.toMillis - 10000, Files.getLastModifiedTime(cacheFile).toMillis);
+		} finally {
+			Files.deleteIfExists(cacheFile);
+			Files.walk(directory).sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		}
+	}
+
+	@Test
+	def void shardedTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true];
+		val directory = Files.createTempDirectory("xtextdocs");
+		val indexFile = directory.resolve("index.md");
+		val pool = new ForkJoinPool(4);
+		try {
+			val result = DocsGenerator.generateShardedDoc(grammar, formatter, indexFile, null);
+			Assert.assertEquals(grammar.rules.size + 1, result.written.size);
+			Assert.assertEquals("index.md", result.written.get(0));
+
+			Assert.assertEquals('''index/«grammar.rules.head.name».md'''.toString, result.written.get(1));
+
+			val index = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8);
+			Assert.assertTrue(index.contains("- [PackageDeclaration](index/PackageDeclaration.md#packagedeclaration)"));
+			Assert.assertTrue(index.contains("Simplified grammar"));
+			val shard = new String(Files.readAllBytes(directory.resolve("index/AbstractElement.md")), StandardCharsets.UTF_8);
+			Assert.assertTrue(shard.startsWith('''[«grammar.name»](../index.md)'''));
+			Assert.assertTrue(shard.contains("- [PackageDeclaration](PackageDeclaration.md#packagedeclaration)"));
+
+			// The concurrent generation produces the same pages, thus nothing is written
+			val result2 = DocsGenerator.generateShardedDoc(grammar, formatter, indexFile, pool);
+			Assert.assertEquals(#[], result2.written);
+			Assert.assertEquals(result.written, result2.upToDate);
+
+			// The page of a removed rule is deleted, the unrelated files are kept
+			Files.write(directory.resolve("index/notes.txt"), #[1 as byte]);
+			val removed = grammar.rules.remove(grammar.rules.size - 1);
+			val result3 = DocsGenerator.generateShardedDoc(grammar, formatter, indexFile, null);
+			Assert.assertEquals(#['''index/«removed.name».md'''.toString], result3.deleted);
+			Assert.assertFalse(Files.exists(directory.resolve('''index/«removed.name».md''')));
+			Assert.assertTrue(Files.exists(directory.resolve("index/notes.txt")));
+		} finally {
+			pool.shutdown();
+			Files.walk(directory).sorted(Comparator.reverseOrder).forEach[Files.delete(it)];
+		}
+	}
+
+	@Test
+	def void metricsTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true; includeDotReferenceGraph = true];
+		val summary = new SummaryMetricsListener();
+		DocsMetrics.runWithListeners(#[summary], [DocsGenerator.generateFormattedDoc(grammar, formatter)]);
+
+		Assert.assertEquals(grammar.rules.size, summary.getCount(DocsCounter.RULES));
+		Assert.assertEquals(grammar.rules.size, summary.getCount(DocsPhase.RULE_FORMATTING));
+		Assert.assertEquals(1, summary.getCount(DocsPhase.DOT_GRAPH));
+		Assert.assertTrue(summary.getCount(DocsPhase.SIMPLIFIED_GRAMMAR) > 0);
+		Assert.assertTrue(summary.getCount(DocsCounter.LINKS_RESOLVED) > 0);
+		// The node model is not available, thus there is no comment to be parsed
+		Assert.assertEquals(0, summary.getCount(DocsPhase.COMMENT_PARSING));
+	}
 }
@@ -0,0 +1,92 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.integrationtest
+
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.cache.GrammarDocCache
+import com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests of the documentation of grammars together with the grammars they use.
+ * Each language is loaded into its own resource set, as in a workflow.
+ */
+class MultiGrammarTest {
+	@Test
+	def void sharedGrammarDocTest() {
+		val cache = new GrammarDocCache();
+		val usedDocsA = DocsGenerator.createUsedGrammarDocumentations(load("LangA"), null, cache);
+		val usedDocsB = DocsGenerator.createUsedGrammarDocumentations(load("LangB"), null, cache);
+
+		Assert.assertEquals(#["multigrammar.Base", "org.eclipse.xtext.common.Terminals"], usedDocsA.map[grammarName]);
+		Assert.assertEquals(usedDocsA.map[grammarName], usedDocsB.map[grammarName]);
+		// The base grammars are documented once, although they were loaded twice
+		Assert.assertSame(usedDocsA.get(0), usedDocsB.get(0));
+		Assert.assertSame(usedDocsA.get(1), usedDocsB.get(1));
+		Assert.assertEquals(2, cache.missCount);
+		Assert.assertEquals(2, cache.hitCount);
+	}
+
+	@Test
+	def void inheritedRuleLinkTest() {
+		val grammar = load("LangA");
+		val formatter = new MarkdownDocsFormatter() => [
+			usedGrammarFileNames = DocsGenerator.usedGrammarFileNames(grammar, "md", "LangA.md")
+		];
+		Assert.assertEquals(#{"multigrammar.Base" -> "multigrammar.Base.md", "org.eclipse.xtext.common.Terminals" -> "org.eclipse.xtext.common.Terminals.md"}, formatter.usedGrammarFileNames);
+
+		val docs = formatter.formatGrammar(DocsGenerator.createGrammarDocumentation(grammar)).toString;
+		assertContains("- [`multigrammar.Base`](multigrammar.Base.md)", docs);
+		assertContains("named by a [QualifiedName](multigrammar.Base.md#qualifiedname)", docs);
+		assertContains("- [INT](org.eclipse.xtext.common.Terminals.md#int)", docs);
+		assertContains("- [QualifiedName](multigrammar.Base.md#qualifiedname)", docs);
+
+		// The used grammars are formatted with the same file names
+		val baseDocs = formatter.formatGrammar(DocsGenerator.createUsedGrammarDocumentations(grammar, null, null).get(0)).toString;
+		assertContains("consisting of [ID](org.eclipse.xtext.common.Terminals.md#id)s", baseDocs);
+		assertContains("- [QualifiedName](#qualifiedname)", baseDocs);
+	}
+
+	@Test
+	def void overriddenRuleTest() {
+		val grammar = load("LangB");
+		val formatter = new MarkdownDocsFormatter() => [
+			usedGrammarFileNames = DocsGenerator.usedGrammarFileNames(grammar, "md")
+		];
+		val docs = formatter.formatGrammar(DocsGenerator.createGrammarDocumentation(grammar)).toString;
+		Assert.assertFalse(docs.contains("Terminals.md#id"));
+
+		// Without the file names, the inherited rules are not linked
+		formatter.usedGrammarFileNames = null;
+		val unlinkedDocs = formatter.formatGrammar(DocsGenerator.createGrammarDocumentation(load("LangA"))).toString;
+		assertContains("- `multigrammar.Base`", unlinkedDocs);
+		assertContains("- INT", unlinkedDocs);
+	}
+
+	private def Grammar load(String name) {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = this.class.classLoader;
+		val resource = resourceSet.getResource(URI.createURI('''classpath:/multigrammar/«name».xtext'''), true);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+		return resource.contents.head as Grammar;
+	}
+
+	private static def void assertContains(String expected, String actual) {
+		Assert.assertTrue('''"«expected»" not found in:«"\n"»«actual»''', actual.contains(expected));
+	}
+}
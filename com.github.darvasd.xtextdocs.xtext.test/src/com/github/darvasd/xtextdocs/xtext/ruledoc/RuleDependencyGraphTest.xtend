@@ -0,0 +1,97 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.ruledoc
+
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.google.common.base.Preconditions
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.util.StringInputStream
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+class RuleDependencyGraphTest {
+	static RuleDependencyGraph graph;
+
+	@BeforeClass
+	def static void createGraph() {
+		val grammarText = '''
+			grammar test.Graph with org.eclipse.xtext.common.Terminals
+
+			generate graph "http://www.example.org/graph"
+
+			Model: elements+=Element*;
+			Element: A | B;
+			A: 'a' name=ID b=B?;
+			B: 'b' a=A?;
+			Self: 'self' child=Self?;
+			Wrapper: Model;
+		''';
+
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = RuleDependencyGraphTest.classLoader;
+		val resource = resourceSet.createResource(URI.createURI("graph.xtext"));
+		resource.load(new StringInputStream(grammarText), null);
+		EcoreUtil.resolveAll(resource);
+		Preconditions.checkState(resource.errors.empty, "Invalid grammar: %s", resource.errors);
+
+		graph = DocsGenerator.createGrammarDocumentation(resource.contents.get(0) as Grammar).dependencyGraph;
+	}
+
+	@Test
+	def void reachabilityTest() {
+		Assert.assertEquals("Model", graph.entryRule.name);
+		Assert.assertEquals(#["Model", "Element", "A", "B", "ID"], graph.reachableRules.map[name].toList);
+		Assert.assertEquals(#["Self", "Wrapper"], graph.unreachableRules.map[ruleName].toList);
+		Assert.assertFalse(graph.isReachable(rule("Wrapper")));
+	}
+
+	@Test
+	def void referencesTest() {
+		Assert.assertEquals(#["ID", "B"], graph.getRefersTo(rule("A")).map[name].toList);
+		Assert.assertEquals(#["Element", "B"], graph.getReferredBy(rule("A")).map[name].toList);
+		// The alternatives of the rule is the rule call itself
+		Assert.assertEquals(#["Model"], graph.getRefersTo(rule("Wrapper")).map[name].toList);
+		Assert.assertNull(graph.getRuleDoc(rule("ID")));
+	}
+
+	@Test
+	def void recursionTest() {
+		val groups = graph.recursiveGroups.map[map[name].toSet].toSet;
+		Assert.assertEquals(#{#{"A", "B"}, #{"Self"}}, groups);
+		Assert.assertTrue(graph.isRecursive(rule("Self")));
+		Assert.assertFalse(graph.isRecursive(rule("Model")));
+
+		// Called rules precede the calling ones
+		val components = graph.stronglyConnectedComponents.map[map[name].toSet].toList;
+		Assert.assertTrue(components.indexOf(#{"A", "B"}) < components.indexOf(#{"Element"}));
+		Assert.assertTrue(components.indexOf(#{"Model"}) < components.indexOf(#{"Wrapper"}));
+	}
+
+	@Test
+	def void neighborhoodTest() {
+		Assert.assertEquals(#["Element"], graph.getNeighborhood(rule("Element"), 0).map[name].toList);
+		Assert.assertEquals(#["Model", "Element", "A", "B"], graph.getNeighborhood(rule("Element"), 1).map[name].toList);
+		Assert.assertEquals(#["Model", "Element", "A", "B", "Wrapper", "ID"],
+			graph.getNeighborhood(rule("Element"), 2).map[name].toList);
+		// Calling rule (Wrapper) and called rule (Element), but not the rules called by Element
+		Assert.assertEquals(#["Model", "Element", "Wrapper"], graph.getNeighborhood(rule("Model"), 1).map[name].toList);
+		Assert.assertEquals(#["Self"], graph.getNeighborhood(rule("Self"), 5).map[name].toList);
+	}
+
+	private def rule(String name) {
+		return graph.rules.findFirst[it.name == name];
+	}
+}
@@ -0,0 +1,85 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.scaling
+
+import com.github.darvasd.xtextdocs.common.scaling.ScalingAssert
+import com.github.darvasd.xtextdocs.common.scaling.ScalingTests
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter
+import com.google.common.collect.ImmutableList
+import java.util.List
+import org.eclipse.xtext.Grammar
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.experimental.categories.Category
+
+/**
+ * Tests checking that the documentation generation time grows linearly with
+ * the size of the grammar, using synthetic grammars.
+ */
+@Category(ScalingTests)
+class ScalingTest {
+	static val SIZES = #[100, 1000, 10000];
+
+	static List<Grammar> grammars;
+
+	@BeforeClass
+	def static void generateGrammars() {
+		grammars = ImmutableList.copyOf(SIZES.map[size|(new SyntheticGrammarGenerator() => [ruleCount = size]).generate]);
+	}
+
+	@Test
+	def void syntheticGrammarTest() {
+		val grammarDoc = DocsGenerator.createGrammarDocumentation(grammars.get(0));
+		Assert.assertEquals(SIZES.get(0), grammarDoc.rules.size);
+
+		val rule1 = grammarDoc.rules.findFirst[ruleName == "Rule1"];
+		Assert.assertTrue(rule1.headComment.mainDescription.startsWith("Synthetic rule <b>1</b>"));
+		Assert.assertTrue(grammarDoc.getRefersTo(rule1.rule).exists[name == "Rule2"]);
+
+		val enum10 = grammarDoc.rules.findFirst[ruleName == "Enum10"];
+		Assert.assertNotNull(enum10);
+		Assert.assertTrue(grammarDoc.rules.exists[ruleName == "TERMINAL25"]);
+	}
+
+	@Test
+	def void extractionScalingTest() {
+		ScalingAssert.assertLinear("createGrammarDocumentation", SIZES, grammars, [
+			DocsGenerator.createGrammarDocumentation(it)
+		]);
+	}
+
+	@Test
+	def void formattingScalingTest() {
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = true; includeDotReferenceGraph = true];
+		val grammarDocs = ImmutableList.copyOf(grammars.map[DocsGenerator.createGrammarDocumentation(it)]);
+
+		ScalingAssert.assertLinear("formatGrammar", SIZES, grammarDocs, [formatter.formatGrammar(it)]);
+	}
+
+	@Test
+	def void enumLiteralScalingTest() {
+		val enumGrammarDocs = ImmutableList.copyOf(SIZES.map [ size |
+			val generator = new SyntheticGrammarGenerator() => [
+				ruleCount = 2;
+				enumRuleInterval = 1;
+				enumLiteralCount = size;
+			];
+			DocsGenerator.createGrammarDocumentation(generator.generate)
+		]);
+		val formatter = new MarkdownDocsFormatter() => [includeSimplifiedGrammar = false];
+
+		ScalingAssert.assertLinear("formatGrammar with enum literals", SIZES, enumGrammarDocs, [
+			formatter.formatGrammar(it)
+		]);
+	}
+}
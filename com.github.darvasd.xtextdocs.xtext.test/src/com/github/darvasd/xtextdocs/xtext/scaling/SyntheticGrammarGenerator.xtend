@@ -0,0 +1,175 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.scaling
+
+import com.google.common.base.Preconditions
+import com.google.inject.Injector
+import java.util.List
+import java.util.Random
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.eclipse.xtext.util.StringInputStream
+
+/**
+ * Generator of synthetic Xtext grammars of arbitrary size, to be used as
+ * input of the scaling tests.
+ * <p>
+ * The first rule is the entry rule. Every {@code enumRuleInterval}-th rule is
+ * an enum rule, every {@code terminalRuleInterval}-th rule is a terminal rule,
+ * the others are parser rules. Each parser rule refers to the next rule (thus
+ * all rules are reachable from the entry rule) and to further pseudo-random
+ * rules. The generated grammar only depends on the settings.
+ */
+class SyntheticGrammarGenerator {
+	static Injector injector = null;
+
+	/** Total number of rules. */
+	@Accessors int ruleCount = 100;
+
+	/** Number of rule calls in each parser rule. */
+	@Accessors int referenceFanOut = 3;
+
+	/** Depth of the nested groups and alternatives in each parser rule. */
+	@Accessors int nestingDepth = 2;
+
+	/** Number of literals of each enum rule. */
+	@Accessors int enumLiteralCount = 5;
+
+	/** Number of description lines in the doc comment of each rule. No comments if 0. */
+	@Accessors int commentLines = 3;
+
+	@Accessors int enumRuleInterval = 10;
+
+	@Accessors int terminalRuleInterval = 25;
+
+	/**
+	 * Returns the text of the synthetic grammar.
+	 */
+	def String generateText() {
+		Preconditions.checkState(ruleCount >= 1, "At least one rule is needed.");
+		val random = new Random(ruleCount);
+
+		return '''
+			/**
+			 * Synthetic grammar with «ruleCount» rules.
+			 */
+			grammar synthetic.Synthetic«ruleCount» with org.eclipse.xtext.common.Terminals
+
+			generate synthetic«ruleCount» "http://www.example.org/synthetic/«ruleCount»"
+
+			«FOR i : 0 ..< ruleCount»
+				«IF isTerminalRule(i)»
+					«terminalRule(i)»
+				«ELSEIF isEnumRule(i)»
+					«enumRule(i)»
+				«ELSE»
+					«parserRule(i, random)»
+				«ENDIF»
+
+			«ENDFOR»
+		'''
+	}
+
+	/**
+	 * Returns the synthetic grammar, parsed and linked, with node model.
+	 */
+	def Grammar generate() {
+		val resourceSet = getInjector().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = this.class.classLoader;
+		val resource = resourceSet.createResource(URI.createURI('''synthetic«ruleCount».xtext'''));
+		resource.load(new StringInputStream(generateText()), null);
+		EcoreUtil.resolveAll(resource);
+		Preconditions.checkState(resource.errors.empty, "Invalid synthetic grammar: %s", resource.errors);
+
+		return resource.contents.get(0) as Grammar;
+	}
+
+	private static synchronized def Injector getInjector() {
+		if (injector === null) {
+			injector = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration();
+		}
+		return injector;
+	}
+
+	private def boolean isTerminalRule(int i) {
+		return i > 0 && i % terminalRuleInterval == 0;
+	}
+
+	private def boolean isEnumRule(int i) {
+		return i > 0 && !isTerminalRule(i) && i % enumRuleInterval == 0;
+	}
+
+	private def String ruleName(int i) {
+		if (isTerminalRule(i)) {
+			return '''TERMINAL«i»''';
+		} else if (isEnumRule(i)) {
+			return '''Enum«i»''';
+		} else {
+			return '''Rule«i»''';
+		}
+	}
+
+	private def parserRule(int i, Random random) {
+		val targets = newArrayList((i + 1) % ruleCount);
+		while (targets.size < referenceFanOut) {
+			targets.add(random.nextInt(ruleCount));
+		}
+		val assignments = (0 ..< targets.size).map['''ref«it»+=«ruleName(targets.get(it))»'''].toList;
+
+		return '''
+			«comment(i)»
+			«ruleName(i)»:
+				'rule«i»' name=ID «element(nestingDepth, assignments)»;
+		'''
+	}
+
+	private def CharSequence element(int depth, List<String> assignments) {
+		if (depth == 0) {
+			return if(assignments.empty) "'end'" else assignments.join(" ");
+		} else if (assignments.size < 2) {
+			return '''('level«depth»' «element(depth - 1, assignments)»)?''';
+		} else {
+			val half = assignments.size / 2;
+			return '''(«element(depth - 1, assignments.subList(0, half))» | «element(depth - 1, assignments.subList(half, assignments.size))»)*''';
+		}
+	}
+
+	private def enumRule(int i) '''
+		«comment(i)»
+		enum «ruleName(i)»:
+			«FOR l : 0 ..< enumLiteralCount SEPARATOR ' |'»
+				«IF commentLines > 0»/** Literal «l» of «ruleName(i)». */«ENDIF»
+				LITERAL«l» = 'literal«i»_«l»'
+			«ENDFOR»;
+	'''
+
+	private def terminalRule(int i) '''
+		«comment(i)»
+		terminal «ruleName(i)»:
+			't«i»' ('0'..'9')+;
+	'''
+
+	private def comment(int i) '''
+		«IF commentLines > 0»
+			/**
+			 * Synthetic rule <b>«i»</b> referring to {@link «ruleName((i + 1) % ruleCount)»}.
+			«FOR line : 1 .. commentLines»
+				 * Line «line» of the description, with {@code code} and <i>formatting</i>.
+			«ENDFOR»
+			 * @example rule«i» name
+			 */
+		«ENDIF»
+	'''
+}
@@ -0,0 +1,217 @@
+/*********************************************************************
+ * Copyright (c) 2018 Daniel Darvas
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.snapshot
+
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.common.formatter.MarkdownTextFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.HtmlDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.SimplifiedGrammarRenderer
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarToken.Type
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.Kind
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.util.Arrays
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtext.Grammar
+import org.eclipse.xtext.XtextStandaloneSetup
+import org.eclipse.xtext.resource.XtextResourceSet
+import org.junit.Assert
+import org.junit.BeforeClass
+import org.junit.Test
+
+/**
+ * Tests of the grammar documentation snapshots.
+ */
+class GrammarSnapshotTest {
+	static GrammarDoc grammarDoc;
+	static GrammarSnapshot snapshot;
+
+	@BeforeClass
+	def static void createSnapshot() {
+		val resourceSet = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet);
+		resourceSet.classpathURIContext = GrammarSnapshotTest.classLoader;
+		val resource = resourceSet.getResource(URI.createURI("classpath:/snapshot/Snapshot.xtext"), true);
+		EcoreUtil.resolveAll(resourceSet);
+		Assert.assertTrue(resource.errors.toString, resource.errors.isEmpty);
+
+		grammarDoc = DocsGenerator.createGrammarDocumentation(resource.contents.head as Grammar);
+		snapshot = DocsGenerator.createGrammarSnapshot(grammarDoc);
+	}
+
+	@Test
+	def void contentTest() {
+		Assert.assertEquals("snapshot.Snapshot", snapshot.grammarName);
+		Assert.assertEquals("Grammar of the snapshot tests.", snapshot.headComment.mainDescription);
+		Assert.assertEquals(#["org.eclipse.xtext.common.Terminals"], snapshot.usedGrammarNames);
+		Assert.assertEquals(#{"ecore" -> "http://www.eclipse.org/emf/2002/Ecore"}, snapshot.metamodels);
+
+		Assert.assertEquals(#["Model", "Entry", "Size", "Color", "HEX", "DIGIT"], snapshot.rules.map[name]);
+		Assert.assertEquals(#[Kind.PARSER, Kind.PARSER, Kind.PARSER, Kind.ENUM, Kind.TERMINAL, Kind.TERMINAL_FRAGMENT], snapshot.rules.map[kind]);
+
+		val model = snapshot.getRule("Model");
+		Assert.assertEquals("Model, containing {@link Entry} elements.", model.headComment.mainDescription);
+		Assert.assertTrue(model.headComment.hasPartWithTag("@example"));
+		Assert.assertEquals("Model:\n\tentries+=Entry*;", model.sourceText);
+		Assert.assertNull(model.returnType);
+
+		Assert.assertEquals("ecore::EInt", snapshot.getRule("Size").returnType);
+		Assert.assertEquals(#["ID", "Color", "Size"], snapshot.getRule("Entry").refersTo);
+		Assert.assertEquals(#["Entry"], snapshot.getReferredBy("Size").map[name]);
+		Assert.assertEquals(#["HEX"], snapshot.getReferredBy("DIGIT").map[name]);
+		Assert.assertTrue(snapshot.getReferredBy("Model").isEmpty);
+		Assert.assertNull(snapshot.getRule("ID"));
+
+		val literals = snapshot.getRule("Color").literals;
+		Assert.assertEquals(#["red", "green"], literals.map[enumLiteralName]);
+		Assert.assertEquals(#["red", "GREEN"], literals.map[literalText]);
+		Assert.assertEquals("/** The color red. */", literals.get(0).commentText);
+		Assert.assertNull(literals.get(1).commentText);
+		Assert.assertTrue(snapshot.getRule("DIGIT").headComment.text.isEmpty);
+
+		Assert.assertEquals(#["Model", "Entry", "ID", "Color", "Size", "INT"], snapshot.simplifiedGrammar.map[name]);
+		val entryTokens = snapshot.simplifiedGrammar.get(1).tokens;
+		Assert.assertEquals(#[Type.KEYWORD, Type.SEPARATOR, Type.RULE_CALL, Type.SEPARATOR, Type.KEYWORD, Type.SEPARATOR,
+			Type.RULE_CALL, Type.SEPARATOR, Type.RULE_CALL, Type.CARDINALITY], entryTokens.map[type]);
+		Assert.assertEquals("`entry`   _ID_   `:`   _Color_   _Size_?",
+			new SimplifiedGrammarRenderer(MarkdownTextFormatter.INSTANCE).render(entryTokens));
+	}
+
+	@Test
+	def void renderTest() {
+		val bytes = new ByteArrayOutputStream();
+		snapshot.write(bytes);
+		val loaded = GrammarSnapshot.read(new ByteArrayInputStream(bytes.toByteArray));
+
+		// The documentation rendered from the snapshot is identical to the one rendered from the grammar
+		assertRenderEquals(new MarkdownDocsFormatter(), loaded);
+		assertRenderEquals(new MarkdownDocsFormatter() => [
+			includeDotReferenceGraph = true;
+			gitbookLinkStyle = true;
+			mainTitle = "Snapshot";
+			titleLevelOffset = "1";
+		], loaded);
+		assertRenderEquals(new MarkdownDocsFormatter() => [includeSimplifiedGrammar = false], loaded);
+		assertRenderEquals(new HtmlDocsFormatter(), loaded);
+		assertRenderEquals(new HtmlDocsFormatter() => [
+			mainTitle = "Snapshot";
+			stylesheet = "docs.css";
+		], loaded);
+	}
+
+	private static def void assertRenderEquals(MarkdownDocsFormatter formatter, GrammarSnapshot loaded) {
+		Assert.assertEquals(formatter.formatGrammar(grammarDoc).toString, formatter.formatGrammar(loaded).toString);
+	}
+
+	private static def void assertRenderEquals(HtmlDocsFormatter formatter, GrammarSnapshot loaded) {
+		Assert.assertEquals(formatter.formatGrammar(grammarDoc).toString, formatter.formatGrammar(loaded).toString);
+	}
+
+	@Test
+	def void xmiTest() {
+		// The used grammars of a serialized grammar loaded on its own are not resolved, thus they have no name
+		val resource = new XMIResourceImpl(URI.createURI(GrammarSnapshotTest.classLoader.getResource("DomainmodelGrammar.xmi").toURI.toString));
+		resource.load(null);
+		val grammar = resource.contents.head as Grammar;
+		EcoreUtil.resolveAll(grammar);
+
+		val xmiSnapshot = DocsGenerator.createGrammarSnapshot(DocsGenerator.createGrammarDocumentation(grammar));
+		Assert.assertEquals("org.example.domainmodel.Domainmodel", xmiSnapshot.grammarName);
+		Assert.assertFalse(xmiSnapshot.usedGrammarNames.contains(null));
+		Assert.assertEquals(10, xmiSnapshot.rules.size);
+		Assert.assertFalse(xmiSnapshot.simplifiedGrammar.exists[name === null]);
+
+		val bytes = new ByteArrayOutputStream();
+		xmiSnapshot.write(bytes);
+		assertSnapshotEquals(xmiSnapshot, GrammarSnapshot.read(new ByteArrayInputStream(bytes.toByteArray)));
+	}
+
+	@Test
+	def void roundTripTest() {
+		val bytes = new ByteArrayOutputStream();
+		snapshot.write(bytes);
+		assertSnapshotEquals(snapshot, GrammarSnapshot.read(new ByteArrayInputStream(bytes.toByteArray)));
+
+		// Writing is deterministic
+		val rewritten = new ByteArrayOutputStream();
+		GrammarSnapshot.read(new ByteArrayInputStream(bytes.toByteArray)).write(rewritten);
+		Assert.assertArrayEquals(bytes.toByteArray, rewritten.toByteArray);
+	}
+
+	@Test
+	def void saveLoadTest() {
+		val file = Files.createTempFile("xtextdocs", ".snapshot");
+		try {
+			snapshot.save(file);
+			assertSnapshotEquals(snapshot, GrammarSnapshot.load(file));
+			Assert.assertFalse(Files.exists(file.resolveSibling(file.fileName + ".tmp")));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	def void incompatibleTest() {
+		val bytes = new ByteArrayOutputStream();
+		snapshot.write(bytes);
+		val content = bytes.toByteArray;
+
+		// Unsupported version
+		content.set(7, (content.get(7) + 1) as byte);
+		assertReadFails(content);
+
+		// Not a snapshot
+		assertReadFails("# Grammar docs".bytes);
+
+		// Truncated snapshot
+		bytes.reset;
+		snapshot.write(bytes);
+		assertReadFails(Arrays.copyOf(bytes.toByteArray, bytes.size / 2));
+	}
+
+	private static def void assertReadFails(byte[] content) {
+		try {
+			GrammarSnapshot.read(new ByteArrayInputStream(content));
+			Assert.fail("IOException expected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static def void assertSnapshotEquals(GrammarSnapshot expected, GrammarSnapshot actual) {
+		Assert.assertEquals(expected.grammarName, actual.grammarName);
+		Assert.assertEquals(expected.headComment.text, actual.headComment.text);
+		Assert.assertEquals(expected.usedGrammarNames, actual.usedGrammarNames);
+		Assert.assertEquals(expected.metamodels, actual.metamodels);
+		Assert.assertEquals(expected.rules.size, actual.rules.size);
+		for (i : 0 ..< expected.rules.size) {
+			val expectedRule = expected.rules.get(i);
+			val actualRule = actual.rules.get(i);
+			Assert.assertEquals(expectedRule.name, actualRule.name);
+			Assert.assertEquals(expectedRule.kind, actualRule.kind);
+			Assert.assertEquals(expectedRule.headComment.text, actualRule.headComment.text);
+			Assert.assertEquals(expectedRule.sourceText, actualRule.sourceText);
+			Assert.assertEquals(expectedRule.returnType, actualRule.returnType);
+			Assert.assertEquals(expectedRule.refersTo, actualRule.refersTo);
+			Assert.assertEquals(expectedRule.literals.map[enumLiteralName], actualRule.literals.map[enumLiteralName]);
+			Assert.assertEquals(expectedRule.literals.map[literalText], actualRule.literals.map[literalText]);
+			Assert.assertEquals(expectedRule.literals.map[commentText], actualRule.literals.map[commentText]);
+		}
+		Assert.assertEquals(expected.simplifiedGrammar.map[name], actual.simplifiedGrammar.map[name]);
+		Assert.assertEquals(expected.simplifiedGrammar.map[tokens.map[type]], actual.simplifiedGrammar.map[tokens.map[type]]);
+		Assert.assertEquals(expected.simplifiedGrammar.map[tokens.map[text]], actual.simplifiedGrammar.map[tokens.map[text]]);
+	}
+}
@@ -10,21 +10,45 @@
 
 package com.github.darvasd.xtextdocs.xtext;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.AbstractMetamodelDeclaration;
 import org.eclipse.xtext.AbstractRule;
 import org.eclipse.xtext.Grammar;
-import org.eclipse.xtext.RuleCall;
-import org.eclipse.xtext.TerminalRule;
+import org.eclipse.xtext.GrammarUtil;
+import org.eclipse.xtext.TypeRef;
 import org.eclipse.xtext.nodemodel.ICompositeNode;
-import org.eclipse.xtext.nodemodel.INode;
-import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
 
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil;
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.search.SearchIndex;
+import com.github.darvasd.xtextdocs.common.xtext.XtextTokenUtil;
+import com.github.darvasd.xtextdocs.xtext.cache.GrammarDocCache;
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
 import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
 import com.github.darvasd.xtextdocs.xtext.formatter.IGrammarDocsFormatter;
+import com.github.darvasd.xtextdocs.xtext.formatter.ISearchIndexingGrammarDocsFormatter;
+import com.github.darvasd.xtextdocs.xtext.formatter.IShardingGrammarDocsFormatter;
+import com.github.darvasd.xtextdocs.xtext.formatter.SimplifiedGrammarRenderer;
+import com.github.darvasd.xtextdocs.xtext.graph.RuleGraphExporter;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc.EnumLiteralDoc;
 import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarSnapshot;
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot;
+import com.google.common.base.Strings;
 
 /**
  * Utility class containing the entry points for the documentation generation
@@ -50,6 +74,276 @@ public final class DocsGenerator {
 		return formatter.formatGrammar(grammarDoc);
 	}
 
+	/**
+	 * Generates a formatted textual documentation for the given grammar, using the
+	 * given formatter, and writes it to the given writer. If the formatter
+	 * supports it, the documentation is written rule by rule, without building
+	 * the whole document in memory.
+	 * <p>
+	 * The given writer will not be closed.
+	 * 
+	 * @param grammar
+	 *            The grammar to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param writer
+	 *            The writer to be used for the output.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 * @see IGrammarDocsFormatter#formatGrammar(GrammarDoc, Appendable)
+	 */
+	public static void generateFormattedDoc(Grammar grammar, IGrammarDocsFormatter formatter, Writer writer)
+			throws IOException {
+		generateFormattedDoc(grammar, formatter, writer, null);
+	}
+
+	/**
+	 * Generates a formatted textual documentation for the given grammar, using the
+	 * given formatter, and writes it to the given writer. If a pool is given, the
+	 * rule documentations are extracted and formatted concurrently on it; the
+	 * output is the same as the sequential one.
+	 * <p>
+	 * The given writer will not be closed.
+	 * 
+	 * @param grammar
+	 *            The grammar to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param writer
+	 *            The writer to be used for the output.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 * @see IGrammarDocsFormatter#formatGrammar(GrammarDoc, Appendable, ForkJoinPool)
+	 */
+	public static void generateFormattedDoc(Grammar grammar, IGrammarDocsFormatter formatter, Writer writer,
+			ForkJoinPool pool) throws IOException {
+		formatGrammar(createGrammarDocumentation(grammar, pool), formatter, writer, pool);
+	}
+
+	private static void formatGrammar(GrammarDoc grammarDoc, IGrammarDocsFormatter formatter, Writer writer,
+			ForkJoinPool pool) throws IOException {
+		if (pool == null) {
+			formatter.formatGrammar(grammarDoc, writer);
+		} else {
+			formatter.formatGrammar(grammarDoc, writer, pool);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Generates a formatted textual documentation for the given grammar, using the
+	 * given formatter, and writes it to the given file using UTF-8 encoding. If
+	 * the file already exists with the same content, it is left untouched,
+	 * otherwise it is atomically replaced. The missing parent directories will be
+	 * created.
+	 * 
+	 * @param grammar
+	 *            The grammar to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param outputFile
+	 *            The file to be written.
+	 * @return True if the output file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the output file cannot be written.
+	 * @see #generateFormattedDoc(Grammar, IGrammarDocsFormatter, Writer)
+	 * @see OutputFileUtil#writeIfChanged(Path, OutputFileUtil.ContentWriter)
+	 */
+	public static boolean generateFormattedDoc(Grammar grammar, IGrammarDocsFormatter formatter, Path outputFile)
+			throws IOException {
+		return generateFormattedDoc(grammar, formatter, outputFile, null);
+	}
+
+	/**
+	 * Generates a formatted textual documentation for the given grammar, using the
+	 * given formatter, and writes it to the given file using UTF-8 encoding. If
+	 * the file already exists with the same content, it is left untouched,
+	 * otherwise it is atomically replaced. The missing parent directories will be
+	 * created.
+	 * 
+	 * @param grammar
+	 *            The grammar to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param outputFile
+	 *            The file to be written.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @return True if the output file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the output file cannot be written.
+	 * @see #generateFormattedDoc(Grammar, IGrammarDocsFormatter, Writer, ForkJoinPool)
+	 * @see OutputFileUtil#writeIfChanged(Path, OutputFileUtil.ContentWriter)
+	 */
+	public static boolean generateFormattedDoc(Grammar grammar, IGrammarDocsFormatter formatter, Path outputFile,
+			ForkJoinPool pool) throws IOException {
+		return OutputFileUtil.writeIfChanged(outputFile,
+				writer -> generateFormattedDoc(grammar, formatter, writer, pool));
+	}
+
+	/**
+	 * Writes a formatted textual documentation for the given, already created
+	 * grammar documentation to the given file using UTF-8 encoding, in the same
+	 * way as {@link #generateFormattedDoc(Grammar, IGrammarDocsFormatter, Path, ForkJoinPool)}.
+	 * 
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented, e.g. taken from a
+	 *            {@link GrammarDocCache}.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param outputFile
+	 *            The file to be written.
+	 * @param pool
+	 *            The pool to be used for the concurrent formatting of the rules.
+	 *            If {@code null}, the rules are formatted sequentially.
+	 * @return True if the output file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the output file cannot be written.
+	 */
+	public static boolean generateFormattedDoc(GrammarDoc grammarDoc, IGrammarDocsFormatter formatter,
+			Path outputFile, ForkJoinPool pool) throws IOException {
+		if (pool != null) {
+			// The grammar may have been loaded by someone else
+			EcoreUtil.resolveAll(grammarDoc.getGrammar());
+		}
+		return OutputFileUtil.writeIfChanged(outputFile, writer -> formatGrammar(grammarDoc, formatter, writer, pool));
+	}
+
+	/**
+	 * Writes a formatted textual documentation for the given, already created
+	 * grammar documentation to the given file, in the same way as
+	 * {@link #generateFormattedDoc(GrammarDoc, IGrammarDocsFormatter, Path, ForkJoinPool)},
+	 * and adds the documented rules to the given search index in the same
+	 * pass.
+	 * 
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param outputFile
+	 *            The file to be written.
+	 * @param pool
+	 *            The pool to be used for the concurrent formatting of the rules.
+	 *            If {@code null}, the rules are formatted sequentially.
+	 * @param searchIndex
+	 *            The search index to be filled.
+	 * @return True if the output file has been written, false if it was already
+	 *         up-to-date.
+	 * @throws IOException
+	 *             if the output file cannot be written.
+	 * @see ISearchIndexingGrammarDocsFormatter#formatGrammar(GrammarDoc, Appendable, ForkJoinPool, SearchIndex)
+	 */
+	public static boolean generateFormattedDoc(GrammarDoc grammarDoc, ISearchIndexingGrammarDocsFormatter formatter,
+			Path outputFile, ForkJoinPool pool, SearchIndex searchIndex) throws IOException {
+		if (pool != null) {
+			// The grammar may have been loaded by someone else
+			EcoreUtil.resolveAll(grammarDoc.getGrammar());
+		}
+		return OutputFileUtil.writeIfChanged(outputFile, writer -> {
+			if (pool == null) {
+				formatter.formatGrammar(grammarDoc, writer, searchIndex);
+			} else {
+				formatter.formatGrammar(grammarDoc, writer, pool, searchIndex);
+			}
+			writer.flush();
+		});
+	}
+
+	/**
+	 * Generates a formatted textual documentation for the given grammar, using the
+	 * given formatter, split into an index page and one page per rule. The rule
+	 * pages are written into the page directory next to the given index file
+	 * (see {@link ShardedOutput#pageDirectoryName(String)}) using UTF-8
+	 * encoding; only the pages whose content changed are replaced, and the pages
+	 * of the removed rules are deleted. If a pool is given, the rule
+	 * documentations are extracted, and the pages are formatted and written
+	 * concurrently on it.
+	 * 
+	 * @param grammar
+	 *            The grammar to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param indexFile
+	 *            The index page to be written.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @return The names of the written, up-to-date and deleted pages.
+	 * @throws IOException
+	 *             if a page cannot be written.
+	 * @see IShardingGrammarDocsFormatter#formatGrammarShards(GrammarDoc, String, ShardedOutput)
+	 */
+	public static ShardedOutput.Result generateShardedDoc(Grammar grammar, IShardingGrammarDocsFormatter formatter,
+			Path indexFile, ForkJoinPool pool) throws IOException {
+		return generateShardedDoc(createGrammarDocumentation(grammar, pool), formatter, indexFile, pool);
+	}
+
+	/**
+	 * Writes a formatted textual documentation for the given, already created
+	 * grammar documentation, split into an index page and one page per rule, in
+	 * the same way as
+	 * {@link #generateShardedDoc(Grammar, IShardingGrammarDocsFormatter, Path, ForkJoinPool)}.
+	 * 
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented.
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param indexFile
+	 *            The index page to be written.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @return The names of the written, up-to-date and deleted pages.
+	 * @throws IOException
+	 *             if a page cannot be written.
+	 */
+	public static ShardedOutput.Result generateShardedDoc(GrammarDoc grammarDoc,
+			IShardingGrammarDocsFormatter formatter, Path indexFile, ForkJoinPool pool) throws IOException {
+		if (pool != null) {
+			EcoreUtil.resolveAll(grammarDoc.getGrammar());
+		}
+		ShardedOutput output = ShardedOutput.forIndexFile(indexFile);
+		formatter.formatGrammarShards(grammarDoc, indexFile.toAbsolutePath().getFileName().toString(), output);
+		return output.write(pool);
+	}
+
+	/**
+	 * Writes the rule dependency graph of the given grammar documentation to the
+	 * given directory: the full graph and the neighborhood of each documented
+	 * rule, each in a separate file. Only the files whose content changed are
+	 * replaced. The written files are listed in a manifest in the directory
+	 * ({@value ShardedOutput#MANIFEST_FILE_NAME}), thus the graphs of the
+	 * removed rules are deleted by the next run.
+	 * 
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented.
+	 * @param exporter
+	 *            The exporter defining the format and the depth of the
+	 *            neighborhoods.
+	 * @param directory
+	 *            The directory to which the graphs are written.
+	 * @param pool
+	 *            The pool to be used for the concurrent writing of the graphs.
+	 *            If {@code null}, the graphs are written sequentially.
+	 * @return The names of the written, the up-to-date and the deleted files.
+	 * @throws IOException
+	 *             if a graph cannot be written.
+	 * @see RuleGraphExporter#addShards(GrammarDoc, ShardedOutput)
+	 */
+	public static ShardedOutput.Result generateRuleGraphs(GrammarDoc grammarDoc, RuleGraphExporter exporter,
+			Path directory, ForkJoinPool pool) throws IOException {
+		ShardedOutput output = new ShardedOutput(directory.toAbsolutePath(), ShardedOutput.MANIFEST_FILE_NAME);
+		exporter.addShards(grammarDoc, output);
+		return output.write(pool);
+	}
+
 	/**
 	 * Creates and returns a documentation object for the grammar, including its
 	 * rules.
@@ -60,15 +354,184 @@ public final class DocsGenerator {
 	 * @see #extractRuleDocumentation(Grammar)
 	 */
 	public static GrammarDoc createGrammarDocumentation(Grammar grammarRootNode) {
-		String headComment = getHeadComment(NodeModelUtils.findActualNodeFor(grammarRootNode));
-		DocComment parsedComment = (headComment == null) ? DocComment.empty()
-				: DocComment.parse(headComment);
+		return createGrammarDocumentation(grammarRootNode, null);
+	}
+
+	/**
+	 * Creates and returns a documentation object for the grammar, including its
+	 * rules. If a pool is given, the rule documentations are created concurrently
+	 * on it.
+	 * 
+	 * @param grammarRootNode
+	 *            The grammar to be represented.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @return The grammar documentation.
+	 * @see #extractRuleDocumentation(Grammar, HeadCommentIndex, ForkJoinPool)
+	 */
+	public static GrammarDoc createGrammarDocumentation(Grammar grammarRootNode, ForkJoinPool pool) {
+		HeadCommentIndex headComments = HeadCommentIndex.build(grammarRootNode);
+		DocComment parsedComment = parseHeadComment(headComments.getHeadComment(grammarRootNode));
 
-		List<RuleDoc> rules = extractRuleDocumentation(grammarRootNode);
+		List<RuleDoc> rules = extractRuleDocumentation(grammarRootNode, headComments, pool);
 
 		return new GrammarDoc(grammarRootNode, rules, parsedComment);
 	}
 
+	/**
+	 * Returns the documentation object for the grammar, taking it from the given
+	 * cache if the grammar did not change since it was cached.
+	 * 
+	 * @param grammarRootNode
+	 *            The grammar to be represented.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @param cache
+	 *            Cache of the grammar documentations. If {@code null}, the
+	 *            documentation is always created.
+	 * @return The grammar documentation.
+	 * @see #createGrammarDocumentation(Grammar, ForkJoinPool)
+	 */
+	public static GrammarDoc createGrammarDocumentation(Grammar grammarRootNode, ForkJoinPool pool,
+			GrammarDocCache cache) {
+		if (cache == null) {
+			return createGrammarDocumentation(grammarRootNode, pool);
+		}
+		return cache.getOrCreate(grammarRootNode, it -> createGrammarDocumentation(it, pool));
+	}
+
+	/**
+	 * Returns the documentation objects for all grammars used by the given
+	 * grammar, directly or transitively (e.g. {@code org.eclipse.xtext.common.Terminals}).
+	 * The documentations are taken from the given cache if possible, thus the
+	 * base grammars shared by several languages are processed only once.
+	 * 
+	 * @param grammar
+	 *            The grammar whose used grammars are to be represented.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @param cache
+	 *            Cache of the grammar documentations. If {@code null}, the
+	 *            documentations are always created.
+	 * @return The documentations of the used grammars, in the order of
+	 *         {@link GrammarUtil#allUsedGrammars(Grammar)}.
+	 */
+	public static List<GrammarDoc> createUsedGrammarDocumentations(Grammar grammar, ForkJoinPool pool,
+			GrammarDocCache cache) {
+		List<GrammarDoc> ret = new ArrayList<>();
+		for (Grammar usedGrammar : GrammarUtil.allUsedGrammars(grammar)) {
+			ret.add(createGrammarDocumentation(usedGrammar, pool, cache));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the file names of the documentations of the grammars used by the
+	 * given grammar, directly or transitively. Each file is named after its
+	 * grammar (e.g. {@code org.eclipse.xtext.common.Terminals.md}), thus the
+	 * languages extending the same grammars can share their documentation.
+	 * 
+	 * @param grammar
+	 *            The grammar whose used grammars are to be represented.
+	 * @param extension
+	 *            Extension of the file names, without the leading dot.
+	 * @param reservedFileNames
+	 *            File names that shall not be used (e.g. the name of the
+	 *            documentation of the given grammar).
+	 * @return Map from the names of the used grammars to the file names.
+	 * @see ShardedOutput#uniqueFileNames(java.util.Collection, String, String...)
+	 */
+	public static Map<String, String> usedGrammarFileNames(Grammar grammar, String extension,
+			String... reservedFileNames) {
+		List<String> grammarNames = new ArrayList<>();
+		for (Grammar usedGrammar : GrammarUtil.allUsedGrammars(grammar)) {
+			grammarNames.add(usedGrammar.getName());
+		}
+		return ShardedOutput.uniqueFileNames(grammarNames, extension, reservedFileNames);
+	}
+
+	/**
+	 * Creates and returns the snapshot of the given grammar documentation, which
+	 * can be saved and rendered later without the EMF model of the grammar, in
+	 * any format.
+	 * 
+	 * @param grammarDoc
+	 *            The grammar documentation to be captured.
+	 * @return The grammar snapshot.
+	 * @see GrammarSnapshot#save(Path)
+	 */
+	public static GrammarSnapshot createGrammarSnapshot(GrammarDoc grammarDoc) {
+		Grammar grammar = grammarDoc.getGrammar();
+
+		List<String> usedGrammarNames = new ArrayList<>();
+		for (Grammar usedGrammar : grammar.getUsedGrammars()) {
+			// The unresolved used grammars (e.g. of a serialized grammar) have no name
+			if (usedGrammar.getName() != null) {
+				usedGrammarNames.add(usedGrammar.getName());
+			}
+		}
+		Map<String, String> metamodels = new LinkedHashMap<>();
+		for (AbstractMetamodelDeclaration metamodel : grammar.getMetamodelDeclarations()) {
+			if (!Strings.isNullOrEmpty(metamodel.getAlias()) && metamodel.getEPackage() != null) {
+				metamodels.put(metamodel.getAlias(), metamodel.getEPackage().getNsURI());
+			}
+		}
+
+		List<RuleSnapshot> rules = new ArrayList<>(grammarDoc.getRules().size());
+		for (RuleDoc ruleDoc : grammarDoc.getRules()) {
+			rules.add(createRuleSnapshot(grammarDoc, ruleDoc));
+		}
+		List<GrammarSnapshot.SimplifiedRule> simplifiedGrammar = new ArrayList<>();
+		for (AbstractRule rule : grammarDoc.getDependencyGraph().getReachableRules()) {
+			// The unresolved rules (e.g. of a serialized grammar) have no name either
+			if (rule.getName() != null) {
+				simplifiedGrammar.add(
+						new GrammarSnapshot.SimplifiedRule(rule.getName(), SimplifiedGrammarRenderer.tokenize(rule)));
+			}
+		}
+		return new GrammarSnapshot(grammarDoc.getGrammarName(), grammarDoc.getHeadComment().getText(),
+				usedGrammarNames, metamodels, rules, simplifiedGrammar);
+	}
+
+	private static RuleSnapshot createRuleSnapshot(GrammarDoc grammarDoc, RuleDoc ruleDoc) {
+		AbstractRule rule = ruleDoc.getRule();
+
+		RuleSnapshot.Kind kind;
+		String returnType = null;
+		List<RuleSnapshot.LiteralSnapshot> literals = new ArrayList<>();
+		if (ruleDoc instanceof EnumRuleDoc) {
+			kind = RuleSnapshot.Kind.ENUM;
+			for (EnumLiteralDoc literal : ((EnumRuleDoc) ruleDoc).getLiterals()) {
+				literals.add(new RuleSnapshot.LiteralSnapshot(
+						literal.getLiteralEnum() == null ? null : literal.getLiteralEnum().getName(),
+						literal.getLiteralText(), literal.getComment().map(DocComment::getText).orElse(null)));
+			}
+		} else if (ruleDoc instanceof TerminalRuleDoc) {
+			kind = ((TerminalRuleDoc) ruleDoc).isTerminalFragment() ? RuleSnapshot.Kind.TERMINAL_FRAGMENT
+					: RuleSnapshot.Kind.TERMINAL;
+		} else {
+			kind = RuleSnapshot.Kind.PARSER;
+			TypeRef type = rule.getType();
+			if (type != null && type.getMetamodel() != null && type.getClassifier() != null
+					&& !Strings.isNullOrEmpty(type.getMetamodel().getAlias())) {
+				// Types of the generated metamodel are not recorded, as in the documentation
+				returnType = type.getMetamodel().getAlias() + "::" + type.getClassifier().getName();
+			}
+		}
+
+		List<String> refersTo = new ArrayList<>();
+		for (AbstractRule referred : grammarDoc.getRefersTo(rule)) {
+			if (referred.getName() != null) {
+				refersTo.add(referred.getName());
+			}
+		}
+		return new RuleSnapshot(ruleDoc.getRuleName(), kind, ruleDoc.getHeadComment().getText(),
+				XtextTokenUtil.tokenTextOrUnknown(rule), returnType, refersTo, literals);
+	}
+
 	/**
 	 * Creates and returns the list of {@link RuleDoc} documentation objects for
 	 * each rule contained in the given grammar.
@@ -79,19 +542,87 @@ public final class DocsGenerator {
 	 *         original order in the grammar.
 	 */
 	public static List<RuleDoc> extractRuleDocumentation(Grammar grammar) {
+		return extractRuleDocumentation(grammar, HeadCommentIndex.build(grammar));
+	}
+
+	/**
+	 * Creates and returns the list of {@link RuleDoc} documentation objects for
+	 * each rule contained in the given grammar, using the already collected head
+	 * comments.
+	 * 
+	 * @param grammar
+	 *            The grammar containing the rules to be represented.
+	 * @param headComments
+	 *            The head comments of the grammar elements.
+	 * @return The list of grammar rule documentations. Their order respects their
+	 *         original order in the grammar.
+	 */
+	public static List<RuleDoc> extractRuleDocumentation(Grammar grammar, HeadCommentIndex headComments) {
+		return extractRuleDocumentation(grammar, headComments, null);
+	}
+
+	/**
+	 * Creates and returns the list of {@link RuleDoc} documentation objects for
+	 * each rule contained in the given grammar, using the already collected head
+	 * comments. If a pool is given, the rule documentations are created
+	 * concurrently on it.
+	 * <p>
+	 * As the EMF proxies must not be resolved concurrently, all cross-references
+	 * of the grammar are resolved before the concurrent processing.
+	 * 
+	 * @param grammar
+	 *            The grammar containing the rules to be represented.
+	 * @param headComments
+	 *            The head comments of the grammar elements.
+	 * @param pool
+	 *            The pool to be used for the concurrent processing of the rules.
+	 *            If {@code null}, the rules are processed sequentially.
+	 * @return The list of grammar rule documentations. Their order respects their
+	 *         original order in the grammar.
+	 */
+	public static List<RuleDoc> extractRuleDocumentation(Grammar grammar, HeadCommentIndex headComments,
+			ForkJoinPool pool) {
 		List<RuleDoc> ret = new ArrayList<RuleDoc>();
 
-		for (AbstractRule rule : grammar.getRules()) {
-			String headComment = getHeadComment(NodeModelUtils.findActualNodeFor(rule));
-			DocComment parsedComment = headComment == null ? DocComment.empty()
-					: DocComment.parse(headComment);
+		if (pool == null) {
+			for (AbstractRule rule : grammar.getRules()) {
+				ret.add(createRuleDoc(rule, headComments));
+			}
+		} else {
+			EcoreUtil.resolveAll(grammar);
+
+			List<ForkJoinTask<RuleDoc>> tasks = new ArrayList<>();
+			for (AbstractRule rule : grammar.getRules()) {
+				tasks.add(pool.submit(DocsMetrics.propagate(() -> createRuleDoc(rule, headComments))));
+			}
+			for (ForkJoinTask<RuleDoc> task : tasks) {
+				ret.add(task.join());
+			}
+		}
 
-			ret.add(RuleDoc.create(rule, parsedComment));
+		if (DocsMetrics.isEnabled()) {
+			int literalCount = 0;
+			for (RuleDoc ruleDoc : ret) {
+				if (ruleDoc instanceof EnumRuleDoc) {
+					literalCount += ((EnumRuleDoc) ruleDoc).getLiterals().size();
+				}
+			}
+			DocsMetrics.count(DocsCounter.RULES, ret.size());
+			DocsMetrics.count(DocsCounter.LITERALS, literalCount);
 		}
 
 		return ret;
 	}
 
+	private static RuleDoc createRuleDoc(AbstractRule rule, HeadCommentIndex headComments) {
+		DocComment parsedComment = parseHeadComment(headComments.getHeadComment(rule));
+		return RuleDoc.create(rule, parsedComment, headComments);
+	}
+
+	private static DocComment parseHeadComment(String headComment) {
+		return headComment == null ? DocComment.empty() : DocComment.parse(headComment);
+	}
+
 	/**
 	 * Finds and returns the head comment attached to the given composite Xtext
 	 * node.
@@ -99,6 +630,9 @@ public final class DocsGenerator {
 	 * The head comment is the first multi-line comment that precedes the given node
 	 * in the grammar, or a single-line comment if it is not separated from the node
 	 * by empty lines.
+	 * <p>
+	 * To look up the head comments of several elements of the same grammar, use
+	 * {@link HeadCommentIndex} instead, which walks the node model only once.
 	 * 
 	 * @param node
 	 *            The node for which the head comment is looked up. May be
@@ -107,39 +641,6 @@ public final class DocsGenerator {
 	 *         given node is {@code null} or no head comment was found.
 	 */
 	public static String getHeadComment(ICompositeNode node) {
-		if (node == null) {
-			return null;
-		}
-
-		String comment = null;
-		boolean previousCommentMl = false;
-
-		for (INode childNode : node.getAsTreeIterable()) {
-			if (childNode.getGrammarElement() instanceof TerminalRule) {
-				TerminalRule terminalRule = (TerminalRule) childNode.getGrammarElement();
-				if (terminalRule.getName().equals("SL_COMMENT") || terminalRule.getName().equals("ML_COMMENT")) {
-					comment = NodeModelUtils.getTokenText(childNode);
-					previousCommentMl = terminalRule.getName().equals("ML_COMMENT");
-				} else if (terminalRule.getName().equals("WS")) {
-					String whiteSpace = NodeModelUtils.getTokenText(childNode);
-					long newLines = whiteSpace.chars().filter(ch -> ch == '\n').count();
-					if (newLines >= 1 && !previousCommentMl) {
-						comment = null;
-					}
-					previousCommentMl = false;
-				}
-			}
-
-			if (childNode.getGrammarElement() instanceof RuleCall) {
-				RuleCall ruleCall = (RuleCall) childNode.getGrammarElement();
-				if (ruleCall.getRule().getName().equals("ID")) {
-					// This is the name of the rule to be defined by the node
-					break;
-				}
-			}
-
-		}
-
-		return comment;
+		return HeadCommentIndex.headCommentOf(node);
 	}
 }
@@ -0,0 +1,242 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.xtext.AbstractRule;
+import org.eclipse.xtext.EnumLiteralDeclaration;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.RuleCall;
+import org.eclipse.xtext.TerminalRule;
+import org.eclipse.xtext.nodemodel.ICompositeNode;
+import org.eclipse.xtext.nodemodel.INode;
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
+
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase;
+import com.google.common.base.Preconditions;
+
+/**
+ * Index of the head comments of the documented elements (the grammar itself,
+ * its rules and its enum literal declarations) of an Xtext grammar.
+ * <p>
+ * The head comments are collected by walking the node model of the root
+ * element once, in offset order. The head comment of an element is the last
+ * single-line or multi-line comment within its node before its name, which is
+ * not separated by an empty line from the rest of the element if it is a
+ * single-line comment.
+ * <p>
+ * Immutable after construction, thus it can be shared between threads.
+ */
+public final class HeadCommentIndex {
+	private static final HeadCommentIndex EMPTY = new HeadCommentIndex(Collections.emptyMap());
+
+	/** Raw head comment texts of the elements having head comment. */
+	private final Map<EObject, String> headComments;
+
+	private HeadCommentIndex(Map<EObject, String> headComments) {
+		this.headComments = headComments;
+	}
+
+	/**
+	 * Returns an index without any head comment.
+	 *
+	 * @return Empty index. Never {@code null}.
+	 */
+	public static HeadCommentIndex empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Collects the head comments of the given element and all the rules and enum
+	 * literal declarations contained by it, in one walk of its node model.
+	 *
+	 * @param root
+	 *            Root element, typically a {@link Grammar}. Shall not be
+	 *            {@code null}.
+	 * @return Head comment index. Empty if the node model is not available.
+	 */
+	public static HeadCommentIndex build(EObject root) {
+		Preconditions.checkNotNull(root);
+
+		long start = DocsMetrics.start();
+		try {
+			return buildIndex(root);
+		} finally {
+			DocsMetrics.stop(DocsPhase.COMMENT_HARVESTING, start);
+		}
+	}
+
+	private static HeadCommentIndex buildIndex(EObject root) {
+		INode rootNode = nodeOf(root);
+		if (rootNode == null) {
+			return EMPTY;
+		}
+
+		Map<INode, EObject> elementNodes = new HashMap<>();
+		elementNodes.put(rootNode, root);
+		TreeIterator<EObject> iter = root.eAllContents();
+		while (iter.hasNext()) {
+			EObject current = iter.next();
+			if (current instanceof AbstractRule || current instanceof EnumLiteralDeclaration) {
+				INode node = nodeOf(current);
+				if (node != null) {
+					elementNodes.putIfAbsent(node, current);
+				}
+			}
+		}
+
+		return new HeadCommentIndex(Collections.unmodifiableMap(collect(rootNode, elementNodes)));
+	}
+
+	/**
+	 * Returns the raw text of the head comment of the given element.
+	 *
+	 * @param element
+	 *            Grammar element.
+	 * @return Head comment text, or {@code null} if the element does not have any
+	 *         head comment or it was not indexed.
+	 */
+	public String getHeadComment(EObject element) {
+		return headComments.get(element);
+	}
+
+	/**
+	 * Returns the head comment text of the given node, without building an index.
+	 *
+	 * @param node
+	 *            The node of the element. May be {@code null}.
+	 * @return Head comment text, or {@code null} if there is none.
+	 */
+	static String headCommentOf(ICompositeNode node) {
+		if (node == null) {
+			return null;
+		}
+
+		HeadCommentState state = new HeadCommentState();
+		for (INode childNode : node.getAsTreeIterable()) {
+			state.accept(childNode);
+			if (state.finished) {
+				break;
+			}
+		}
+		return state.comment;
+	}
+
+	private static INode nodeOf(EObject element) {
+		if (element instanceof EnumLiteralDeclaration) {
+			return NodeModelUtils.getNode(element);
+		} else {
+			return NodeModelUtils.findActualNodeFor(element);
+		}
+	}
+
+	/**
+	 * Walks the subtree of the given root node once, without recursion. A head
+	 * comment state is maintained for each element whose node is being visited.
+	 */
+	private static Map<EObject, String> collect(INode rootNode, Map<INode, EObject> elementNodes) {
+		Map<EObject, String> ret = new HashMap<>();
+		Deque<HeadCommentState> activeStates = new ArrayDeque<>();
+
+		INode current = rootNode;
+		while (current != null) {
+			// Entering the current node
+			EObject element = elementNodes.get(current);
+			if (element != null) {
+				activeStates.push(new HeadCommentState(current, element));
+			}
+			for (HeadCommentState state : activeStates) {
+				state.accept(current);
+			}
+
+			if (current instanceof ICompositeNode && ((ICompositeNode) current).getFirstChild() != null) {
+				current = ((ICompositeNode) current).getFirstChild();
+				continue;
+			}
+
+			// Leaving the current node and its finished ancestors
+			while (current != null) {
+				if (!activeStates.isEmpty() && activeStates.peek().node == current) {
+					HeadCommentState state = activeStates.pop();
+					if (state.comment != null) {
+						ret.put(state.element, state.comment);
+					}
+				}
+
+				if (current == rootNode) {
+					current = null;
+				} else if (current.getNextSibling() != null) {
+					current = current.getNextSibling();
+					break;
+				} else {
+					current = current.getParent();
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * State of the head comment search of one element.
+	 */
+	private static final class HeadCommentState {
+		private final INode node;
+		private final EObject element;
+		private String comment = null;
+		private boolean previousCommentMl = false;
+		private boolean finished = false;
+
+		HeadCommentState() {
+			this(null, null);
+		}
+
+		HeadCommentState(INode node, EObject element) {
+			this.node = node;
+			this.element = element;
+		}
+
+		void accept(INode childNode) {
+			if (finished) {
+				return;
+			}
+
+			if (childNode.getGrammarElement() instanceof TerminalRule) {
+				String terminalName = ((TerminalRule) childNode.getGrammarElement()).getName();
+				if (terminalName.equals("SL_COMMENT") || terminalName.equals("ML_COMMENT")) {
+					comment = NodeModelUtils.getTokenText(childNode);
+					previousCommentMl = terminalName.equals("ML_COMMENT");
+				} else if (terminalName.equals("WS")) {
+					if (childNode.getText().indexOf('\n') >= 0 && !previousCommentMl) {
+						comment = null;
+					}
+					previousCommentMl = false;
+				}
+			}
+
+			if (childNode.getGrammarElement() instanceof RuleCall) {
+				RuleCall ruleCall = (RuleCall) childNode.getGrammarElement();
+				if (ruleCall.getRule().getName().equals("ID")) {
+					// This is the name of the rule to be defined by the node
+					finished = true;
+				}
+			}
+		}
+	}
+}
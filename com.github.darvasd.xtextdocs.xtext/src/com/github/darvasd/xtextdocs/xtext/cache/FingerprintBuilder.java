@@ -0,0 +1,105 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Builder of content fingerprints. The added values are hashed with SHA-256,
+ * together with their types and lengths, thus different sequences of values
+ * result in different fingerprints (with overwhelming probability).
+ * <p>
+ * Not thread-safe.
+ */
+public final class FingerprintBuilder {
+	private static final byte NULL_TAG = 0;
+	private static final byte STRING_TAG = 1;
+	private static final byte BOOLEAN_TAG = 2;
+	private static final byte INT_TAG = 3;
+
+	private final MessageDigest digest;
+
+	/**
+	 * Creates a new, empty fingerprint builder.
+	 */
+	public FingerprintBuilder() {
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Adds the given text to the fingerprint.
+	 *
+	 * @param value
+	 *            Text to be added. May be {@code null}.
+	 * @return This builder.
+	 */
+	public FingerprintBuilder add(CharSequence value) {
+		if (value == null) {
+			digest.update(NULL_TAG);
+		} else {
+			byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+			digest.update(STRING_TAG);
+			digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+			digest.update(bytes);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the given boolean value to the fingerprint.
+	 *
+	 * @param value
+	 *            Value to be added.
+	 * @return This builder.
+	 */
+	public FingerprintBuilder add(boolean value) {
+		digest.update(BOOLEAN_TAG);
+		digest.update((byte) (value ? 1 : 0));
+		return this;
+	}
+
+	/**
+	 * Adds the given integer value to the fingerprint.
+	 *
+	 * @param value
+	 *            Value to be added.
+	 * @return This builder.
+	 */
+	public FingerprintBuilder add(int value) {
+		digest.update(INT_TAG);
+		digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+		return this;
+	}
+
+	/**
+	 * Returns the fingerprint of the added values as a hexadecimal string. The
+	 * builder shall not be used afterwards.
+	 *
+	 * @return Fingerprint. Never {@code null}.
+	 */
+	public String build() {
+		byte[] hash = digest.digest();
+		StringBuilder ret = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			ret.append(Character.forDigit((b >> 4) & 0xF, 16));
+			ret.append(Character.forDigit(b & 0xF, 16));
+		}
+		return ret.toString();
+	}
+}
@@ -0,0 +1,130 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.nodemodel.ICompositeNode;
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
+
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.google.common.base.Preconditions;
+
+/**
+ * In-memory cache of grammar documentations, to be shared by the documentation
+ * generations of several grammars, e.g. the languages of a workflow extending
+ * the same base grammars. The cache keeps the documented grammars (and their
+ * resource sets) reachable, thus it shall be scoped to one run, e.g. to one
+ * workflow or one launcher. The grammars are identified by their names, and a
+ * cached documentation is reused only if the fingerprint of the grammar's
+ * source did not change. Thus the documentation created for a grammar loaded
+ * into a resource set may be reused for the same grammar loaded into another
+ * one.
+ * <p>
+ * Thread-safe. If the documentation of the same grammar is requested
+ * concurrently, it may be created more than once.
+ */
+public final class GrammarDocCache {
+	private static final class Entry {
+		private final String fingerprint;
+		private final GrammarDoc grammarDoc;
+
+		Entry(String fingerprint, GrammarDoc grammarDoc) {
+			this.fingerprint = fingerprint;
+			this.grammarDoc = grammarDoc;
+		}
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicInteger hitCount = new AtomicInteger();
+	private final AtomicInteger missCount = new AtomicInteger();
+
+	/**
+	 * Creates a new, empty cache.
+	 */
+	public GrammarDocCache() {
+		// Empty cache.
+	}
+
+	/**
+	 * Returns the cached documentation of the given grammar if the grammar did
+	 * not change since it was cached. Otherwise, creates the documentation using
+	 * the given factory and stores it.
+	 *
+	 * @param grammar
+	 *            Grammar to be documented. Shall not be {@code null}.
+	 * @param factory
+	 *            Factory creating the documentation of the grammar, used if it
+	 *            is not cached. It may use this cache too.
+	 * @return The grammar documentation. Never {@code null}.
+	 */
+	public GrammarDoc getOrCreate(Grammar grammar, Function<Grammar, GrammarDoc> factory) {
+		Preconditions.checkNotNull(grammar);
+		Preconditions.checkNotNull(factory);
+
+		String fingerprint = fingerprint(grammar);
+		Entry entry = entries.get(grammar.getName());
+		if (entry != null && entry.fingerprint.equals(fingerprint)) {
+			hitCount.incrementAndGet();
+		} else {
+			// Not computed atomically, as the factory may use the cache recursively
+			missCount.incrementAndGet();
+			entry = new Entry(fingerprint, Preconditions.checkNotNull(factory.apply(grammar)));
+			entries.put(grammar.getName(), entry);
+		}
+		return entry.grammarDoc;
+	}
+
+	/**
+	 * Removes all cached documentations.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of grammar documentations reused from the cache.
+	 *
+	 * @return Number of cache hits.
+	 */
+	public int getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of grammar documentations that had to be created.
+	 *
+	 * @return Number of cache misses.
+	 */
+	public int getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the fingerprint of the source of the given grammar: its text if the
+	 * node model is available, otherwise the URI of its resource.
+	 */
+	private static String fingerprint(Grammar grammar) {
+		FingerprintBuilder ret = new FingerprintBuilder().add(grammar.getName());
+		Resource resource = grammar.eResource();
+		ret.add(resource == null ? null : resource.getURI().toString());
+
+		ICompositeNode node = NodeModelUtils.getNode(grammar);
+		ret.add(node == null ? null : node.getText());
+		return ret.build();
+	}
+}
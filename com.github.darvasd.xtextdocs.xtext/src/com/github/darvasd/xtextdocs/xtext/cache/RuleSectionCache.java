@@ -0,0 +1,228 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.cache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil;
+import com.google.common.base.Preconditions;
+
+/**
+ * Persistent cache of the rendered rule sections of a grammar documentation.
+ * Each section is stored with a key (typically the rule name) and the
+ * fingerprint of all inputs influencing its rendering. A cached section is
+ * reused only if its fingerprint did not change.
+ * <p>
+ * The cache file is a UTF-8 text file: a header line, then the number of
+ * entries and the key, fingerprint and content of each entry, each of them
+ * prefixed by its length.
+ * <p>
+ * Thread-safe.
+ */
+public final class RuleSectionCache {
+	private static final Logger LOG = Logger.getLogger(RuleSectionCache.class);
+
+	private static final String HEADER = "XDGC 2\n";
+
+	private static final class Entry {
+		private final String fingerprint;
+		private final String content;
+
+		Entry(String fingerprint, String content) {
+			this.fingerprint = fingerprint;
+			this.content = content;
+		}
+	}
+
+	/** Entries loaded from the file or rendered since. */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/** Entries which were requested since the creation of the cache. */
+	private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>();
+
+	private final AtomicInteger hitCount = new AtomicInteger();
+	private final AtomicInteger missCount = new AtomicInteger();
+
+	/**
+	 * Creates a new, empty cache.
+	 */
+	public RuleSectionCache() {
+		// Empty cache.
+	}
+
+	/**
+	 * Loads the cache from the given file. If the file does not exist or it cannot
+	 * be read, an empty cache is returned.
+	 *
+	 * @param file
+	 *            Cache file. Shall not be {@code null}.
+	 * @return Loaded cache. Never {@code null}.
+	 */
+	public static RuleSectionCache load(Path file) {
+		Preconditions.checkNotNull(file);
+
+		RuleSectionCache ret = new RuleSectionCache();
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(readChars(in, HEADER.length()))) {
+				LOG.warn(String.format("Ignoring the incompatible rule section cache '%s'.", file));
+				return ret;
+			}
+			int count = readLength(in);
+			for (int i = 0; i < count; i++) {
+				String key = readString(in);
+				String fingerprint = readString(in);
+				String content = readString(in);
+				ret.entries.put(key, new Entry(fingerprint, content));
+			}
+		} catch (NoSuchFileException e) {
+			// No cache yet
+			ret.entries.clear();
+		} catch (IOException e) {
+			LOG.warn(String.format("Unable to read the rule section cache '%s', ignoring it.", file), e);
+			ret.entries.clear();
+		}
+		return ret;
+	}
+
+	/**
+	 * Saves the cache to the given file. Only the entries requested via
+	 * {@link #getOrRender(String, String, Supplier)} since the creation of this
+	 * cache are saved, thus the sections of removed rules do not accumulate. The
+	 * file is replaced only if its content changed, once it has been completely
+	 * written (see {@link OutputFileUtil#writeIfChanged(Path, OutputFileUtil.ContentWriter)}).
+	 *
+	 * @param file
+	 *            Cache file. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the cache file cannot be written.
+	 */
+	public void save(Path file) throws IOException {
+		Preconditions.checkNotNull(file);
+
+		Map<String, Entry> sortedEntries = new TreeMap<>(usedEntries);
+		OutputFileUtil.writeIfChanged(file, out -> {
+			out.write(HEADER);
+			writeLength(out, sortedEntries.size());
+			for (Map.Entry<String, Entry> entry : sortedEntries.entrySet()) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue().fingerprint);
+				writeString(out, entry.getValue().content);
+			}
+		});
+	}
+
+	/**
+	 * Returns the cached section for the given key if its fingerprint is the given
+	 * one. Otherwise, renders the section using the given renderer and stores it.
+	 *
+	 * @param key
+	 *            Key of the section (e.g., rule name). Shall not be {@code null}.
+	 * @param fingerprint
+	 *            Fingerprint of the inputs of the section. Shall not be
+	 *            {@code null}.
+	 * @param renderer
+	 *            Renderer of the section, used if the section is not cached.
+	 * @return The rendered section. Never {@code null}.
+	 */
+	public String getOrRender(String key, String fingerprint, Supplier<? extends CharSequence> renderer) {
+		Preconditions.checkNotNull(key);
+		Preconditions.checkNotNull(fingerprint);
+		Preconditions.checkNotNull(renderer);
+
+		Entry entry = entries.get(key);
+		if (entry != null && entry.fingerprint.equals(fingerprint)) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+			entry = new Entry(fingerprint, renderer.get().toString());
+			entries.put(key, entry);
+		}
+		usedEntries.put(key, entry);
+		return entry.content;
+	}
+
+	/**
+	 * Returns the number of sections reused from the cache.
+	 *
+	 * @return Number of cache hits.
+	 */
+	public int getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of sections that had to be rendered.
+	 *
+	 * @return Number of cache misses.
+	 */
+	public int getMissCount() {
+		return missCount.get();
+	}
+
+	private static String readString(Reader in) throws IOException {
+		return readChars(in, readLength(in));
+	}
+
+	private static String readChars(Reader in, int length) throws IOException {
+		char[] chars = new char[length];
+		int read = 0;
+		while (read < length) {
+			int count = in.read(chars, read, length - read);
+			if (count < 0) {
+				throw new IOException("Unexpected end of the rule section cache.");
+			}
+			read += count;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Reads a non-negative decimal number terminated by a new line.
+	 */
+	private static int readLength(Reader in) throws IOException {
+		long ret = 0;
+		int digits = 0;
+		for (int c = in.read(); c != '\n'; c = in.read()) {
+			if (c < '0' || c > '9' || ++digits > 10) {
+				throw new IOException("Invalid length in the rule section cache.");
+			}
+			ret = ret * 10 + (c - '0');
+		}
+		if (digits == 0 || ret > Integer.MAX_VALUE) {
+			throw new IOException("Invalid length in the rule section cache.");
+		}
+		return (int) ret;
+	}
+
+	private static void writeLength(Writer out, int length) throws IOException {
+		out.write(Integer.toString(length));
+		out.write('\n');
+	}
+
+	private static void writeString(Writer out, String value) throws IOException {
+		writeLength(out, value.length());
+		out.write(value);
+	}
+}
@@ -0,0 +1,403 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.XtextPackage;
+import org.eclipse.xtext.XtextStandaloneSetup;
+import org.eclipse.xtext.resource.XtextResource;
+import org.eclipse.xtext.resource.XtextResourceSet;
+
+import com.github.darvasd.xtextdocs.common.cli.CommandLineArguments;
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.common.io.SourceWatcher;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener;
+import com.github.darvasd.xtextdocs.xtext.DocsGenerator;
+import com.github.darvasd.xtextdocs.xtext.cache.GrammarDocCache;
+import com.github.darvasd.xtextdocs.xtext.cache.RuleSectionCache;
+import com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Command-line launcher documenting Xtext grammars given as {@code .xtext} or
+ * {@code .xmi} files, without running an MWE2 workflow or the language
+ * generator. The grammars are documented using {@link MarkdownDocsFormatter},
+ * configured by the command-line options (see {@link #USAGE}).
+ * <p>
+ * The Xtext language is only set up if an {@code .xtext} file is given; the
+ * {@code .xmi} grammars are loaded using the Xtext metamodel only, which keeps
+ * the startup of doc-only rebuilds short.
+ * <p>
+ * In watch mode ({@code --watch}), the launcher keeps running after the
+ * generation, keeping the loaded grammars and the caches in memory. When a
+ * grammar file changes, only its resource is reparsed and only its
+ * documentation is regenerated. The documentations of the grammars using the
+ * changed one are not regenerated.
+ */
+public final class DocsGeneratorMain {
+	/** Exit code if the documentation of all grammars has been generated. */
+	public static final int EXIT_OK = 0;
+
+	/** Exit code if the documentation of some grammars could not be generated. */
+	public static final int EXIT_FAILURE = 1;
+
+	/** Exit code if the command-line arguments are invalid. */
+	public static final int EXIT_USAGE = 2;
+
+	static final String USAGE = String.join(System.lineSeparator(), //
+			"Usage: DocsGeneratorMain [options] <grammar.xtext|grammar.xmi>...", //
+			"Options:", //
+			"  --output <file>          Documentation file (single grammar only, default: <output-dir>/<grammar file name>.md)", //
+			"  --output-dir <dir>       Directory of the documentation files (default: current directory)", //
+			"  --title <text>           Main title of the documentation", //
+			"  --no-simplified-grammar  Omit the simplified grammar of the rules", //
+			"  --dot-graph              Include the rule dependency graph in DOT format", //
+			"  --gitbook-links          Use GitBook-style links", //
+			"  --sharded                Write an index page and one page per rule", //
+			"  --include-used-grammars  Document the used grammars next to the output and link them", //
+			"  --cache <file>           Rule section cache, only the changed rules are re-rendered", //
+			"  --snapshot <file>        Also save a snapshot of the documentation (single grammar only)", //
+			"  --parallelism <n>        Number of threads used to process the rules (default: 1)", //
+			"  --metrics                Print the time spent in each phase", //
+			"  --watch                  Keep running and regenerate the documentation when a grammar file changes", //
+			"  --help                   Print this help");
+
+	private static final ImmutableSet<String> FLAGS = ImmutableSet.of("no-simplified-grammar", "dot-graph",
+			"gitbook-links", "sharded", "include-used-grammars", "metrics", "watch", "help");
+	private static final ImmutableSet<String> OPTIONS = ImmutableSet.of("output", "output-dir", "title", "cache",
+			"snapshot", "parallelism");
+
+	private final CommandLineArguments args;
+	private final PrintStream out;
+	private final PrintStream err;
+
+	private ResourceSet resourceSet;
+
+	/** Loaded grammar resources, by file name. */
+	private final Map<String, Resource> resources = new LinkedHashMap<>();
+
+	/**
+	 * Documentations of the used grammars, shared by the grammars documented by
+	 * this launcher. {@code null} if the used grammars are not documented.
+	 */
+	private final GrammarDocCache grammarDocCache;
+
+	private DocsGeneratorMain(CommandLineArguments args, PrintStream out, PrintStream err) {
+		this.args = args;
+		this.out = out;
+		this.err = err;
+		this.grammarDocCache = args.hasFlag("include-used-grammars") ? new GrammarDocCache() : null;
+	}
+
+	/**
+	 * Documents the grammars given as command-line arguments, then exits with
+	 * the exit code returned by {@link #run(String[], PrintStream, PrintStream)}.
+	 *
+	 * @param args
+	 *            Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Documents the grammars given as command-line arguments.
+	 *
+	 * @param args
+	 *            Command-line arguments.
+	 * @param out
+	 *            Stream of the progress messages.
+	 * @param err
+	 *            Stream of the error messages.
+	 * @return {@link #EXIT_OK}, {@link #EXIT_FAILURE} or {@link #EXIT_USAGE}.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		CommandLineArguments parsedArgs;
+		try {
+			parsedArgs = CommandLineArguments.parse(args, FLAGS, OPTIONS);
+			// Validating the integer option early
+			parsedArgs.getInt("parallelism", 1);
+		} catch (IllegalArgumentException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		if (parsedArgs.hasFlag("help")) {
+			out.println(USAGE);
+			return EXIT_OK;
+		}
+		if (parsedArgs.getPositional().isEmpty()) {
+			err.println("No grammar to be documented.");
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+		if (parsedArgs.getPositional().size() > 1
+				&& (parsedArgs.getString("output", null) != null || parsedArgs.getString("snapshot", null) != null)) {
+			err.println("The options '--output' and '--snapshot' can only be used with a single grammar.");
+			return EXIT_USAGE;
+		}
+		for (String file : parsedArgs.getPositional()) {
+			if (!file.endsWith(".xtext") && !file.endsWith(".xmi")) {
+				err.println(String.format("Unsupported grammar file '%s', expected an .xtext or .xmi file.", file));
+				return EXIT_USAGE;
+			}
+		}
+
+		DocsGeneratorMain launcher = new DocsGeneratorMain(parsedArgs, out, err);
+		if (!parsedArgs.hasFlag("metrics")) {
+			return launcher.generateAll();
+		}
+
+		SummaryMetricsListener summary = new SummaryMetricsListener();
+		int[] ret = new int[1];
+		DocsMetrics.runWithListeners(Collections.singleton(summary), () -> ret[0] = launcher.generateAll());
+		out.println(summary.getSummary());
+		return ret[0];
+	}
+
+	private int generateAll() {
+		Map<String, Grammar> grammars = loadGrammars(args.getPositional());
+
+		MarkdownDocsFormatter formatter = new MarkdownDocsFormatter();
+		formatter.setIncludeSimplifiedGrammar(!args.hasFlag("no-simplified-grammar"));
+		formatter.setIncludeDotReferenceGraph(args.hasFlag("dot-graph"));
+		formatter.setGitbookLinkStyle(args.hasFlag("gitbook-links"));
+		formatter.setMainTitle(args.getString("title", null));
+
+		Path cacheFile = args.getString("cache", null) == null ? null : Paths.get(args.getString("cache", null));
+		if (cacheFile != null) {
+			formatter.setRuleSectionCache(RuleSectionCache.load(cacheFile));
+		}
+
+		int parallelism = args.getInt("parallelism", 1);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		int failedCount = args.getPositional().size() - grammars.size();
+		try {
+			for (Map.Entry<String, Grammar> entry : grammars.entrySet()) {
+				try {
+					generate(entry.getKey(), entry.getValue(), formatter, pool);
+				} catch (IOException | RuntimeException e) {
+					err.println(String.format("Failed to document the grammar '%s': %s", entry.getKey(), e));
+					failedCount++;
+				}
+			}
+			if (cacheFile != null) {
+				formatter.getRuleSectionCache().save(cacheFile);
+			}
+			if (args.hasFlag("watch")) {
+				watch(formatter, pool, cacheFile);
+			}
+		} catch (IOException e) {
+			err.println(String.format("Failed to save the rule section cache '%s': %s", cacheFile, e));
+			failedCount++;
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		return failedCount == 0 ? EXIT_OK : EXIT_FAILURE;
+	}
+
+	/**
+	 * Regenerates the documentation of the changed grammar files until the
+	 * current thread is interrupted. The rule section cache is saved to the
+	 * given file (if any) after each regeneration.
+	 */
+	private void watch(MarkdownDocsFormatter formatter, ForkJoinPool pool, Path cacheFile) {
+		Map<Path, String> files = new LinkedHashMap<>();
+		for (String file : resources.keySet()) {
+			files.put(Paths.get(file).toAbsolutePath().normalize(), file);
+		}
+
+		try (SourceWatcher watcher = new SourceWatcher(files.keySet(), SourceWatcher.DEFAULT_QUIET_PERIOD_MILLIS)) {
+			out.println(String.format("Watching %s grammar files for changes...", files.size()));
+			Set<Path> changedFiles;
+			while (!(changedFiles = watcher.awaitChanges()).isEmpty()) {
+				long start = System.nanoTime();
+				for (Path changedFile : changedFiles) {
+					String file = files.get(changedFile);
+					Grammar grammar = reload(file);
+					if (grammar != null) {
+						try {
+							generate(file, grammar, formatter, pool);
+						} catch (IOException | RuntimeException e) {
+							err.println(String.format("Failed to document the grammar '%s': %s", file, e));
+						}
+					}
+				}
+				if (cacheFile != null) {
+					try {
+						formatter.getRuleSectionCache().save(cacheFile);
+					} catch (IOException e) {
+						err.println(String.format("Failed to save the rule section cache '%s': %s", cacheFile, e));
+					}
+				}
+				out.println(String.format("Regenerated in %s ms", (System.nanoTime() - start) / 1_000_000));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			err.println(String.format("Unable to watch the grammar files: %s", e));
+		}
+	}
+
+	/**
+	 * Reloads the resource of the given grammar file. The Xtext resources are
+	 * reparsed in place, thus the other loaded grammars are kept.
+	 *
+	 * @return The reloaded grammar, or {@code null} if it cannot be loaded.
+	 */
+	private Grammar reload(String file) {
+		Resource resource = resources.get(file);
+		try {
+			if (resource instanceof XtextResource) {
+				XtextResource xtextResource = (XtextResource) resource;
+				byte[] content = Files.readAllBytes(Paths.get(file));
+				xtextResource.reparse(new String(content, xtextResource.getEncoding()));
+			} else {
+				resource.unload();
+				resource.load(resourceSet.getLoadOptions());
+			}
+		} catch (IOException | RuntimeException e) {
+			err.println(String.format("Failed to reload the grammar '%s': %s", file, e.getMessage()));
+			return null;
+		}
+		EcoreUtil.resolveAll(resource);
+		return grammarOf(file, resource);
+	}
+
+	private void generate(String file, Grammar grammar, MarkdownDocsFormatter formatter, ForkJoinPool pool)
+			throws IOException {
+		Path outputFile = outputFile(file);
+		GrammarDoc grammarDoc = DocsGenerator.createGrammarDocumentation(grammar, pool, grammarDocCache);
+
+		if (grammarDocCache != null) {
+			String fileName = outputFile.getFileName().toString();
+			Map<String, String> usedGrammarFileNames = DocsGenerator.usedGrammarFileNames(grammar, "md", fileName);
+			formatter.setUsedGrammarFileNames(usedGrammarFileNames);
+			for (GrammarDoc usedGrammarDoc : DocsGenerator.createUsedGrammarDocumentations(grammar, pool,
+					grammarDocCache)) {
+				Path usedGrammarFile = outputFile
+						.resolveSibling(usedGrammarFileNames.get(usedGrammarDoc.getGrammarName()));
+				DocsGenerator.generateFormattedDoc(usedGrammarDoc, formatter, usedGrammarFile, pool);
+			}
+		}
+
+		String snapshotFile = args.getString("snapshot", null);
+		if (snapshotFile != null) {
+			DocsGenerator.createGrammarSnapshot(grammarDoc).save(Paths.get(snapshotFile));
+		}
+
+		if (args.hasFlag("sharded")) {
+			ShardedOutput.Result result = DocsGenerator.generateShardedDoc(grammarDoc, formatter, outputFile, pool);
+			out.println(String.format(
+					"%s: written to '%s' and its page directory (%s of %s files changed, %s stale files deleted)",
+					file, outputFile, result.getWritten().size(), result.getShardCount(), result.getDeleted().size()));
+		} else if (DocsGenerator.generateFormattedDoc(grammarDoc, formatter, outputFile, pool)) {
+			out.println(String.format("%s: written to '%s'", file, outputFile));
+		} else {
+			out.println(String.format("%s: '%s' is up-to-date", file, outputFile));
+		}
+	}
+
+	private Path outputFile(String grammarFile) {
+		String output = args.getString("output", null);
+		if (output != null) {
+			return Paths.get(output);
+		}
+		String fileName = Paths.get(grammarFile).getFileName().toString();
+		String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+		return Paths.get(args.getString("output-dir", "."), baseName + ".md");
+	}
+
+	/**
+	 * Loads the given grammar files into one resource set, thus the grammars
+	 * using each other are loaded only once. The grammars that cannot be loaded
+	 * are reported and left out.
+	 *
+	 * @return Map from the file names to the loaded grammars, in the given order.
+	 */
+	private Map<String, Grammar> loadGrammars(List<String> files) {
+		resourceSet = createResourceSet(files);
+
+		for (String file : files) {
+			try {
+				URI uri = URI.createFileURI(Paths.get(file).toAbsolutePath().toString());
+				resources.put(file, resourceSet.getResource(uri, true));
+			} catch (RuntimeException e) {
+				err.println(String.format("Failed to load the grammar '%s': %s", file, e.getMessage()));
+			}
+		}
+		// Resolving all cross-references once the grammars using each other are loaded
+		EcoreUtil.resolveAll(resourceSet);
+
+		Map<String, Grammar> ret = new LinkedHashMap<>();
+		for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+			Grammar grammar = grammarOf(entry.getKey(), entry.getValue());
+			if (grammar != null) {
+				ret.put(entry.getKey(), grammar);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the grammar of the given loaded resource, or {@code null} if it
+	 * contains errors or no grammar. The problems are reported.
+	 */
+	private Grammar grammarOf(String file, Resource resource) {
+		EObject content = resource.getContents().isEmpty() ? null : resource.getContents().get(0);
+		if (!resource.getErrors().isEmpty()) {
+			err.println(String.format("The grammar '%s' contains errors: %s", file, resource.getErrors()));
+		} else if (content instanceof Grammar) {
+			return (Grammar) content;
+		} else {
+			err.println(String.format("The file '%s' does not contain a grammar.", file));
+		}
+		return null;
+	}
+
+	private static ResourceSet createResourceSet(List<String> files) {
+		ResourceSet ret;
+		if (files.stream().anyMatch(it -> it.endsWith(".xtext"))) {
+			ret = new XtextStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(XtextResourceSet.class);
+			((XtextResourceSet) ret).setClasspathURIContext(DocsGeneratorMain.class.getClassLoader());
+		} else {
+			// The Xtext language is not needed to load serialized grammars
+			ret = new ResourceSetImpl();
+			ret.getPackageRegistry().put(XtextPackage.eNS_URI, XtextPackage.eINSTANCE);
+		}
+		ret.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+		return ret;
+	}
+}
@@ -10,21 +10,26 @@
 
 package com.github.darvasd.xtextdocs.xtext.doccomment;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 
 /**
  * Class to represent a documentation comment (doc comment). A documentation
  * comment consists of a <b>main description</b> (that may be empty) and a
  * <b>tag section</b> that contains zero or more tag-argument pairs, each of
  * them starting in a new line with a {@code @} character.
+ * <p>
+ * The comment text is only parsed when its content is accessed first, as many
+ * comments are never read (e.g. if the formatted rule is taken from a cache).
+ * Instances are thread-safe, the comment text is parsed at most once.
  * 
  * @see <a href=
  *      "https://docs.oracle.com/javase/8/docs/technotes/tools/windows/javadoc.html">Reference
@@ -32,21 +37,62 @@ import com.google.common.base.Preconditions;
  *
  */
 public class DocComment {
-	private String mainDescription;
-	private List<DocCommentBlockTag> parts;
+	private static final Pattern TAG_PARSER_PATTERN = Pattern.compile("(?s)^\\s*(@[^\\s]+)\\s+(.*)$");
 
-	private DocComment(String description, List<DocCommentBlockTag> parts) {
-		this.mainDescription = Preconditions.checkNotNull(description);
-		this.parts = Collections.unmodifiableList(Preconditions.checkNotNull(parts));
+	private static final DocComment EMPTY = new DocComment("", new Content("", ImmutableList.of()));
+
+	/**
+	 * Parsed content of a doc comment. Immutable.
+	 */
+	private static final class Content {
+		private final String mainDescription;
+		private final ImmutableList<DocCommentBlockTag> parts;
+		private final ImmutableListMultimap<String, DocCommentBlockTag> partsByTag;
+
+		private Content(String mainDescription, ImmutableList<DocCommentBlockTag> parts) {
+			this.mainDescription = Preconditions.checkNotNull(mainDescription);
+			this.parts = Preconditions.checkNotNull(parts);
+
+			ImmutableListMultimap.Builder<String, DocCommentBlockTag> builder = ImmutableListMultimap.builder();
+			for (DocCommentBlockTag part : parts) {
+				builder.put(part.getTag(), part);
+			}
+			this.partsByTag = builder.build();
+		}
+	}
+
+	private final String text;
+
+	/**
+	 * Parsed content. Set once, on first access (see {@link #content()}).
+	 */
+	private volatile Content content;
+
+	private DocComment(String text, Content content) {
+		this.text = Preconditions.checkNotNull(text);
+		this.content = content;
+	}
+
+	/**
+	 * Returns the raw text of the represented doc comment, as it was given to
+	 * {@link #parse(String)}. It does not require parsing the comment.
+	 * 
+	 * @return Raw comment text. Never {@code null}. Empty for empty doc
+	 *         comments.
+	 */
+	public String getText() {
+		return text;
 	}
 
 	/**
 	 * Returns the main description of the represented doc comment.
 	 * 
 	 * @return Main description. Never {@code null}.
+	 * @throws IllegalStateException
+	 *             if the comment text cannot be parsed
 	 */
 	public String getMainDescription() {
-		return mainDescription;
+		return content().mainDescription;
 	}
 
 	/**
@@ -54,10 +100,11 @@ public class DocComment {
 	 * section.
 	 * 
 	 * @return Unmodifiable list of tag-argument pairs. Never {@code null}.
+	 * @throws IllegalStateException
+	 *             if the comment text cannot be parsed
 	 */
 	public List<DocCommentBlockTag> getParts() {
-		// already made unmodifiable in the constructor
-		return parts;
+		return content().parts;
 	}
 
 	/**
@@ -67,12 +114,14 @@ public class DocComment {
 	 * @param tag
 	 *            The tag whose instances will be returned. Must start with
 	 *            {@code @}
-	 * @return Unmodifiable list of tag-argument pairs having the given tag. Never
-	 *         {@code null}
+	 * @return Unmodifiable list of tag-argument pairs having the given tag, in
+	 *         their order of occurrence. Never {@code null}
+	 * @throws IllegalStateException
+	 *             if the comment text cannot be parsed
 	 */
 	public List<DocCommentBlockTag> getPartsWithTag(String tag) {
 		Preconditions.checkArgument(tag.startsWith("@"), "Block tags in doc comments must start with '@'.");
-		return parts.stream().filter(it -> it.getTag().equals(tag)).collect(Collectors.toList());
+		return content().partsByTag.get(tag);
 	}
 
 	/**
@@ -82,63 +131,90 @@ public class DocComment {
 	 * @param tag
 	 *            The tag which is being checked. Must start with {@code @}
 	 * @return True if the given tag is present in this comment
+	 * @throws IllegalStateException
+	 *             if the comment text cannot be parsed
 	 */
 	public boolean hasPartWithTag(String tag) {
 		Preconditions.checkArgument(tag.startsWith("@"), "Block tags in doc comments must start with '@'.");
-		return parts.stream().filter(it -> it.getTag().equals(tag)).findAny().isPresent();
+		return content().partsByTag.containsKey(tag);
+	}
+
+	private Content content() {
+		// Double-checked locking, the content is immutable
+		Content ret = content;
+		if (ret == null) {
+			synchronized (this) {
+				ret = content;
+				if (ret == null) {
+					ret = parseContent(text);
+					content = ret;
+				}
+			}
+		}
+		return ret;
 	}
 
 	/**
-	 * Returns a new empty doc comment. It does not have any main description or tag
+	 * Returns an empty doc comment. It does not have any main description or tag
 	 * in the tag section.
 	 * 
 	 * @return Empty doc comment
 	 */
 	public static DocComment empty() {
-		return new DocComment("", Collections.emptyList());
+		return EMPTY;
 	}
 
 	/**
-	 * Parses the given raw comment text and tries to parse as doc comment.
+	 * Returns the doc comment represented by the given raw comment text. The text
+	 * is parsed when the content of the comment is first accessed.
 	 * <p>
 	 * If it is not a valid doc comment (i.e., it does not start with {@code /*} and
-	 * end with {@code /*} ), an empty doc comment will be returned. Otherwise it
-	 * will be split into main description and tag section, each block tag will be
-	 * parsed and the leading * characters will be removed.
+	 * end with {@code /*} ), it will be represented as an empty doc comment.
+	 * Otherwise it will be split into main description and tag section, each
+	 * block tag will be parsed and the leading * characters will be removed.
 	 * 
 	 * @param commentText
 	 *            Comment text to be parsed
-	 * @return Parsed doc comment
+	 * @return Doc comment
 	 */
 	public static DocComment parse(String commentText) {
 		Preconditions.checkNotNull(commentText);
+		return new DocComment(commentText, null);
+	}
+
+	private static Content parseContent(String commentText) {
+		long start = DocsMetrics.start();
+		try {
+			return parseComment(commentText);
+		} finally {
+			DocsMetrics.stop(DocsPhase.COMMENT_PARSING, start);
+		}
+	}
 
+	private static Content parseComment(String commentText) {
 		if (!commentText.startsWith("/*") || !commentText.endsWith("*/")) {
 			// skip if not correctly formatted
-			return DocComment.empty();
+			return EMPTY.content;
 		}
 
 		// Remove '/**', '*/' and '*' from line start
 		String cleanText = cleanupMlComment(commentText);
 
 		List<String> partTexts = Arrays.asList(cleanText.split("(?m)(?=^@[^\\s])"));
-		// System.out.println(partTexts);
-		// System.err.println("Split into " + partTexts.size());
 		Preconditions.checkState(partTexts.size() >= 1);
 
 		String description = partTexts.get(0).trim();
-		List<DocCommentBlockTag> parts = new ArrayList<>();
-		Pattern tagParserPattern = Pattern.compile("(?s)^\\s*(@[^\\s]+)\\s+(.*)$");
+		ImmutableList.Builder<DocCommentBlockTag> parts = ImmutableList.builder();
 
 		for (String partText : partTexts.subList(1, partTexts.size())) {
-			Matcher matcher = tagParserPattern.matcher(partText);
+			Matcher matcher = TAG_PARSER_PATTERN.matcher(partText);
 			Preconditions.checkState(matcher.find(),
 					"Illegal doc comment, cannot be parsed as tag-value pair: " + partText);
 			DocCommentBlockTag part = new DocCommentBlockTag(matcher.group(1), matcher.group(2).trim());
 			parts.add(part);
 		}
 
-		return new DocComment(description, parts);
+		return new Content(description, parts.build());
 	}
 
 	static String cleanupMlComment(String commentText) {
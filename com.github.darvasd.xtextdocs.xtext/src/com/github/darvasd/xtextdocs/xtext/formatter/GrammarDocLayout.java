@@ -0,0 +1,227 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.xtext.AbstractRule;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.GrammarUtil;
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.xtext.cache.FingerprintBuilder;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
+import com.google.common.base.Preconditions;
+
+/**
+ * Assignment of the documentation of a grammar to files. The documentation is
+ * either a single document, or an index page and one page per rule. The rules
+ * inherited from the used grammars may be documented in separate files too.
+ * <p>
+ * The file names are relative to the page being rendered. In case of a
+ * sharded documentation, the rule pages are in the page directory of the index
+ * page, thus they have their own layout (see {@link #getRulePageLayout()}).
+ * Immutable.
+ */
+final class GrammarDocLayout {
+	private final String indexFileName;
+
+	/**
+	 * Map from the rule names to the file names of their documentation, if it is
+	 * not the current document.
+	 */
+	private final Map<String, String> ruleFileNames;
+
+	/** Map from the names of the used grammars to the file names of their documentation. */
+	private final Map<String, String> usedGrammarFileNames;
+
+	private final String fingerprint;
+
+	/** Layout of the rule pages, {@code null} if it is this layout. */
+	private final GrammarDocLayout rulePageLayout;
+
+	private GrammarDocLayout(String indexFileName, Map<String, String> ruleFileNames,
+			Map<String, String> usedGrammarFileNames, GrammarDocLayout rulePageLayout) {
+		this.indexFileName = indexFileName;
+		this.ruleFileNames = Collections.unmodifiableMap(ruleFileNames);
+		this.usedGrammarFileNames = Collections.unmodifiableMap(usedGrammarFileNames);
+		this.rulePageLayout = rulePageLayout;
+
+		FingerprintBuilder builder = new FingerprintBuilder().add(indexFileName);
+		for (Map.Entry<String, String> entry : ruleFileNames.entrySet()) {
+			builder.add(entry.getKey()).add(entry.getValue());
+		}
+		this.fingerprint = builder.build();
+	}
+
+	/**
+	 * Creates the layout of the given grammar documentation split into pages, as
+	 * seen from the index page. The rule pages are placed in the page directory
+	 * of the index page (see {@link ShardedOutput#pageDirectoryName(String)}),
+	 * with the same extension as the index page. The documentation of the used
+	 * grammars is next to the index page.
+	 *
+	 * @param grammarDoc
+	 *            Grammar documentation. Shall not be {@code null}.
+	 * @param indexFileName
+	 *            File name of the index page. Shall not be {@code null}.
+	 * @param usedGrammarFileNames
+	 *            Map from the names of the used grammars to the file names of
+	 *            their documentation. The inherited rules of the grammars not
+	 *            contained are not linked. Shall not be {@code null}.
+	 * @return The new layout of the index page. Never {@code null}.
+	 */
+	public static GrammarDocLayout createSharded(GrammarDoc grammarDoc, String indexFileName,
+			Map<String, String> usedGrammarFileNames) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(indexFileName, "indexFileName");
+
+		int extensionStart = indexFileName.lastIndexOf('.');
+		String extension = extensionStart < 0 ? "md" : indexFileName.substring(extensionStart + 1);
+
+		List<String> ruleNames = new ArrayList<>(grammarDoc.getRules().size());
+		for (RuleDoc ruleDoc : grammarDoc.getRules()) {
+			ruleNames.add(ruleDoc.getRuleName());
+		}
+		String pageDirectoryName = ShardedOutput.pageDirectoryName(indexFileName);
+		Map<String, String> inheritedRuleFileNames = inheritedRuleFileNames(grammarDoc.getGrammar(),
+				usedGrammarFileNames);
+
+		// The files next to the index page are in the parent directory of the rule pages
+		Map<String, String> indexRuleFileNames = new LinkedHashMap<>(inheritedRuleFileNames);
+		Map<String, String> pageRuleFileNames = withPrefix(inheritedRuleFileNames, "../");
+		for (Map.Entry<String, String> entry : ShardedOutput.uniqueFileNames(ruleNames, extension).entrySet()) {
+			indexRuleFileNames.put(entry.getKey(), pageDirectoryName + "/" + entry.getValue());
+			pageRuleFileNames.put(entry.getKey(), entry.getValue());
+		}
+
+		GrammarDocLayout rulePageLayout = new GrammarDocLayout("../" + indexFileName, pageRuleFileNames,
+				withPrefix(usedGrammarFileNames, "../"), null);
+		return new GrammarDocLayout(indexFileName, indexRuleFileNames, usedGrammarFileNames, rulePageLayout);
+	}
+
+	private static Map<String, String> withPrefix(Map<String, String> fileNames, String prefix) {
+		Map<String, String> ret = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : fileNames.entrySet()) {
+			ret.put(entry.getKey(), prefix + entry.getValue());
+		}
+		return ret;
+	}
+
+	/**
+	 * Creates the layout of the given grammar documentation written as a single
+	 * document, linking the inherited rules to the documentation of the used
+	 * grammars.
+	 *
+	 * @param grammarDoc
+	 *            Grammar documentation. Shall not be {@code null}.
+	 * @param usedGrammarFileNames
+	 *            Map from the names of the used grammars to the file names of
+	 *            their documentation. Shall not be {@code null}.
+	 * @return The new layout. Never {@code null}.
+	 */
+	public static GrammarDocLayout createSingle(GrammarDoc grammarDoc, Map<String, String> usedGrammarFileNames) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		return new GrammarDocLayout(null, inheritedRuleFileNames(grammarDoc.getGrammar(), usedGrammarFileNames),
+				usedGrammarFileNames, null);
+	}
+
+	private static Map<String, String> inheritedRuleFileNames(Grammar grammar,
+			Map<String, String> usedGrammarFileNames) {
+		Preconditions.checkNotNull(usedGrammarFileNames, "usedGrammarFileNames");
+
+		Map<String, String> ret = new LinkedHashMap<>();
+		if (usedGrammarFileNames.isEmpty()) {
+			return ret;
+		}
+		// The overridden rules of the used grammars are not included
+		for (AbstractRule rule : GrammarUtil.allRules(grammar)) {
+			Grammar definingGrammar = GrammarUtil.getGrammar(rule);
+			if (definingGrammar != grammar) {
+				String fileName = usedGrammarFileNames.get(definingGrammar.getName());
+				if (fileName != null) {
+					ret.put(rule.getName(), fileName);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the layout of the rule pages: the same assignment, with the file
+	 * names relative to the page directory.
+	 *
+	 * @return Layout of the rule pages. This layout if the documentation is a
+	 *         single document. Never {@code null}.
+	 */
+	public GrammarDocLayout getRulePageLayout() {
+		return rulePageLayout == null ? this : rulePageLayout;
+	}
+
+	/**
+	 * Returns the file name of the index page.
+	 *
+	 * @return Index file name. {@code null} if the documentation is a single
+	 *         document.
+	 */
+	public String getIndexFileName() {
+		return indexFileName;
+	}
+
+	/**
+	 * Returns whether the documentation is split into an index page and one page
+	 * per rule.
+	 *
+	 * @return True if the layout is sharded, false if it is a single document.
+	 */
+	public boolean isSharded() {
+		return indexFileName != null;
+	}
+
+	/**
+	 * Returns the file name of the page documenting the rule with the given name,
+	 * or of the documentation of the used grammar defining it.
+	 *
+	 * @param ruleName
+	 *            Name of the rule.
+	 * @return File name, or {@code null} if the rule is documented in the
+	 *         current document, or there is no such rule.
+	 */
+	public String getFileName(String ruleName) {
+		return ruleFileNames.get(ruleName);
+	}
+
+	/**
+	 * Returns the file name of the documentation of the given used grammar.
+	 *
+	 * @param grammarName
+	 *            Name of the used grammar.
+	 * @return File name, or {@code null} if the grammar is not documented.
+	 */
+	public String getUsedGrammarFileName(String grammarName) {
+		return usedGrammarFileNames.get(grammarName);
+	}
+
+	/**
+	 * Returns the fingerprint of the layout. The sections rendered for different
+	 * layouts may have different links even if their rules did not change.
+	 *
+	 * @return Fingerprint. Never {@code null}.
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+}
@@ -0,0 +1,559 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter
+
+import com.github.darvasd.xtextdocs.common.formatter.DocCommentTextUtil
+import com.github.darvasd.xtextdocs.common.formatter.HtmlTextFormatter
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
+import com.github.darvasd.xtextdocs.common.xtext.XtextTokenUtil
+import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.ParserRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.ReferenceRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleReferenceIndex
+import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarSnapshot
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.Kind
+import com.google.common.base.Preconditions
+import java.util.List
+import java.util.Map
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtext.AbstractRule
+import org.eclipse.xtext.GrammarUtil
+import org.eclipse.xtext.ParserRule
+
+/**
+ * Grammar documentation formatter generating a standalone HTML page.
+ * <p>
+ * If a search index is given, the documented rules are added to it while
+ * the page is written, thus a documentation site can search the rules
+ * without tokenizing the page. The index is not stored, thus the formatter
+ * can be shared.
+ */
+class HtmlDocsFormatter implements ISearchIndexingGrammarDocsFormatter {
+	private static final String EXAMPLE_TAG = "@example"
+	private static final String VALIDATION_TAG = "@validation"
+
+	private static final HtmlTextFormatter HTML = HtmlTextFormatter.INSTANCE;
+
+	@Accessors private boolean includeSimplifiedGrammar = true;
+
+	/**
+	 * The main title text of the documentation to be generated.
+	 * If not set ({@code null}), the title will be the full name of the grammar.
+	 */
+	@Accessors private String mainTitle = null;
+
+	/**
+	 * The URL of the stylesheet to be linked from the page.
+	 * If not set ({@code null}), no stylesheet is linked.
+	 */
+	@Accessors private String stylesheet = null;
+
+	/**
+	 * Renderer of the simplified grammar, caching the representation of each rule.
+	 */
+	val simplifiedGrammarRenderer = new SimplifiedGrammarRenderer(HTML);
+
+	/**
+	 * Returns a HTML page describing the given grammar, including all its rules.
+	 * <p>
+	 * If the value of {@code includeSimplifiedGrammar} is true, the page
+	 * will contain a simplified BNF description of the grammar.
+	 */
+	public override CharSequence formatGrammar(GrammarDoc grammarDoc) {
+		val StringBuilder ret = new StringBuilder();
+		formatGrammar(grammarDoc, ret);
+		return ret;
+	}
+
+	/**
+	 * Writes the HTML page describing the given grammar to the given output,
+	 * rule by rule.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output) {
+		writeGrammar(grammarDoc, output, null);
+	}
+
+	/**
+	 * Writes the HTML page describing the given grammar to the given output,
+	 * rule by rule. The rules are added to the given search index in the same
+	 * pass.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output, SearchIndex searchIndex) {
+		Preconditions.checkNotNull(searchIndex, "searchIndex");
+		writeGrammar(grammarDoc, output, searchIndex);
+	}
+
+	/**
+	 * Writes the HTML page describing the given grammar to the given output,
+	 * formatting the rule sections concurrently on the given pool. The output
+	 * is identical to the one of {@link #formatGrammar(GrammarDoc, Appendable)}.
+	 * <p>
+	 * The cross-references of the grammar shall be resolved before calling
+	 * this method, as EMF proxies must not be resolved concurrently.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool) {
+		Preconditions.checkNotNull(pool, "pool");
+		writeGrammar(grammarDoc, output, pool, null);
+	}
+
+	/**
+	 * Writes the HTML page describing the given grammar to the given output,
+	 * formatting the rule sections concurrently on the given pool, and fills
+	 * the given search index. The output and the search index entries are
+	 * identical to the ones of
+	 * {@link #formatGrammar(GrammarDoc, Appendable, SearchIndex)}, as the rules
+	 * are indexed in their original order.
+	 * <p>
+	 * The cross-references of the grammar shall be resolved before calling
+	 * this method, as EMF proxies must not be resolved concurrently.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool, SearchIndex searchIndex) {
+		Preconditions.checkNotNull(pool, "pool");
+		Preconditions.checkNotNull(searchIndex, "searchIndex");
+		writeGrammar(grammarDoc, output, pool, searchIndex);
+	}
+
+	/**
+	 * Returns a HTML page describing the grammar captured by the given snapshot.
+	 * See {@link #formatGrammar(GrammarSnapshot, Appendable)}.
+	 */
+	public def CharSequence formatGrammar(GrammarSnapshot snapshot) {
+		val StringBuilder ret = new StringBuilder();
+		formatGrammar(snapshot, ret);
+		return ret;
+	}
+
+	/**
+	 * Writes the HTML page describing the grammar captured by the given snapshot
+	 * to the given output, without the EMF model of the grammar. The content is
+	 * the same as the one written by {@link #formatGrammar(GrammarDoc, Appendable)}
+	 * for the grammar documentation the snapshot was created from.
+	 */
+	public def void formatGrammar(GrammarSnapshot snapshot, Appendable output) {
+		Preconditions.checkNotNull(snapshot, "snapshot");
+		Preconditions.checkNotNull(output, "output");
+
+		output.append(grammarHeader(snapshot.grammarName, snapshot.headComment, snapshot.usedGrammarNames, snapshot.metamodels));
+		for (rule : snapshot.rules) {
+			output.append(ruleDescription(rule, snapshot));
+		}
+		output.append(grammarFooter(snapshot.simplifiedGrammar.map[name -> simplifiedGrammarRenderer.render(tokens)]));
+	}
+
+	/**
+	 * Writes the page sequentially, indexing the rules if a search index is
+	 * given.
+	 */
+	private def void writeGrammar(GrammarDoc grammarDoc, Appendable output, SearchIndex searchIndex) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(output, "output");
+
+		val index = grammarDoc.referenceIndex;
+		output.append(grammarHeader(grammarDoc));
+		for (ruleDoc : grammarDoc.rules) {
+			output.append(timedRuleSection(ruleDoc, index));
+			indexRule(ruleDoc, searchIndex);
+		}
+		output.append(grammarFooter(grammarDoc));
+	}
+
+	/**
+	 * Writes the page with the rule sections formatted concurrently, indexing
+	 * the rules in their original order if a search index is given.
+	 */
+	private def void writeGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool, SearchIndex searchIndex) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(output, "output");
+
+		val index = grammarDoc.referenceIndex;
+		val sectionTasks = grammarDoc.rules.map[ruleDoc |
+			pool.submit(DocsMetrics.propagate([timedRuleSection(ruleDoc, index).toString] as Callable<String>))
+		].toList;
+
+		output.append(grammarHeader(grammarDoc));
+		for (i : 0 ..< sectionTasks.size) {
+			output.append(sectionTasks.get(i).join);
+			indexRule(grammarDoc.rules.get(i), searchIndex);
+		}
+		output.append(grammarFooter(grammarDoc));
+	}
+
+	/**
+	 * Returns a HTML fragment describing the given grammar rule.
+	 * The rule is not added to the search index. The references between the
+	 * rules are computed from the given mapping, on each call. To format
+	 * several rules of a grammar, use
+	 * {@link #formatRule(RuleDoc, RuleReferenceIndex)} instead.
+	 */
+	public override CharSequence formatRule(RuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+		Preconditions.checkNotNull(mapping, "mapping");
+		return formatRule(ruleDoc, new RuleReferenceIndex(mapping.values));
+	}
+
+	/**
+	 * Returns a HTML fragment describing the given grammar rule, using the
+	 * given index to represent the references between the rules.
+	 * The rule is not added to the search index.
+	 */
+	public override CharSequence formatRule(RuleDoc ruleDoc, RuleReferenceIndex index) {
+		Preconditions.checkNotNull(index, "index");
+		return ruleDescription(ruleDoc, index);
+	}
+
+	/**
+	 * Returns the part of the page preceding the rule descriptions.
+	 */
+	private def CharSequence grammarHeader(GrammarDoc grammarDoc) {
+		val Map<String, String> metamodels = newLinkedHashMap();
+		for (metamodel : grammarDoc.grammar.metamodelDeclarations.filter[!alias.nullOrEmpty]) {
+			metamodels.put(metamodel.alias, metamodel.EPackage.nsURI);
+		}
+		return grammarHeader(grammarDoc.grammarName, grammarDoc.headComment, grammarDoc.grammar.usedGrammars.map[name], metamodels);
+	}
+
+	private def CharSequence grammarHeader(String grammarName, DocComment headComment, List<String> usedGrammarNames, Map<String, String> metamodels) '''
+		<!DOCTYPE html>
+		<html>
+		<head>
+		<meta charset="utf-8">
+		<title>«HTML.escape(mainTitle ?: grammarName)»</title>
+		«IF stylesheet !== null»
+			<link rel="stylesheet" href="«HTML.escape(stylesheet)»">
+		«ENDIF»
+		</head>
+		<body>
+		<h1>«HTML.escape(mainTitle ?: grammarName)»</h1>
+		«IF !headComment.mainDescription.nullOrEmpty»
+			<p>«headComment.mainDescription.docCommentFormattingToHtml»</p>
+		«ENDIF»
+		«IF !usedGrammarNames.isEmpty»
+			<p>Included grammars:</p>
+			<ul>
+			«FOR x : usedGrammarNames»
+				<li>«HTML.inlineCode(x)»</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+		«IF !metamodels.isEmpty»
+			<p>Included metamodels:</p>
+			<ul>
+			«FOR x : metamodels.entrySet»
+				<li>«HTML.escape(x.key)» («HTML.inlineCode(x.value)»)</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+		<h2>Rules</h2>
+	'''
+
+	/**
+	 * Returns the part of the page following the rule descriptions.
+	 */
+	private def CharSequence grammarFooter(GrammarDoc grammarDoc) {
+		// The rules are rendered lazily, only if the simplified grammar is included
+		return grammarFooter(grammarDoc.dependencyGraph.reachableRules.map[rule |
+			rule.name -> DocsMetrics.time(DocsPhase.SIMPLIFIED_GRAMMAR, [simplifiedGrammarRenderer.render(rule)])
+		]);
+	}
+
+	/**
+	 * Returns the part of the page following the rule descriptions, given the
+	 * names and the simplified definitions of the reachable rules.
+	 */
+	private def CharSequence grammarFooter(Iterable<Pair<String, String>> simplifiedRules) '''
+		«IF includeSimplifiedGrammar»
+			<h2>Simplified grammar</h2>
+			«FOR rule : simplifiedRules»
+				<p>«HTML.bold(HTML.escape(rule.key))» ::= «rule.value»;</p>
+			«ENDFOR»
+		«ENDIF»
+		</body>
+		</html>
+	'''
+
+	private def CharSequence timedRuleSection(RuleDoc ruleDoc, RuleReferenceIndex index) {
+		val start = DocsMetrics.start();
+		try {
+			return ruleDescription(ruleDoc, index);
+		} finally {
+			DocsMetrics.stop(DocsPhase.RULE_FORMATTING, start);
+		}
+	}
+
+	/**
+	 * Adds the given rule to the given search index, if any: it can be found by
+	 * its name, by the keywords it contains and by the words of its comments.
+	 */
+	private def void indexRule(RuleDoc ruleDoc, SearchIndex searchIndex) {
+		if (searchIndex === null) {
+			return;
+		}
+		val entry = searchIndex.addEntry(ruleDoc.ruleName, ruleKind(ruleDoc), "#" + anchorId(ruleDoc.ruleName));
+		for (keyword : GrammarUtil.containedKeywords(ruleDoc.rule)) {
+			searchIndex.addText(entry, keyword.value);
+		}
+		indexComment(searchIndex, entry, ruleDoc.headComment);
+		if (ruleDoc instanceof EnumRuleDoc) {
+			for (literal : ruleDoc.literals) {
+				indexComment(searchIndex, entry, literal.comment.orElse(null));
+			}
+		}
+	}
+
+	private def void indexComment(SearchIndex searchIndex, int entry, DocComment comment) {
+		if (comment === null) {
+			return;
+		}
+		searchIndex.addDocText(entry, comment.mainDescription);
+		for (part : comment.parts) {
+			searchIndex.addDocText(entry, part.argument);
+		}
+	}
+
+	private def String ruleKind(RuleDoc ruleDoc) {
+		switch (ruleDoc) {
+			ParserRuleDoc: return "parser"
+			EnumRuleDoc: return "enum"
+			TerminalRuleDoc: return if (ruleDoc.isTerminalFragment) "terminal fragment" else "terminal"
+			default: return "rule"
+		}
+	}
+
+	private dispatch def CharSequence ruleDescription(RuleDoc ruleDoc, RuleReferenceIndex index) {
+	}
+
+	private dispatch def CharSequence ruleDescription(ParserRuleDoc ruleDoc, RuleReferenceIndex index) {
+		return parserRuleDescription(ruleDoc.ruleName, ruleDoc.headComment, ruleReferences(ruleDoc, index),
+			returns(ruleDoc.rule), XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule));
+	}
+
+	private dispatch def CharSequence ruleDescription(EnumRuleDoc ruleDoc, RuleReferenceIndex index) {
+		val literals = new EnumLiterals();
+		for (literal : ruleDoc.literals) {
+			literals.add(literal.literalEnum?.name, literal.literalText, literal.comment.orElse(null));
+		}
+		return enumRuleDescription(ruleDoc.ruleName, ruleDoc.headComment, literals, XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule));
+	}
+
+	private dispatch def CharSequence ruleDescription(TerminalRuleDoc ruleDoc, RuleReferenceIndex index) {
+		return terminalRuleDescription(ruleDoc.ruleName, ruleDoc.isTerminalFragment, ruleDoc.headComment,
+			ruleReferences(ruleDoc, index), XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule));
+	}
+
+	/**
+	 * Returns the description of the given rule snapshot, as it is included in the
+	 * page of the given grammar snapshot.
+	 */
+	private def CharSequence ruleDescription(RuleSnapshot rule, GrammarSnapshot snapshot) {
+		switch (rule.kind) {
+			case PARSER:
+				return parserRuleDescription(rule.name, rule.headComment, ruleReferences(rule, snapshot),
+					returns(rule.returnType), rule.sourceText)
+			case ENUM: {
+				val literals = new EnumLiterals();
+				for (literal : rule.literals) {
+					literals.add(literal.enumLiteralName, literal.literalText, literal.comment.orElse(null));
+				}
+				return enumRuleDescription(rule.name, rule.headComment, literals, rule.sourceText)
+			}
+			default:
+				return terminalRuleDescription(rule.name, rule.kind == Kind.TERMINAL_FRAGMENT, rule.headComment,
+					ruleReferences(rule, snapshot), rule.sourceText)
+		}
+	}
+
+	private def CharSequence parserRuleDescription(String ruleName, DocComment headComment, CharSequence references, CharSequence returns, String sourceText) '''
+		<section id="«anchorId(ruleName)»">
+		«ruleDocHeader(ruleName, "")»
+		«mainDescription(headComment)»
+		«validationPartIfExists(headComment)»
+		«examplePartIfExists(headComment)»
+		«references»
+		«returns»
+		«HTML.codeBlock(sourceText)»
+		</section>
+	'''
+
+	private def CharSequence enumRuleDescription(String ruleName, DocComment headComment, EnumLiterals literals, String sourceText) '''
+		<section id="«anchorId(ruleName)»">
+		«ruleDocHeader(ruleName, "enum")»
+		«mainDescription(headComment)»
+		«validationPartIfExists(headComment)»
+		«examplePartIfExists(headComment)»
+		<p>Literals:</p>
+		<ul>
+		«FOR entry : literals.texts.entrySet»
+			<li>«HTML.escape(entry.key)» («FOR textLit : entry.value SEPARATOR ', '»«HTML.inlineCode(textLit)»«ENDFOR»)«literalComment(literals.comments.get(entry.key))»</li>
+		«ENDFOR»
+		</ul>
+		«HTML.codeBlock(sourceText)»
+		</section>
+	'''
+
+	private def CharSequence terminalRuleDescription(String ruleName, boolean terminalFragment, DocComment headComment, CharSequence references, String sourceText) '''
+		<section id="«anchorId(ruleName)»">
+		«ruleDocHeader(ruleName, '''terminal«IF terminalFragment» fragment«ENDIF»''')»
+		«mainDescription(headComment)»
+		«validationPartIfExists(headComment)»
+		«examplePartIfExists(headComment)»
+		«references»
+		«HTML.codeBlock(sourceText)»
+		</section>
+	'''
+
+	/**
+	 * The literal declarations of an enum rule, grouped by the name of their
+	 * enum literal in their original order, with the first non-empty comment
+	 * of each enum literal.
+	 */
+	private static class EnumLiterals {
+		val Map<String, List<String>> texts = newLinkedHashMap();
+		val Map<String, String> comments = newHashMap();
+
+		def void add(String enumLiteralName, String literalText, DocComment comment) {
+			val key = enumLiteralName ?: "";
+			texts.computeIfAbsent(key, [newArrayList()]).add(literalText);
+			if (!comments.containsKey(key) && comment !== null && !comment.mainDescription.isNullOrEmpty) {
+				comments.put(key, comment.mainDescription);
+			}
+		}
+	}
+
+	/**
+	 * Returns the given comment of an enum literal prefixed with a colon, or an empty string if there is none.
+	 */
+	private def String literalComment(String comment) {
+		if (comment === null) {
+			return "";
+		}
+		return ": " + HTML.italic(comment.docCommentFormattingToHtml);
+	}
+
+	// Private helpers
+
+	private def ruleDocHeader(String ruleName, String ruleType) {
+		return '''<h3>«HTML.escape(ruleName)»«IF !ruleType.nullOrEmpty» <small>(«ruleType»)</small>«ENDIF»</h3>'''
+	}
+
+	private def mainDescription(DocComment headComment) '''
+		«IF !headComment.mainDescription.nullOrEmpty»
+			<p>«headComment.mainDescription.docCommentFormattingToHtml»</p>
+		«ENDIF»
+	'''
+
+	private def validationPartIfExists(DocComment headComment) '''
+		«IF headComment.hasPartWithTag(VALIDATION_TAG)»
+			<p><b>Validation:</b></p>
+			<ul>
+			«FOR validationPart : headComment.getPartsWithTag(VALIDATION_TAG)»
+				<li>«validationPart.argument.docCommentFormattingToHtml»</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+	'''
+
+	private def examplePartIfExists(DocComment headComment) '''
+		«IF headComment.hasPartWithTag(EXAMPLE_TAG)»
+			<p><b>Examples:</b></p>
+			<ul>
+			«FOR examplePart : headComment.getPartsWithTag(EXAMPLE_TAG)»
+				<li>«IF DocCommentTextUtil.containsCode(examplePart.argument)»«examplePart.argument.docCommentFormattingToHtml»«ELSE»«HTML.inlineCode(examplePart.argument)»«ENDIF»</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+	'''
+
+	private def ruleReferences(ReferenceRuleDoc ruleDoc, RuleReferenceIndex index) {
+		val refersTo = index.getRefersTo(ruleDoc.rule).sortBy[it | it.name ?: ""].map[ref |
+			if (index.contains(ref)) index.getRuleDoc(ref).ruleName.ruleNameAsLink else HTML.escape(ref.name ?: "")
+		].toList;
+		val referredBy = index.getReferredBy(ruleDoc.rule).filter(ParserRuleDoc).sortBy[it.ruleName].map[ruleName.ruleNameAsLink].toList;
+		return ruleReferences(refersTo, referredBy);
+	}
+
+	private def ruleReferences(RuleSnapshot rule, GrammarSnapshot snapshot) {
+		val refersTo = rule.refersTo.sortBy[it].map[ref |
+			if (snapshot.getRule(ref) !== null) ref.ruleNameAsLink else HTML.escape(ref)
+		].toList;
+		val referredBy = snapshot.getReferredBy(rule.name).filter[kind == Kind.PARSER].sortBy[name].map[name.ruleNameAsLink].toList;
+		return ruleReferences(refersTo, referredBy);
+	}
+
+	private def ruleReferences(List<String> refersTo, List<String> referredBy) '''
+		«IF !refersTo.empty»
+			<p><b>Refers to:</b></p>
+			<ul>
+			«FOR ref : refersTo»
+				<li>«ref»</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+		«IF !referredBy.empty»
+			<p><b>Referred by:</b></p>
+			<ul>
+			«FOR ref : referredBy»
+				<li>«ref»</li>
+			«ENDFOR»
+			</ul>
+		«ENDIF»
+	'''
+
+	private def returns(ParserRule rule) {
+		if (rule.type.metamodel.alias.nullOrEmpty) {
+			// it is in the generated metamodel, not so interesting
+			return returns(null as String);
+		}
+		return returns(rule.type.metamodel.alias + "::" + rule.type.classifier.name);
+	}
+
+	private def CharSequence returns(String returnType) {
+		if (returnType === null) {
+			return "";
+		}
+		return '''<p><b>Returns:</b> «HTML.inlineCode(returnType)»</p>'''
+	}
+
+	private def ruleNameAsLink(String ruleName) {
+		return HTML.link(HTML.escape(ruleName), toLink(ruleName));
+	}
+
+	private def String docCommentFormattingToHtml(String text) {
+		// The plain text parts are escaped, the code snippets and links are formatted
+		return InlineTagTree.parse(text).render(HTML, [it | toLink(it)], true);
+	}
+
+	/**
+	 * Returns the link target for the given text: the text itself for URLs,
+	 * otherwise the anchor of the rule section with the given name.
+	 */
+	private def String toLink(String text) {
+		DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
+		if (text.trim().matches("^https?://.*")) {
+			return text;
+		} else {
+			return "#" + anchorId(text);
+		}
+	}
+
+	private def String anchorId(String text) {
+		return text.replaceAll("\\s", "-").toLowerCase;
+	}
+}
@@ -0,0 +1,36 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import com.github.darvasd.xtextdocs.xtext.cache.RuleSectionCache;
+
+/**
+ * Grammar documentation formatter that is able to reuse the previously
+ * rendered rule sections, stored in a {@link RuleSectionCache}.
+ */
+public interface ICachingGrammarDocsFormatter extends IGrammarDocsFormatter {
+	/**
+	 * Returns the cache of the rendered rule sections used by this formatter.
+	 *
+	 * @return Rule section cache. {@code null} if no cache is used.
+	 */
+	RuleSectionCache getRuleSectionCache();
+
+	/**
+	 * Sets the cache of the rendered rule sections to be used by this formatter.
+	 * The cache shall only contain sections rendered by a formatter of the same
+	 * type.
+	 *
+	 * @param cache
+	 *            Rule section cache. If {@code null}, no cache will be used.
+	 */
+	void setRuleSectionCache(RuleSectionCache cache);
+}
@@ -10,12 +10,15 @@
 
 package com.github.darvasd.xtextdocs.xtext.formatter;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.xtext.AbstractRule;
 
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
 import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleReferenceIndex;
 
 /**
  * Interface for grammar documentation generators. A class implementing this
@@ -33,6 +36,51 @@ public interface IGrammarDocsFormatter {
 	 */
 	CharSequence formatGrammar(GrammarDoc grammarDoc);
 
+	/**
+	 * Writes a formatted, textual representation of the given grammar
+	 * documentation node, including the rules contained within, to the given
+	 * output.
+	 * <p>
+	 * The default implementation appends the result of
+	 * {@link #formatGrammar(GrammarDoc)}. Implementations are encouraged to
+	 * override it and write the documentation piece by piece (e.g. rule by rule),
+	 * without materializing the whole document in memory.
+	 * 
+	 * @param grammarDoc
+	 *            Grammar documentation.
+	 * @param output
+	 *            Output to which the formatted representation is appended.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	default void formatGrammar(GrammarDoc grammarDoc, Appendable output) throws IOException {
+		output.append(formatGrammar(grammarDoc));
+	}
+
+	/**
+	 * Writes a formatted, textual representation of the given grammar
+	 * documentation node, including the rules contained within, to the given
+	 * output. The given pool may be used to format the rules concurrently, but
+	 * the output shall be identical to the one of
+	 * {@link #formatGrammar(GrammarDoc, Appendable)}.
+	 * <p>
+	 * The default implementation ignores the pool and delegates to
+	 * {@link #formatGrammar(GrammarDoc, Appendable)}.
+	 * 
+	 * @param grammarDoc
+	 *            Grammar documentation.
+	 * @param output
+	 *            Output to which the formatted representation is appended.
+	 * @param pool
+	 *            Pool to be used for the concurrent formatting. Shall not be
+	 *            {@code null}.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	default void formatGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool) throws IOException {
+		formatGrammar(grammarDoc, output);
+	}
+
 	/**
 	 * Returns a formatted, textual representation of the given single rule
 	 * documentation node.
@@ -44,6 +92,44 @@ public interface IGrammarDocsFormatter {
 	 *            documentation equivalents. This can be used to represent the
 	 *            dependencies between the rules.
 	 * @return Formatted, textual representation of the rule.
+	 * @see #formatRule(RuleDoc, RuleReferenceIndex)
 	 */
 	CharSequence formatRule(RuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping);
+
+	/**
+	 * Returns a formatted, textual representation of the given single rule
+	 * documentation node, using the given reference index. When several rules
+	 * of a grammar are formatted one by one, the same index should be used for
+	 * all of them, as building it takes time linear in the size of the grammar.
+	 * <p>
+	 * The default implementation delegates to
+	 * {@link #formatRule(RuleDoc, Map)}.
+	 * 
+	 * @param ruleDoc
+	 *            Rule documentation.
+	 * @param index
+	 *            Index of the references between the rules. Shall not be
+	 *            {@code null}.
+	 * @return Formatted, textual representation of the rule.
+	 */
+	default CharSequence formatRule(RuleDoc ruleDoc, RuleReferenceIndex index) {
+		return formatRule(ruleDoc, index.getRuleDocs());
+	}
+
+	/**
+	 * Returns a formatted, textual representation of the given single rule
+	 * documentation node, using the reference index of the given grammar
+	 * documentation.
+	 * 
+	 * @param ruleDoc
+	 *            Rule documentation.
+	 * @param grammarDoc
+	 *            Grammar documentation containing the rule. Shall not be
+	 *            {@code null}.
+	 * @return Formatted, textual representation of the rule.
+	 * @see #formatRule(RuleDoc, RuleReferenceIndex)
+	 */
+	default CharSequence formatRule(RuleDoc ruleDoc, GrammarDoc grammarDoc) {
+		return formatRule(ruleDoc, grammarDoc.getReferenceIndex());
+	}
 }
@@ -0,0 +1,40 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import java.util.Map;
+
+/**
+ * Grammar documentation formatter that is able to link the rules inherited
+ * from the used grammars (e.g. {@code org.eclipse.xtext.common.Terminals}) to
+ * the documentation of these grammars, generated separately.
+ */
+public interface IMultiGrammarDocsFormatter extends IGrammarDocsFormatter {
+	/**
+	 * Returns the file names of the documentation of the used grammars.
+	 *
+	 * @return Map from the grammar names to the file names. {@code null} if the
+	 *         inherited rules are not linked.
+	 */
+	Map<String, String> getUsedGrammarFileNames();
+
+	/**
+	 * Sets the file names of the documentation of the used grammars, relative to
+	 * the documentation being formatted. The references to the inherited rules
+	 * of these grammars will link to their documentation. The same map may be
+	 * used to format the grammar and all grammars used by it.
+	 *
+	 * @param fileNames
+	 *            Map from the grammar names to the file names. If {@code null},
+	 *            the inherited rules will not be linked.
+	 */
+	void setUsedGrammarFileNames(Map<String, String> fileNames);
+}
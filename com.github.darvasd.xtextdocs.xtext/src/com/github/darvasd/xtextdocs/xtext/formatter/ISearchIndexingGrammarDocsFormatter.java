@@ -0,0 +1,65 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import com.github.darvasd.xtextdocs.common.search.SearchIndex;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+
+/**
+ * Grammar documentation formatter that is able to add the documented rules to
+ * a {@link SearchIndex} while formatting the grammar documentation.
+ */
+public interface ISearchIndexingGrammarDocsFormatter extends IGrammarDocsFormatter {
+	/**
+	 * Writes the documentation of the given grammar to the given output, as
+	 * {@link #formatGrammar(GrammarDoc, Appendable)}, and adds an entry per
+	 * rule to the given search index, linking to the section of the rule. The
+	 * rules are indexed by their names, keywords and head comments.
+	 *
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented.
+	 * @param output
+	 *            Output to write to.
+	 * @param index
+	 *            Search index to be filled. It is only used during the call.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	void formatGrammar(GrammarDoc grammarDoc, Appendable output, SearchIndex index) throws IOException;
+
+	/**
+	 * Writes the documentation of the given grammar to the given output and
+	 * fills the given search index, as
+	 * {@link #formatGrammar(GrammarDoc, Appendable, SearchIndex)}, possibly
+	 * formatting the rules concurrently on the given pool. The output and the
+	 * index shall be the same as the sequential ones.
+	 * <p>
+	 * The default implementation ignores the pool.
+	 *
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented.
+	 * @param output
+	 *            Output to write to.
+	 * @param pool
+	 *            Pool to be used for the concurrent formatting of the rules.
+	 * @param index
+	 *            Search index to be filled. It is only used during the call.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	default void formatGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool, SearchIndex index)
+			throws IOException {
+		formatGrammar(grammarDoc, output, index);
+	}
+}
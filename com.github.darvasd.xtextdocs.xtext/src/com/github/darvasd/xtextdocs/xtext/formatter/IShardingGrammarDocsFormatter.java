@@ -0,0 +1,42 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+
+/**
+ * Grammar documentation formatter that is able to split the documentation
+ * into several files: an index page and one page per rule.
+ */
+public interface IShardingGrammarDocsFormatter extends IGrammarDocsFormatter {
+	/**
+	 * Registers the pages documenting the given grammar in the given output: an
+	 * index page with the given name and one page per rule. The rule pages are
+	 * placed in the page directory of the index page (see
+	 * {@link ShardedOutput#pageDirectoryName(String)}). The links between the
+	 * rules point to the corresponding pages.
+	 * <p>
+	 * The pages are only rendered when the output is written, possibly
+	 * concurrently. Therefore the cross-references of the grammar shall be
+	 * resolved before writing the output, as EMF proxies must not be resolved
+	 * concurrently.
+	 *
+	 * @param grammarDoc
+	 *            Grammar documentation.
+	 * @param indexFileName
+	 *            File name of the index page, relative to the output directory.
+	 *            The rule pages get the same extension.
+	 * @param output
+	 *            Output in which the pages are registered.
+	 */
+	void formatGrammarShards(GrammarDoc grammarDoc, String indexFileName, ShardedOutput output);
+}
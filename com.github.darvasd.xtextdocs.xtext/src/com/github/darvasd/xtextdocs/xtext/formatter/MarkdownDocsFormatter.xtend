@@ -10,43 +10,43 @@
 
 package com.github.darvasd.xtextdocs.xtext.formatter
 
+import com.github.darvasd.xtextdocs.common.formatter.InlineTagTree
 import com.github.darvasd.xtextdocs.common.formatter.MarkdownTextFormatter
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.common.metrics.DocsCounter
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase
 import com.github.darvasd.xtextdocs.common.xtext.XtextTokenUtil
+import com.github.darvasd.xtextdocs.xtext.cache.FingerprintBuilder
+import com.github.darvasd.xtextdocs.xtext.cache.RuleSectionCache
 import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment
+import com.github.darvasd.xtextdocs.xtext.graph.RuleGraphStyle
 import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc
-import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc.EnumLiteralDoc
 import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
 import com.github.darvasd.xtextdocs.xtext.ruledoc.ParserRuleDoc
 import com.github.darvasd.xtextdocs.xtext.ruledoc.ReferenceRuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDependencyGraph
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleReferenceIndex
 import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarSnapshot
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.Kind
 import com.google.common.base.Preconditions
 import com.google.common.base.Strings
-import java.util.LinkedList
 import java.util.List
 import java.util.Map
-import java.util.Queue
-import org.eclipse.emf.ecore.EEnumLiteral
+import java.util.TreeMap
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
 import org.eclipse.xtend.lib.annotations.Accessors
-import org.eclipse.xtext.AbstractElement
 import org.eclipse.xtext.AbstractRule
-import org.eclipse.xtext.Action
-import org.eclipse.xtext.Alternatives
-import org.eclipse.xtext.Assignment
-import org.eclipse.xtext.CharacterRange
-import org.eclipse.xtext.CrossReference
-import org.eclipse.xtext.EnumLiteralDeclaration
-import org.eclipse.xtext.Group
-import org.eclipse.xtext.Keyword
-import org.eclipse.xtext.NegatedToken
+import org.eclipse.xtext.GrammarUtil
 import org.eclipse.xtext.ParserRule
-import org.eclipse.xtext.RuleCall
-import org.eclipse.xtext.UnorderedGroup
-import org.eclipse.xtext.UntilToken
-import org.eclipse.xtext.Wildcard
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils
 import com.github.darvasd.xtextdocs.common.formatter.DocCommentTextUtil
 
-class MarkdownDocsFormatter implements IGrammarDocsFormatter {
+class MarkdownDocsFormatter implements ICachingGrammarDocsFormatter, IShardingGrammarDocsFormatter, IMultiGrammarDocsFormatter {
 	private static final String EXAMPLE_TAG = "@example"
 	private static final String VALIDATION_TAG = "@validation"
 	
@@ -82,6 +82,32 @@ class MarkdownDocsFormatter implements IGrammarDocsFormatter {
 		this.titleLevelOffset = Integer.parseInt(value);
 	}
 
+	/**
+	 * Version of the rule section templates, included in the fingerprint of the
+	 * cached rule sections. It shall be increased whenever the rendering of the
+	 * rule sections changes, so that the sections cached by earlier versions
+	 * are not reused.
+	 */
+	static val int RULE_SECTION_VERSION = 1;
+
+	/**
+	 * Cache of the rendered rule sections. If set, only the sections of
+	 * the rules whose fingerprint changed are rendered.
+	 */
+	@Accessors private RuleSectionCache ruleSectionCache = null;
+
+	/**
+	 * File names of the documentation of the used grammars, by grammar name.
+	 * If set, the references to the rules inherited from these grammars
+	 * link to their documentation.
+	 */
+	@Accessors private Map<String, String> usedGrammarFileNames = null;
+
+	/**
+	 * Renderer of the simplified grammar, caching the representation of each rule.
+	 */
+	val simplifiedGrammarRenderer = new SimplifiedGrammarRenderer(MarkdownTextFormatter.INSTANCE);
+
 	/**
 	 * Returns a Markdown-formatted document describing the given grammar,
 	 * including all its rules.
@@ -95,182 +121,540 @@ class MarkdownDocsFormatter implements IGrammarDocsFormatter {
 	 * use gitbook-style links and link anchors.
 	 */
 	public override CharSequence formatGrammar(GrammarDoc grammarDoc) {
+		val StringBuilder ret = new StringBuilder();
+		formatGrammar(grammarDoc, ret);
+		return ret;
+	}
+
+	/**
+	 * Writes the Markdown-formatted document describing the given grammar
+	 * to the given output. The content is the same as the one returned by
+	 * {@link #formatGrammar(GrammarDoc)}, but it is written rule by rule,
+	 * thus the whole document is never kept in memory.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output) {
 		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(output, "output");
 		
-		val Map<AbstractRule, RuleDoc> mapping = grammarDoc.rules.toMap([it|it.rule], [it|it]);
+		val index = grammarDoc.referenceIndex;
+		val layout = singleDocumentLayout(grammarDoc);
 
-		'''
-			«headerPrefix(1)» «mainTitle ?: grammarDoc.grammarName»
-			
-			«IF !grammarDoc.headComment.getMainDescription.nullOrEmpty»«grammarDoc.headComment.getMainDescription.docCommentFormattingToMd»«ENDIF»
-			
-			«IF !grammarDoc.grammar.usedGrammars.isEmpty»
-				Included grammars:
-				«FOR x : grammarDoc.grammar.usedGrammars»
-					- `«x.name»`
-				«ENDFOR»
-			«ENDIF»
-			
-			«val metamodels = grammarDoc.grammar.metamodelDeclarations.filter[!alias.nullOrEmpty]»
-			«IF !metamodels.isEmpty»
-				Included metamodels:
-				«FOR x : metamodels»
-					- «x.alias» (`«x.EPackage.nsURI»`)
-				«ENDFOR»
-			«ENDIF»
-			
-			«headerPrefix(2)» Rules
-			«FOR ruleDoc : grammarDoc.rules»
-				«formatRule(ruleDoc, mapping)»
-				
-				
-				
+		output.append(grammarHeader(grammarDoc, layout));
+		for (ruleDoc : grammarDoc.rules) {
+			output.append(cachedRuleSection(ruleDoc, index, layout));
+		}
+		output.append(grammarFooter(grammarDoc));
+	}
+
+	/**
+	 * Returns a Markdown-formatted document describing the grammar captured
+	 * by the given snapshot. See {@link #formatGrammar(GrammarSnapshot, Appendable)}.
+	 */
+	public def CharSequence formatGrammar(GrammarSnapshot snapshot) {
+		val StringBuilder ret = new StringBuilder();
+		formatGrammar(snapshot, ret);
+		return ret;
+	}
+
+	/**
+	 * Writes the Markdown-formatted document describing the grammar captured
+	 * by the given snapshot to the given output, without the EMF model of the
+	 * grammar. The content is the same as the one written by
+	 * {@link #formatGrammar(GrammarDoc, Appendable)} for the grammar documentation
+	 * the snapshot was created from, except that the references to the inherited
+	 * rules are never linked to the documentation of the used grammars.
+	 * The rule section cache is not used.
+	 */
+	public def void formatGrammar(GrammarSnapshot snapshot, Appendable output) {
+		Preconditions.checkNotNull(snapshot, "snapshot");
+		Preconditions.checkNotNull(output, "output");
+		
+		output.append(grammarHeader(snapshot.grammarName, snapshot.headComment, snapshot.usedGrammarNames, snapshot.metamodels, null));
+		for (rule : snapshot.rules) {
+			output.append(ruleSection(ruleDescription(rule, snapshot)));
+		}
+		output.append(grammarFooter(snapshot.simplifiedGrammar.map[name -> simplifiedGrammarRenderer.render(tokens)], [dotRefGraph(snapshot)]));
+	}
+
+	/**
+	 * Writes the Markdown-formatted document describing the given grammar
+	 * to the given output, formatting the rule sections concurrently on the
+	 * given pool. The sections are written in the original order of the rules,
+	 * as soon as they are available, thus the output is identical to the one
+	 * of {@link #formatGrammar(GrammarDoc, Appendable)}.
+	 * <p>
+	 * The cross-references of the grammar shall be resolved before calling
+	 * this method, as EMF proxies must not be resolved concurrently.
+	 */
+	public override void formatGrammar(GrammarDoc grammarDoc, Appendable output, ForkJoinPool pool) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(output, "output");
+		Preconditions.checkNotNull(pool, "pool");
+		
+		val index = grammarDoc.referenceIndex;
+		val layout = singleDocumentLayout(grammarDoc);
+		val sectionTasks = grammarDoc.rules.map[ruleDoc |
+			pool.submit(DocsMetrics.propagate([cachedRuleSection(ruleDoc, index, layout).toString] as Callable<String>))
+		].toList;
+
+		output.append(grammarHeader(grammarDoc, layout));
+		for (sectionTask : sectionTasks) {
+			output.append(sectionTask.join);
+		}
+		output.append(grammarFooter(grammarDoc));
+	}
+	
+	/**
+	 * Registers the Markdown-formatted pages describing the given grammar
+	 * in the given output: an index page containing the parts of the document
+	 * preceding and following the rule descriptions and the list of the rules,
+	 * and one page per rule in the page directory of the index page. The links
+	 * between the rules point to the corresponding pages.
+	 * <p>
+	 * The rule pages are cached in the rule section cache (if set) as the rule
+	 * sections, but adding, removing or renaming a rule invalidates them.
+	 */
+	public override void formatGrammarShards(GrammarDoc grammarDoc, String indexFileName, ShardedOutput output) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(indexFileName, "indexFileName");
+		Preconditions.checkNotNull(output, "output");
+		
+		val index = grammarDoc.referenceIndex;
+		val layout = GrammarDocLayout.createSharded(grammarDoc, indexFileName, usedGrammarFileNames ?: emptyMap);
+		val pageLayout = layout.rulePageLayout;
+		
+		output.add(indexFileName, [ writer |
+			writer.append(grammarHeader(grammarDoc, layout));
+			writer.append(ruleList(grammarDoc, layout));
+			writer.append(grammarFooter(grammarDoc));
+		]);
+		for (ruleDoc : grammarDoc.rules) {
+			output.add(layout.getFileName(ruleDoc.ruleName), [ writer |
+				writer.append(ruleShardHeader(grammarDoc, pageLayout));
+				writer.append(cachedRuleSection(ruleDoc, index, pageLayout));
+			]);
+		}
+	}
+	
+	/**
+	 * Returns the layout of the given grammar documentation written as a single document,
+	 * or {@code null} if the inherited rules are not linked to the documentation of the used grammars.
+	 */
+	private def GrammarDocLayout singleDocumentLayout(GrammarDoc grammarDoc) {
+		if (usedGrammarFileNames === null || usedGrammarFileNames.empty) {
+			return null;
+		}
+		return GrammarDocLayout.createSingle(grammarDoc, usedGrammarFileNames);
+	}
+	
+	/**
+	 * Returns the part of the grammar documentation preceding the rule descriptions.
+	 */
+	private def CharSequence grammarHeader(GrammarDoc grammarDoc, GrammarDocLayout layout) {
+		val Map<String, String> metamodels = newLinkedHashMap();
+		for (metamodel : grammarDoc.grammar.metamodelDeclarations.filter[!alias.nullOrEmpty]) {
+			metamodels.put(metamodel.alias, metamodel.EPackage.nsURI);
+		}
+		return grammarHeader(grammarDoc.grammarName, grammarDoc.headComment, grammarDoc.grammar.usedGrammars.map[name], metamodels, layout);
+	}
+	
+	private def CharSequence grammarHeader(String grammarName, DocComment headComment, List<String> usedGrammarNames, Map<String, String> metamodels, GrammarDocLayout layout) '''
+		«headerPrefix(1)» «mainTitle ?: grammarName»
+		
+		«IF !headComment.getMainDescription.nullOrEmpty»«headComment.getMainDescription.docCommentFormattingToMd(layout)»«ENDIF»
+		
+		«IF !usedGrammarNames.isEmpty»
+			Included grammars:
+			«FOR x : usedGrammarNames»
+				- «usedGrammarName(x, layout)»
 			«ENDFOR»
-			
-			«IF includeSimplifiedGrammar»
-				«headerPrefix(2)» Simplified grammar
-				«FOR rule : allUsedRules(grammarDoc.rules.get(0).rule)»
-					**«rule.name»** ::= «formattedRuleDef(rule.alternatives)»;
-					
-				«ENDFOR»
-			«ENDIF»
-			
-			«IF includeDotReferenceGraph»
-				«dotRefGraph(grammarDoc.rules, grammarDoc.rules.get(0), mapping)»
-			«ENDIF»
-		'''
+		«ENDIF»
+		
+		«IF !metamodels.isEmpty»
+			Included metamodels:
+			«FOR x : metamodels.entrySet»
+				- «x.key» (`«x.value»`)
+			«ENDFOR»
+		«ENDIF»
+		
+		«headerPrefix(2)» Rules
+	'''
+	
+	/**
+	 * Returns the name of the given used grammar, linking to its documentation if it is in the layout.
+	 */
+	private def String usedGrammarName(String grammarName, GrammarDocLayout layout) {
+		val fileName = layout?.getUsedGrammarFileName(grammarName);
+		if (fileName === null) {
+			return '''`«grammarName»`''';
+		}
+		return MarkdownTextFormatter.INSTANCE.link('''`«grammarName»`''', fileName);
+	}
+	
+	/**
+	 * Returns the list of the rules linking to their pages, as it is included in the index page.
+	 */
+	private def CharSequence ruleList(GrammarDoc grammarDoc, GrammarDocLayout layout) '''
+		«FOR ruleDoc : grammarDoc.rules»
+			- «ruleDoc.ruleName.ruleNameAsLink(layout)»
+		«ENDFOR»
+	'''
+	
+	/**
+	 * Returns the part of a rule page preceding the rule description: a link back to the index page.
+	 */
+	private def CharSequence ruleShardHeader(GrammarDoc grammarDoc, GrammarDocLayout layout) '''
+		«MarkdownTextFormatter.INSTANCE.link(mainTitle ?: grammarDoc.grammarName, layout.indexFileName)»
+		
+	'''
+	
+	/**
+	 * Returns the description of a single rule, as it is included in the grammar documentation.
+	 * If a layout is given, the links point to the pages of the layout.
+	 */
+	private def CharSequence ruleSection(RuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		return ruleSection(ruleDescription(ruleDoc, index, layout));
+	}
+	
+	private def CharSequence ruleSection(CharSequence ruleDescription) '''
+		«ruleDescription»
+		
+		
+		
+	'''
+	
+	/**
+	 * Returns the description of a single rule, reusing the cached one
+	 * if a rule section cache is set and the rule's fingerprint did not change.
+	 */
+	private def CharSequence cachedRuleSection(RuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		val start = DocsMetrics.start();
+		try {
+			val cache = ruleSectionCache;
+			if (cache === null) {
+				return ruleSection(ruleDoc, index, layout);
+			}
+			return cache.getOrRender(ruleSectionKey(ruleDoc, layout), ruleSectionFingerprint(ruleDoc, index, layout), [ruleSection(ruleDoc, index, layout)]);
+		} finally {
+			DocsMetrics.stop(DocsPhase.RULE_FORMATTING, start);
+		}
+	}
+	
+	/**
+	 * Returns the key of the rule section of the given rule in the rule section cache.
+	 * The same cache may be shared by several grammars (e.g. the used grammars)
+	 * and by the single document and sharded layouts, thus the key contains
+	 * the name of the grammar defining the rule and the kind of the layout too.
+	 */
+	private def String ruleSectionKey(RuleDoc ruleDoc, GrammarDocLayout layout) {
+		val layoutKind = if (layout === null) "rule" else if (layout.sharded) "sharded" else "single";
+		return GrammarUtil.getGrammar(ruleDoc.rule)?.name + "/" + layoutKind + "/" + ruleDoc.ruleName;
+	}
+	
+	/**
+	 * Returns the fingerprint of all inputs of the rule section of the given rule:
+	 * the version of the templates, the relevant settings, the rule's source text
+	 * and head comment, the rules it refers to or it is referred by, and the
+	 * layout of the pages (if any).
+	 */
+	private def String ruleSectionFingerprint(RuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		val fingerprint = new FingerprintBuilder();
+		fingerprint.add(this.class.name).add(RULE_SECTION_VERSION).add(gitbookLinkStyle).add(titleLevelOffset);
+		if (layout !== null) {
+			fingerprint.add(layout.fingerprint);
+		}
+		
+		fingerprint.add(ruleDoc.class.name).add(ruleDoc.ruleName);
+		fingerprint.add(NodeModelUtils.getNode(ruleDoc.rule)?.text);
+		addToFingerprint(fingerprint, ruleDoc.headComment);
+		
+		switch (ruleDoc) {
+			ParserRuleDoc: fingerprint.add(returns(ruleDoc.rule))
+			TerminalRuleDoc: fingerprint.add(ruleDoc.isTerminalFragment)
+			EnumRuleDoc: for (literal : ruleDoc.literals) {
+				fingerprint.add(literal.literalEnum?.name).add(literal.literalText);
+				addToFingerprint(fingerprint, literal.comment.orElse(null));
+			}
+		}
+		
+		if (ruleDoc instanceof ReferenceRuleDoc) {
+			for (ref : index.getRefersTo(ruleDoc.rule)) {
+				fingerprint.add(ref.name).add(index.getRuleDoc(ref)?.ruleName);
+			}
+			for (ref : index.getReferredBy(ruleDoc.rule).filter(ParserRuleDoc)) {
+				fingerprint.add(ref.ruleName);
+			}
+		}
+		
+		return fingerprint.build();
+	}
+	
+	private def void addToFingerprint(FingerprintBuilder fingerprint, DocComment comment) {
+		if (comment === null) {
+			fingerprint.add(null as String);
+			return;
+		}
+		// The raw text determines the parsed content, and it does not require parsing
+		fingerprint.add(comment.text);
+	}
+	
+	/**
+	 * Returns the part of the grammar documentation following the rule descriptions.
+	 */
+	private def CharSequence grammarFooter(GrammarDoc grammarDoc) {
+		// The rules are rendered lazily, only if the simplified grammar is included
+		val simplifiedRules = grammarDoc.dependencyGraph.reachableRules.map[rule |
+			rule.name -> DocsMetrics.time(DocsPhase.SIMPLIFIED_GRAMMAR, [simplifiedGrammarRenderer.render(rule)])
+		];
+		return grammarFooter(simplifiedRules, [dotRefGraph(grammarDoc.rules, grammarDoc.rules.get(0), grammarDoc.dependencyGraph)]);
 	}
 	
+	/**
+	 * Returns the part of the grammar documentation following the rule descriptions,
+	 * given the names and the simplified definitions of the reachable rules and
+	 * the provider of the rule dependency graph.
+	 */
+	private def CharSequence grammarFooter(Iterable<Pair<String, String>> simplifiedRules, ()=>CharSequence dotGraph) '''
+		
+		«IF includeSimplifiedGrammar»
+			«headerPrefix(2)» Simplified grammar
+			«FOR rule : simplifiedRules»
+				**«rule.key»** ::= «rule.value»;
+				
+			«ENDFOR»
+		«ENDIF»
+		
+		«IF includeDotReferenceGraph»
+			«DocsMetrics.time(DocsPhase.DOT_GRAPH, [dotGraph.apply])»
+		«ENDIF»
+	'''
+	
 	/**
 	 * Returns a Markdown-formatted document describing the given grammar rule.
 	 * <p>
 	 * If the value of {@code gitbookLinkStyle} is true, the document will 
 	 * use gitbook-style links and link anchors.
+	 * <p>
+	 * The references between the rules are computed from the given mapping,
+	 * on each call. To format several rules of a grammar, use
+	 * {@link #formatRule(RuleDoc, RuleReferenceIndex)} instead.
+	 */
+	public override CharSequence formatRule(RuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+		Preconditions.checkNotNull(mapping, "mapping");
+		return formatRule(ruleDoc, new RuleReferenceIndex(mapping.values));
+	}
+
+	/**
+	 * Returns a Markdown-formatted document describing the given parser rule.
+	 *
+	 * @deprecated Use {@link #formatRule(RuleDoc, Map)} or {@link #formatRule(RuleDoc, RuleReferenceIndex)} instead.
+	 */
+	@Deprecated
+	public def CharSequence formatRule(ParserRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+		return formatRule(ruleDoc as RuleDoc, mapping);
+	}
+
+	/**
+	 * Returns a Markdown-formatted document describing the given enum rule.
+	 *
+	 * @deprecated Use {@link #formatRule(RuleDoc, Map)} or {@link #formatRule(RuleDoc, RuleReferenceIndex)} instead.
+	 */
+	@Deprecated
+	public def CharSequence formatRule(EnumRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+		return formatRule(ruleDoc as RuleDoc, mapping);
+	}
+
+	/**
+	 * Returns a Markdown-formatted document describing the given terminal rule.
+	 *
+	 * @deprecated Use {@link #formatRule(RuleDoc, Map)} or {@link #formatRule(RuleDoc, RuleReferenceIndex)} instead.
+	 */
+	@Deprecated
+	public def CharSequence formatRule(TerminalRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+		return formatRule(ruleDoc as RuleDoc, mapping);
+	}
+
+	/**
+	 * Returns a Markdown-formatted document describing the given grammar rule,
+	 * using the given index to represent the references between the rules.
+	 */
+	public override CharSequence formatRule(RuleDoc ruleDoc, RuleReferenceIndex index) {
+		Preconditions.checkNotNull(index, "index");
+		return ruleDescription(ruleDoc, index, null);
+	}
+	
+	/**
+	 * Returns a Markdown-formatted document describing the given grammar rule,
+	 * using the given index to represent the references between the rules.
+	 * If a layout is given, the links point to the pages of the layout,
+	 * otherwise to the sections of a single document.
 	 */
-	public dispatch def CharSequence formatRule(RuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) {
+	private dispatch def CharSequence ruleDescription(RuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
 	}
 
-	public dispatch def CharSequence formatRule(ParserRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) '''
-		«ruleDocHeader(ruleDoc.ruleName, "")»
-		«ruleDoc.headComment.getMainDescription.docCommentFormattingToMd»
+	private dispatch def CharSequence ruleDescription(ParserRuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		return parserRuleDescription(ruleDoc.ruleName, ruleDoc.headComment, ruleReferences(ruleDoc, index, layout),
+			returns(ruleDoc.rule), XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule), layout);
+	}
+
+	private dispatch def CharSequence ruleDescription(EnumRuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		val literals = new EnumLiterals();
+		for (literal : ruleDoc.literals) {
+			literals.add(literal.literalEnum.name, literal.literalText, literal.comment.orElse(null));
+		}
+		return enumRuleDescription(ruleDoc.ruleName, ruleDoc.headComment, literals, XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule), layout);
+	}
+
+	private dispatch def CharSequence ruleDescription(TerminalRuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		return terminalRuleDescription(ruleDoc.ruleName, ruleDoc.isTerminalFragment, ruleDoc.headComment,
+			ruleReferences(ruleDoc, index, layout), XtextTokenUtil.tokenTextOrUnknown(ruleDoc.rule), layout);
+	}
+	
+	/**
+	 * Returns the description of the given rule snapshot, as it is included in the
+	 * documentation of the given grammar snapshot.
+	 */
+	private def CharSequence ruleDescription(RuleSnapshot rule, GrammarSnapshot snapshot) {
+		switch (rule.kind) {
+			case PARSER:
+				return parserRuleDescription(rule.name, rule.headComment, ruleReferences(rule, snapshot),
+					returns(rule.returnType), rule.sourceText, null)
+			case ENUM: {
+				val literals = new EnumLiterals();
+				for (literal : rule.literals) {
+					literals.add(literal.enumLiteralName, literal.literalText, literal.comment.orElse(null));
+				}
+				return enumRuleDescription(rule.name, rule.headComment, literals, rule.sourceText, null)
+			}
+			default:
+				return terminalRuleDescription(rule.name, rule.kind == Kind.TERMINAL_FRAGMENT, rule.headComment,
+					ruleReferences(rule, snapshot), rule.sourceText, null)
+		}
+	}
+	
+	private def CharSequence parserRuleDescription(String ruleName, DocComment headComment, CharSequence references, CharSequence returns, String sourceText, GrammarDocLayout layout) '''
+		«ruleDocHeader(ruleName, "")»
+		«headComment.getMainDescription.docCommentFormattingToMd(layout)»
 		
-		«validationPartIfExists(ruleDoc.headComment)»
-		«examplePartIfExists(ruleDoc.headComment)»
+		«validationPartIfExists(headComment, layout)»
+		«examplePartIfExists(headComment, layout)»
 		
-		«ruleReferences(ruleDoc, mapping)»
+		«references»
 		
-		«returns(ruleDoc.rule)»
+		«returns»
 		
-		«ruleToCodeSnippet(ruleDoc.rule)»
+		«codeSnippet(sourceText)»
 	'''
 
-
-	public dispatch def CharSequence formatRule(EnumRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) '''
-		«ruleDocHeader(ruleDoc.ruleName, "enum")»
-		«ruleDoc.headComment.getMainDescription.docCommentFormattingToMd»
+	private def CharSequence enumRuleDescription(String ruleName, DocComment headComment, EnumLiterals literals, String sourceText, GrammarDocLayout layout) '''
+		«ruleDocHeader(ruleName, "enum")»
+		«headComment.getMainDescription.docCommentFormattingToMd(layout)»
 		
-		«validationPartIfExists(ruleDoc.headComment)»
-		«examplePartIfExists(ruleDoc.headComment)»
+		«validationPartIfExists(headComment, layout)»
+		«examplePartIfExists(headComment, layout)»
 		
 		Literals:
-		«FOR entry : getPerEnumLiteral(ruleDoc).entrySet.sortBy[it.key.name]»
-			- «entry.key.name» («FOR textLit : entry.value.map[it | it.literalText] SEPARATOR ', '»`«textLit»`«ENDFOR»)
-				«val firstCommentedLiteral = entry.value.findFirst[it | it.comment.isPresent && !it.comment.get.mainDescription.isNullOrEmpty]»«IF firstCommentedLiteral !== null» : «MarkdownTextFormatter.INSTANCE.italic(firstCommentedLiteral.comment.get.getMainDescription.docCommentFormattingToMd)»«ENDIF»
+		«FOR entry : literals.texts.entrySet»
+			- «entry.key» («FOR textLit : entry.value SEPARATOR ', '»`«textLit»`«ENDFOR»)
+				«val comment = literals.comments.get(entry.key)»«IF comment !== null» : «MarkdownTextFormatter.INSTANCE.italic(comment.docCommentFormattingToMd(layout))»«ENDIF»
 		«ENDFOR»
 		
-		«ruleToCodeSnippet(ruleDoc.rule)»
+		«codeSnippet(sourceText)»
 	'''
 	
-	
-	private def getPerEnumLiteral(EnumRuleDoc ruleDoc) {
-		val Map<EEnumLiteral, List<EnumLiteralDoc>> ret = newHashMap();
-		for (enumLiteral : ruleDoc.literals.map[it | it.literalEnum].toSet) {
-			ret.put(enumLiteral, ruleDoc.literals.filter[it.literalEnum == enumLiteral].toList);
+	/**
+	 * The literal declarations of an enum rule, grouped by the name of their
+	 * enum literal, with the first non-empty comment of each enum literal.
+	 */
+	private static class EnumLiterals {
+		val Map<String, List<String>> texts = new TreeMap();
+		val Map<String, String> comments = newHashMap();
+		
+		def void add(String enumLiteralName, String literalText, DocComment comment) {
+			texts.computeIfAbsent(enumLiteralName, [newArrayList()]).add(literalText);
+			if (!comments.containsKey(enumLiteralName) && comment !== null && !comment.mainDescription.isNullOrEmpty) {
+				comments.put(enumLiteralName, comment.mainDescription);
+			}
 		}
-		return ret;
 	}
 
-	public dispatch def CharSequence formatRule(TerminalRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) '''
-		«ruleDocHeader(ruleDoc.ruleName, '''terminal«IF ruleDoc.isTerminalFragment» fragment«ENDIF»''')»
-		«ruleDoc.headComment.getMainDescription.docCommentFormattingToMd»
+	private def CharSequence terminalRuleDescription(String ruleName, boolean terminalFragment, DocComment headComment, CharSequence references, String sourceText, GrammarDocLayout layout) '''
+		«ruleDocHeader(ruleName, '''terminal«IF terminalFragment» fragment«ENDIF»''')»
+		«headComment.getMainDescription.docCommentFormattingToMd(layout)»
 		
-		«validationPartIfExists(ruleDoc.headComment)»
-		«examplePartIfExists(ruleDoc.headComment)»
+		«validationPartIfExists(headComment, layout)»
+		«examplePartIfExists(headComment, layout)»
 		
-		«ruleReferences(ruleDoc, mapping)»
+		«references»
 		
-		«ruleToCodeSnippet(ruleDoc.rule)»
+		«codeSnippet(sourceText)»
 	'''
 
 	// Private helpers
 		
-	/**
-	 * Returns all rules which are used from the given root rule (transitively),
-	 * even if they are not in the current grammar.
-	 */
-	private def List<AbstractRule> allUsedRules(AbstractRule rootRule) {
-		val List<AbstractRule> ret = newArrayList();
-		val Queue<AbstractRule> toBeChecked = new LinkedList<AbstractRule>();
-		toBeChecked.add(rootRule);
-		
-		while (!toBeChecked.isEmpty()) {
-			val current = toBeChecked.remove();
-			if (!ret.contains(current)) {
-				ret.add(current);
-				current.eAllContents.toIterable.filter(RuleCall).map[it | it.rule].forEach[it | toBeChecked.add(it)];
-			}
-		}
-		
-		return ret;
-	}
-	
 	private def ruleDocHeader(String ruleName, String ruleType) {
-		return '''«headerPrefix(3)» «ruleName» «IF !ruleType.nullOrEmpty»(«ruleType»)«ENDIF» «IF gitbookLinkStyle»{«toLink(ruleName)»}«ENDIF»'''
+		return '''«headerPrefix(3)» «ruleName» «IF !ruleType.nullOrEmpty»(«ruleType»)«ENDIF» «IF gitbookLinkStyle»{«toAnchor(ruleName)»}«ENDIF»'''
 	}
 	
 	
-	private def ruleToCodeSnippet(AbstractRule rule) '''
+	private def codeSnippet(String sourceText) '''
 		```
-		«XtextTokenUtil.tokenTextOrUnknown(rule)»
+		«sourceText»
 		```
 	'''
 
-	private def validationPartIfExists(DocComment headComment) '''
-		«IF headComment.getPartsWithTag(VALIDATION_TAG).isEmpty == false»
+	private def validationPartIfExists(DocComment headComment, GrammarDocLayout layout) '''
+		«IF headComment.hasPartWithTag(VALIDATION_TAG)»
 			- **Validation:**
 			   «FOR validationPart : headComment.getPartsWithTag(VALIDATION_TAG)»
-			   	* «validationPart.getArgument.docCommentFormattingToMd»
+			   	* «validationPart.getArgument.docCommentFormattingToMd(layout)»
 			   «ENDFOR»
 		«ENDIF»
 	'''
 
-	private def examplePartIfExists(DocComment headComment) '''
-		«IF headComment.getPartsWithTag(EXAMPLE_TAG).isEmpty == false»
+	private def examplePartIfExists(DocComment headComment, GrammarDocLayout layout) '''
+		«IF headComment.hasPartWithTag(EXAMPLE_TAG)»
 			- **Examples:**
 			   «FOR validationPart : headComment.getPartsWithTag(EXAMPLE_TAG)»
-			   	* «IF DocCommentTextUtil.containsCode(validationPart.getArgument)»«validationPart.getArgument.docCommentFormattingToMd»«ELSE»«'''`«validationPart.getArgument»`'''.toString.docCommentFormattingToMd»«ENDIF»
+			   	* «IF DocCommentTextUtil.containsCode(validationPart.getArgument)»«validationPart.getArgument.docCommentFormattingToMd(layout)»«ELSE»«'''`«validationPart.getArgument»`'''.toString.docCommentFormattingToMd(layout)»«ENDIF»
 			   «ENDFOR»
 		«ENDIF»
 	'''
 		
-	private def ruleReferences(ReferenceRuleDoc ruleDoc, Map<AbstractRule, RuleDoc> mapping) '''
-		«val refersTo = ruleDoc.refersTo.sortBy[it | it.name ?: ""]»
-		«IF ruleDoc.refersTo.empty == false»
+	private def ruleReferences(ReferenceRuleDoc ruleDoc, RuleReferenceIndex index, GrammarDocLayout layout) {
+		val refersTo = index.getRefersTo(ruleDoc.rule).sortBy[it | it.name ?: ""].map[ref |
+			if (index.contains(ref)) {
+				index.getRuleDoc(ref).ruleName.ruleNameAsLink(layout)
+			} else if (layout?.getFileName(ref.name) !== null) {
+				ref.name.ruleNameAsLink(layout)
+			} else {
+				ref.name
+			}
+		].toList;
+		val referredBy = index.getReferredBy(ruleDoc.rule).filter(ParserRuleDoc).sortBy[it.ruleName].map[ruleName.ruleNameAsLink(layout)].toList;
+		return ruleReferences(refersTo, referredBy);
+	}
+	
+	private def ruleReferences(RuleSnapshot rule, GrammarSnapshot snapshot) {
+		val refersTo = rule.refersTo.sortBy[it].map[ref |
+			if (snapshot.getRule(ref) !== null) ref.ruleNameAsLink(null) else ref
+		].toList;
+		val referredBy = snapshot.getReferredBy(rule.name).filter[kind == Kind.PARSER].sortBy[name].map[name.ruleNameAsLink(null)].toList;
+		return ruleReferences(refersTo, referredBy);
+	}
+	
+	private def ruleReferences(List<String> refersTo, List<String> referredBy) '''
+		«IF refersTo.empty == false»
 			**Refers to:**
 			«FOR ref : refersTo»
-				«IF mapping.containsKey(ref)»
-					- «mapping.get(ref).ruleName.ruleNameAsLink»
-				«ELSE»
-					- «ref.name»
-				«ENDIF»
+				- «ref»
 			«ENDFOR»
 			
 		«ENDIF»
-		«val referredBy = mapping.values.filter(ParserRuleDoc).filter[it | it.getRefersTo().contains(ruleDoc.rule)].toSet.sortBy[it.ruleName]»
 		«IF referredBy.empty == false»
 			**Referred by:**
 			«FOR ref : referredBy»
-				- «ref.ruleName.ruleNameAsLink»
+				- «ref»
 			«ENDFOR»
 		«ENDIF»
 	'''
@@ -278,17 +662,50 @@ class MarkdownDocsFormatter implements IGrammarDocsFormatter {
 	private def returns(ParserRule rule) {
 		if (rule.type.metamodel.alias.nullOrEmpty) {
 			// it is in the generated metamodel, not so interesting
+			return returns(null as String);
+		}
+		return returns('''«rule.type.metamodel.alias»::«rule.type.classifier.name»'''.toString);
+	}
+	
+	private def CharSequence returns(String returnType) {
+		if (returnType === null) {
 			return "";
-		} else {
-			return '''**Returns:** `«rule.type.metamodel.alias»::«rule.type.classifier.name»`'''
 		}
+		return '''**Returns:** `«returnType»`'''
 	}
 	
-	private def ruleNameAsLink(String ruleName) {
-		return MarkdownTextFormatter.INSTANCE.link(ruleName, toLink(ruleName));
+	private def ruleNameAsLink(String ruleName, GrammarDocLayout layout) {
+		return MarkdownTextFormatter.INSTANCE.link(ruleName, toLink(ruleName, layout));
 	}
 	
-	private def dotRefGraph(List<RuleDoc> rules, RuleDoc rootRule, Map<AbstractRule, RuleDoc> mapping) '''
+	private def dotRefGraph(List<RuleDoc> rules, RuleDoc rootRule, RuleDependencyGraph graph) {
+		val Map<String, String> fillColors = newLinkedHashMap();
+		val Map<String, List<String>> references = newHashMap();
+		for (rule : rules) {
+			fillColors.put(rule.ruleName, RuleGraphStyle.dotFillColor(rule));
+			if (rule instanceof ReferenceRuleDoc) {
+				references.put(rule.ruleName, graph.getRefersTo(rule.rule).map[ref | graph.getRuleDoc(ref)?.ruleName ?: ref.name]);
+			}
+		}
+		return dotRefGraph(rootRule.ruleName, fillColors, references);
+	}
+	
+	private def dotRefGraph(GrammarSnapshot snapshot) {
+		val Map<String, String> fillColors = newLinkedHashMap();
+		val Map<String, List<String>> references = newHashMap();
+		for (rule : snapshot.rules) {
+			fillColors.put(rule.name, RuleGraphStyle.dotFillColor(rule.kind));
+			references.put(rule.name, rule.refersTo);
+		}
+		return dotRefGraph(snapshot.rules.get(0).name, fillColors, references);
+	}
+	
+	/**
+	 * Returns the GraphViz representation of the rule dependencies, given the fill
+	 * colors of the rules of the grammar, in their original order, and the names
+	 * of the rules referred by each of them.
+	 */
+	private def dotRefGraph(String rootRuleName, Map<String, String> fillColors, Map<String, List<String>> references) '''
 		«headerPrefix(2)» Rule dependencies
 		
 		```dot
@@ -296,140 +713,53 @@ class MarkdownDocsFormatter implements IGrammarDocsFormatter {
 			node[ shape="rectangle", style="filled" ];
 			
 			// Highlight root rule
-			«rootRule.ruleName» [ color="red" ];
+			«rootRuleName» [ color="red" ];
 			
-			«FOR rule : rules»
-				«rule.ruleName» [ color="«ruleDotNodeColor(rule, rootRule)»", fillcolor="«ruleDotNodeFillColor(rule)»" ];
-				«IF rule instanceof ReferenceRuleDoc»
-					«FOR ref : rule.refersTo»
-«««					external dependencies are skipped (e.g. ID)
-						«IF mapping.containsKey(ref)»
-«««						internal dependendy
-							«rule.ruleName» -> «mapping.get(ref).ruleName»;
-						«ELSE»
-«««						external dependency
-							«ref.name» [ color="«ruleDotNodeColor(rule, rootRule)»", fillcolor="«ruleDotNodeFillColor(rule)»", style="dashed" ];
-							«rule.ruleName» -> «ref.name» [ style="dashed" ];
-						«ENDIF»
-					«ENDFOR»
-				«ENDIF»
+			«FOR rule : fillColors.entrySet»
+				«rule.key» [ color="«RuleGraphStyle.dotColor(rule.key == rootRuleName)»", fillcolor="«rule.value»" ];
+				«FOR ref : references.get(rule.key) ?: emptyList»
+«««				external dependencies are skipped (e.g. ID)
+					«IF fillColors.containsKey(ref)»
+«««					internal dependendy
+						«rule.key» -> «ref»;
+					«ELSE»
+«««					external dependency
+						«ref» [ color="«RuleGraphStyle.dotColor(rule.key == rootRuleName)»", fillcolor="«rule.value»", style="dashed" ];
+						«rule.key» -> «ref» [ style="dashed" ];
+					«ENDIF»
+				«ENDFOR»
 			«ENDFOR»
 		}
 		```
 	'''
 	
-	private def ruleDotNodeColor(RuleDoc ruleDoc, RuleDoc rootRule) {
-		if (ruleDoc == rootRule) {
-			return "red";
-		} else {
-			return "black";
-		}
+	private def String docCommentFormattingToMd(String text, GrammarDocLayout layout) {
+		// The plain text parts are escaped, the code snippets and links are kept intact
+		return InlineTagTree.parse(text).render(MarkdownTextFormatter.INSTANCE, [it | toLink(it, layout)], true);
 	}
 	
-	private def ruleDotNodeFillColor(RuleDoc ruleDoc) {
-		switch (ruleDoc) {
-			EnumRuleDoc: return "#ffffcc"
-			ParserRuleDoc: return "#e6e6ff"
-			TerminalRuleDoc: return if (ruleDoc.isTerminalFragment) "#e6ffe6" else "#ccffcc"
-			default: return "white"
-		}
-	}
-		
-	/**
-	 * Returns a BNF-like simplified representation of the given rule 
-	 * definition, with Markdown formatting.
-	 */
-	private def CharSequence formattedRuleDef(AbstractElement element) {
-		return formattedRuleDef(element, false);
-	}
-
 	/**
-	 * Returns a BNF-like simplified representation of the given rule 
-	 * definition, with Markdown formatting.
-	 * @param element Element to be represented.
-	 * @param parenNeeded If true and the represented element is not atomic, 
-	 * it will be surrounded with parentheses.
-	 * @return Simplified textual representation of the given rule definition.
+	 * Returns the link target for the given text. If a layout is given, the
+	 * anchors of the rules are prefixed with the file names of their pages
+	 * (or of the documentation of the used grammar defining them), the other
+	 * anchors with the file name of the index page, if any.
 	 */
-	private def dispatch CharSequence formattedRuleDef(AbstractElement element, boolean parenNeeded) {
-		return '''??«element.class.simpleName»??'''
-	}
-
-	private def dispatch CharSequence formattedRuleDef(Void element, boolean parenNeeded) {
-		return '''(null)'''
-	}
-
-	private def dispatch CharSequence formattedRuleDef(Alternatives element, boolean parenNeeded) {
-		return '''«IF parenNeeded && element.elements.size > 1»(«ENDIF»«FOR it : element.elements SEPARATOR ' | '»«formattedRuleDef(it, element.elements.size > 1)»«ENDFOR»«IF parenNeeded && element.elements.size > 1»)«ENDIF»«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(UnorderedGroup element, boolean parenNeeded) {
-		return '''«IF parenNeeded && element.elements.size > 1»(«ENDIF»«FOR it : element.elements SEPARATOR ' & '»«formattedRuleDef(it, element.elements.size > 1)»«ENDFOR»«IF parenNeeded && element.elements.size > 1»)«ENDIF»«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(Group element, boolean parenNeeded) {
-		return '''«IF parenNeeded && element.elements.size > 1»(«ENDIF»«IF element.guardCondition !== null»<...>«ENDIF»«FOR it : element.elements SEPARATOR '   '»«formattedRuleDef(it, element.elements.size > 1)»«ENDFOR»«IF parenNeeded && element.elements.size > 1»)«ENDIF»«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(Assignment element, boolean parenNeeded) {
-		return '''«formattedRuleDef(element.terminal, true)»«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(CrossReference element, boolean parenNeeded) {
-		return '''«formattedRuleDef(element.terminal)»«element.cardinality»''';
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(Action element, boolean parenNeeded) {
-		return ''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(NegatedToken element, boolean parenNeeded) {
-		return '''!(«formattedRuleDef(element.terminal)»)«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(Wildcard element, boolean parenNeeded) {
-		return '''_._«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(UntilToken element, boolean parenNeeded) {
-		return ''' --> «formattedRuleDef(element.terminal)» «element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(Keyword element, boolean parenNeeded) {
-		return '''`«keywordText(element.value)»`«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(RuleCall element, boolean parenNeeded) {
-		return '''_«element.rule.name»_«element.cardinality»'''
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(EnumLiteralDeclaration element, boolean parenNeeded) {
-		return formattedRuleDef(element.literal);
-	}
-	
-	private def dispatch CharSequence formattedRuleDef(CharacterRange element, boolean parenNeeded) {
-		return '''[«formattedRuleDef(element.left)»..«formattedRuleDef(element.right)»]«element.cardinality»''';
-	}
-	
-	private def String keywordText(String keywordValue) {
-		return keywordValue.replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
-	}
-	
-	private def String docCommentFormattingToMd(String text) {
-		val escaped = MarkdownTextFormatter.INSTANCE.escape(text);
-		val String resolved = DocCommentTextUtil.resolveLinks(escaped, MarkdownTextFormatter.INSTANCE, [it | toLink(it)]);
-		return DocCommentTextUtil.format(resolved, MarkdownTextFormatter.INSTANCE);
-	}
-	
-	private def String toLink(String text) {
+	private def String toLink(String text, GrammarDocLayout layout) {
+		DocsMetrics.count(DocsCounter.LINKS_RESOLVED, 1);
 		if (text.trim().matches("^https?://.*")) {
 			return text;
+		} else if (layout === null) {
+			return toAnchor(text);
 		} else {
-			if (gitbookLinkStyle) {
-				return '''#«text.replaceAll("\\s", "-")»''';
-			} else {
-				return '''#«text.replaceAll("\\s", "-").toLowerCase»''';
-			}
+			return (layout.getFileName(text) ?: layout.indexFileName ?: "") + toAnchor(text);
+		}
+	}
+	
+	private def String toAnchor(String text) {
+		if (gitbookLinkStyle) {
+			return '''#«text.replaceAll("\\s", "-")»''';
+		} else {
+			return '''#«text.replaceAll("\\s", "-").toLowerCase»''';
 		}
 	}
 	
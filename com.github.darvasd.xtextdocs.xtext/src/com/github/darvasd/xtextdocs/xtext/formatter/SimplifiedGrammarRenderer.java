@@ -0,0 +1,337 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.formatter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.xtext.AbstractElement;
+import org.eclipse.xtext.AbstractRule;
+import org.eclipse.xtext.Action;
+import org.eclipse.xtext.Alternatives;
+import org.eclipse.xtext.Assignment;
+import org.eclipse.xtext.CharacterRange;
+import org.eclipse.xtext.CrossReference;
+import org.eclipse.xtext.EnumLiteralDeclaration;
+import org.eclipse.xtext.Group;
+import org.eclipse.xtext.Keyword;
+import org.eclipse.xtext.NegatedToken;
+import org.eclipse.xtext.RuleCall;
+import org.eclipse.xtext.UnorderedGroup;
+import org.eclipse.xtext.UntilToken;
+import org.eclipse.xtext.Wildcard;
+
+import com.github.darvasd.xtextdocs.common.formatter.ITextFormatter;
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarToken;
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarToken.Type;
+import com.google.common.base.Preconditions;
+
+/**
+ * Renders the BNF-like simplified representation of grammar rules, as included
+ * in the "Simplified grammar" section of the documentation. The rules are
+ * first split into format-independent tokens (see {@link GrammarToken}), then
+ * the keywords are formatted as inline code, the called rules as italic text,
+ * using the given text formatter. The tokens can also be stored (e.g. in a
+ * grammar snapshot) and rendered later, in any format.
+ * <p>
+ * The rule definitions are walked with an explicit stack, writing into a
+ * single list, thus arbitrarily deep nesting is supported. The rendered form
+ * of each rule is cached as long as the rule object is reachable, thus the
+ * rules shared by several documentations (e.g. the ones of the used grammars)
+ * are rendered only once. The grammars shall not be modified in place after
+ * their rules are rendered.
+ * <p>
+ * Thread-safe.
+ */
+public final class SimplifiedGrammarRenderer {
+	private static final GrammarToken ALTERNATIVES_SEPARATOR = new GrammarToken(Type.SEPARATOR, " | ");
+	private static final GrammarToken UNORDERED_GROUP_SEPARATOR = new GrammarToken(Type.SEPARATOR, " & ");
+	private static final GrammarToken GROUP_SEPARATOR = new GrammarToken(Type.SEPARATOR, "   ");
+	private static final GrammarToken GROUP_START = new GrammarToken(Type.GROUP_START, "(");
+	private static final GrammarToken GROUP_END = new GrammarToken(Type.GROUP_END, ")");
+	private static final GrammarToken GUARD_CONDITION = new GrammarToken(Type.TEXT, "<...>");
+	private static final GrammarToken WILDCARD = new GrammarToken(Type.WILDCARD, ".");
+
+	/**
+	 * Element to be tokenized, on the work stack.
+	 */
+	private static final class Task {
+		private final AbstractElement element;
+		private final boolean parenNeeded;
+
+		Task(AbstractElement element, boolean parenNeeded) {
+			this.element = element;
+			this.parenNeeded = parenNeeded;
+		}
+	}
+
+	private final ITextFormatter formatter;
+
+	/** Rendered rule definitions. The rules are compared by identity. */
+	private final Map<AbstractRule, String> renderedRules = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Creates a new renderer with an empty cache.
+	 *
+	 * @param formatter
+	 *            Text formatter used to format the keywords and the rule
+	 *            names. Shall not be {@code null}.
+	 */
+	public SimplifiedGrammarRenderer(ITextFormatter formatter) {
+		this.formatter = Preconditions.checkNotNull(formatter, "formatter");
+	}
+
+	/**
+	 * Returns the simplified representation of the definition of the given
+	 * rule, reusing the cached one if the rule has already been rendered.
+	 *
+	 * @param rule
+	 *            Rule to be represented. Shall not be {@code null}.
+	 * @return Simplified representation of the rule definition, without the
+	 *         rule name. Never {@code null}.
+	 */
+	public String render(AbstractRule rule) {
+		Preconditions.checkNotNull(rule, "rule");
+
+		String ret = renderedRules.get(rule);
+		if (ret == null) {
+			ret = render(tokenize(rule));
+			renderedRules.put(rule, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Appends the simplified representation of the given element to the given
+	 * buffer. The result is not cached.
+	 *
+	 * @param element
+	 *            Element to be represented. If {@code null}, {@code (null)} is
+	 *            appended.
+	 * @param out
+	 *            Buffer to append to. Shall not be {@code null}.
+	 */
+	public void render(AbstractElement element, StringBuilder out) {
+		Preconditions.checkNotNull(out, "out");
+		List<GrammarToken> tokens = new ArrayList<>();
+		tokenize(element, tokens);
+		render(tokens, out);
+	}
+
+	/**
+	 * Returns the simplified representation of the given tokens, e.g. the ones
+	 * of a rule stored in a grammar snapshot.
+	 *
+	 * @param tokens
+	 *            Tokens to be represented. Shall not be {@code null}.
+	 * @return Simplified representation. Never {@code null}.
+	 */
+	public String render(List<GrammarToken> tokens) {
+		StringBuilder out = new StringBuilder();
+		render(tokens, out);
+		return out.toString();
+	}
+
+	/**
+	 * Appends the simplified representation of the given tokens to the given
+	 * buffer.
+	 *
+	 * @param tokens
+	 *            Tokens to be represented. Shall not be {@code null}.
+	 * @param out
+	 *            Buffer to append to. Shall not be {@code null}.
+	 */
+	public void render(List<GrammarToken> tokens, StringBuilder out) {
+		Preconditions.checkNotNull(tokens, "tokens");
+		Preconditions.checkNotNull(out, "out");
+
+		for (GrammarToken token : tokens) {
+			switch (token.getType()) {
+			case KEYWORD:
+				formatter.appendInlineCode(out, token.getText());
+				break;
+			case RULE_CALL:
+			case WILDCARD:
+				formatter.appendItalic(out, token.getText());
+				break;
+			case TEXT:
+				formatter.appendEscaped(out, token.getText());
+				break;
+			default:
+				out.append(token.getText());
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the format-independent tokens of the simplified representation of
+	 * the definition of the given rule. The result is not cached.
+	 *
+	 * @param rule
+	 *            Rule to be represented. Shall not be {@code null}.
+	 * @return Tokens of the rule definition, without the rule name. Never
+	 *         {@code null}.
+	 */
+	public static List<GrammarToken> tokenize(AbstractRule rule) {
+		Preconditions.checkNotNull(rule, "rule");
+		List<GrammarToken> ret = new ArrayList<>();
+		tokenize(rule.getAlternatives(), ret);
+		return ret;
+	}
+
+	/**
+	 * Appends the format-independent tokens of the simplified representation of
+	 * the given element to the given list.
+	 *
+	 * @param element
+	 *            Element to be represented. If {@code null}, a {@code (null)}
+	 *            token is appended.
+	 * @param out
+	 *            List to append to. Shall not be {@code null}.
+	 */
+	public static void tokenize(AbstractElement element, List<GrammarToken> out) {
+		Preconditions.checkNotNull(out, "out");
+
+		// Contains the tokens to be appended and the elements to be tokenized, in reverse order
+		Deque<Object> stack = new ArrayDeque<>();
+		stack.push(new Task(element, false));
+		while (!stack.isEmpty()) {
+			Object item = stack.pop();
+			if (item instanceof GrammarToken) {
+				out.add((GrammarToken) item);
+			} else {
+				Task task = (Task) item;
+				expand(task.element, task.parenNeeded, stack, out);
+			}
+		}
+	}
+
+	/**
+	 * Tokenizes the given element: the tokens of the atomic parts are appended
+	 * to the list directly, the others are pushed to the stack.
+	 *
+	 * @param parenNeeded
+	 *            If true and the element is not atomic, it will be surrounded
+	 *            with parentheses.
+	 */
+	private static void expand(AbstractElement element, boolean parenNeeded, Deque<Object> stack,
+			List<GrammarToken> out) {
+		if (element == null) {
+			out.add(symbol("(null)"));
+		} else if (element instanceof Alternatives) {
+			pushComposite(((Alternatives) element).getElements(), ALTERNATIVES_SEPARATOR, false, parenNeeded,
+					element.getCardinality(), stack);
+		} else if (element instanceof UnorderedGroup) {
+			pushComposite(((UnorderedGroup) element).getElements(), UNORDERED_GROUP_SEPARATOR, false, parenNeeded,
+					element.getCardinality(), stack);
+		} else if (element instanceof Group) {
+			Group group = (Group) element;
+			pushComposite(group.getElements(), GROUP_SEPARATOR, group.getGuardCondition() != null, parenNeeded,
+					element.getCardinality(), stack);
+		} else if (element instanceof Assignment) {
+			pushCardinality(element.getCardinality(), stack);
+			stack.push(new Task(((Assignment) element).getTerminal(), true));
+		} else if (element instanceof CrossReference) {
+			pushCardinality(element.getCardinality(), stack);
+			stack.push(new Task(((CrossReference) element).getTerminal(), false));
+		} else if (element instanceof Action) {
+			// Actions are not represented
+		} else if (element instanceof NegatedToken) {
+			pushCardinality(element.getCardinality(), stack);
+			stack.push(symbol(")"));
+			stack.push(new Task(((NegatedToken) element).getTerminal(), false));
+			stack.push(symbol("!("));
+		} else if (element instanceof Wildcard) {
+			out.add(WILDCARD);
+			addCardinality(element.getCardinality(), out);
+		} else if (element instanceof UntilToken) {
+			pushCardinality(element.getCardinality(), stack);
+			stack.push(symbol(" "));
+			stack.push(new Task(((UntilToken) element).getTerminal(), false));
+			stack.push(symbol(" --> "));
+		} else if (element instanceof Keyword) {
+			out.add(new GrammarToken(Type.KEYWORD, keywordText(((Keyword) element).getValue())));
+			addCardinality(element.getCardinality(), out);
+		} else if (element instanceof RuleCall) {
+			AbstractRule rule = ((RuleCall) element).getRule();
+			String ruleName = rule == null ? null : rule.getName();
+			out.add(new GrammarToken(Type.RULE_CALL, ruleName == null ? "" : ruleName));
+			addCardinality(element.getCardinality(), out);
+		} else if (element instanceof EnumLiteralDeclaration) {
+			stack.push(new Task(((EnumLiteralDeclaration) element).getLiteral(), false));
+		} else if (element instanceof CharacterRange) {
+			CharacterRange range = (CharacterRange) element;
+			pushCardinality(element.getCardinality(), stack);
+			stack.push(symbol("]"));
+			stack.push(new Task(range.getRight(), false));
+			stack.push(symbol(".."));
+			stack.push(new Task(range.getLeft(), false));
+			stack.push(symbol("["));
+		} else {
+			out.add(new GrammarToken(Type.TEXT, "??" + element.getClass().getSimpleName() + "??"));
+		}
+	}
+
+	/**
+	 * Pushes the given composite element to the stack: its elements separated
+	 * by the given separator, preceded by the guard condition (if any). The
+	 * elements are put in parentheses if there are more than one of them and
+	 * they are not atomic.
+	 */
+	private static void pushComposite(List<AbstractElement> elements, GrammarToken separator, boolean guarded,
+			boolean parenNeeded, String cardinality, Deque<Object> stack) {
+		boolean multiple = elements.size() > 1;
+		boolean parens = parenNeeded && multiple;
+
+		pushCardinality(cardinality, stack);
+		if (parens) {
+			stack.push(GROUP_END);
+		}
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			stack.push(new Task(elements.get(i), multiple));
+			if (i > 0) {
+				stack.push(separator);
+			}
+		}
+		if (guarded) {
+			stack.push(GUARD_CONDITION);
+		}
+		if (parens) {
+			stack.push(GROUP_START);
+		}
+	}
+
+	private static GrammarToken symbol(String text) {
+		return new GrammarToken(Type.SYMBOL, text);
+	}
+
+	private static void pushCardinality(String cardinality, Deque<Object> stack) {
+		if (cardinality != null) {
+			stack.push(new GrammarToken(Type.CARDINALITY, cardinality));
+		}
+	}
+
+	private static void addCardinality(String cardinality, List<GrammarToken> out) {
+		if (cardinality != null) {
+			out.add(new GrammarToken(Type.CARDINALITY, cardinality));
+		}
+	}
+
+	private static String keywordText(String keywordValue) {
+		return keywordValue.replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+	}
+}
@@ -10,14 +10,33 @@
 
 package com.github.darvasd.xtextdocs.xtext.fragment
 
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics
+import com.github.darvasd.xtextdocs.common.metrics.IDocsMetricsListener
+import com.github.darvasd.xtextdocs.common.metrics.SummaryMetricsListener
+import com.github.darvasd.xtextdocs.common.search.SearchIndex
 import com.github.darvasd.xtextdocs.xtext.DocsGenerator
+import com.github.darvasd.xtextdocs.xtext.cache.GrammarDocCache
+import com.github.darvasd.xtextdocs.xtext.cache.RuleSectionCache
+import com.github.darvasd.xtextdocs.xtext.formatter.ICachingGrammarDocsFormatter
 import com.github.darvasd.xtextdocs.xtext.formatter.IGrammarDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.IMultiGrammarDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.ISearchIndexingGrammarDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.formatter.IShardingGrammarDocsFormatter
+import com.github.darvasd.xtextdocs.xtext.graph.RuleGraphExporter
+import com.github.darvasd.xtextdocs.xtext.graph.RuleGraphFormat
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc
+import com.github.darvasd.xtextdocs.xtext.snapshot.GrammarSnapshot
 import com.google.inject.Inject
+import java.io.IOException
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.List
+import java.util.concurrent.ForkJoinPool
 import org.apache.log4j.Logger
 import org.eclipse.xtend.lib.annotations.Accessors
 import org.eclipse.xtext.Grammar
 import org.eclipse.xtext.xtext.generator.AbstractXtextGeneratorFragment
-import org.eclipse.xtext.xtext.generator.model.FileAccessFactory
 
 /**
  * Documentation generation fragment to be used in the Xtext generation workflow.
@@ -29,8 +48,6 @@ class DocsGeneratorFragment extends AbstractXtextGeneratorFragment {
 
 	Grammar grammar;
 
-	@Inject FileAccessFactory fileAccessFactory
-
 	/**
 	 * The file name of the generated grammar documentation.
 	 * <p>
@@ -45,12 +62,171 @@ class DocsGeneratorFragment extends AbstractXtextGeneratorFragment {
 	 */
 	@Accessors IGrammarDocsFormatter formatter
 
+	/**
+	 * The file name of the cache of the rendered rule sections, relative to the
+	 * runtime project (e.g. {@code target/docs-cache.bin}). If set and the formatter
+	 * supports it, only the rules whose fingerprint changed since the previous run
+	 * are rendered again.
+	 * <p>
+	 * Optional.
+	 */
+	@Accessors String cacheFileName
+
+	/**
+	 * If true and the formatter supports it, the documentation is split into an
+	 * index page (written to {@code outputFileName}) and one page per rule,
+	 * written next to the index page. Only the pages whose content changed are
+	 * replaced.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean sharded = false
+
+	/**
+	 * If true and the formatter supports it, the grammars used by the grammar
+	 * (e.g. {@code org.eclipse.xtext.common.Terminals}) are documented too, each
+	 * in a file named after the grammar, next to {@code outputFileName}. The
+	 * references to the inherited rules link to these files.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean includeUsedGrammars = false
+
+	/**
+	 * The cache of the grammar documentations to be shared by the fragments of
+	 * the languages of the workflow, thus the base grammars of a language
+	 * family are processed only once. Declare it once in the workflow (e.g.
+	 * {@code grammarDocCache = GrammarDocCache : docCache {}}), then refer to
+	 * it in the other fragments (e.g. {@code grammarDocCache = docCache}). Only
+	 * used if {@code includeUsedGrammars} is true.
+	 * <p>
+	 * Optional. If not set, the documentations are shared only within the
+	 * generation of this language.
+	 */
+	@Accessors GrammarDocCache grammarDocCache
+
+	/**
+	 * The file name of the snapshot of the grammar documentation, relative to the
+	 * runtime project (e.g. {@code target/docs-snapshot.bin}). If set, a compact
+	 * binary snapshot of the documented rules is saved, which can be rendered
+	 * later without loading the grammar.
+	 * <p>
+	 * Optional.
+	 */
+	@Accessors String snapshotFileName
+
+	/**
+	 * The file name of the search index of the grammar documentation, relative
+	 * to the runtime project (e.g. {@code docs/search-index.json}). If set and
+	 * the formatter supports it, the documented rules are indexed by their names,
+	 * keywords and comments while the documentation is generated, and the index
+	 * is saved in a compact JSON format. The link targets in the index are
+	 * relative to the index file.
+	 * <p>
+	 * Optional.
+	 */
+	@Accessors String searchIndexFileName
+
+	/**
+	 * The directory of the exported rule dependency graphs, relative to the
+	 * runtime project (e.g. {@code docs/graphs}). If set, the full dependency
+	 * graph of the grammar ({@code graph.<extension>}) and the neighborhood of
+	 * each rule (named after the rule) are written to this directory, each in a
+	 * separate file. Only the files whose content changed are replaced.
+	 * <p>
+	 * Optional.
+	 */
+	@Accessors String graphDirectoryName
+
+	/**
+	 * The format of the exported rule dependency graphs: {@code dot},
+	 * {@code csv} (edge list) or {@code graphml}.
+	 * <p>
+	 * Optional, default: {@code dot}.
+	 */
+	@Accessors String graphFormat = "dot"
+
+	/**
+	 * The maximum number of rule calls between a rule and the rules of its
+	 * exported neighborhood, in both directions.
+	 * <p>
+	 * Optional, default: 1.
+	 */
+	int graphDepth = 1;
+
+	/**
+	 * Sets the maximum number of rule calls between a rule and the rules of its
+	 * exported neighborhood, in both directions.
+	 * <p>
+	 * It is an ugly workaround to take a string as argument, but this is necessary
+	 * as MWE2 does not support integer properties.
+	 * See https://bugs.eclipse.org/bugs/show_bug.cgi?id=377068 .
+	 */
+	def void setGraphDepth(String value) {
+		this.graphDepth = Integer.parseInt(value);
+	}
+
+	/**
+	 * If true, the time spent in the phases of the generation and the counted
+	 * quantities (rules, links, bytes written, etc.) are logged at the end of the
+	 * generation.
+	 * <p>
+	 * Optional, default: false.
+	 */
+	@Accessors boolean logMetrics = false
+
+	/**
+	 * The listeners to be notified about the phases and the counted quantities
+	 * of the generation (e.g. {@code JfrMetricsListener} for profiling sessions).
+	 */
+	val List<IDocsMetricsListener> metricsListeners = newArrayList
+
+	/**
+	 * Adds a listener to be notified about the phases and the counted quantities
+	 * of the generation. It is registered only for the duration of the generation.
+	 * <p>
+	 * Optional.
+	 */
+	def void addMetricsListener(IDocsMetricsListener listener) {
+		metricsListeners.add(listener);
+	}
+
+	/**
+	 * The number of threads to be used to extract and format the rule
+	 * documentations. If it is at most 1, the rules are processed sequentially.
+	 * <p>
+	 * Optional, default: 1.
+	 */
+	int parallelism = 1;
+
+	/**
+	 * Sets the number of threads to be used to extract and format the rule
+	 * documentations. If it is at most 1, the rules are processed sequentially.
+	 * The generated documentation does not depend on this setting.
+	 * <p>
+	 * It is an ugly workaround to take a string as argument, but this is necessary
+	 * as MWE2 does not support integer properties.
+	 * See https://bugs.eclipse.org/bugs/show_bug.cgi?id=377068 .
+	 */
+	def void setParallelism(String value) {
+		this.parallelism = Integer.parseInt(value);
+	}
+
 	@Inject
 	def void init(Grammar grammar) {
 		this.grammar = grammar;
 	}
 
 	override generate() {
+		val summary = new SummaryMetricsListener();
+		val listeners = if (logMetrics) metricsListeners + #[summary] else metricsListeners;
+		DocsMetrics.runWithListeners(listeners, [generateDocs]);
+		if (logMetrics) {
+			LOG.info(summary.summary);
+		}
+	}
+
+	private def void generateDocs() {
 		LOG.info("Generating grammar documentation");
 
 		// Error handling (without breaking the workflow)
@@ -67,11 +243,186 @@ class DocsGeneratorFragment extends AbstractXtextGeneratorFragment {
 			return;
 		}
 
-		// Generation of the textual output using the given formatter
-		val textFileAccess = fileAccessFactory.createTextFile(
-			outputFileName, '''«DocsGenerator.generateFormattedDoc(grammar, formatter)»''');
-		textFileAccess.writeTo(projectConfig.runtime.root)
+		// Loading the rule section cache, if needed
+		val cacheFile = if (cacheFileName !== null) Paths.get(projectConfig.runtime.root.path, cacheFileName);
+		var RuleSectionCache cache = null;
+		if (cacheFile !== null) {
+			if (formatter instanceof ICachingGrammarDocsFormatter) {
+				cache = RuleSectionCache.load(cacheFile);
+				formatter.ruleSectionCache = cache;
+			} else {
+				LOG.warn('''The formatter '«formatter.class.simpleName»' does not support caching, 'cacheFileName' is ignored''');
+			}
+		}
+
+		val sharding = sharded && formatter instanceof IShardingGrammarDocsFormatter;
+		if (sharded && !sharding) {
+			LOG.warn('''The formatter '«formatter.class.simpleName»' does not support sharding, a single file is generated''');
+		}
+
+		val multiGrammar = includeUsedGrammars && formatter instanceof IMultiGrammarDocsFormatter;
+		if (includeUsedGrammars && !multiGrammar) {
+			LOG.warn('''The formatter '«formatter.class.simpleName»' does not support linking the used grammars, 'includeUsedGrammars' is ignored''');
+		}
+		val docCache = if (multiGrammar) grammarDocCache ?: new GrammarDocCache();
+
+		val searchIndexFile = if (searchIndexFileName !== null) Paths.get(projectConfig.runtime.root.path, searchIndexFileName);
+		val searchIndexing = searchIndexFile !== null && formatter instanceof ISearchIndexingGrammarDocsFormatter && !sharding;
+		if (searchIndexFile !== null && !searchIndexing) {
+			if (sharding) {
+				LOG.warn('''The sharded documentation is not indexed, 'searchIndexFileName' is ignored''');
+			} else {
+				LOG.warn('''The formatter '«formatter.class.simpleName»' does not support search indexing, 'searchIndexFileName' is ignored''');
+			}
+		}
+
+		val graphDirectory = if (graphDirectoryName !== null) Paths.get(projectConfig.runtime.root.path, graphDirectoryName);
+		var RuleGraphExporter graphExporter = null;
+		if (graphDirectory !== null) {
+			try {
+				graphExporter = new RuleGraphExporter(RuleGraphFormat.fromName(graphFormat ?: "dot"), graphDepth);
+			} catch (IllegalArgumentException e) {
+				LOG.error('''Invalid rule graph settings, 'graphDirectoryName' is ignored: «e.message»''');
+			}
+		}
+
+		// Generation of the textual output using the given formatter, streamed directly to the output file(s)
+		// (the files are only replaced if their content changed)
+		val outputFile = Paths.get(projectConfig.runtime.root.path, outputFileName);
+		var boolean written;
+		var ShardedOutput.Result shards = null;
+		var usedGrammarCount = 0;
+		var usedGrammarsWritten = 0;
+		var snapshotSaved = false;
+		var SearchIndex searchIndex = null;
+		var ShardedOutput.Result graphs = null;
+		val snapshotFile = if (snapshotFileName !== null) Paths.get(projectConfig.runtime.root.path, snapshotFileName);
+		val pool = if (parallelism > 1) new ForkJoinPool(parallelism);
+		try {
+			val grammarDoc = DocsGenerator.createGrammarDocumentation(grammar, pool, docCache);
+
+			if (multiGrammar) {
+				val fileName = outputFile.fileName.toString;
+				val fileExtension = if (fileName.contains(".")) fileName.substring(fileName.lastIndexOf('.') + 1) else "md";
+				val usedGrammarFileNames = DocsGenerator.usedGrammarFileNames(grammar, fileExtension, fileName);
+				(formatter as IMultiGrammarDocsFormatter).usedGrammarFileNames = usedGrammarFileNames;
+
+				for (usedGrammarDoc : DocsGenerator.createUsedGrammarDocumentations(grammar, pool, docCache)) {
+					val usedGrammarFile = outputFile.resolveSibling(usedGrammarFileNames.get(usedGrammarDoc.grammarName));
+					if (DocsGenerator.generateFormattedDoc(usedGrammarDoc, formatter, usedGrammarFile, pool)) {
+						usedGrammarsWritten++;
+					}
+					usedGrammarCount++;
+				}
+			}
+
+			if (snapshotFile !== null) {
+				snapshotSaved = saveSnapshot(DocsGenerator.createGrammarSnapshot(grammarDoc), snapshotFile);
+			}
+
+			// Only the rules of the grammar itself are indexed, not the ones of the used grammars
+			if (sharding) {
+				shards = DocsGenerator.generateShardedDoc(grammarDoc, formatter as IShardingGrammarDocsFormatter, outputFile, pool);
+				written = !shards.written.isEmpty || !shards.deleted.isEmpty;
+			} else if (searchIndexing) {
+				searchIndex = new SearchIndex(searchIndexTargetPrefix(searchIndexFile, outputFile));
+				written = DocsGenerator.generateFormattedDoc(grammarDoc, formatter as ISearchIndexingGrammarDocsFormatter, outputFile, pool, searchIndex);
+			} else {
+				written = DocsGenerator.generateFormattedDoc(grammarDoc, formatter, outputFile, pool);
+			}
+
+			if (graphExporter !== null) {
+				graphs = generateRuleGraphs(grammarDoc, graphExporter, graphDirectory, pool);
+			}
+		} finally {
+			pool?.shutdown();
+			if (cache !== null) {
+				(formatter as ICachingGrammarDocsFormatter).ruleSectionCache = null;
+			}
+			if (multiGrammar) {
+				(formatter as IMultiGrammarDocsFormatter).usedGrammarFileNames = null;
+			}
+		}
+
+		if (multiGrammar) {
+			LOG.info('''Used grammars documented next to '«outputFileName»' («usedGrammarsWritten» of «usedGrammarCount» files changed, grammar documentations reused so far: «docCache.hitCount» of «docCache.hitCount + docCache.missCount»)''');
+		}
+
+		if (cache !== null && saveCache(cache, cacheFile)) {
+			LOG.info('''Rule sections reused from the cache: «cache.hitCount» of «cache.hitCount + cache.missCount»''');
+		}
+
+		if (searchIndex !== null && saveSearchIndex(searchIndex, searchIndexFile)) {
+			LOG.info('''Search index of «searchIndex.entryCount» rules written to '«searchIndexFileName»' ''');
+		}
+
+		if (graphs !== null) {
+			LOG.info('''Rule dependency graphs written to '«graphDirectoryName»' («graphs.written.size» of «graphs.shardCount» files changed, «graphs.deleted.size» stale files deleted)''');
+		}
+
+		if (snapshotSaved) {
+			LOG.info('''Grammar documentation snapshot written to '«snapshotFileName»' ''');
+		}
 
-		LOG.info('''Grammar documentation using '«formatter.class.simpleName»' written to '«outputFileName»' ''');
+		if (shards !== null) {
+			LOG.info('''Grammar documentation using '«formatter.class.simpleName»' written to '«outputFileName»' and its page directory («shards.written.size» of «shards.shardCount» files changed, «shards.deleted.size» stale files deleted)''');
+		} else if (written) {
+			LOG.info('''Grammar documentation using '«formatter.class.simpleName»' written to '«outputFileName»' ''');
+		} else {
+			LOG.info('''Grammar documentation in '«outputFileName»' is up-to-date''');
+		}
+	}
+
+	/**
+	 * Returns the path of the documentation relative to the directory of the search index,
+	 * to be used as the prefix of the link targets of the index.
+	 */
+	private static def String searchIndexTargetPrefix(Path searchIndexFile, Path outputFile) {
+		val relativePath = searchIndexFile.toAbsolutePath.parent.relativize(outputFile.toAbsolutePath);
+		return relativePath.toString.replace('\\', '/');
+	}
+
+	private static def ShardedOutput.Result generateRuleGraphs(GrammarDoc grammarDoc, RuleGraphExporter exporter,
+			Path directory, ForkJoinPool pool) {
+		try {
+			return DocsGenerator.generateRuleGraphs(grammarDoc, exporter, directory, pool);
+		} catch (IOException e) {
+			// Not breaking the workflow
+			LOG.error('''Unable to write the rule dependency graphs to '«directory»': «e.message»''');
+			return null;
+		}
+	}
+
+	private static def boolean saveCache(RuleSectionCache cache, Path file) {
+		try {
+			cache.save(file);
+			return true;
+		} catch (IOException e) {
+			// Not breaking the workflow
+			LOG.error('''Unable to save the rule section cache to '«file»': «e.message»''');
+			return false;
+		}
+	}
+
+	private static def boolean saveSearchIndex(SearchIndex searchIndex, Path file) {
+		try {
+			searchIndex.save(file);
+			return true;
+		} catch (IOException e) {
+			// Not breaking the workflow
+			LOG.error('''Unable to save the search index to '«file»': «e.message»''');
+			return false;
+		}
+	}
+
+	private static def boolean saveSnapshot(GrammarSnapshot snapshot, Path file) {
+		try {
+			snapshot.save(file);
+			return true;
+		} catch (IOException e) {
+			// Not breaking the workflow
+			LOG.error('''Unable to save the grammar documentation snapshot to '«file»': «e.message»''');
+			return false;
+		}
 	}
 }
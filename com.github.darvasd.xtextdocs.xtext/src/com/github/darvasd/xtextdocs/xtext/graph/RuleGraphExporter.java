@@ -0,0 +1,294 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.xtext.AbstractRule;
+
+import com.github.darvasd.xtextdocs.common.io.ShardedOutput;
+import com.github.darvasd.xtextdocs.common.metrics.DocsMetrics;
+import com.github.darvasd.xtextdocs.common.metrics.DocsPhase;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.ParserRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDependencyGraph;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc;
+import com.google.common.base.Preconditions;
+
+/**
+ * Exports the rule dependency graph of a grammar in the given format, either
+ * as a whole or as the neighborhoods of the individual rules. A neighborhood
+ * contains the rules within the given number of rule calls from the rule, in
+ * both directions, together with all the rule calls between them. Unlike the
+ * full graph of a large grammar, the neighborhoods can be laid out and read
+ * one by one.
+ * <p>
+ * The nodes are written in the order of the rules in the dependency graph,
+ * the edges in the order of the calling rules and the calls, thus the output
+ * only depends on the grammar. Immutable, thus it can be shared between
+ * threads.
+ */
+public final class RuleGraphExporter {
+	/**
+	 * Name of the shard containing the full graph, without extension.
+	 */
+	public static final String FULL_GRAPH_NAME = "graph";
+
+	private static final String EXTERNAL_KIND = "external";
+
+	private final RuleGraphFormat format;
+	private final int depth;
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param format
+	 *            Output format. Shall not be {@code null}.
+	 * @param depth
+	 *            Maximum number of rule calls between a rule and the rules of
+	 *            its neighborhood. Shall not be negative.
+	 */
+	public RuleGraphExporter(RuleGraphFormat format, int depth) {
+		Preconditions.checkArgument(depth >= 0, "The depth shall not be negative: %s", depth);
+		this.format = Preconditions.checkNotNull(format, "format");
+		this.depth = depth;
+	}
+
+	/**
+	 * Returns the output format of the exporter.
+	 *
+	 * @return Output format. Never {@code null}.
+	 */
+	public RuleGraphFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the depth of the exported neighborhoods.
+	 *
+	 * @return Maximum number of rule calls between a rule and the rules of its
+	 *         neighborhood.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Writes the full dependency graph of the given grammar, with its entry rule
+	 * highlighted.
+	 *
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented. Shall not be
+	 *            {@code null}.
+	 * @param out
+	 *            Output to write to. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	public void writeGraph(GrammarDoc grammarDoc, Appendable out) throws IOException {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(out, "out");
+
+		RuleDependencyGraph graph = grammarDoc.getDependencyGraph();
+		write(grammarDoc.getGrammarName(), graph.getRules(), graph.getEntryRule(), graph, out);
+	}
+
+	/**
+	 * Writes the neighborhood of the given rule, with the rule highlighted.
+	 *
+	 * @param grammarDoc
+	 *            The grammar documentation containing the rule. Shall not be
+	 *            {@code null}.
+	 * @param rule
+	 *            The rule whose neighborhood is to be represented. Shall not be
+	 *            {@code null}.
+	 * @param out
+	 *            Output to write to. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 * @see RuleDependencyGraph#getNeighborhood(AbstractRule, int)
+	 */
+	public void writeNeighborhood(GrammarDoc grammarDoc, AbstractRule rule, Appendable out) throws IOException {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(rule, "rule");
+		Preconditions.checkNotNull(out, "out");
+
+		RuleDependencyGraph graph = grammarDoc.getDependencyGraph();
+		write(rule.getName(), graph.getNeighborhood(rule, depth), rule, graph, out);
+	}
+
+	/**
+	 * Registers the full graph of the given grammar (named
+	 * {@value #FULL_GRAPH_NAME}) and the neighborhood of each documented rule
+	 * (named after the rule) as shards of the given output. The graphs are
+	 * rendered when the output is written, possibly concurrently.
+	 *
+	 * @param grammarDoc
+	 *            The grammar documentation to be represented. Shall not be
+	 *            {@code null}.
+	 * @param output
+	 *            Output to register the shards in. Shall not be {@code null}.
+	 */
+	public void addShards(GrammarDoc grammarDoc, ShardedOutput output) {
+		Preconditions.checkNotNull(grammarDoc, "grammarDoc");
+		Preconditions.checkNotNull(output, "output");
+
+		String extension = format.getFileExtension();
+		String fullGraphFileName = FULL_GRAPH_NAME + "." + extension;
+		output.add(fullGraphFileName, writer -> timed(() -> writeGraph(grammarDoc, writer)));
+
+		List<String> ruleNames = new ArrayList<>();
+		for (RuleDoc ruleDoc : grammarDoc.getRules()) {
+			ruleNames.add(ruleDoc.getRuleName());
+		}
+		Map<String, String> fileNames = ShardedOutput.uniqueFileNames(ruleNames, extension, fullGraphFileName);
+		Set<String> added = new HashSet<>();
+		for (RuleDoc ruleDoc : grammarDoc.getRules()) {
+			String fileName = fileNames.get(ruleDoc.getRuleName());
+			if (added.add(fileName)) {
+				output.add(fileName, writer -> timed(() -> writeNeighborhood(grammarDoc, ruleDoc.getRule(), writer)));
+			}
+		}
+	}
+
+	private interface GraphWriter {
+		void write() throws IOException;
+	}
+
+	private static void timed(GraphWriter writer) throws IOException {
+		long start = DocsMetrics.start();
+		try {
+			writer.write();
+		} finally {
+			DocsMetrics.stop(DocsPhase.GRAPH_EXPORT, start);
+		}
+	}
+
+	private void write(String name, List<AbstractRule> rules, AbstractRule root, RuleDependencyGraph graph,
+			Appendable out) throws IOException {
+		Set<AbstractRule> members = new HashSet<>(rules);
+		switch (format) {
+		case DOT:
+			writeDot(name, rules, members, root, graph, out);
+			break;
+		case CSV:
+			writeCsv(rules, members, graph, out);
+			break;
+		case GRAPHML:
+			writeGraphMl(name, rules, members, graph, out);
+			break;
+		default:
+			throw new IllegalStateException("Unknown format: " + format);
+		}
+	}
+
+	private static void writeDot(String name, List<AbstractRule> rules, Set<AbstractRule> members,
+			AbstractRule root, RuleDependencyGraph graph, Appendable out) throws IOException {
+		out.append("digraph ").append(dotId(name)).append(" {\n");
+		out.append("\tnode[ shape=\"rectangle\", style=\"filled\" ];\n");
+		out.append('\n');
+		for (AbstractRule rule : rules) {
+			RuleDoc ruleDoc = graph.getRuleDoc(rule);
+			out.append('\t').append(dotId(rule.getName()));
+			out.append(" [ color=\"").append(RuleGraphStyle.dotColor(rule == root)).append('"');
+			out.append(", fillcolor=\"").append(RuleGraphStyle.dotFillColor(ruleDoc)).append('"');
+			if (ruleDoc == null) {
+				out.append(", style=\"dashed\"");
+			}
+			out.append(" ];\n");
+		}
+		out.append('\n');
+		for (AbstractRule rule : rules) {
+			for (AbstractRule target : graph.getRefersTo(rule)) {
+				if (members.contains(target)) {
+					out.append('\t').append(dotId(rule.getName())).append(" -> ").append(dotId(target.getName()));
+					if (graph.getRuleDoc(target) == null) {
+						out.append(" [ style=\"dashed\" ]");
+					}
+					out.append(";\n");
+				}
+			}
+		}
+		out.append("}\n");
+	}
+
+	private static void writeCsv(List<AbstractRule> rules, Set<AbstractRule> members, RuleDependencyGraph graph,
+			Appendable out) throws IOException {
+		out.append("source,target\n");
+		for (AbstractRule rule : rules) {
+			for (AbstractRule target : graph.getRefersTo(rule)) {
+				if (members.contains(target)) {
+					out.append(csvField(rule.getName())).append(',').append(csvField(target.getName())).append('\n');
+				}
+			}
+		}
+	}
+
+	private static void writeGraphMl(String name, List<AbstractRule> rules, Set<AbstractRule> members,
+			RuleDependencyGraph graph, Appendable out) throws IOException {
+		out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+		out.append("\t<key id=\"kind\" for=\"node\" attr.name=\"kind\" attr.type=\"string\"/>\n");
+		out.append("\t<graph id=\"").append(xmlAttribute(name)).append("\" edgedefault=\"directed\">\n");
+		for (AbstractRule rule : rules) {
+			out.append("\t\t<node id=\"").append(xmlAttribute(rule.getName())).append("\"><data key=\"kind\">")
+					.append(kind(graph.getRuleDoc(rule))).append("</data></node>\n");
+		}
+		for (AbstractRule rule : rules) {
+			for (AbstractRule target : graph.getRefersTo(rule)) {
+				if (members.contains(target)) {
+					out.append("\t\t<edge source=\"").append(xmlAttribute(rule.getName())).append("\" target=\"")
+							.append(xmlAttribute(target.getName())).append("\"/>\n");
+				}
+			}
+		}
+		out.append("\t</graph>\n");
+		out.append("</graphml>\n");
+	}
+
+	/**
+	 * Returns the kind of the given rule, or {@value #EXTERNAL_KIND} if it is
+	 * not documented (i.e. it is defined in another grammar).
+	 */
+	private static String kind(RuleDoc ruleDoc) {
+		if (ruleDoc instanceof EnumRuleDoc) {
+			return "enum";
+		} else if (ruleDoc instanceof ParserRuleDoc) {
+			return "parser";
+		} else if (ruleDoc instanceof TerminalRuleDoc) {
+			return ((TerminalRuleDoc) ruleDoc).isTerminalFragment() ? "terminal fragment" : "terminal";
+		} else {
+			return EXTERNAL_KIND;
+		}
+	}
+
+	private static String dotId(String name) {
+		return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	private static String xmlAttribute(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
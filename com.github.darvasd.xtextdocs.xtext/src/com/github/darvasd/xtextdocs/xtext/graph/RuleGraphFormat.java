@@ -0,0 +1,74 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.graph;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Output formats of the rule dependency graphs.
+ *
+ * @see RuleGraphExporter
+ */
+public enum RuleGraphFormat {
+	/**
+	 * GraphViz digraph, to be laid out by {@code dot}. The entry rule of the
+	 * graph is highlighted, the rules defined in other grammars are dashed.
+	 */
+	DOT("dot"),
+
+	/**
+	 * Flat edge list with a {@code source,target} header, one rule call per
+	 * line. The rules without rule calls are omitted. Does not need layout.
+	 */
+	CSV("csv"),
+
+	/**
+	 * GraphML document with the kind of each rule as node data, to be loaded
+	 * into graph analysis or visualization tools.
+	 */
+	GRAPHML("graphml");
+
+	private final String fileExtension;
+
+	private RuleGraphFormat(String fileExtension) {
+		this.fileExtension = fileExtension;
+	}
+
+	/**
+	 * Returns the usual extension of the files in this format.
+	 *
+	 * @return File extension without the leading dot, e.g. {@code dot}.
+	 */
+	public String getFileExtension() {
+		return fileExtension;
+	}
+
+	/**
+	 * Returns the format with the given name or file extension, ignoring the
+	 * case.
+	 *
+	 * @param name
+	 *            Name of the format, e.g. {@code graphml}. Shall not be
+	 *            {@code null}.
+	 * @return The format. Never {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there is no format with the given name.
+	 */
+	public static RuleGraphFormat fromName(String name) {
+		Preconditions.checkNotNull(name, "name");
+		for (RuleGraphFormat format : values()) {
+			if (format.name().equalsIgnoreCase(name) || format.fileExtension.equalsIgnoreCase(name)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown rule graph format: '%s'.", name));
+	}
+}
@@ -0,0 +1,87 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.graph;
+
+import com.github.darvasd.xtextdocs.xtext.ruledoc.EnumRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.ParserRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
+import com.github.darvasd.xtextdocs.xtext.ruledoc.TerminalRuleDoc;
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.Kind;
+
+/**
+ * Node style of the rule dependency graphs in DOT format, shared by the
+ * graphs embedded in the documentation and the exported ones, so that they
+ * look the same.
+ */
+public final class RuleGraphStyle {
+	private RuleGraphStyle() {
+		// Utility class.
+	}
+
+	/**
+	 * Returns the border color of a node.
+	 *
+	 * @param root
+	 *            True if the node represents the highlighted (root) rule of the
+	 *            graph.
+	 * @return DOT color name. Never {@code null}.
+	 */
+	public static String dotColor(boolean root) {
+		return root ? "red" : "black";
+	}
+
+	/**
+	 * Returns the fill color of the node of the given rule, depending on its
+	 * kind.
+	 *
+	 * @param ruleDoc
+	 *            Documentation of the rule, or {@code null} if the rule is not
+	 *            documented (i.e. it is defined in another grammar).
+	 * @return DOT color. Never {@code null}.
+	 */
+	public static String dotFillColor(RuleDoc ruleDoc) {
+		if (ruleDoc instanceof EnumRuleDoc) {
+			return dotFillColor(Kind.ENUM);
+		} else if (ruleDoc instanceof ParserRuleDoc) {
+			return dotFillColor(Kind.PARSER);
+		} else if (ruleDoc instanceof TerminalRuleDoc) {
+			return dotFillColor(((TerminalRuleDoc) ruleDoc).isTerminalFragment() ? Kind.TERMINAL_FRAGMENT : Kind.TERMINAL);
+		} else {
+			return dotFillColor((Kind) null);
+		}
+	}
+
+	/**
+	 * Returns the fill color of the node of a rule of the given kind.
+	 *
+	 * @param kind
+	 *            Kind of the rule, or {@code null} if the rule is not documented
+	 *            (i.e. it is defined in another grammar).
+	 * @return DOT color. Never {@code null}.
+	 */
+	public static String dotFillColor(Kind kind) {
+		if (kind == null) {
+			return "white";
+		}
+		switch (kind) {
+		case ENUM:
+			return "#ffffcc";
+		case PARSER:
+			return "#e6e6ff";
+		case TERMINAL:
+			return "#ccffcc";
+		case TERMINAL_FRAGMENT:
+			return "#e6ffe6";
+		default:
+			throw new IllegalStateException("Unknown rule kind: " + kind);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
 
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
 import com.github.darvasd.xtextdocs.xtext.DocsGenerator;
+import com.github.darvasd.xtextdocs.xtext.HeadCommentIndex;
 import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
 import com.google.common.base.Preconditions;
 
@@ -43,6 +44,19 @@ public class EnumRuleDoc extends RuleDoc {
 		private Optional<DocComment> comment = Optional.empty();
 
 		protected EnumLiteralDoc(EnumLiteralDeclaration declaration) {
+			this(declaration, DocsGenerator.getHeadComment(NodeModelUtils.getNode(declaration)));
+		}
+
+		/**
+		 * Creates a new enum literal representation with the given head comment text.
+		 * 
+		 * @param declaration
+		 *            The Xtext enum literal declaration to be represented.
+		 * @param commentText
+		 *            The raw text of the head comment attached to the literal. May be
+		 *            {@code null} if there is no head comment.
+		 */
+		protected EnumLiteralDoc(EnumLiteralDeclaration declaration, String commentText) {
 			this.declaration = Preconditions.checkNotNull(declaration);
 
 			if (declaration.getLiteral() != null) {
@@ -50,9 +64,6 @@ public class EnumRuleDoc extends RuleDoc {
 			}
 			this.literalEnum = declaration.getEnumLiteral();
 
-			// TODO This solution is not very nice, we should not have head comment parsing
-			// here.
-			String commentText = DocsGenerator.getHeadComment(NodeModelUtils.getNode(declaration));
 			if (commentText != null) {
 				this.comment = Optional.of(DocComment.parse(commentText));
 			}
@@ -111,14 +122,34 @@ public class EnumRuleDoc extends RuleDoc {
 	 *            {@null}.
 	 */
 	public EnumRuleDoc(EnumRule rule, DocComment headComment) {
+		this(rule, headComment, HeadCommentIndex.build(rule));
+	}
+
+	/**
+	 * Creates a new enum rule representation for the given Xtext parser rule,
+	 * having the given head comment. The head comments of the literals are taken
+	 * from the given index.
+	 * 
+	 * @param rule
+	 *            The Xtext enum rule to be represented.
+	 * @param headComment
+	 *            The head comment attached to the represented rule. Shall not be
+	 *            {@null}.
+	 * @param literalComments
+	 *            The index containing the head comments of the literals. Shall not
+	 *            be {@code null}.
+	 */
+	public EnumRuleDoc(EnumRule rule, DocComment headComment, HeadCommentIndex literalComments) {
 		super(headComment);
+		Preconditions.checkNotNull(literalComments);
 		this.rule = rule;
 
 		TreeIterator<EObject> iter = rule.getAlternatives().eAllContents();
 		while (iter.hasNext()) {
 			EObject current = iter.next();
 			if (current instanceof EnumLiteralDeclaration) {
-				literals.add(new EnumLiteralDoc((EnumLiteralDeclaration) current));
+				EnumLiteralDeclaration declaration = (EnumLiteralDeclaration) current;
+				literals.add(new EnumLiteralDoc(declaration, literalComments.getHeadComment(declaration)));
 			}
 		}
 	}
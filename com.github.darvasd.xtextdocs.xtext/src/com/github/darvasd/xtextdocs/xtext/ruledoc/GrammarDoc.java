@@ -12,7 +12,9 @@ package com.github.darvasd.xtextdocs.xtext.ruledoc;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
+import org.eclipse.xtext.AbstractRule;
 import org.eclipse.xtext.Grammar;
 
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
@@ -32,6 +34,12 @@ public class GrammarDoc {
 	/** Head doc comment attached to the grammar. Never {@code null}. */
 	private DocComment headComment;
 
+	/** Dependency graph of the rules. Never {@code null}. */
+	private RuleDependencyGraph dependencyGraph;
+
+	/** Index of the references between the rules. Never {@code null}. */
+	private RuleReferenceIndex referenceIndex;
+
 	/**
 	 * Creates a new grammar documentation descriptor with the given head comment
 	 * and rule descriptions.
@@ -48,6 +56,8 @@ public class GrammarDoc {
 		this.grammar = Preconditions.checkNotNull(grammar);
 		this.rules = Preconditions.checkNotNull(rules);
 		this.headComment = Preconditions.checkNotNull(headComment);
+		this.dependencyGraph = new RuleDependencyGraph(rules);
+		this.referenceIndex = new RuleReferenceIndex(dependencyGraph);
 	}
 
 	/**
@@ -85,4 +95,49 @@ public class GrammarDoc {
 	public DocComment getHeadComment() {
 		return headComment;
 	}
+
+	/**
+	 * Returns the dependency graph of the rules of this grammar. The first rule
+	 * is considered to be the entry rule.
+	 * 
+	 * @return Rule dependency graph. Never {@code null}.
+	 */
+	public RuleDependencyGraph getDependencyGraph() {
+		return dependencyGraph;
+	}
+
+	/**
+	 * Returns the index of the references between the rules of this grammar.
+	 * 
+	 * @return Reference index. Never {@code null}.
+	 */
+	public RuleReferenceIndex getReferenceIndex() {
+		return referenceIndex;
+	}
+
+	/**
+	 * Returns the rules referred by the given rule.
+	 * 
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable set of referred rules. Never {@code null}.
+	 * @see RuleReferenceIndex#getRefersTo(AbstractRule)
+	 */
+	public Set<AbstractRule> getRefersTo(AbstractRule rule) {
+		return referenceIndex.getRefersTo(rule);
+	}
+
+	/**
+	 * Returns the documentation of the rules of this grammar referring to the
+	 * given rule.
+	 * 
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable set of referring rule documentations. Never
+	 *         {@code null}.
+	 * @see RuleReferenceIndex#getReferredBy(AbstractRule)
+	 */
+	public Set<ReferenceRuleDoc> getReferredBy(AbstractRule rule) {
+		return referenceIndex.getReferredBy(rule);
+	}
 }
@@ -10,17 +10,10 @@
 
 package com.github.darvasd.xtextdocs.xtext.ruledoc;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
-import org.eclipse.emf.common.util.TreeIterator;
-import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.AbstractRule;
-import org.eclipse.xtext.RuleCall;
 
 import com.github.darvasd.xtextdocs.xtext.ruledoc.RuleDoc;
 import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
@@ -30,7 +23,11 @@ import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
  * references to other {@link AbstractRule} Xtext rules.
  */
 public abstract class ReferenceRuleDoc extends RuleDoc {
-	private List<AbstractRule> refersTo = null;
+	/**
+	 * Lazily computed list of referred rules. Volatile to make the lazy
+	 * computation safe if the rules are formatted on multiple threads.
+	 */
+	private volatile List<AbstractRule> refersTo = null;
 
 	/**
 	 * Creates a new rule documentation with the given head comment.
@@ -44,28 +41,21 @@ public abstract class ReferenceRuleDoc extends RuleDoc {
 	}
 
 	/**
-	 * Returns a list of Xtext rules which are referred from this rule.
+	 * Returns a list of Xtext rules which are referred from this rule, in the
+	 * order of their first occurrence in the rule. This method is thread-safe.
 	 * 
 	 * @return Unmodifiable list of rules referred from this rule.
 	 */
 	public List<AbstractRule> getRefersTo() {
-		if (refersTo == null) {
-			refersTo = Collections.unmodifiableList(new ArrayList<AbstractRule>(computeRefersTo()));
-		}
-
-		return refersTo;
-	}
-
-	private Collection<AbstractRule> computeRefersTo() {
-		Set<AbstractRule> ret = new HashSet<>();
-		TreeIterator<EObject> iter = getRule().getAlternatives().eAllContents();
-		while (iter.hasNext()) {
-			EObject current = iter.next();
-			if (current instanceof RuleCall) {
-				ret.add(((RuleCall) current).getRule());
-			}
+		List<AbstractRule> ret = refersTo;
+		if (ret == null) {
+			// The computation is idempotent, thus it does not matter if it is executed
+			// concurrently by multiple threads.
+			ret = Collections.unmodifiableList(RuleDependencyGraph.referredRules(getRule()));
+			refersTo = ret;
 		}
 
 		return ret;
 	}
+
 }
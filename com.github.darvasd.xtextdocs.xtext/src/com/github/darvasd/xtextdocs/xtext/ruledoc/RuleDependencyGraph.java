@@ -0,0 +1,535 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.ruledoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.xtext.AbstractRule;
+import org.eclipse.xtext.RuleCall;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Dependency graph of Xtext rules, where an edge represents a rule call. The
+ * nodes are the documented rules, in their original order, followed by the
+ * rules defined in other grammars which are called (transitively) from the
+ * documented rules, in the order of their discovery.
+ * <p>
+ * The first documented rule is considered to be the entry rule. Besides the
+ * direct references, the graph provides the rules reachable from the entry
+ * rule, the unreachable documented rules, the strongly connected
+ * components, i.e. the groups of mutually recursive rules, and the
+ * depth-limited neighborhoods of the rules.
+ * <p>
+ * The graph is built once, with one pass over the contents of each rule, and
+ * it is stored as int-indexed adjacency arrays. Immutable after construction,
+ * thus it can be shared between threads.
+ */
+public final class RuleDependencyGraph {
+	private static final int[] NO_NEIGHBORS = new int[0];
+
+	/** Node index of the rules. */
+	private final Map<AbstractRule, Integer> nodeIndex;
+
+	/** Rules represented by the nodes. */
+	private final AbstractRule[] rules;
+
+	/** Documentation of the rules represented by the nodes. {@code null} for the undocumented rules. */
+	private final RuleDoc[] ruleDocs;
+
+	/** Rules called by the given node, in the order of their first call. */
+	private final int[][] successors;
+
+	/** Rules calling the given node, in the order of the nodes. */
+	private final int[][] predecessors;
+
+	/** Nodes reachable from the entry rule, in breadth-first order. */
+	private final int[] reachableOrder;
+
+	/** True for the nodes reachable from the entry rule. */
+	private final boolean[] reachable;
+
+	/** Index of the strongly connected component containing the given node. */
+	private final int[] componentOf;
+
+	/** Strongly connected components in reverse topological order. */
+	private final List<List<AbstractRule>> components;
+
+	/**
+	 * Work arrays of the neighborhood searches, allocated once per thread, so
+	 * that a neighborhood costs its size instead of the size of the graph.
+	 */
+	private final ThreadLocal<NeighborhoodBuffers> neighborhoodBuffers = ThreadLocal
+			.withInitial(this::newNeighborhoodBuffers);
+
+	/**
+	 * Creates the dependency graph of the given rule documentations.
+	 *
+	 * @param ruleDocs
+	 *            Rule documentations. The first one is the entry rule. Shall not
+	 *            be {@code null}.
+	 */
+	public RuleDependencyGraph(List<? extends RuleDoc> ruleDocs) {
+		Preconditions.checkNotNull(ruleDocs);
+
+		Map<AbstractRule, Integer> indexMap = new HashMap<>();
+		List<AbstractRule> nodes = new ArrayList<>();
+		for (RuleDoc ruleDoc : ruleDocs) {
+			if (!indexMap.containsKey(ruleDoc.getRule())) {
+				indexMap.put(ruleDoc.getRule(), nodes.size());
+				nodes.add(ruleDoc.getRule());
+			}
+		}
+
+		// Discovers the undocumented called rules while computing the edges
+		List<int[]> successorList = new ArrayList<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			List<AbstractRule> called = referredRules(nodes.get(i));
+			int[] targets = new int[called.size()];
+			for (int j = 0; j < targets.length; j++) {
+				AbstractRule target = called.get(j);
+				Integer targetIndex = indexMap.get(target);
+				if (targetIndex == null) {
+					targetIndex = nodes.size();
+					indexMap.put(target, targetIndex);
+					nodes.add(target);
+				}
+				targets[j] = targetIndex;
+			}
+			successorList.add(targets.length == 0 ? NO_NEIGHBORS : targets);
+		}
+
+		this.nodeIndex = Collections.unmodifiableMap(indexMap);
+		this.rules = nodes.toArray(new AbstractRule[nodes.size()]);
+		this.ruleDocs = new RuleDoc[rules.length];
+		for (RuleDoc ruleDoc : ruleDocs) {
+			int i = indexMap.get(ruleDoc.getRule());
+			if (this.ruleDocs[i] == null) {
+				this.ruleDocs[i] = ruleDoc;
+			}
+		}
+
+		this.successors = successorList.toArray(new int[rules.length][]);
+		this.predecessors = invert(successors);
+
+		this.reachable = new boolean[rules.length];
+		this.reachableOrder = rules.length == 0 ? NO_NEIGHBORS : breadthFirst(0, successors, reachable);
+
+		this.componentOf = new int[rules.length];
+		this.components = stronglyConnectedComponents();
+	}
+
+	/**
+	 * Returns the rules called directly from the given rule, in the order of
+	 * their first call.
+	 *
+	 * @param rule
+	 *            Xtext rule. Shall not be {@code null}.
+	 * @return Modifiable list of the called rules, without duplicates. Never
+	 *         {@code null}.
+	 */
+	public static List<AbstractRule> referredRules(AbstractRule rule) {
+		Preconditions.checkNotNull(rule);
+
+		Set<AbstractRule> ret = new LinkedHashSet<>();
+		TreeIterator<EObject> iter = rule.eAllContents();
+		while (iter.hasNext()) {
+			EObject current = iter.next();
+			if (current instanceof RuleCall && ((RuleCall) current).getRule() != null) {
+				ret.add(((RuleCall) current).getRule());
+			}
+		}
+		return new ArrayList<>(ret);
+	}
+
+	/**
+	 * Returns the entry rule of the graph.
+	 *
+	 * @return Entry rule, or {@code null} if the graph is empty.
+	 */
+	public AbstractRule getEntryRule() {
+		return rules.length == 0 ? null : rules[0];
+	}
+
+	/**
+	 * Returns all rules of the graph: the documented rules in their original
+	 * order, then the called undocumented rules.
+	 *
+	 * @return Unmodifiable list of rules. Never {@code null}.
+	 */
+	public List<AbstractRule> getRules() {
+		return Collections.unmodifiableList(Arrays.asList(rules));
+	}
+
+	/**
+	 * Returns true iff the given rule is a node of this graph.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return True if the rule is documented or it is called from a documented
+	 *         rule.
+	 */
+	public boolean contains(AbstractRule rule) {
+		return nodeIndex.containsKey(rule);
+	}
+
+	/**
+	 * Returns the documentation of the given rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Documentation of the rule, or {@code null} if it is not documented.
+	 */
+	public RuleDoc getRuleDoc(AbstractRule rule) {
+		Integer i = nodeIndex.get(rule);
+		return i == null ? null : ruleDocs[i];
+	}
+
+	/**
+	 * Returns the rules called directly by the given rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable list of called rules, in the order of their first
+	 *         call. Empty if the rule is not in the graph. Never {@code null}.
+	 */
+	public List<AbstractRule> getRefersTo(AbstractRule rule) {
+		Integer i = nodeIndex.get(rule);
+		return i == null ? Collections.emptyList() : toRules(successors[i]);
+	}
+
+	/**
+	 * Returns the rules calling directly the given rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable list of calling rules, in the order of the nodes.
+	 *         Empty if the rule is not in the graph. Never {@code null}.
+	 */
+	public List<AbstractRule> getReferredBy(AbstractRule rule) {
+		Integer i = nodeIndex.get(rule);
+		return i == null ? Collections.emptyList() : toRules(predecessors[i]);
+	}
+
+	/**
+	 * Returns the rules which are reachable (transitively) from the entry rule,
+	 * including the entry rule itself and the rules defined in other grammars.
+	 *
+	 * @return Unmodifiable list of rules in breadth-first order. Never
+	 *         {@code null}.
+	 */
+	public List<AbstractRule> getReachableRules() {
+		return toRules(reachableOrder);
+	}
+
+	/**
+	 * Returns true iff the given rule is reachable (transitively) from the entry
+	 * rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return True if the rule is reachable.
+	 */
+	public boolean isReachable(AbstractRule rule) {
+		Integer i = nodeIndex.get(rule);
+		return i != null && reachable[i];
+	}
+
+	/**
+	 * Returns the documentation of the rules which are not reachable from the
+	 * entry rule.
+	 *
+	 * @return Unmodifiable list of rule documentations, in their original order.
+	 *         Never {@code null}.
+	 */
+	public List<RuleDoc> getUnreachableRules() {
+		List<RuleDoc> ret = new ArrayList<>();
+		for (int i = 0; i < rules.length; i++) {
+			if (!reachable[i] && ruleDocs[i] != null) {
+				ret.add(ruleDocs[i]);
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Returns the strongly connected components of the graph. A rule may only
+	 * call (transitively) rules in its own component or in a component preceding
+	 * it in the list.
+	 *
+	 * @return Unmodifiable list of components, in reverse topological order.
+	 *         Never {@code null}.
+	 */
+	public List<List<AbstractRule>> getStronglyConnectedComponents() {
+		return components;
+	}
+
+	/**
+	 * Returns the groups of rules which are recursive, i.e. the strongly
+	 * connected components containing more than one rule or a rule calling
+	 * itself.
+	 *
+	 * @return Unmodifiable list of recursive rule groups. Never {@code null}.
+	 */
+	public List<List<AbstractRule>> getRecursiveGroups() {
+		List<List<AbstractRule>> ret = new ArrayList<>();
+		for (List<AbstractRule> component : components) {
+			if (component.size() > 1 || isRecursive(component.get(0))) {
+				ret.add(component);
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Returns true iff the given rule may call itself (transitively).
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return True if the rule is in a recursive rule group.
+	 */
+	public boolean isRecursive(AbstractRule rule) {
+		Integer i = nodeIndex.get(rule);
+		if (i == null) {
+			return false;
+		}
+		if (components.get(componentOf[i]).size() > 1) {
+			return true;
+		}
+		for (int successor : successors[i]) {
+			if (successor == i) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the neighborhood of the given rule: the rules called by it
+	 * (transitively) through at most the given number of rule calls, and the
+	 * rules calling it (transitively) through at most the given number of rule
+	 * calls.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @param depth
+	 *            Maximum number of rule calls between the given rule and the
+	 *            rules of its neighborhood. Shall not be negative.
+	 * @return Unmodifiable list of rules, including the given one, in the order
+	 *         of the nodes. Empty if the rule is not in the graph. Never
+	 *         {@code null}.
+	 */
+	public List<AbstractRule> getNeighborhood(AbstractRule rule, int depth) {
+		Preconditions.checkArgument(depth >= 0, "The depth shall not be negative: %s", depth);
+
+		Integer i = nodeIndex.get(rule);
+		if (i == null) {
+			return Collections.emptyList();
+		}
+		NeighborhoodBuffers buffers = neighborhoodBuffers.get();
+		int count = collectWithinDepth(i, depth, successors, buffers, 0);
+		count = collectWithinDepth(i, depth, predecessors, buffers, count);
+
+		int[] nodes = Arrays.copyOf(buffers.members, count);
+		for (int node : nodes) {
+			buffers.member[node] = false;
+		}
+		Arrays.sort(nodes);
+		return toRules(nodes);
+	}
+
+	private List<AbstractRule> toRules(int[] nodes) {
+		AbstractRule[] ret = new AbstractRule[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			ret[i] = rules[nodes[i]];
+		}
+		return Collections.unmodifiableList(Arrays.asList(ret));
+	}
+
+	private static int[][] invert(int[][] adjacency) {
+		int[] degree = new int[adjacency.length];
+		for (int[] targets : adjacency) {
+			for (int target : targets) {
+				degree[target]++;
+			}
+		}
+
+		int[][] ret = new int[adjacency.length][];
+		for (int i = 0; i < adjacency.length; i++) {
+			ret[i] = degree[i] == 0 ? NO_NEIGHBORS : new int[degree[i]];
+			degree[i] = 0;
+		}
+		for (int source = 0; source < adjacency.length; source++) {
+			for (int target : adjacency[source]) {
+				ret[target][degree[target]++] = source;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the nodes reachable from the given root in breadth-first order, and
+	 * marks them in the given array.
+	 */
+	private static int[] breadthFirst(int root, int[][] adjacency, boolean[] visited) {
+		int[] queue = new int[adjacency.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = root;
+		visited[root] = true;
+		while (head < tail) {
+			for (int next : adjacency[queue[head++]]) {
+				if (!visited[next]) {
+					visited[next] = true;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return Arrays.copyOf(queue, tail);
+	}
+
+	/**
+	 * Work arrays of {@link #collectWithinDepth}. The flags are all false
+	 * between two searches, only the touched entries are reset.
+	 */
+	private static final class NeighborhoodBuffers {
+		private final boolean[] visited;
+		private final int[] queue;
+		private final boolean[] member;
+		private final int[] members;
+
+		private NeighborhoodBuffers(int size) {
+			this.visited = new boolean[size];
+			this.queue = new int[size];
+			this.member = new boolean[size];
+			this.members = new int[size];
+		}
+	}
+
+	private NeighborhoodBuffers newNeighborhoodBuffers() {
+		return new NeighborhoodBuffers(rules.length);
+	}
+
+	/**
+	 * Collects the nodes reachable from the given root through at most the
+	 * given number of edges, using a breadth-first search limited to the given
+	 * depth. The nodes not collected yet are appended to the members of the
+	 * given buffers, from the given position. The nodes already collected are
+	 * not treated as visited.
+	 *
+	 * @return The number of collected nodes.
+	 */
+	private static int collectWithinDepth(int root, int depth, int[][] adjacency, NeighborhoodBuffers buffers,
+			int count) {
+		boolean[] visited = buffers.visited;
+		int[] queue = buffers.queue;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = root;
+		visited[root] = true;
+		for (int level = 0; level < depth && head < tail; level++) {
+			int levelEnd = tail;
+			while (head < levelEnd) {
+				for (int next : adjacency[queue[head++]]) {
+					if (!visited[next]) {
+						visited[next] = true;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		for (int j = 0; j < tail; j++) {
+			int node = queue[j];
+			visited[node] = false;
+			if (!buffers.member[node]) {
+				buffers.member[node] = true;
+				buffers.members[count++] = node;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the strongly connected components using an iterative version of
+	 * Tarjan's algorithm (grammars may be too deep for recursion), and fills
+	 * {@link #componentOf}.
+	 */
+	private List<List<AbstractRule>> stronglyConnectedComponents() {
+		int n = rules.length;
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		int[] callStack = new int[n];
+		int[] edgePosition = new int[n];
+		int nextIndex = 0;
+		Arrays.fill(index, -1);
+
+		List<List<AbstractRule>> ret = new ArrayList<>();
+		for (int root = 0; root < n; root++) {
+			if (index[root] != -1) {
+				continue;
+			}
+
+			int depth = 0;
+			callStack[0] = root;
+			edgePosition[root] = 0;
+			index[root] = lowLink[root] = nextIndex++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+
+			while (depth >= 0) {
+				int node = callStack[depth];
+				if (edgePosition[node] < successors[node].length) {
+					int next = successors[node][edgePosition[node]++];
+					if (index[next] == -1) {
+						index[next] = lowLink[next] = nextIndex++;
+						edgePosition[next] = 0;
+						stack[stackSize++] = next;
+						onStack[next] = true;
+						callStack[++depth] = next;
+					} else if (onStack[next]) {
+						lowLink[node] = Math.min(lowLink[node], index[next]);
+					}
+				} else {
+					if (lowLink[node] == index[node]) {
+						List<AbstractRule> component = new ArrayList<>();
+						int member;
+						do {
+							member = stack[--stackSize];
+							onStack[member] = false;
+							componentOf[member] = ret.size();
+							component.add(rules[member]);
+						} while (member != node);
+						Collections.reverse(component);
+						ret.add(Collections.unmodifiableList(component));
+					}
+					depth--;
+					if (depth >= 0) {
+						int parent = callStack[depth];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+}
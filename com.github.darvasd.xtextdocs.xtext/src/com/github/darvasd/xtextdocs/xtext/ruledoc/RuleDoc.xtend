@@ -17,6 +17,7 @@ import com.google.common.base.Preconditions
 import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment
 import org.eclipse.xtext.ParserRule
 import org.eclipse.xtext.EnumRule
+import com.github.darvasd.xtextdocs.xtext.HeadCommentIndex
 
 /**
  * Generic representation of documentation attached to an {@link AbstractRule} Xtext rule.
@@ -63,4 +64,17 @@ public abstract class RuleDoc {
 			TerminalRule: return new TerminalRuleDoc(rule, headComment)
 		}
 	}
+
+	/**
+	 * Creates an appropriate {@link RuleDoc} representation for the given 
+	 * rule, with the given head comment. The head comments of the elements
+	 * within the rule (e.g., enum literals) are taken from the given index.
+	 */
+	public def static RuleDoc create(AbstractRule rule, DocComment headComment, HeadCommentIndex headComments) {
+		switch (rule) {
+			ParserRule: return new ParserRuleDoc(rule, headComment)
+			EnumRule: return new EnumRuleDoc(rule, headComment, headComments)
+			TerminalRule: return new TerminalRuleDoc(rule, headComment)
+		}
+	}
 }
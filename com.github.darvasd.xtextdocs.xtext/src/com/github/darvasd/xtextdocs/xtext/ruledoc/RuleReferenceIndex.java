@@ -0,0 +1,155 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.ruledoc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.xtext.AbstractRule;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bidirectional index of the references between documented Xtext rules. For
+ * each rule it stores the rules referred by it and the documented rules
+ * referring to it.
+ * <p>
+ * The index is built in one pass over the edges of a {@link RuleDependencyGraph},
+ * then all lookups are constant time. Immutable after construction, thus it
+ * can be shared between threads.
+ */
+public final class RuleReferenceIndex {
+	/** Documented rules and their documentation, in their original order. */
+	private final Map<AbstractRule, RuleDoc> ruleDocs;
+
+	/** Rules referred by the key rule. */
+	private final Map<AbstractRule, Set<AbstractRule>> refersTo;
+
+	/** Documented rules referring to the key rule. */
+	private final Map<AbstractRule, Set<ReferenceRuleDoc>> referredBy;
+
+	/**
+	 * Creates a new reference index for the given rule documentations.
+	 *
+	 * @param rules
+	 *            Rule documentations to be indexed. Shall not be {@code null}.
+	 */
+	public RuleReferenceIndex(Collection<? extends RuleDoc> rules) {
+		this(new RuleDependencyGraph(new ArrayList<>(Preconditions.checkNotNull(rules))));
+	}
+
+	/**
+	 * Creates a new reference index for the documented rules of the given
+	 * dependency graph.
+	 *
+	 * @param graph
+	 *            Rule dependency graph to be indexed. Shall not be {@code null}.
+	 */
+	public RuleReferenceIndex(RuleDependencyGraph graph) {
+		Preconditions.checkNotNull(graph);
+
+		Map<AbstractRule, RuleDoc> ruleDocsMap = new LinkedHashMap<>();
+		Map<AbstractRule, Set<AbstractRule>> refersToMap = new LinkedHashMap<>();
+		Map<AbstractRule, Set<ReferenceRuleDoc>> referredByMap = new LinkedHashMap<>();
+
+		for (AbstractRule rule : graph.getRules()) {
+			RuleDoc ruleDoc = graph.getRuleDoc(rule);
+			if (ruleDoc == null) {
+				// The undocumented rules are at the end of the graph
+				break;
+			}
+			ruleDocsMap.put(rule, ruleDoc);
+
+			if (ruleDoc instanceof ReferenceRuleDoc) {
+				refersToMap.put(rule, Collections.unmodifiableSet(new LinkedHashSet<>(graph.getRefersTo(rule))));
+			}
+		}
+		for (AbstractRule rule : graph.getRules()) {
+			Set<ReferenceRuleDoc> referrers = new LinkedHashSet<>();
+			for (AbstractRule referrer : graph.getReferredBy(rule)) {
+				RuleDoc referrerDoc = ruleDocsMap.get(referrer);
+				if (referrerDoc instanceof ReferenceRuleDoc) {
+					referrers.add((ReferenceRuleDoc) referrerDoc);
+				}
+			}
+			if (!referrers.isEmpty()) {
+				referredByMap.put(rule, Collections.unmodifiableSet(referrers));
+			}
+		}
+
+		this.ruleDocs = Collections.unmodifiableMap(ruleDocsMap);
+		this.refersTo = refersToMap;
+		this.referredBy = referredByMap;
+	}
+
+	/**
+	 * Returns the mapping between the indexed Xtext rules and their
+	 * documentations.
+	 *
+	 * @return Unmodifiable map, respecting the original order of the rules. Never
+	 *         {@code null}.
+	 */
+	public Map<AbstractRule, RuleDoc> getRuleDocs() {
+		return ruleDocs;
+	}
+
+	/**
+	 * Returns the documentation of the given rule, if it is indexed.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Documentation of the rule, or {@code null} if it is not indexed
+	 *         (e.g. it is defined in another grammar).
+	 */
+	public RuleDoc getRuleDoc(AbstractRule rule) {
+		return ruleDocs.get(rule);
+	}
+
+	/**
+	 * Returns true iff the given rule is documented in this index.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return True if the documentation of the rule is indexed.
+	 */
+	public boolean contains(AbstractRule rule) {
+		return ruleDocs.containsKey(rule);
+	}
+
+	/**
+	 * Returns the rules referred by the given rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable set of the referred rules. Empty if the rule is not
+	 *         indexed or it does not refer to any rule. Never {@code null}.
+	 */
+	public Set<AbstractRule> getRefersTo(AbstractRule rule) {
+		return refersTo.getOrDefault(rule, Collections.emptySet());
+	}
+
+	/**
+	 * Returns the documented rules referring to the given rule.
+	 *
+	 * @param rule
+	 *            Xtext rule.
+	 * @return Unmodifiable set of the documentation of the referring rules.
+	 *         Empty if there is no such rule. Never {@code null}.
+	 */
+	public Set<ReferenceRuleDoc> getReferredBy(AbstractRule rule) {
+		return referredBy.getOrDefault(rule, Collections.emptySet());
+	}
+}
@@ -0,0 +1,483 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.darvasd.xtextdocs.common.io.OutputFileUtil;
+import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.Kind;
+import com.github.darvasd.xtextdocs.xtext.snapshot.RuleSnapshot.LiteralSnapshot;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Snapshot of the documentation of a grammar: the names, kinds, comments,
+ * source texts and references of its rules, the literals of its enum rules,
+ * and the simplified grammar, i.e. the BNF-like definitions of the rules
+ * reachable from the entry rule, as format-independent tokens. Unlike
+ * {@link com.github.darvasd.xtextdocs.xtext.ruledoc.GrammarDoc}, it does not
+ * refer to the EMF model of the grammar, thus it can be saved to a file and
+ * loaded again to render the documentation without loading the grammar (see
+ * e.g. {@link com.github.darvasd.xtextdocs.xtext.formatter.MarkdownDocsFormatter#formatGrammar(GrammarSnapshot, Appendable)}).
+ * Immutable.
+ * <p>
+ * The snapshot files are compact versioned binary files: all strings are
+ * stored once in a string table and referred by their indices, encoded as
+ * variable-length integers.
+ */
+public final class GrammarSnapshot {
+	private static final int MAGIC = 0x58444753; // "XDGS"
+	private static final int VERSION = 3;
+
+	/**
+	 * Simplified definition of a grammar rule, as included in the "Simplified
+	 * grammar" section of the documentation. Immutable.
+	 */
+	public static final class SimplifiedRule {
+		private final String name;
+		private final List<GrammarToken> tokens;
+
+		/**
+		 * Creates a new simplified rule definition.
+		 *
+		 * @param name
+		 *            Name of the rule. Shall not be {@code null}.
+		 * @param tokens
+		 *            Tokens of the right-hand side of the definition. Shall not
+		 *            be {@code null}.
+		 */
+		public SimplifiedRule(String name, List<GrammarToken> tokens) {
+			this.name = Preconditions.checkNotNull(name, "name");
+			this.tokens = ImmutableList.copyOf(tokens);
+		}
+
+		/**
+		 * Returns the name of the rule.
+		 *
+		 * @return Rule name. Never {@code null}.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the tokens of the right-hand side of the definition of the
+		 * rule.
+		 *
+		 * @return Unmodifiable list of tokens. Never {@code null}.
+		 */
+		public List<GrammarToken> getTokens() {
+			return tokens;
+		}
+	}
+
+	private final String grammarName;
+	private final DocComment headComment;
+	private final List<String> usedGrammarNames;
+	private final Map<String, String> metamodels;
+	private final List<RuleSnapshot> rules;
+	private final List<SimplifiedRule> simplifiedGrammar;
+
+	/** Rules by name. */
+	private final Map<String, RuleSnapshot> rulesByName;
+
+	/** Rules of this grammar referring to the key rule. */
+	private final Map<String, List<RuleSnapshot>> referredBy;
+
+	/**
+	 * Creates a new grammar snapshot.
+	 *
+	 * @param grammarName
+	 *            Fully qualified name of the grammar. Shall not be {@code null}.
+	 * @param commentText
+	 *            Raw text of the head comment of the grammar. May be
+	 *            {@code null} or empty if there is no head comment.
+	 * @param usedGrammarNames
+	 *            Names of the grammars directly used by the grammar. Shall not
+	 *            be {@code null}.
+	 * @param metamodels
+	 *            Namespace URIs of the metamodels imported with an alias, by
+	 *            alias. Shall not be {@code null}.
+	 * @param rules
+	 *            Snapshots of the rules, in their original order. The first one
+	 *            is the entry rule. Shall not be {@code null}.
+	 * @param simplifiedGrammar
+	 *            Simplified definitions of the rules reachable from the entry
+	 *            rule, including the ones of the used grammars, in
+	 *            breadth-first order. Shall not be {@code null}.
+	 */
+	public GrammarSnapshot(String grammarName, String commentText, List<String> usedGrammarNames,
+			Map<String, String> metamodels, List<RuleSnapshot> rules, List<SimplifiedRule> simplifiedGrammar) {
+		this.grammarName = Preconditions.checkNotNull(grammarName, "grammarName");
+		this.headComment = Strings.isNullOrEmpty(commentText) ? DocComment.empty() : DocComment.parse(commentText);
+		this.usedGrammarNames = ImmutableList.copyOf(usedGrammarNames);
+		this.metamodels = ImmutableMap.copyOf(metamodels);
+		this.rules = ImmutableList.copyOf(rules);
+		this.simplifiedGrammar = ImmutableList.copyOf(simplifiedGrammar);
+
+		Map<String, RuleSnapshot> rulesByNameMap = new LinkedHashMap<>();
+		Map<String, List<RuleSnapshot>> referredByMap = new LinkedHashMap<>();
+		for (RuleSnapshot rule : rules) {
+			rulesByNameMap.put(rule.getName(), rule);
+			for (String referred : rule.getRefersTo()) {
+				referredByMap.computeIfAbsent(referred, it -> new ArrayList<>()).add(rule);
+			}
+		}
+		this.rulesByName = Collections.unmodifiableMap(rulesByNameMap);
+		this.referredBy = referredByMap;
+	}
+
+	/**
+	 * Returns the fully qualified name of the grammar.
+	 *
+	 * @return Grammar name. Never {@code null}.
+	 */
+	public String getGrammarName() {
+		return grammarName;
+	}
+
+	/**
+	 * Returns the head comment of the grammar. It is parsed on first access.
+	 *
+	 * @return Head comment. Never {@code null}.
+	 */
+	public DocComment getHeadComment() {
+		return headComment;
+	}
+
+	/**
+	 * Returns the names of the grammars directly used by the grammar.
+	 *
+	 * @return Unmodifiable list of grammar names. Never {@code null}.
+	 */
+	public List<String> getUsedGrammarNames() {
+		return usedGrammarNames;
+	}
+
+	/**
+	 * Returns the namespace URIs of the metamodels imported with an alias.
+	 *
+	 * @return Unmodifiable map from the aliases to the namespace URIs. Never
+	 *         {@code null}.
+	 */
+	public Map<String, String> getMetamodels() {
+		return metamodels;
+	}
+
+	/**
+	 * Returns the snapshots of the rules of the grammar.
+	 *
+	 * @return Unmodifiable list of rules, in their original order. Never
+	 *         {@code null}.
+	 */
+	public List<RuleSnapshot> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Returns the simplified definitions of the rules reachable from the entry
+	 * rule, as included in the "Simplified grammar" section of the
+	 * documentation.
+	 *
+	 * @return Unmodifiable list of rule definitions, in breadth-first order from
+	 *         the entry rule. Never {@code null}.
+	 */
+	public List<SimplifiedRule> getSimplifiedGrammar() {
+		return simplifiedGrammar;
+	}
+
+	/**
+	 * Returns the snapshot of the rule with the given name.
+	 *
+	 * @param ruleName
+	 *            Name of the rule.
+	 * @return Rule snapshot, or {@code null} if there is no such rule in this
+	 *         grammar (e.g. it is defined in a used grammar).
+	 */
+	public RuleSnapshot getRule(String ruleName) {
+		return rulesByName.get(ruleName);
+	}
+
+	/**
+	 * Returns the rules of this grammar referring to the rule with the given
+	 * name.
+	 *
+	 * @param ruleName
+	 *            Name of the referred rule.
+	 * @return Unmodifiable list of the referring rules, in their original order.
+	 *         Never {@code null}.
+	 */
+	public List<RuleSnapshot> getReferredBy(String ruleName) {
+		List<RuleSnapshot> ret = referredBy.get(ruleName);
+		return ret == null ? Collections.emptyList() : Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Saves the snapshot to the given file. The file is replaced only if its
+	 * content changed, once it has been completely written (see
+	 * {@link OutputFileUtil#writeBytesIfChanged(Path, OutputFileUtil.BinaryContentWriter)}).
+	 * The missing parent directories will be created.
+	 *
+	 * @param file
+	 *            Snapshot file. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public void save(Path file) throws IOException {
+		Preconditions.checkNotNull(file);
+		OutputFileUtil.writeBytesIfChanged(file, this::write);
+	}
+
+	/**
+	 * Loads a snapshot from the given file.
+	 *
+	 * @param file
+	 *            Snapshot file. Shall not be {@code null}.
+	 * @return The loaded snapshot. Never {@code null}.
+	 * @throws IOException
+	 *             if the file cannot be read, or it is not a compatible
+	 *             snapshot file.
+	 */
+	public static GrammarSnapshot load(Path file) throws IOException {
+		Preconditions.checkNotNull(file);
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Writes the snapshot to the given stream. The stream will not be closed.
+	 *
+	 * @param output
+	 *            Output stream. Shall not be {@code null}.
+	 * @throws IOException
+	 *             if the stream cannot be written.
+	 */
+	public void write(OutputStream output) throws IOException {
+		Preconditions.checkNotNull(output);
+
+		// The body is written first, collecting the strings for the string table
+		StringTableWriter strings = new StringTableWriter();
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bodyBytes);
+
+		strings.write(body, grammarName);
+		strings.write(body, headComment.getText());
+		writeVarInt(body, usedGrammarNames.size());
+		for (String usedGrammarName : usedGrammarNames) {
+			strings.write(body, usedGrammarName);
+		}
+		writeVarInt(body, metamodels.size());
+		for (Map.Entry<String, String> metamodel : metamodels.entrySet()) {
+			strings.write(body, metamodel.getKey());
+			strings.write(body, metamodel.getValue());
+		}
+
+		writeVarInt(body, rules.size());
+		for (RuleSnapshot rule : rules) {
+			strings.write(body, rule.getName());
+			body.writeByte(rule.getKind().ordinal());
+			strings.write(body, rule.getHeadComment().getText());
+			strings.write(body, rule.getSourceText());
+			strings.write(body, rule.getReturnType());
+			writeVarInt(body, rule.getRefersTo().size());
+			for (String referred : rule.getRefersTo()) {
+				strings.write(body, referred);
+			}
+			writeVarInt(body, rule.getLiterals().size());
+			for (LiteralSnapshot literal : rule.getLiterals()) {
+				strings.write(body, literal.getEnumLiteralName());
+				strings.write(body, literal.getLiteralText());
+				strings.write(body, literal.getCommentText());
+			}
+		}
+		writeVarInt(body, simplifiedGrammar.size());
+		for (SimplifiedRule rule : simplifiedGrammar) {
+			strings.write(body, rule.getName());
+			writeVarInt(body, rule.getTokens().size());
+			for (GrammarToken token : rule.getTokens()) {
+				body.writeByte(token.getType().ordinal());
+				strings.write(body, token.getText());
+			}
+		}
+		body.flush();
+
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeVarInt(out, strings.table.size());
+		for (String string : strings.table.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+		bodyBytes.writeTo(out);
+		out.flush();
+	}
+
+	/**
+	 * Reads a snapshot from the given stream. The stream will not be closed.
+	 *
+	 * @param input
+	 *            Input stream. Shall not be {@code null}.
+	 * @return The read snapshot. Never {@code null}.
+	 * @throws IOException
+	 *             if the stream cannot be read, or it does not contain a
+	 *             compatible snapshot.
+	 */
+	public static GrammarSnapshot read(InputStream input) throws IOException {
+		Preconditions.checkNotNull(input);
+
+		DataInputStream in = new DataInputStream(input);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a grammar snapshot.");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException(String.format("Unsupported grammar snapshot version: %s.", version));
+		}
+
+		String[] strings = new String[readVarInt(in)];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[readVarInt(in)];
+			in.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		String grammarName = readString(in, strings);
+		String commentText = readString(in, strings);
+		int usedGrammarCount = readVarInt(in);
+		List<String> usedGrammarNames = new ArrayList<>(usedGrammarCount);
+		for (int i = 0; i < usedGrammarCount; i++) {
+			usedGrammarNames.add(readString(in, strings));
+		}
+		int metamodelCount = readVarInt(in);
+		Map<String, String> metamodels = new LinkedHashMap<>();
+		for (int i = 0; i < metamodelCount; i++) {
+			metamodels.put(readString(in, strings), readString(in, strings));
+		}
+
+		Kind[] kinds = Kind.values();
+		int ruleCount = readVarInt(in);
+		List<RuleSnapshot> rules = new ArrayList<>(ruleCount);
+		for (int i = 0; i < ruleCount; i++) {
+			String name = readString(in, strings);
+			int kind = in.readUnsignedByte();
+			if (kind >= kinds.length) {
+				throw new IOException("Invalid rule kind: " + kind);
+			}
+			String ruleComment = readString(in, strings);
+			String sourceText = readString(in, strings);
+			String returnType = readString(in, strings);
+			int refCount = readVarInt(in);
+			List<String> refersTo = new ArrayList<>(refCount);
+			for (int j = 0; j < refCount; j++) {
+				refersTo.add(readString(in, strings));
+			}
+			int literalCount = readVarInt(in);
+			List<LiteralSnapshot> literals = new ArrayList<>(literalCount);
+			for (int j = 0; j < literalCount; j++) {
+				literals.add(
+						new LiteralSnapshot(readString(in, strings), readString(in, strings), readString(in, strings)));
+			}
+			rules.add(new RuleSnapshot(name, kinds[kind], ruleComment, sourceText, returnType, refersTo, literals));
+		}
+		int simplifiedRuleCount = readVarInt(in);
+		List<SimplifiedRule> simplifiedGrammar = new ArrayList<>(simplifiedRuleCount);
+		GrammarToken.Type[] tokenTypes = GrammarToken.Type.values();
+		for (int i = 0; i < simplifiedRuleCount; i++) {
+			String name = readString(in, strings);
+			int tokenCount = readVarInt(in);
+			List<GrammarToken> tokens = new ArrayList<>(tokenCount);
+			for (int j = 0; j < tokenCount; j++) {
+				int tokenType = in.readUnsignedByte();
+				if (tokenType >= tokenTypes.length) {
+					throw new IOException("Invalid token type: " + tokenType);
+				}
+				tokens.add(new GrammarToken(tokenTypes[tokenType], readString(in, strings)));
+			}
+			simplifiedGrammar.add(new SimplifiedRule(name, tokens));
+		}
+
+		try {
+			return new GrammarSnapshot(grammarName, commentText, usedGrammarNames, metamodels, rules,
+					simplifiedGrammar);
+		} catch (NullPointerException | IllegalArgumentException e) {
+			throw new IOException("Invalid grammar snapshot.", e);
+		}
+	}
+
+	/**
+	 * Collector of the strings of the string table. The index 0 represents
+	 * {@code null}, the strings of the table are referred by their position + 1.
+	 */
+	private static final class StringTableWriter {
+		private final Map<String, Integer> table = new LinkedHashMap<>();
+
+		void write(DataOutputStream out, String value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, 0);
+			} else {
+				writeVarInt(out, table.computeIfAbsent(value, it -> table.size() + 1));
+			}
+		}
+	}
+
+	private static String readString(DataInputStream in, String[] strings) throws IOException {
+		int index = readVarInt(in);
+		if (index > strings.length) {
+			throw new IOException("Invalid string index: " + index);
+		}
+		return index == 0 ? null : strings[index - 1];
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		Preconditions.checkArgument(value >= 0);
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			out.writeByte((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		out.writeByte(remaining);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int ret = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			ret |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (ret < 0) {
+					break;
+				}
+				return ret;
+			}
+		}
+		throw new IOException("Invalid variable-length integer.");
+	}
+}
@@ -0,0 +1,80 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.snapshot;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Token of the simplified, BNF-like definition of a grammar rule, independent
+ * of the output format. Each documentation formatter renders the tokens with
+ * its own text formatter (see
+ * {@link com.github.darvasd.xtextdocs.xtext.formatter.SimplifiedGrammarRenderer#render(java.util.List)}).
+ * Immutable.
+ */
+public final class GrammarToken {
+	/**
+	 * Type of a token, determining how it is formatted.
+	 */
+	public enum Type {
+		/** Keyword, formatted as inline code. */
+		KEYWORD,
+		/** Name of a called rule, formatted as italic text. */
+		RULE_CALL,
+		/** Wildcard ({@code .}), formatted as italic text. */
+		WILDCARD,
+		/** Separator of the elements of a group or of alternatives, not formatted. */
+		SEPARATOR,
+		/** Opening parenthesis of a nested group, not formatted. */
+		GROUP_START,
+		/** Closing parenthesis of a nested group, not formatted. */
+		GROUP_END,
+		/** Cardinality ({@code ?}, {@code *} or {@code +}), not formatted. */
+		CARDINALITY,
+		/** Other notation (e.g. of character ranges and negated tokens), not formatted. */
+		SYMBOL,
+		/** Text to be escaped (e.g. a guard condition placeholder). */
+		TEXT
+	}
+
+	private final Type type;
+	private final String text;
+
+	/**
+	 * Creates a new token.
+	 *
+	 * @param type
+	 *            Type of the token. Shall not be {@code null}.
+	 * @param text
+	 *            Unformatted text of the token. Shall not be {@code null}.
+	 */
+	public GrammarToken(Type type, String text) {
+		this.type = Preconditions.checkNotNull(type, "type");
+		this.text = Preconditions.checkNotNull(text, "text");
+	}
+
+	/**
+	 * Returns the type of the token.
+	 *
+	 * @return Token type. Never {@code null}.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the unformatted text of the token.
+	 *
+	 * @return Token text. Never {@code null}.
+	 */
+	public String getText() {
+		return text;
+	}
+}
@@ -0,0 +1,206 @@
+/*********************************************************************
+* Copyright (c) 2018 Daniel Darvas
+*
+* This program and the accompanying materials are made
+* available under the terms of the Eclipse Public License 2.0
+* which is available at https://www.eclipse.org/legal/epl-2.0/
+*
+* SPDX-License-Identifier: EPL-2.0
+**********************************************************************/
+
+package com.github.darvasd.xtextdocs.xtext.snapshot;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.github.darvasd.xtextdocs.xtext.doccomment.DocComment;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Snapshot of the documentation of a grammar rule. Contains everything needed
+ * to render the documentation of the rule, without referring to the EMF model
+ * of the grammar. Immutable.
+ */
+public final class RuleSnapshot {
+	/**
+	 * Kind of a grammar rule.
+	 */
+	public enum Kind {
+		PARSER, ENUM, TERMINAL, TERMINAL_FRAGMENT
+	}
+
+	/**
+	 * Snapshot of an enum literal declaration of an enum rule. Immutable.
+	 */
+	public static final class LiteralSnapshot {
+		private final String enumLiteralName;
+		private final String literalText;
+		private final String commentText;
+		private final Optional<DocComment> comment;
+
+		/**
+		 * Creates a new enum literal declaration snapshot.
+		 *
+		 * @param enumLiteralName
+		 *            Name of the declared enum literal. May be {@code null}.
+		 * @param literalText
+		 *            Text of the literal. May be {@code null}.
+		 * @param commentText
+		 *            Raw text of the head comment of the declaration. May be
+		 *            {@code null}.
+		 */
+		public LiteralSnapshot(String enumLiteralName, String literalText, String commentText) {
+			this.enumLiteralName = enumLiteralName;
+			this.literalText = literalText;
+			this.commentText = commentText;
+			this.comment = commentText == null ? Optional.empty() : Optional.of(DocComment.parse(commentText));
+		}
+
+		/**
+		 * Returns the name of the declared enum literal.
+		 *
+		 * @return Enum literal name. May be {@code null}.
+		 */
+		public String getEnumLiteralName() {
+			return enumLiteralName;
+		}
+
+		/**
+		 * Returns the text of the literal.
+		 *
+		 * @return Literal text. May be {@code null}.
+		 */
+		public String getLiteralText() {
+			return literalText;
+		}
+
+		/**
+		 * Returns the raw text of the head comment of the declaration.
+		 *
+		 * @return Comment text. {@code null} if there is no head comment.
+		 */
+		public String getCommentText() {
+			return commentText;
+		}
+
+		/**
+		 * Returns the head comment of the declaration, parsed on creation.
+		 *
+		 * @return Head comment, or empty if there is no head comment. Never
+		 *         {@code null}.
+		 */
+		public Optional<DocComment> getComment() {
+			return comment;
+		}
+	}
+
+	private final String name;
+	private final Kind kind;
+	private final DocComment headComment;
+	private final String sourceText;
+	private final String returnType;
+	private final List<String> refersTo;
+	private final List<LiteralSnapshot> literals;
+
+	/**
+	 * Creates a new rule snapshot.
+	 *
+	 * @param name
+	 *            Name of the rule. Shall not be {@code null}.
+	 * @param kind
+	 *            Kind of the rule. Shall not be {@code null}.
+	 * @param commentText
+	 *            Raw text of the head comment of the rule. May be {@code null}
+	 *            or empty if there is no head comment.
+	 * @param sourceText
+	 *            Source text of the rule. Shall not be {@code null}.
+	 * @param returnType
+	 *            Return type of a parser rule (e.g. {@code ecore::EString}), if
+	 *            it is not in the generated metamodel. May be {@code null}.
+	 * @param refersTo
+	 *            Names of the rules referred by the rule. Shall not be
+	 *            {@code null}.
+	 * @param literals
+	 *            Enum literal declarations of an enum rule. Shall not be
+	 *            {@code null}.
+	 */
+	public RuleSnapshot(String name, Kind kind, String commentText, String sourceText, String returnType,
+			List<String> refersTo, List<LiteralSnapshot> literals) {
+		this.name = Preconditions.checkNotNull(name, "name");
+		this.kind = Preconditions.checkNotNull(kind, "kind");
+		this.headComment = Strings.isNullOrEmpty(commentText) ? DocComment.empty() : DocComment.parse(commentText);
+		this.sourceText = Preconditions.checkNotNull(sourceText, "sourceText");
+		this.returnType = returnType;
+		this.refersTo = ImmutableList.copyOf(refersTo);
+		this.literals = ImmutableList.copyOf(literals);
+	}
+
+	/**
+	 * Returns the name of the rule.
+	 *
+	 * @return Rule name. Never {@code null}.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the kind of the rule.
+	 *
+	 * @return Rule kind. Never {@code null}.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the head comment of the rule. It is parsed on first access.
+	 *
+	 * @return Head comment. Never {@code null}.
+	 */
+	public DocComment getHeadComment() {
+		return headComment;
+	}
+
+	/**
+	 * Returns the source text of the rule.
+	 *
+	 * @return Source text. Never {@code null}.
+	 */
+	public String getSourceText() {
+		return sourceText;
+	}
+
+	/**
+	 * Returns the return type of a parser rule, if it is not in the generated
+	 * metamodel (e.g. {@code ecore::EString}).
+	 *
+	 * @return Return type. {@code null} if not applicable.
+	 */
+	public String getReturnType() {
+		return returnType;
+	}
+
+	/**
+	 * Returns the names of the rules referred by this rule, possibly defined in
+	 * other grammars.
+	 *
+	 * @return Unmodifiable list of rule names. Never {@code null}.
+	 */
+	public List<String> getRefersTo() {
+		return refersTo;
+	}
+
+	/**
+	 * Returns the enum literal declarations of an enum rule, in their original
+	 * order.
+	 *
+	 * @return Unmodifiable list of literals. Empty if the rule is not an enum
+	 *         rule. Never {@code null}.
+	 */
+	public List<LiteralSnapshot> getLiterals() {
+		return literals;
+	}
+}